@@ -0,0 +1,73 @@
+package benchmark;
+
+import data.memory.AllocationStrategy;
+import manager.IMemoryManager;
+import misc.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of creating and terminating a process, which covers
+ * the admission checks, the frame allocation and the reclamation.
+ *
+ * The allocation strategy only applies to the sequential manager;
+ * compare them with -p allocator=FIRST_FIT,BUDDY,SLAB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+    private static final int PROCESS_ID = 1;
+
+    @Param({"sequential", "concurrent"})
+    public String manager;
+
+    @Param({"16777216", "268435456"})
+    public long memorySize;
+
+    @Param({"256", "4096"})
+    public int pageSize;
+
+    @Param({"0", "50", "90"})
+    public int fragmentationPercent;
+
+    @Param({"16"})
+    public int processPages;
+
+    @Param({"FIRST_FIT"})
+    public String allocator;
+
+    private IMemoryManager memoryManager;
+    private int processSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        processSize = processPages * pageSize;
+        Configuration configuration = new Configuration(memorySize, pageSize, processSize)
+                .withAllocationStrategy(AllocationStrategy.valueOf(allocator));
+        memoryManager = BenchmarkMemories.create(manager, configuration, BenchmarkMemories.DISCARD);
+        BenchmarkMemories.fragment(memoryManager, memorySize, processSize, fragmentationPercent, PROCESS_ID + 1);
+    }
+
+    @Benchmark
+    public void createAndTerminate() throws Exception {
+        memoryManager.createProcess(PROCESS_ID, processSize);
+        memoryManager.terminateProcess(PROCESS_ID);
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import manager.ConcurrentMemoryManager;
+import manager.IMemoryManager;
+import manager.MemoryManager;
+import misc.Configuration;
+import misc.MemoryBacking;
+import misc.OutputSink;
+
+import java.io.IOException;
+
+/**
+ * Helpers shared by the JMH benchmarks to build and pre-fill managers.
+ */
+final class BenchmarkMemories {
+
+    static final OutputSink DISCARD = message -> { };
+
+    private BenchmarkMemories() {
+    }
+
+    static IMemoryManager create(String kind, long memorySize, int pageSize, int maxProcessSize,
+                                 MemoryBacking backing, OutputSink sink) throws IOException {
+        return create(kind, new Configuration(memorySize, pageSize, maxProcessSize, backing, null), sink);
+    }
+
+    static IMemoryManager create(String kind, Configuration configuration, OutputSink sink) throws IOException {
+        if (kind.equals("concurrent")) {
+            ConcurrentMemoryManager manager = new ConcurrentMemoryManager(sink);
+            manager.storeConfiguration(configuration);
+            return manager;
+        }
+        MemoryManager manager = new MemoryManager(sink);
+        manager.storeConfiguration(configuration);
+        return manager;
+    }
+
+    /**
+     *
+     * This method fills the whole memory with processes of the maximum
+     * size and then terminates processes evenly across the memory, so that
+     * the given percentage of it stays occupied by scattered processes.
+     *
+     * @param manager a freshly configured manager
+     * @param memorySize the size of the manager's memory
+     * @param maxProcessSize the maximum size of a process on that manager
+     * @param fragmentationPercent how much of the memory stays occupied
+     * @param firstProcessId the id given to the first filler process
+     *
+     * @return the ids of the processes left running
+     *
+     */
+    static int[] fragment(IMemoryManager manager, long memorySize, int maxProcessSize,
+                          int fragmentationPercent, int firstProcessId) throws Exception {
+        int fillers = (int) (memorySize / maxProcessSize);
+        int survivors = (int) ((long) fillers * fragmentationPercent / 100);
+        int[] running = new int[survivors];
+        if (survivors == 0) {
+            return running;
+        }
+
+        for (int i = 0; i < fillers; i++) {
+            manager.createProcess(firstProcessId + i, maxProcessSize);
+        }
+
+        int kept = 0;
+        long accumulated = 0;
+        for (int i = 0; i < fillers; i++) {
+            accumulated += fragmentationPercent;
+            if (accumulated >= 100 && kept < survivors) {
+                accumulated -= 100;
+                running[kept++] = firstProcessId + i;
+            } else {
+                manager.terminateProcess(firstProcessId + i);
+            }
+        }
+        return running;
+    }
+}
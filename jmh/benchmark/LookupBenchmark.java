@@ -0,0 +1,78 @@
+package benchmark;
+
+import manager.IMemoryManager;
+import misc.MemoryBacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of reaching a byte of a random running process, which
+ * goes through the PID lookup and the page table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    private static final int ADDRESSES = 1 << 16;
+
+    @Param({"sequential", "concurrent"})
+    public String manager;
+
+    @Param({"16777216", "268435456"})
+    public long memorySize;
+
+    @Param({"256", "4096"})
+    public int pageSize;
+
+    @Param({"4"})
+    public int processPages;
+
+    private IMemoryManager memoryManager;
+    private int[] processIds;
+    private int[] addresses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int processSize = processPages * pageSize;
+        memoryManager = BenchmarkMemories.create(
+                manager, memorySize, pageSize, processSize, MemoryBacking.HEAP, BenchmarkMemories.DISCARD
+        );
+
+        int numberOfProcesses = (int) (memorySize / processSize);
+        for (int pid = 1; pid <= numberOfProcesses; pid++) {
+            memoryManager.createProcess(pid, processSize);
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        processIds = new int[ADDRESSES];
+        addresses = new int[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            processIds[i] = 1 + random.nextInt(numberOfProcesses);
+            addresses[i] = random.nextInt(processSize);
+        }
+    }
+
+    @Benchmark
+    public byte accessMemory() throws Exception {
+        int i = next++ & (ADDRESSES - 1);
+        return memoryManager.accessMemory(processIds[i], addresses[i]);
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import manager.AllocationBatch;
+import manager.IMemoryManager;
+import misc.MemoryBacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning down process creation requests on a full memory,
+ * one exception at a time with createProcess, or all at once with
+ * createProcesses, which records each rejection as a status.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverloadBenchmark {
+
+    private static final int REQUESTS = 64;
+    private static final int MEMORY_SIZE = 1 << 20;
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_PROCESS_SIZE = 4 * PAGE_SIZE;
+
+    @Param({"sequential", "concurrent"})
+    public String manager;
+
+    private IMemoryManager memoryManager;
+    private AllocationBatch batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        memoryManager = BenchmarkMemories.create(
+                manager, MEMORY_SIZE, PAGE_SIZE, MAX_PROCESS_SIZE, MemoryBacking.HEAP, BenchmarkMemories.DISCARD
+        );
+        BenchmarkMemories.fragment(memoryManager, MEMORY_SIZE, MAX_PROCESS_SIZE, 100, 1);
+        batch = new AllocationBatch(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            batch.add(-1, MAX_PROCESS_SIZE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int createProcess() {
+        int rejected = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            try {
+                memoryManager.createProcess(-1, MAX_PROCESS_SIZE);
+            } catch (Exception ex) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int createProcesses() {
+        memoryManager.createProcesses(batch);
+        return batch.createdCount();
+    }
+}
@@ -0,0 +1,46 @@
+package benchmark;
+
+import manager.IMemoryManager;
+import misc.MemoryBacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of storing a configuration, which sets up the simulated memory.
+ * Frames are only materialized when first used, so this should barely
+ * grow with the size of the memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class StartupBenchmark {
+
+    @Param({"16777216", "268435456", "17179869184"})
+    public long memorySize;
+
+    @Param({"256", "4096"})
+    public int pageSize;
+
+    @Param({"HEAP", "DIRECT"})
+    public MemoryBacking backing;
+
+    @Benchmark
+    public IMemoryManager storeConfiguration() throws Exception {
+        return BenchmarkMemories.create(
+                "sequential", memorySize, pageSize, pageSize, backing, BenchmarkMemories.DISCARD
+        );
+    }
+}
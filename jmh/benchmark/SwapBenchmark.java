@@ -0,0 +1,110 @@
+package benchmark;
+
+import manager.MemoryManager;
+import misc.Configuration;
+import misc.MemoryBacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import paging.ReplacementPolicyType;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of touching random pages of processes that take two or three
+ * times the memory, so most touches fault, with the evicted pages kept
+ * in a swap file or compressed in memory. The pages hold text-like data
+ * that deflates to less than half its size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwapBenchmark {
+
+    private static final long MEMORY_SIZE = 1 << 20;
+    private static final int PROCESS_SIZE = 1 << 16;
+    private static final int WORDS = 256;
+
+    @Param({"file", "compressed"})
+    public String swap;
+
+    @Param({"2", "3"})
+    public int overcommit;
+
+    @Param({"4096"})
+    public int pageSize;
+
+    private MemoryManager memoryManager;
+    private Path swapFile;
+    private int numberOfProcesses;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        numberOfProcesses = (int) (overcommit * MEMORY_SIZE / PROCESS_SIZE);
+        long swapSize = (overcommit - 1) * MEMORY_SIZE + MEMORY_SIZE / 2;
+        Configuration configuration = new Configuration(MEMORY_SIZE, pageSize, PROCESS_SIZE, MemoryBacking.HEAP, null);
+        if (swap.equals("file")) {
+            swapFile = Files.createTempFile("swap-benchmark", ".bin");
+            configuration = configuration.withSwap(swapSize, swapFile.toString(), ReplacementPolicyType.CLOCK);
+        } else {
+            configuration = configuration.withCompressedSwap(swapSize, swapSize / 2, null, ReplacementPolicyType.CLOCK);
+        }
+        memoryManager = new MemoryManager(BenchmarkMemories.DISCARD);
+        memoryManager.storeConfiguration(configuration);
+
+        random = new Random(42);
+        byte[][] words = new byte[WORDS][];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = new byte[3 + random.nextInt(8)];
+            for (int j = 0; j < words[i].length; j++) {
+                words[i][j] = (byte) ('a' + random.nextInt(26));
+            }
+        }
+        ByteBuffer contents = ByteBuffer.allocate(PROCESS_SIZE);
+        for (int processId = 1; processId <= numberOfProcesses; processId++) {
+            memoryManager.createProcess(processId, PROCESS_SIZE);
+            contents.clear();
+            while (contents.hasRemaining()) {
+                byte[] word = words[random.nextInt(WORDS)];
+                contents.put(word, 0, Math.min(word.length, contents.remaining()));
+                if (contents.hasRemaining()) {
+                    contents.put((byte) ' ');
+                }
+            }
+            contents.flip();
+            memoryManager.write(processId, 0, contents);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        memoryManager.close();
+        if (swapFile != null) {
+            Files.deleteIfExists(swapFile);
+        }
+    }
+
+    @Benchmark
+    public byte touchRandomPage() throws Exception {
+        int processId = 1 + random.nextInt(numberOfProcesses);
+        return memoryManager.accessMemory(processId, random.nextInt(PROCESS_SIZE / pageSize) * pageSize);
+    }
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import manager.IMemoryManager;
+import misc.MemoryBacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of moving a whole process, a megabyte by default, in and out
+ * of its memory: with read and write, one bulk copy per page, or a byte
+ * at a time with accessMemory and writeByte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final int PROCESS_ID = 1;
+
+    @Param({"sequential", "concurrent"})
+    public String manager;
+
+    @Param({"256", "4096"})
+    public int pageSize;
+
+    @Param({"1048576"})
+    public int processSize;
+
+    @Param({"heap", "direct"})
+    public String buffer;
+
+    private IMemoryManager memoryManager;
+    private ByteBuffer data;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        memoryManager = BenchmarkMemories.create(
+                manager, 4L * processSize, pageSize, processSize, MemoryBacking.HEAP, BenchmarkMemories.DISCARD
+        );
+        memoryManager.createProcess(PROCESS_ID, processSize);
+        data = buffer.equals("direct") ? ByteBuffer.allocateDirect(processSize) : ByteBuffer.allocate(processSize);
+    }
+
+    @Benchmark
+    public ByteBuffer read() throws Exception {
+        data.clear();
+        memoryManager.read(PROCESS_ID, 0, data);
+        return data;
+    }
+
+    @Benchmark
+    public ByteBuffer write() throws Exception {
+        data.clear();
+        memoryManager.write(PROCESS_ID, 0, data);
+        return data;
+    }
+
+    @Benchmark
+    public ByteBuffer readBytes() throws Exception {
+        data.clear();
+        for (int address = 0; address < processSize; address++) {
+            data.put(memoryManager.accessMemory(PROCESS_ID, address));
+        }
+        return data;
+    }
+
+    @Benchmark
+    public ByteBuffer writeBytes() throws Exception {
+        data.clear();
+        for (int address = 0; address < processSize; address++) {
+            memoryManager.writeByte(PROCESS_ID, address, data.get());
+        }
+        return data;
+    }
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import manager.IMemoryManager;
+import misc.MemoryBacking;
+import misc.ViewOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the memory and page table views, and of polling
+ * the memory view for the frames changed since the last poll.
+ * The rendered text is counted, not printed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewBenchmark {
+
+    private static final int PROCESS_ID = 1;
+
+    @Param({"65536", "1048576"})
+    public long memorySize;
+
+    @Param({"256", "4096"})
+    public int pageSize;
+
+    @Param({"50"})
+    public int fragmentationPercent;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private IMemoryManager memoryManager;
+    private ViewOptions viewOptions;
+    private ViewOptions changesOptions;
+    private long renderedCharacters;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        memoryManager = BenchmarkMemories.create(
+                "sequential", memorySize, pageSize, 4 * pageSize, MemoryBacking.HEAP,
+                message -> renderedCharacters += message.length()
+        );
+        BenchmarkMemories.fragment(memoryManager, memorySize, 4 * pageSize, fragmentationPercent, PROCESS_ID + 1);
+        memoryManager.createProcess(PROCESS_ID, 4 * pageSize);
+        viewOptions = compact ? ViewOptions.compact() : ViewOptions.full();
+        changesOptions = viewOptions.withChangesSinceLastView();
+    }
+
+    @Benchmark
+    public long showMemory() {
+        memoryManager.showMemory(viewOptions);
+        return renderedCharacters;
+    }
+
+    /**
+     * One byte is written between polls, so one frame changes.
+     */
+    @Benchmark
+    public long showMemoryChanges() throws Exception {
+        memoryManager.writeByte(PROCESS_ID, 0, (byte) renderedCharacters);
+        memoryManager.showMemory(changesOptions);
+        return renderedCharacters;
+    }
+
+    @Benchmark
+    public long showPageTableForProcess() {
+        memoryManager.showPageTableForProcess(PROCESS_ID, viewOptions);
+        return renderedCharacters;
+    }
+}
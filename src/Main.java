@@ -1,8 +1,29 @@
+import batch.BatchMode;
 import misc.InterfaceManager;
+import replay.ReplayMode;
+import simulation.SimulationMode;
+
+import java.util.Arrays;
 
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchMode.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            SimulationMode.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--replay")) {
+            ReplayMode.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--record-trace")) {
+            ReplayMode.record(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         new InterfaceManager().init();
     }
 
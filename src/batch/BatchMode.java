@@ -0,0 +1,383 @@
+package batch;
+
+import manager.ConcurrentMemoryManager;
+import manager.IMemoryManager;
+import manager.MemoryManager;
+import data.memory.AllocationStrategy;
+import data.process.PageTableType;
+import misc.Configuration;
+import misc.MemoryBacking;
+import misc.OutputSink;
+import metrics.LatencyHistogram;
+import misc.ViewOptions;
+import paging.CompressedSwapArea;
+import paging.ReplacementPolicyType;
+import paging.TranslationLookasideBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the headless mode, which replays a trace file
+ * instead of asking the user what to do.
+ *
+ * Usage:
+ * <pre>
+ * --batch &lt;trace&gt; &lt;memorySize&gt; &lt;pageSize&gt; &lt;maxProcessSize&gt;
+ *         [--backing heap|direct|mapped:&lt;file&gt;] [--swap &lt;file&gt; &lt;size&gt;]
+ *         [--compressed-swap &lt;size&gt; &lt;arenaSize&gt;[:&lt;file&gt;]]
+ *         [--policy fifo|lru|clock] [--tlb &lt;entries&gt;:&lt;ways&gt;[:flush]]
+ *         [--page-table dense|two-level|three-level|inverted]
+ *         [--allocator first-fit|buddy|slab] [--merge &lt;frames&gt;:&lt;budgetMicros&gt;:&lt;interval&gt;]
+ *         [--reclaim &lt;low&gt;:&lt;high&gt;:&lt;batch&gt;]
+ *         [--concurrent] [--print-views] [--compact-views] [--view-range &lt;from&gt;:&lt;to&gt;]
+ *         [--changed-views] [--restore &lt;snapshot&gt;] [--checkpoint &lt;snapshot&gt;]
+ * </pre>
+ *
+ * Views are rendered but thrown away unless --print-views is given.
+ * --compact-views collapses them into runs of slots with the same owner,
+ * and --view-range keeps only some frames of the memory view, or some
+ * pages of the page table views. --changed-views keeps only the frames
+ * that changed since the memory view before.
+ * --restore starts the replay from a snapshot, whose configuration
+ * replaces the one given, and --checkpoint saves one once it is over.
+ * With --tlb, the TLB is flushed on every context switch when the
+ * :flush suffix is given and keeps per-process entries otherwise.
+ * --compressed-swap keeps the swap area in memory, compressed in an
+ * arena of up to arenaSize bytes, and in the file, if one is given,
+ * once the arena is full; it can't be used along with --swap.
+ * --merge runs a pass of same-page merging every so many references,
+ * scanning up to so many frames for so many microseconds at most, or
+ * with no time limit when the budget is 0.
+ * --reclaim pages out on a thread of its own once fewer than low frames
+ * are free, batch pages at a time, until high frames are free; it only
+ * takes effect with swap.
+ */
+public class BatchMode {
+
+    private static final String USAGE = "Usage: --batch <trace> <memorySize> <pageSize> <maxProcessSize>"
+            + " [--backing heap|direct|mapped:<file>] [--swap <file> <size>]"
+            + " [--compressed-swap <size> <arenaSize>[:<file>]] [--policy fifo|lru|clock]"
+            + " [--tlb <entries>:<ways>[:flush]] [--page-table dense|two-level|three-level|inverted]"
+            + " [--allocator first-fit|buddy|slab] [--merge <frames>:<budgetMicros>:<interval>]"
+            + " [--reclaim <low>:<high>:<batch>]"
+            + " [--concurrent] [--print-views]"
+            + " [--compact-views] [--view-range <from>:<to>] [--changed-views]"
+            + " [--restore <snapshot>] [--checkpoint <snapshot>]";
+
+    public static void run(String[] args) {
+        if (args.length < 4) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        MemoryBacking backing = MemoryBacking.HEAP;
+        String backingFile = null;
+        String swapFile = null;
+        String swapSize = null;
+        String compressedSwapSize = null;
+        String compressedSwapArena = null;
+        ReplacementPolicyType policy = ReplacementPolicyType.LRU;
+        String tlb = null;
+        String merge = null;
+        String reclaim = null;
+        PageTableType pageTable = PageTableType.DENSE;
+        AllocationStrategy allocator = AllocationStrategy.FIRST_FIT;
+        boolean concurrent = false;
+        boolean printViews = false;
+        boolean compactViews = false;
+        boolean changedViews = false;
+        String viewRange = null;
+        String restoreFile = null;
+        String checkpointFile = null;
+
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--concurrent":
+                    concurrent = true;
+                    break;
+                case "--print-views":
+                    printViews = true;
+                    break;
+                case "--compact-views":
+                    compactViews = true;
+                    break;
+                case "--changed-views":
+                    changedViews = true;
+                    break;
+                case "--restore":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    restoreFile = args[i];
+                    break;
+                case "--checkpoint":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    checkpointFile = args[i];
+                    break;
+                case "--view-range":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    viewRange = args[i];
+                    break;
+                case "--swap":
+                    if (i + 2 >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    swapFile = args[++i];
+                    swapSize = args[++i];
+                    break;
+                case "--compressed-swap":
+                    if (i + 2 >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    compressedSwapSize = args[++i];
+                    compressedSwapArena = args[++i];
+                    break;
+                case "--policy":
+                    try {
+                        policy = ReplacementPolicyType.valueOf(++i < args.length ? args[i].toUpperCase() : "");
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--tlb":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    tlb = args[i];
+                    break;
+                case "--merge":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    merge = args[i];
+                    break;
+                case "--reclaim":
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    reclaim = args[i];
+                    break;
+                case "--page-table":
+                    try {
+                        pageTable = PageTableType.valueOf(
+                                ++i < args.length ? args[i].toUpperCase().replace('-', '_') : ""
+                        );
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--allocator":
+                    try {
+                        allocator = AllocationStrategy.valueOf(
+                                ++i < args.length ? args[i].toUpperCase().replace('-', '_') : ""
+                        );
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--backing":
+                    String value = ++i < args.length ? args[i] : "";
+                    if (value.startsWith("mapped:")) {
+                        backing = MemoryBacking.MAPPED;
+                        backingFile = value.substring("mapped:".length());
+                    } else if (value.equals("direct")) {
+                        backing = MemoryBacking.DIRECT;
+                    } else if (!value.equals("heap")) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    return;
+            }
+        }
+
+        if (swapFile != null && compressedSwapSize != null) {
+            System.err.println(USAGE);
+            return;
+        }
+        if (concurrent && (restoreFile != null || checkpointFile != null)) {
+            System.err.println("Snapshots are not supported by the concurrent manager.");
+            return;
+        }
+
+        PrintStream views = printViews
+                ? new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16))
+                : null;
+        OutputSink sink = views == null ? message -> { } : views::println;
+
+        try {
+            Configuration configuration = new Configuration(
+                    Long.parseLong(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    backing, backingFile
+            ).withPageTable(pageTable).withAllocationStrategy(allocator);
+            if (swapFile != null) {
+                configuration = configuration.withSwap(Long.parseLong(swapSize), swapFile, policy);
+            }
+            if (compressedSwapSize != null) {
+                configuration = withCompressedSwap(configuration, compressedSwapSize, compressedSwapArena, policy);
+            }
+            if (tlb != null) {
+                String[] fields = tlb.split(":");
+                configuration = configuration.withTlb(
+                        Integer.parseInt(fields[0]),
+                        fields.length > 1 ? Integer.parseInt(fields[1]) : 1,
+                        fields.length > 2 && fields[2].equals("flush")
+                );
+            }
+            if (merge != null) {
+                String[] fields = merge.split(":");
+                if (fields.length != 3) {
+                    System.err.println(USAGE);
+                    return;
+                }
+                configuration = configuration.withSamePageMerging(
+                        Integer.parseInt(fields[0]),
+                        TimeUnit.MICROSECONDS.toNanos(Long.parseLong(fields[1])),
+                        Integer.parseInt(fields[2])
+                );
+            }
+            if (reclaim != null) {
+                String[] fields = reclaim.split(":");
+                if (fields.length != 3) {
+                    System.err.println(USAGE);
+                    return;
+                }
+                configuration = configuration.withBackgroundReclaim(
+                        Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2])
+                );
+            }
+
+            IMemoryManager manager;
+            MemoryManager memoryManager = null;
+            if (concurrent) {
+                ConcurrentMemoryManager concurrentManager = new ConcurrentMemoryManager(sink);
+                concurrentManager.storeConfiguration(configuration);
+                manager = concurrentManager;
+            } else {
+                memoryManager = new MemoryManager(sink);
+                if (restoreFile != null) {
+                    memoryManager.restore(Paths.get(restoreFile));
+                    configuration = memoryManager.getConfiguration();
+                } else {
+                    memoryManager.storeConfiguration(configuration);
+                }
+                manager = memoryManager;
+            }
+
+            ViewOptions viewOptions = compactViews ? ViewOptions.compact() : ViewOptions.full();
+            if (viewRange != null) {
+                String[] bounds = viewRange.split(":");
+                viewOptions = viewOptions.withRange(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            }
+            if (changedViews) {
+                viewOptions = viewOptions.withChangesSinceLastView();
+            }
+
+            BatchRunner runner = new BatchRunner(manager, viewOptions);
+            runner.run(Paths.get(args[0]));
+            flush(views);
+            runner.printSummary(System.out);
+            if (memoryManager != null) {
+                printMemorySummary(memoryManager, configuration);
+                if (checkpointFile != null) {
+                    memoryManager.checkpoint(Paths.get(checkpointFile));
+                }
+            }
+        } catch (Exception ex) {
+            flush(views);
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * @param arena the size of the arena, followed by :file to fall back on a swap file
+     */
+    private static Configuration withCompressedSwap(Configuration configuration, String size, String arena,
+                                            ReplacementPolicyType policy) {
+        int separator = arena.indexOf(':');
+        return configuration.withCompressedSwap(
+                Long.parseLong(size),
+                Long.parseLong(separator == -1 ? arena : arena.substring(0, separator)),
+                separator == -1 ? null : arena.substring(separator + 1),
+                policy
+        );
+    }
+
+    private static void printMemorySummary(MemoryManager manager, Configuration configuration) {
+        if (configuration.isDemandPagingEnabled()) {
+            LatencyHistogram faults = manager.getMetrics().pageFaultLatencies();
+            System.out.printf("page faults: %d, evictions: %d, fault latency: mean %.0f ns, p50 %d ns, p99 %d ns%n",
+                    manager.getPageFaults(), manager.getEvictions(), faults.mean(),
+                    faults.valueAtPercentile(50), faults.valueAtPercentile(99));
+            System.out.printf("frames taken free: %d, by direct reclaim: %d%n",
+                    manager.getFastPathAllocations(), manager.getDirectReclaimAllocations());
+        }
+        if (configuration.isBackgroundReclaimEnabled()) {
+            System.out.printf("background reclaim: %d batches, %d frames%n",
+                    manager.getBackgroundReclaimBatches(), manager.getBackgroundReclaimedFrames());
+        }
+        CompressedSwapArea compressedSwap = manager.getCompressedSwapArea();
+        if (compressedSwap != null) {
+            LatencyHistogram compressions = compressedSwap.compressionLatencies();
+            LatencyHistogram decompressions = compressedSwap.decompressionLatencies();
+            System.out.printf("compressed swap: %d pages, %d bytes compressed, %d bytes of arena used,"
+                            + " ratio: %.2f, uncompressed: %d, in the file: %d, turned away: %d%n",
+                    compressedSwap.storedPages(), compressedSwap.compressedBytes(),
+                    compressedSwap.arena().usedBytes(), compressedSwap.compressionRatio(),
+                    compressedSwap.uncompressedPages(), compressedSwap.fallbackPages(),
+                    compressedSwap.rejectedPages());
+            System.out.printf("compression: mean %.0f ns, p99 %d ns, decompression: mean %.0f ns, p99 %d ns%n",
+                    compressions.mean(), compressions.valueAtPercentile(99),
+                    decompressions.mean(), decompressions.valueAtPercentile(99));
+        }
+        System.out.printf("allocator: %s, free frames: %d, internal fragmentation: %d bytes,"
+                        + " external fragmentation index: %.4f%n",
+                configuration.allocationStrategy().name().toLowerCase().replace('_', '-'),
+                manager.getFreeFrameCount(), manager.getInternalFragmentationBytes(),
+                manager.getExternalFragmentationIndex());
+        System.out.printf("page tables: %s, %d bytes%n",
+                configuration.pageTableType().name().toLowerCase().replace('_', '-'),
+                manager.getPageTableOverheadBytes());
+        TranslationLookasideBuffer tlb = manager.getTlb();
+        if (tlb != null) {
+            System.out.printf("tlb: %d entries, %d-way%s, hits: %d, misses: %d, hit ratio: %.4f, flushes: %d%n",
+                    tlb.entries(), tlb.associativity(), tlb.isFlushedOnContextSwitch() ? ", flushed on switch" : "",
+                    tlb.hits(), tlb.misses(), tlb.hitRatio(), tlb.flushes());
+            System.out.printf("translation cost: %d cycles, %.2f cycles per translation%n",
+                    tlb.translationCycles(), tlb.averageTranslationCycles());
+        }
+        if (configuration.isSamePageMergingEnabled()) {
+            System.out.printf("merge passes: %d, frames scanned: %d, pages merged: %d, frames reclaimed: %d%n",
+                    manager.getMergePasses(), manager.getMergeScannedFrames(), manager.getMergedPages(),
+                    manager.getMergeReclaimedFrames());
+        }
+    }
+
+    private static void flush(PrintStream views) {
+        if (views != null) {
+            views.flush();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package batch;
+
+import error.InsufficientMemoryException;
+import error.InvalidAddressException;
+import error.InvalidCommandException;
+import error.InvalidTraceException;
+import error.ProcessNotFoundException;
+import error.ProcessTooLargeException;
+import error.SegmentAlreadyAttachedException;
+import error.SegmentNameTakenException;
+import error.SegmentNotFoundException;
+import error.UnavailableProcessSpaceException;
+import error.UnsupportedIdException;
+import manager.IMemoryManager;
+import manager.ISharedSegmentManager;
+import metrics.LatencyHistogram;
+import misc.ViewOptions;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+/**
+ * Replays a workload trace straight against a memory manager,
+ * timing every operation.
+ *
+ * Operations the manager rejects (a process that doesn't fit, an
+ * unknown id, ...) are counted as failures and the replay goes on,
+ * just like the interactive interface does. So are the operations on
+ * shared segments when the manager has none. Any other exception is a
+ * fault of the manager, and stops the replay at the line it came from.
+ */
+public class BatchRunner {
+
+    private static final TraceOperation.Type[] TYPES = TraceOperation.Type.values();
+
+    private final IMemoryManager manager;
+
+    /**
+     * The same manager, if it has shared segments, and null otherwise.
+     */
+    private final ISharedSegmentManager segments;
+    private final ViewOptions viewOptions;
+    private final LatencyHistogram[] latencies;
+    private final long[] failures;
+    private long elapsedNanos;
+
+    public BatchRunner(IMemoryManager manager) {
+        this(manager, ViewOptions.full());
+    }
+
+    /**
+     * @param manager the manager the trace is replayed against
+     * @param viewOptions how the views asked for by the trace are rendered
+     */
+    public BatchRunner(IMemoryManager manager, ViewOptions viewOptions) {
+        this.manager = manager;
+        segments = manager instanceof ISharedSegmentManager ? (ISharedSegmentManager) manager : null;
+        this.viewOptions = viewOptions;
+        latencies = new LatencyHistogram[TYPES.length];
+        failures = new long[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     *
+     * This method runs every operation of the trace, in order.
+     *
+     * @param tracePath the trace file to be replayed
+     *
+     * @throws IllegalStateException if an operation failed for any other
+     * reason than the manager rejecting it, with the line it is on
+     *
+     */
+    public void run(Path tracePath) throws IOException, InvalidTraceException {
+        TraceOperation operation = new TraceOperation();
+        long start = System.nanoTime();
+
+        try (TraceReader reader = new TraceReader(tracePath)) {
+            while (reader.next(operation)) {
+                int type = operation.getType().ordinal();
+                long operationStart = System.nanoTime();
+                boolean succeeded;
+                try {
+                    succeeded = execute(operation);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(
+                            "Unexpected failure at line " + operation.getLineNumber() + ": " + ex, ex
+                    );
+                }
+                latencies[type].record(System.nanoTime() - operationStart);
+                if (!succeeded) {
+                    failures[type]++;
+                }
+            }
+        }
+
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * @return false if the manager rejected the operation
+     */
+    private boolean execute(TraceOperation operation) throws Exception {
+        try {
+            switch (operation.getType()) {
+                case CREATE:
+                    manager.createProcess(operation.getProcessId(), operation.getArgument());
+                    break;
+                case FORK:
+                    manager.forkProcess(operation.getProcessId());
+                    break;
+                case TERMINATE:
+                    manager.terminateProcess(operation.getProcessId());
+                    break;
+                case ACCESS:
+                    manager.accessMemory(operation.getProcessId(), operation.getArgument());
+                    break;
+                case WRITE:
+                    manager.writeByte(operation.getProcessId(), operation.getArgument(), operation.getValue());
+                    break;
+                case TRANSLATE:
+                    manager.translate(operation.getProcessId(), operation.getArgument());
+                    break;
+                case VIEW_MEMORY:
+                    manager.showMemory(viewOptions);
+                    break;
+                case VIEW_PROCESS:
+                    manager.showPageTableForProcess(operation.getProcessId(), viewOptions);
+                    break;
+                case SEGMENT_CREATE:
+                    if (segments == null) {
+                        return false;
+                    }
+                    segments.createSharedSegment(operation.getName(), operation.getArgument());
+                    break;
+                case SEGMENT_ATTACH:
+                    if (segments == null) {
+                        return false;
+                    }
+                    segments.attachSharedSegment(operation.getProcessId(), operation.getName());
+                    break;
+                case SEGMENT_DETACH:
+                    if (segments == null) {
+                        return false;
+                    }
+                    segments.detachSharedSegment(operation.getProcessId(), operation.getName());
+                    break;
+                case SEGMENT_DESTROY:
+                    if (segments == null) {
+                        return false;
+                    }
+                    segments.destroySharedSegment(operation.getName());
+                    break;
+            }
+            return true;
+        } catch (InsufficientMemoryException | ProcessTooLargeException | UnavailableProcessSpaceException
+                 | UnsupportedIdException | ProcessNotFoundException | InvalidAddressException
+                 | InvalidCommandException | SegmentNameTakenException | SegmentNotFoundException
+                 | SegmentAlreadyAttachedException ex) {
+            return false;
+        }
+    }
+
+    /**
+     *
+     * This method prints the throughput of the replay and
+     * a latency summary for each kind of operation.
+     *
+     * @param out where the summary is printed
+     *
+     */
+    public void printSummary(PrintStream out) {
+        long operations = 0;
+        long failed = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            operations += latencies[i].count();
+            failed += failures[i];
+        }
+        double seconds = elapsedNanos / 1e9;
+
+        out.printf("operations: %d, failed: %d, elapsed: %.3f s, throughput: %.0f ops/s%n",
+                operations, failed, seconds, seconds == 0 ? 0 : operations / seconds);
+        out.printf("%-15s %12s %10s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "failed", "mean(ns)", "p50(ns)", "p99(ns)", "p99.9(ns)", "max(ns)");
+
+        for (int i = 0; i < TYPES.length; i++) {
+            LatencyHistogram histogram = latencies[i];
+            if (histogram.count() == 0) {
+                continue;
+            }
+            out.printf("%-15s %12d %10d %10.0f %10d %10d %10d %12d%n",
+                    TYPES[i].name().toLowerCase(), histogram.count(), failures[i], histogram.mean(),
+                    histogram.valueAtPercentile(50), histogram.valueAtPercentile(99),
+                    histogram.valueAtPercentile(99.9), histogram.max());
+        }
+    }
+
+    public LatencyHistogram latenciesFor(TraceOperation.Type type) {
+        return latencies[type.ordinal()];
+    }
+
+    public long failuresFor(TraceOperation.Type type) {
+        return failures[type.ordinal()];
+    }
+}
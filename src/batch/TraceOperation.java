@@ -0,0 +1,87 @@
+package batch;
+
+/**
+ * A single operation of a workload trace.
+ *
+ * The reader fills the same instance for every line, so replaying
+ * a trace allocates nothing per operation but the names of the
+ * shared segments.
+ */
+public class TraceOperation {
+
+    public enum Type {
+        CREATE,
+        FORK,
+        TERMINATE,
+        ACCESS,
+        WRITE,
+        TRANSLATE,
+        VIEW_MEMORY,
+        VIEW_PROCESS,
+        SEGMENT_CREATE,
+        SEGMENT_ATTACH,
+        SEGMENT_DETACH,
+        SEGMENT_DESTROY
+    }
+
+    private Type type;
+    private int processId;
+    private int argument;
+    private byte value;
+    private String name;
+    private long lineNumber;
+
+    void set(Type type, int processId, int argument, long lineNumber) {
+        set(type, processId, argument, (byte) 0, lineNumber);
+    }
+
+    void set(Type type, int processId, int argument, byte value, long lineNumber) {
+        this.type = type;
+        this.processId = processId;
+        this.argument = argument;
+        this.value = value;
+        this.name = null;
+        this.lineNumber = lineNumber;
+    }
+
+    void set(Type type, int processId, int argument, String name, long lineNumber) {
+        set(type, processId, argument, (byte) 0, lineNumber);
+        this.name = name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getProcessId() {
+        return processId;
+    }
+
+    /**
+     * @return the size of the process for CREATE, of the segment for
+     * SEGMENT_CREATE, the virtual address for ACCESS, WRITE and TRANSLATE
+     * and 0 for the other operations
+     */
+    public int getArgument() {
+        return argument;
+    }
+
+    /**
+     * @return the byte written for WRITE and 0 for the other operations
+     */
+    public byte getValue() {
+        return value;
+    }
+
+    /**
+     * @return the name of the segment for the SEGMENT
+     * operations and null for the other ones
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
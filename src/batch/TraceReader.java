@@ -0,0 +1,273 @@
+package batch;
+
+import error.InvalidTraceException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the operations of a workload trace file.
+ *
+ * The file is read through a fixed direct buffer and parsed in place,
+ * byte by byte, so traces of any length are replayed without ever
+ * being held in memory and without creating a String per line.
+ *
+ * Each line holds one operation:
+ *
+ * <pre>
+ * create &lt;pid|auto&gt; &lt;size&gt;
+ * fork &lt;pid&gt;
+ * terminate &lt;pid&gt;
+ * access &lt;pid&gt; &lt;virtualAddress&gt;
+ * write &lt;pid&gt; &lt;virtualAddress&gt; &lt;value&gt;
+ * translate &lt;pid&gt; &lt;virtualAddress&gt;
+ * view
+ * view &lt;pid&gt;
+ * segment create &lt;name&gt; &lt;size&gt;
+ * segment attach &lt;pid&gt; &lt;name&gt;
+ * segment detach &lt;pid&gt; &lt;name&gt;
+ * segment destroy &lt;name&gt;
+ * </pre>
+ *
+ * The value written is a byte, from -128 to 255. Blank lines
+ * and lines starting with # are ignored.
+ */
+public class TraceReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean endOfFile;
+    private long lineNumber;
+
+    /**
+     * Bounds of the line being parsed, as absolute
+     * indexes into the buffer.
+     */
+    private int cursor;
+    private int lineLimit;
+
+    public TraceReader(Path tracePath) throws IOException {
+        channel = FileChannel.open(tracePath, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+    }
+
+    /**
+     *
+     * This method reads the next operation of the trace.
+     *
+     * @param operation the object that is filled with the operation
+     *
+     * @return false once the trace has no more operations
+     *
+     */
+    public boolean next(TraceOperation operation) throws IOException, InvalidTraceException {
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd == -1) {
+                return false;
+            }
+            lineNumber++;
+
+            cursor = buffer.position();
+            lineLimit = lineEnd;
+            if (lineLimit > cursor && buffer.get(lineLimit - 1) == '\r') {
+                lineLimit--;
+            }
+            buffer.position(Math.min(lineEnd + 1, buffer.limit()));
+
+            if (parseLine(operation)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     *
+     * This method makes sure a whole line is in the buffer,
+     * reading more of the file when needed.
+     *
+     * @return the index of the line's terminating newline (or of the end
+     * of the data, for a last line without one), or -1 at the end of the file
+     *
+     */
+    private int findLineEnd() throws IOException, InvalidTraceException {
+        int scanFrom = buffer.position();
+        while (true) {
+            for (int i = scanFrom; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+
+            if (endOfFile) {
+                return buffer.hasRemaining() ? buffer.limit() : -1;
+            }
+            if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                throw new InvalidTraceException(lineNumber + 1, "line too long");
+            }
+
+            int alreadyScanned = buffer.remaining();
+            buffer.compact();
+            if (channel.read(buffer) == -1) {
+                endOfFile = true;
+            }
+            buffer.flip();
+            scanFrom = alreadyScanned;
+        }
+    }
+
+    /**
+     * @return false if the line holds no operation
+     */
+    private boolean parseLine(TraceOperation operation) throws InvalidTraceException {
+        skipSpaces();
+        if (cursor == lineLimit || buffer.get(cursor) == '#') {
+            return false;
+        }
+
+        if (matchWord("create")) {
+            int processId = matchWord("auto") ? -1 : readInt();
+            operation.set(TraceOperation.Type.CREATE, processId, readInt(), lineNumber);
+        } else if (matchWord("fork")) {
+            operation.set(TraceOperation.Type.FORK, readInt(), 0, lineNumber);
+        } else if (matchWord("terminate")) {
+            operation.set(TraceOperation.Type.TERMINATE, readInt(), 0, lineNumber);
+        } else if (matchWord("access")) {
+            int processId = readInt();
+            operation.set(TraceOperation.Type.ACCESS, processId, readInt(), lineNumber);
+        } else if (matchWord("write")) {
+            int processId = readInt();
+            int virtualAddress = readInt();
+            int value = readInt();
+            if (value < Byte.MIN_VALUE || value > 0xFF) {
+                throw new InvalidTraceException(lineNumber, "value out of range");
+            }
+            operation.set(TraceOperation.Type.WRITE, processId, virtualAddress, (byte) value, lineNumber);
+        } else if (matchWord("translate")) {
+            int processId = readInt();
+            operation.set(TraceOperation.Type.TRANSLATE, processId, readInt(), lineNumber);
+        } else if (matchWord("view")) {
+            skipSpaces();
+            if (cursor == lineLimit) {
+                operation.set(TraceOperation.Type.VIEW_MEMORY, 0, 0, lineNumber);
+            } else {
+                operation.set(TraceOperation.Type.VIEW_PROCESS, readInt(), 0, lineNumber);
+            }
+        } else if (matchWord("segment")) {
+            parseSegmentOperation(operation);
+        } else {
+            throw new InvalidTraceException(lineNumber, "unknown operation");
+        }
+
+        skipSpaces();
+        if (cursor != lineLimit) {
+            throw new InvalidTraceException(lineNumber, "unexpected trailing characters");
+        }
+        return true;
+    }
+
+    private void parseSegmentOperation(TraceOperation operation) throws InvalidTraceException {
+        if (matchWord("create")) {
+            String name = readWord();
+            int size = readInt();
+            if (size <= 0) {
+                throw new InvalidTraceException(lineNumber, "segment size must be positive");
+            }
+            operation.set(TraceOperation.Type.SEGMENT_CREATE, 0, size, name, lineNumber);
+        } else if (matchWord("attach")) {
+            int processId = readInt();
+            operation.set(TraceOperation.Type.SEGMENT_ATTACH, processId, 0, readWord(), lineNumber);
+        } else if (matchWord("detach")) {
+            int processId = readInt();
+            operation.set(TraceOperation.Type.SEGMENT_DETACH, processId, 0, readWord(), lineNumber);
+        } else if (matchWord("destroy")) {
+            operation.set(TraceOperation.Type.SEGMENT_DESTROY, 0, 0, readWord(), lineNumber);
+        } else {
+            throw new InvalidTraceException(lineNumber, "unknown segment operation");
+        }
+    }
+
+    private boolean matchWord(String word) {
+        skipSpaces();
+        int end = cursor + word.length();
+        if (end > lineLimit) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (buffer.get(cursor + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        if (end < lineLimit && !isSpace(buffer.get(end))) {
+            return false;
+        }
+        cursor = end;
+        return true;
+    }
+
+    private int readInt() throws InvalidTraceException {
+        skipSpaces();
+        boolean negative = cursor < lineLimit && buffer.get(cursor) == '-';
+        if (negative) {
+            cursor++;
+        }
+
+        int start = cursor;
+        long value = 0;
+        while (cursor < lineLimit) {
+            byte current = buffer.get(cursor);
+            if (current < '0' || current > '9') {
+                break;
+            }
+            value = value * 10 + (current - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new InvalidTraceException(lineNumber, "number out of range");
+            }
+            cursor++;
+        }
+
+        if (cursor == start || (cursor < lineLimit && !isSpace(buffer.get(cursor)))) {
+            throw new InvalidTraceException(lineNumber, "number expected");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private String readWord() throws InvalidTraceException {
+        skipSpaces();
+        int start = cursor;
+        while (cursor < lineLimit && !isSpace(buffer.get(cursor))) {
+            cursor++;
+        }
+        if (cursor == start) {
+            throw new InvalidTraceException(lineNumber, "name expected");
+        }
+        byte[] bytes = new byte[cursor - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void skipSpaces() {
+        while (cursor < lineLimit && isSpace(buffer.get(cursor))) {
+            cursor++;
+        }
+    }
+
+    private static boolean isSpace(byte character) {
+        return character == ' ' || character == '\t';
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import manager.ConcurrentMemoryManager;
+import misc.Configuration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how the throughput of {@link ConcurrentMemoryManager} grows
+ * with the number of threads. Every thread repeatedly creates a process
+ * and terminates it, and the number of completed cycles per second is
+ * printed for each thread count.
+ *
+ * Usage: ContentionBenchmark [maxThreads] [secondsPerRun]
+ */
+public class ContentionBenchmark {
+
+    private static final long MEMORY_SIZE = 64L * 1024 * 1024;
+    private static final int PAGE_SIZE = 4096;
+    private static final int MAX_PROCESS_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println("threads\tcycles/s\tfailures");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(threads, seconds);
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                run(maxThreads, seconds);
+            }
+        }
+    }
+
+    private static void run(int threads, int seconds) throws Exception {
+        ConcurrentMemoryManager manager = new ConcurrentMemoryManager(message -> { });
+        manager.storeConfiguration(new Configuration(MEMORY_SIZE, PAGE_SIZE, MAX_PROCESS_SIZE));
+
+        LongAdder cycles = new LongAdder();
+        LongAdder failures = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                int size = PAGE_SIZE + (seed * 7919) % (MAX_PROCESS_SIZE - PAGE_SIZE);
+                int baseId = (seed + 1) * 1_000_000;
+                int next = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                while (running.get()) {
+                    int pid = baseId + (next++ % 1_000_000);
+                    try {
+                        manager.createProcess(pid, size);
+                        manager.terminateProcess(pid);
+                        cycles.increment();
+                    } catch (Exception ex) {
+                        failures.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        start.countDown();
+        TimeUnit.SECONDS.sleep(seconds);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        System.out.println(threads + "\t" + cycles.sum() / seconds + "\t" + failures.sum());
+    }
+}
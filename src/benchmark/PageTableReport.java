@@ -0,0 +1,156 @@
+package benchmark;
+
+import data.memory.Page;
+import data.process.DensePageTable;
+import data.process.InvertedPageTable;
+import data.process.PageTable;
+import data.process.PageTableType;
+import data.process.RadixPageTable;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the page table structures on the same address spaces. For
+ * each layout of mapped pages, it prints how much memory the tables
+ * take and how long a lookup of a mapped page takes.
+ *
+ * The layouts are a fully mapped address space, a sparse one with
+ * pages mapped at random, and a clustered one with a few dense regions,
+ * like a heap and a stack at opposite ends.
+ *
+ * Usage: PageTableReport [processes] [pagesPerProcess] [lookups]
+ */
+public class PageTableReport {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int REPETITIONS = 5;
+
+    private enum Layout {
+        FULL,
+        SPARSE,
+        CLUSTERED
+    }
+
+    public static void main(String[] args) {
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int pagesPerProcess = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 18;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 22;
+
+        System.out.printf("%d processes of %d pages (%d MB each), %d lookups%n",
+                processes, pagesPerProcess, (long) pagesPerProcess * PAGE_SIZE >> 20, lookups);
+        System.out.printf("%-10s %-12s %14s %16s %14s %12s%n",
+                "layout", "table", "mapped pages", "overhead(bytes)", "bytes/page", "ns/lookup");
+
+        for (Layout layout : Layout.values()) {
+            int[][] mapped = mappedPages(layout, processes, pagesPerProcess);
+            for (PageTableType type : PageTableType.values()) {
+                report(layout, type, mapped, pagesPerProcess, lookups);
+            }
+        }
+    }
+
+    private static void report(Layout layout, PageTableType type, int[][] mapped,
+                               int pagesPerProcess, int lookups) {
+        long mappedPages = 0;
+        for (int[] pages : mapped) {
+            mappedPages += pages.length;
+        }
+
+        InvertedPageTable inverted = type == PageTableType.INVERTED
+                ? new InvertedPageTable((int) mappedPages)
+                : null;
+        PageTable[] tables = new PageTable[mapped.length];
+        for (int pid = 0; pid < mapped.length; pid++) {
+            tables[pid] = create(type, inverted, pid, pagesPerProcess);
+            for (int virtualPageNumber : mapped[pid]) {
+                tables[pid].put(virtualPageNumber, new Page(virtualPageNumber, PAGE_SIZE));
+            }
+        }
+
+        long overhead = inverted == null ? 0 : inverted.overheadBytes();
+        for (PageTable table : tables) {
+            overhead += table.overheadBytes();
+        }
+
+        int[] processIds = new int[lookups];
+        int[] pageNumbers = new int[lookups];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < lookups; i++) {
+            processIds[i] = random.nextInt(mapped.length);
+            int[] pages = mapped[processIds[i]];
+            pageNumbers[i] = pages[random.nextInt(pages.length)];
+        }
+
+        long best = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                checksum += tables[processIds[i]].get(pageNumbers[i]).getUsedSlots();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (checksum == 0) {
+            System.out.println("No page was found.");
+        }
+
+        System.out.printf("%-10s %-12s %14d %16d %14.2f %12.2f%n",
+                layout.name().toLowerCase(), type.name().toLowerCase().replace('_', '-'),
+                mappedPages, overhead, (double) overhead / mappedPages, (double) best / lookups);
+    }
+
+    private static PageTable create(PageTableType type, InvertedPageTable inverted, int pid, int numberOfPages) {
+        switch (type) {
+            case TWO_LEVEL:
+                return new RadixPageTable(numberOfPages, 2);
+            case THREE_LEVEL:
+                return new RadixPageTable(numberOfPages, 3);
+            case INVERTED:
+                return inverted.forProcess(pid, numberOfPages);
+            default:
+                return new DensePageTable(numberOfPages);
+        }
+    }
+
+    /**
+     * @return for each process, the distinct virtual page
+     * numbers that are mapped in the given layout
+     */
+    private static int[][] mappedPages(Layout layout, int processes, int pagesPerProcess) {
+        SplittableRandom random = new SplittableRandom(42);
+        int[][] mapped = new int[processes][];
+
+        for (int pid = 0; pid < processes; pid++) {
+            switch (layout) {
+                case FULL: {
+                    int[] pages = new int[pagesPerProcess];
+                    for (int i = 0; i < pages.length; i++) {
+                        pages[i] = i;
+                    }
+                    mapped[pid] = pages;
+                    break;
+                }
+                case SPARSE: {
+                    int[] pages = new int[Math.max(1, pagesPerProcess / 100)];
+                    int stride = pagesPerProcess / pages.length;
+                    for (int i = 0; i < pages.length; i++) {
+                        pages[i] = i * stride + random.nextInt(stride);
+                    }
+                    mapped[pid] = pages;
+                    break;
+                }
+                default: {
+                    int regionPages = Math.max(1, pagesPerProcess / 64);
+                    int[] pages = new int[regionPages * 2];
+                    for (int i = 0; i < regionPages; i++) {
+                        pages[i] = i;
+                        pages[regionPages + i] = pagesPerProcess - regionPages + i;
+                    }
+                    mapped[pid] = pages;
+                    break;
+                }
+            }
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,24 @@
+package data.memory;
+
+/**
+ * The ways frames can be handed out, picked on a configuration.
+ *
+ * SLAB hands out frames first fit, but puts processes smaller than
+ * half a page in a {@link SlabAllocator} instead of giving each one
+ * its own frame. It only applies without demand paging, since a slab
+ * frame can't be paged out while other processes still use it.
+ */
+public enum AllocationStrategy {
+    FIRST_FIT,
+    BUDDY,
+    SLAB;
+
+    public FrameAllocator create(int numberOfFrames) {
+        switch (this) {
+            case BUDDY:
+                return new BuddyFrameAllocator(numberOfFrames);
+            default:
+                return new FreeFrameBitmap(numberOfFrames);
+        }
+    }
+}
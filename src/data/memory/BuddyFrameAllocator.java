@@ -0,0 +1,232 @@
+package data.memory;
+
+import java.util.Arrays;
+
+/**
+ * A binary buddy allocator. Frames are handed out in aligned blocks
+ * of a power of two frames, so every allocation is physically
+ * contiguous. A request is rounded up to the next power of two and the
+ * unused rest of its block is kept with it, which is the internal
+ * fragmentation this allocator trades for cheap coalescing.
+ *
+ * There is one free list per order, kept as an intrusive doubly linked
+ * list over arrays indexed by the first frame of each block, so taking a
+ * block's buddy out of its list is O(1). Splitting and coalescing walk
+ * at most one step per order, which makes both O(log frames).
+ *
+ * Memories whose size is not a power of two are covered by the largest
+ * aligned blocks that fit, and the buddies missing at the end are
+ * simply never free.
+ */
+public class BuddyFrameAllocator implements FrameAllocator {
+
+    private static final int NONE = -1;
+    private static final byte NOT_A_BLOCK = -1;
+
+    private final int numberOfFrames;
+    private final int maxOrder;
+
+    /**
+     * The first free block of each order, or NONE.
+     */
+    private final int[] freeHeads;
+    private final int[] next;
+    private final int[] previous;
+
+    /**
+     * For the first frame of each free block, its order; for
+     * every other frame, NOT_A_BLOCK.
+     */
+    private final byte[] freeOrder;
+
+    /**
+     * For the first frame of each allocated block, its order;
+     * for every other frame, NOT_A_BLOCK.
+     */
+    private final byte[] allocatedOrder;
+
+    private int freeCount;
+    private long wastedFrames;
+
+    public BuddyFrameAllocator(int numberOfFrames) {
+        this.numberOfFrames = numberOfFrames;
+        this.maxOrder = numberOfFrames == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(numberOfFrames);
+
+        freeHeads = new int[maxOrder + 1];
+        next = new int[numberOfFrames];
+        previous = new int[numberOfFrames];
+        freeOrder = new byte[numberOfFrames];
+        allocatedOrder = new byte[numberOfFrames];
+        Arrays.fill(freeHeads, NONE);
+        Arrays.fill(freeOrder, NOT_A_BLOCK);
+        Arrays.fill(allocatedOrder, NOT_A_BLOCK);
+
+        int start = 0;
+        for (int order = maxOrder; order >= 0; order--) {
+            if (start + (1 << order) <= numberOfFrames) {
+                pushFree(start, order);
+                start += 1 << order;
+            }
+        }
+        freeCount = numberOfFrames;
+    }
+
+    /**
+     * The frames are written in order, starting at the first
+     * frame of the block, which is what free looks up.
+     */
+    @Override
+    public boolean allocate(int count, int[] frameNumbers) {
+        if (count <= 0 || count > freeCount) {
+            return false;
+        }
+        int order = orderFor(count);
+        if (order > maxOrder) {
+            return false;
+        }
+
+        int available = order;
+        while (available <= maxOrder && freeHeads[available] == NONE) {
+            available++;
+        }
+        if (available > maxOrder) {
+            return false;
+        }
+
+        int start = freeHeads[available];
+        removeFree(start, available);
+        while (available > order) {
+            available--;
+            pushFree(start + (1 << available), available);
+        }
+
+        allocatedOrder[start] = (byte) order;
+        for (int i = 0; i < count; i++) {
+            frameNumbers[i] = start + i;
+        }
+        freeCount -= 1 << order;
+        wastedFrames += (1 << order) - count;
+        return true;
+    }
+
+    @Override
+    public void free(int[] frameNumbers, int count) {
+        int start = frameNumbers[0];
+        int order = allocatedOrder[start];
+        if (order == NOT_A_BLOCK) {
+            throw new IllegalArgumentException("Frame " + start + " does not start an allocated block.");
+        }
+        allocatedOrder[start] = NOT_A_BLOCK;
+        freeCount += 1 << order;
+        wastedFrames -= (1 << order) - count;
+
+        while (order < maxOrder) {
+            int buddy = start ^ (1 << order);
+            if (buddy + (1 << order) > numberOfFrames || freeOrder[buddy] != order) {
+                break;
+            }
+            removeFree(buddy, order);
+            start = Math.min(start, buddy);
+            order++;
+        }
+        pushFree(start, order);
+    }
+
+    /**
+     * The block is found by its first frame, and split out of
+     * the free block holding it the way allocate would have.
+     */
+    @Override
+    public boolean claim(int[] frameNumbers, int count) {
+        int start = frameNumbers[0];
+        int order = orderFor(count);
+        if (count <= 0 || order > maxOrder || (start & ((1 << order) - 1)) != 0) {
+            return false;
+        }
+
+        int available = order;
+        int block = start;
+        while (available <= maxOrder && freeOrder[block] != available) {
+            available++;
+            block = start & -(1 << available);
+        }
+        if (available > maxOrder) {
+            return false;
+        }
+
+        removeFree(block, available);
+        while (available > order) {
+            available--;
+            int half = 1 << available;
+            if (start >= block + half) {
+                pushFree(block, available);
+                block += half;
+            } else {
+                pushFree(block + half, available);
+            }
+        }
+
+        allocatedOrder[start] = (byte) order;
+        freeCount -= 1 << order;
+        wastedFrames += (1 << order) - count;
+        return true;
+    }
+
+    @Override
+    public int freeCount() {
+        return freeCount;
+    }
+
+    @Override
+    public int numberOfFrames() {
+        return numberOfFrames;
+    }
+
+    /**
+     * Two free blocks that are not buddies can't be merged here,
+     * so the largest block is the largest free order.
+     */
+    @Override
+    public int largestFreeBlock() {
+        for (int order = maxOrder; order >= 0; order--) {
+            if (freeHeads[order] != NONE) {
+                return 1 << order;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long wastedFrames() {
+        return wastedFrames;
+    }
+
+    private static int orderFor(int count) {
+        return count == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(count - 1);
+    }
+
+    private void pushFree(int start, int order) {
+        int head = freeHeads[order];
+        next[start] = head;
+        previous[start] = NONE;
+        if (head != NONE) {
+            previous[head] = start;
+        }
+        freeHeads[order] = start;
+        freeOrder[start] = (byte) order;
+    }
+
+    private void removeFree(int start, int order) {
+        int before = previous[start];
+        int after = next[start];
+        if (before == NONE) {
+            freeHeads[order] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+        freeOrder[start] = NOT_A_BLOCK;
+    }
+}
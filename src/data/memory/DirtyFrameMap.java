@@ -0,0 +1,190 @@
+package data.memory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Which frames changed, epoch by epoch, so a view can show only what
+ * changed since an earlier one instead of the whole memory.
+ *
+ * A frame is marked whenever it is allocated, freed or written, in a
+ * bitmap with one bit per frame. Advancing to the next epoch drains
+ * the bitmap into the list of frames that changed during the epoch
+ * that ended. A second bitmap, with one bit per word of the first,
+ * tells which words have any bit set, so draining costs about as much
+ * as the number of frames that changed, not the size of the memory.
+ *
+ * Only the lists of the last MAX_EPOCHS_KEPT epochs are kept, and
+ * never more frames in all than the memory has, so asking for the
+ * changes since an epoch that was dropped gets no answer.
+ */
+public class DirtyFrameMap {
+
+    public static final int MAX_EPOCHS_KEPT = 64;
+
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * One bit per frame, set if it changed during the current epoch.
+     */
+    private final long[] words;
+
+    /**
+     * One bit per word of words, set if that word isn't zero.
+     */
+    private final long[] summary;
+    private final int numberOfFrames;
+    private int changedFrames;
+    private long epoch;
+
+    /**
+     * The frames that changed during each of the last epochs, in
+     * order, the oldest first; the last one ended when epoch began.
+     */
+    private final ArrayDeque<int[]> history;
+    private long framesInHistory;
+
+    public DirtyFrameMap(int numberOfFrames) {
+        this.numberOfFrames = numberOfFrames;
+        words = new long[(numberOfFrames + 63) >>> WORD_SHIFT];
+        summary = new long[(words.length + 63) >>> WORD_SHIFT];
+        history = new ArrayDeque<>();
+    }
+
+    public void markDirty(int frameNumber) {
+        int word = frameNumber >>> WORD_SHIFT;
+        long bit = 1L << frameNumber;
+        if ((words[word] & bit) == 0) {
+            words[word] |= bit;
+            summary[word >>> WORD_SHIFT] |= 1L << word;
+            changedFrames++;
+        }
+    }
+
+    /**
+     * @return the epoch the changes made now belong to
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the oldest epoch whose changes are still kept
+     */
+    public long oldestEpoch() {
+        return epoch - history.size();
+    }
+
+    /**
+     *
+     * This method ends the current epoch, keeping the list of the
+     * frames that changed during it, and starts the next one.
+     *
+     * @return the epoch that starts
+     *
+     */
+    public long advance() {
+        int[] changed = drainCurrentEpoch();
+        history.addLast(changed);
+        framesInHistory += changed.length;
+        while (history.size() > MAX_EPOCHS_KEPT || framesInHistory > numberOfFrames) {
+            framesInHistory -= history.removeFirst().length;
+        }
+        return ++epoch;
+    }
+
+    /**
+     *
+     * This method tells which frames changed from the start of an
+     * epoch up to now, without ending the current epoch.
+     *
+     * @param since the first epoch whose changes are wanted
+     *
+     * @return the numbers of the frames that changed, in ascending
+     * order, or null if the changes of that epoch are no longer kept
+     *
+     */
+    public int[] changedSince(long since) {
+        if (since < 0 || since > epoch) {
+            throw new IllegalArgumentException("Epoch " + since + " is not valid, the current one is " + epoch + ".");
+        }
+        if (since < oldestEpoch()) {
+            return null;
+        }
+
+        int length = changedFrames;
+        int skipped = (int) (since - oldestEpoch());
+        Iterator<int[]> lists = history.iterator();
+        for (int i = 0; i < history.size(); i++) {
+            int[] changed = lists.next();
+            if (i >= skipped) {
+                length += changed.length;
+            }
+        }
+
+        int[] frames = new int[length];
+        int count = collectCurrentEpoch(frames, false);
+        lists = history.iterator();
+        for (int i = 0; i < history.size(); i++) {
+            int[] changed = lists.next();
+            if (i >= skipped) {
+                System.arraycopy(changed, 0, frames, count, changed.length);
+                count += changed.length;
+            }
+        }
+        if (skipped == history.size()) {
+            return frames;
+        }
+
+        Arrays.sort(frames);
+        int distinct = 0;
+        for (int i = 0; i < frames.length; i++) {
+            if (i == 0 || frames[i] != frames[i - 1]) {
+                frames[distinct++] = frames[i];
+            }
+        }
+        return distinct == frames.length ? frames : Arrays.copyOf(frames, distinct);
+    }
+
+    /**
+     * @return how many frames changed during the current epoch
+     */
+    public int changedInCurrentEpoch() {
+        return changedFrames;
+    }
+
+    private int[] drainCurrentEpoch() {
+        int[] changed = new int[changedFrames];
+        collectCurrentEpoch(changed, true);
+        changedFrames = 0;
+        return changed;
+    }
+
+    /**
+     * This method writes the frames marked during the current epoch
+     * in ascending order, walking only the words the summary has set.
+     */
+    private int collectCurrentEpoch(int[] frames, boolean clear) {
+        int count = 0;
+        for (int s = 0; s < summary.length; s++) {
+            long summaryWord = summary[s];
+            while (summaryWord != 0) {
+                int word = (s << WORD_SHIFT) + Long.numberOfTrailingZeros(summaryWord);
+                summaryWord &= summaryWord - 1;
+                long bits = words[word];
+                while (bits != 0) {
+                    frames[count++] = (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+                if (clear) {
+                    words[word] = 0;
+                }
+            }
+            if (clear) {
+                summary[s] = 0;
+            }
+        }
+        return count;
+    }
+}
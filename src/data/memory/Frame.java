@@ -3,39 +3,54 @@ package data.memory;
 public class Frame {
 
     /**
-     * A byte array that emulates each memory slot
-     * of the physical memory
+     * The physical memory this frame is a view of.
+     * The frame owns no bytes itself: its slots are the
+     * pageSize bytes starting at frameNumber * pageSize.
      */
-    byte[] occupiedMemorySlots;
+    private final PhysicalMemory memory;
 
-    public Frame(int size, byte[] memoryPointers) {
-        occupiedMemorySlots = new byte[size];
-        initializeSlots(memoryPointers);
-    }
+    /**
+     * The table holding who owns this frame and how
+     * much of it is used.
+     */
+    private final FrameTable frameTable;
+    private final int frameNumber;
 
-    private void initializeSlots(byte[] memoryPointers) {
-        for (int i = 0; i < occupiedMemorySlots.length; i++) {
-            occupiedMemorySlots[i] = memoryPointers[i];
-        }
+    public Frame(PhysicalMemory memory, FrameTable frameTable, int frameNumber) {
+        this.memory = memory;
+        this.frameTable = frameTable;
+        this.frameNumber = frameNumber;
     }
 
     public void occupyMemorySlotsWithProcessId(int slots, int processId) {
-        for (int i = 0; i < slots; i++) {
-            occupiedMemorySlots[i] = (byte) processId;
-        }
+        frameTable.assign(frameNumber, processId, slots);
     }
 
     public void cleanMemorySlots() {
-        for (int i = 0; i < occupiedMemorySlots.length; i++) {
-            occupiedMemorySlots[i] = -1;
-        }
+        frameTable.release(frameNumber);
+    }
+
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    public long getOffset() {
+        return (long) frameNumber * memory.pageSize();
+    }
+
+    public int getSize() {
+        return memory.pageSize();
+    }
+
+    public int getOwnerId() {
+        return frameTable.ownerOf(frameNumber);
     }
 
-    public byte[] getSlots() {
-        return occupiedMemorySlots;
+    public int getOwnerOfSlot(int slotIndex) {
+        return frameTable.ownerOfSlot(frameNumber, slotIndex);
     }
 
     public byte getByteAt(int slotIndex) {
-        return occupiedMemorySlots[slotIndex];
+        return memory.getByte(frameNumber, slotIndex);
     }
 }
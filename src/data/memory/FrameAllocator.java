@@ -0,0 +1,66 @@
+package data.memory;
+
+/**
+ * Hands out the frames of the physical memory.
+ *
+ * Frames are always given back with the same array, and in the same
+ * order, they were handed out with, which lets allocators that give
+ * whole blocks, like {@link BuddyFrameAllocator}, find the block again.
+ *
+ * @see AllocationStrategy
+ */
+public interface FrameAllocator {
+
+    /**
+     *
+     * This method reserves frames. Either all of them
+     * are reserved or none is.
+     *
+     * @param count how many frames are wanted
+     * @param frameNumbers where the reserved frame numbers are written
+     *
+     * @return true if the frames were reserved
+     *
+     */
+    boolean allocate(int count, int[] frameNumbers);
+
+    /**
+     *
+     * This method gives back frames reserved by one call to allocate.
+     *
+     * @param frameNumbers the frames, as they were written by allocate
+     * @param count how many frames were asked for
+     *
+     */
+    void free(int[] frameNumbers, int count);
+
+    /**
+     *
+     * This method reserves the very frames one call to allocate handed
+     * out before, which is how the state of an allocator is rebuilt from
+     * a snapshot. Either all of them are reserved or none is.
+     *
+     * @param frameNumbers the frames, as they were written by allocate
+     * @param count how many frames were asked for
+     *
+     * @return false if any of the frames is not free
+     *
+     */
+    boolean claim(int[] frameNumbers, int count);
+
+    int freeCount();
+
+    int numberOfFrames();
+
+    /**
+     * @return the most frames a single allocation could get
+     * contiguously right now
+     */
+    int largestFreeBlock();
+
+    /**
+     * @return how many frames are held by allocations
+     * on top of the ones they asked for
+     */
+    long wastedFrames();
+}
@@ -0,0 +1,58 @@
+package data.memory;
+
+/**
+ * The frames handed out by one call to {@link FrameAllocator#allocate},
+ * which have to be given back together, with the same array, once none
+ * of them holds a page anymore.
+ *
+ * A process's frames are normally freed when it terminates, all at
+ * once. After a fork some of them may still be mapped by the child,
+ * so each page keeps the block its frame came from, and the block is
+ * only freed when its last frame is released. Until then, the frames of
+ * the block left without a page are still allocated.
+ */
+public class FrameBlock {
+
+    private final int[] frameNumbers;
+    private final int count;
+    private int framesInUse;
+
+    /**
+     * @param frameNumbers the frames, as they were written by allocate
+     * @param count how many frames were asked for
+     */
+    public FrameBlock(int[] frameNumbers, int count) {
+        this(frameNumbers, count, count);
+    }
+
+    /**
+     * @param frameNumbers the frames, as they were written by allocate
+     * @param count how many frames were asked for
+     * @param framesInUse how many of them still hold a page
+     */
+    public FrameBlock(int[] frameNumbers, int count, int framesInUse) {
+        this.frameNumbers = frameNumbers;
+        this.count = count;
+        this.framesInUse = framesInUse;
+    }
+
+    /**
+     * @return true if that was the last frame of the
+     * block in use, so the block can be freed
+     */
+    public boolean releaseFrame() {
+        return --framesInUse == 0;
+    }
+
+    public int[] getFrameNumbers() {
+        return frameNumbers;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getFramesInUse() {
+        return framesInUse;
+    }
+}
@@ -0,0 +1,204 @@
+package data.memory;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ownership metadata for every frame of the physical memory,
+ * packed into int[] blocks indexed by frame number.
+ *
+ * Allocating or freeing a page touches one entry here instead
+ * of writing into every byte of its frame, so the frame's slots
+ * stay free for the process's own data.
+ */
+public class FrameTable {
+
+    public static final int NO_OWNER = -1;
+
+    /**
+     * Set while the frame belongs to some process.
+     */
+    public static final int FLAG_IN_USE = 1;
+
+    /**
+     * Set while the frame is a slab shared by several small
+     * processes, whose owners are kept by the {@link SlabAllocator}.
+     */
+    public static final int FLAG_SLAB = 2;
+
+    /**
+     * Set while the frame holds a page of a shared segment,
+     * whose id is recorded as the owner.
+     */
+    public static final int FLAG_SHARED = 4;
+
+    private static final int OWNER = 0;
+    private static final int USED_BYTES = 1;
+    private static final int FLAGS = 2;
+    private static final int ENTRY_SIZE = 3;
+
+    private static final int FRAMES_PER_BLOCK_SHIFT = 12;
+    private static final int FRAMES_PER_BLOCK = 1 << FRAMES_PER_BLOCK_SHIFT;
+
+    /**
+     * The entries of FRAMES_PER_BLOCK frames each. A block is only
+     * allocated when one of its frames is first assigned, and until
+     * then every frame in it reads as free, so a huge memory needs no
+     * table filled up front. A frame's owner is only looked at while
+     * the frame is in use, which lets a zeroed entry mean free.
+     */
+    private final AtomicReferenceArray<int[]> blocks;
+    private final int numberOfFrames;
+
+    /**
+     * Where every change to a frame is marked, or null if
+     * changes are not tracked.
+     */
+    private final DirtyFrameMap changes;
+
+    public FrameTable(int numberOfFrames) {
+        this(numberOfFrames, null);
+    }
+
+    /**
+     * @param changes where every frame assigned, released or
+     * flagged is marked, or null to track nothing
+     */
+    public FrameTable(int numberOfFrames, DirtyFrameMap changes) {
+        this.numberOfFrames = numberOfFrames;
+        this.changes = changes;
+        blocks = new AtomicReferenceArray<>((numberOfFrames + FRAMES_PER_BLOCK - 1) >>> FRAMES_PER_BLOCK_SHIFT);
+    }
+
+    /**
+     *
+     * This method records that a frame changed in a way this table
+     * can't see, like its bytes being written or the objects of a
+     * slab changing hands.
+     *
+     * @param frameNumber the index of the frame
+     *
+     */
+    public void markChanged(int frameNumber) {
+        if (changes != null) {
+            changes.markDirty(frameNumber);
+        }
+    }
+
+    /**
+     *
+     * This method records that a frame now belongs to a process.
+     *
+     * @param frameNumber the index of the frame
+     * @param processId the id of the process that owns the frame
+     * @param usedBytes how many of the frame's slots the process uses
+     *
+     */
+    public void assign(int frameNumber, int processId, int usedBytes) {
+        int[] entries = allocatedBlockOf(frameNumber);
+        int base = baseOf(frameNumber);
+        entries[base + OWNER] = processId;
+        entries[base + USED_BYTES] = usedBytes;
+        entries[base + FLAGS] = FLAG_IN_USE;
+        markChanged(frameNumber);
+    }
+
+    public void release(int frameNumber) {
+        int[] entries = blocks.get(frameNumber >>> FRAMES_PER_BLOCK_SHIFT);
+        if (entries == null) {
+            return;
+        }
+        int base = baseOf(frameNumber);
+        entries[base + OWNER] = NO_OWNER;
+        entries[base + USED_BYTES] = 0;
+        entries[base + FLAGS] = 0;
+        markChanged(frameNumber);
+    }
+
+    public int ownerOf(int frameNumber) {
+        int[] entries = blocks.get(frameNumber >>> FRAMES_PER_BLOCK_SHIFT);
+        if (entries == null) {
+            return NO_OWNER;
+        }
+        int base = baseOf(frameNumber);
+        return (entries[base + FLAGS] & FLAG_IN_USE) == 0 ? NO_OWNER : entries[base + OWNER];
+    }
+
+    public int usedBytesOf(int frameNumber) {
+        return entryOf(frameNumber, USED_BYTES);
+    }
+
+    public boolean isInUse(int frameNumber) {
+        return hasFlag(frameNumber, FLAG_IN_USE);
+    }
+
+    /**
+     *
+     * This method tells which process a slot of a frame
+     * belongs to, which is how the memory views show it.
+     *
+     * @param frameNumber the index of the frame
+     * @param slotIndex the index of the slot inside the frame
+     *
+     * @return the owner's id, or -1 if the slot is not in use
+     *
+     */
+    public int ownerOfSlot(int frameNumber, int slotIndex) {
+        int[] entries = blocks.get(frameNumber >>> FRAMES_PER_BLOCK_SHIFT);
+        if (entries == null) {
+            return NO_OWNER;
+        }
+        int base = baseOf(frameNumber);
+        if ((entries[base + FLAGS] & FLAG_IN_USE) == 0 || slotIndex >= entries[base + USED_BYTES]) {
+            return NO_OWNER;
+        }
+        return entries[base + OWNER];
+    }
+
+    public int flagsOf(int frameNumber) {
+        return entryOf(frameNumber, FLAGS);
+    }
+
+    public boolean hasFlag(int frameNumber, int flag) {
+        return (entryOf(frameNumber, FLAGS) & flag) != 0;
+    }
+
+    public void setFlag(int frameNumber, int flag) {
+        allocatedBlockOf(frameNumber)[baseOf(frameNumber) + FLAGS] |= flag;
+        markChanged(frameNumber);
+    }
+
+    public void clearFlag(int frameNumber, int flag) {
+        int[] entries = blocks.get(frameNumber >>> FRAMES_PER_BLOCK_SHIFT);
+        if (entries != null) {
+            entries[baseOf(frameNumber) + FLAGS] &= ~flag;
+            markChanged(frameNumber);
+        }
+    }
+
+    public int numberOfFrames() {
+        return numberOfFrames;
+    }
+
+    private int entryOf(int frameNumber, int field) {
+        int[] entries = blocks.get(frameNumber >>> FRAMES_PER_BLOCK_SHIFT);
+        return entries == null ? 0 : entries[baseOf(frameNumber) + field];
+    }
+
+    /**
+     * Two threads assigning frames of the same new block may both
+     * allocate it, in which case only one of them is kept.
+     */
+    private int[] allocatedBlockOf(int frameNumber) {
+        int blockIndex = frameNumber >>> FRAMES_PER_BLOCK_SHIFT;
+        int[] entries = blocks.get(blockIndex);
+        if (entries == null) {
+            blocks.compareAndSet(blockIndex, null, new int[FRAMES_PER_BLOCK * ENTRY_SIZE]);
+            entries = blocks.get(blockIndex);
+        }
+        return entries;
+    }
+
+    private static int baseOf(int frameNumber) {
+        return (frameNumber & (FRAMES_PER_BLOCK - 1)) * ENTRY_SIZE;
+    }
+}
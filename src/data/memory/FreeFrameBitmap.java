@@ -0,0 +1,278 @@
+package data.memory;
+
+/**
+ * The first fit frame allocator: a bitmap with one bit per frame, which
+ * hands out the lowest numbered free frames, contiguous or not.
+ */
+public class FreeFrameBitmap implements FrameAllocator {
+
+    private static final int BITS_PER_WORD = 64;
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * One bit per frame, set while the frame is free.
+     * Bits past the last frame are always clear, so they
+     * are never handed out.
+     */
+    private final long[] words;
+    private final int numberOfFrames;
+    private int freeCount;
+
+    /**
+     * Index of the lowest word that may still contain a
+     * free frame. Every word below it is known to be full.
+     */
+    private int lowestFreeWord;
+
+    public FreeFrameBitmap(int numberOfFrames) {
+        this.numberOfFrames = numberOfFrames;
+        this.words = new long[(numberOfFrames + BITS_PER_WORD - 1) >>> WORD_SHIFT];
+        this.freeCount = numberOfFrames;
+
+        int fullWords = numberOfFrames >>> WORD_SHIFT;
+        for (int i = 0; i < fullWords; i++) {
+            words[i] = -1L;
+        }
+        int remainingBits = numberOfFrames & (BITS_PER_WORD - 1);
+        if (remainingBits != 0) {
+            words[fullWords] = (1L << remainingBits) - 1;
+        }
+    }
+
+    @Override
+    public int freeCount() {
+        return freeCount;
+    }
+
+    @Override
+    public int numberOfFrames() {
+        return numberOfFrames;
+    }
+
+    public boolean isFree(int frameNumber) {
+        return (words[frameNumber >>> WORD_SHIFT] & (1L << frameNumber)) != 0;
+    }
+
+    /**
+     *
+     * This method looks for the lowest numbered free frames,
+     * without reserving them.
+     *
+     * @param count how many frames are wanted
+     * @param frameNumbers where the frame numbers found are written
+     *
+     * @return how many frames were found, which is less than count
+     * only when there aren't enough free frames
+     *
+     */
+    public int findFreeFrames(int count, int[] frameNumbers) {
+        int found = 0;
+        for (int w = lowestFreeWord; w < words.length && found < count; w++) {
+            long word = words[w];
+            while (word != 0 && found < count) {
+                frameNumbers[found++] = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     *
+     * This method looks for the lowest run of contiguous free
+     * frames that is at least count frames long, without
+     * reserving it.
+     *
+     * @param count how many contiguous frames are wanted
+     *
+     * @return the first frame number of the run, or -1 if no such run exists
+     *
+     */
+    public int findContiguousFreeFrames(int count) {
+        if (count <= 0 || count > freeCount) {
+            return -1;
+        }
+
+        int run = 0;
+        int runStart = -1;
+        for (int w = lowestFreeWord; w < words.length; w++) {
+            long word = words[w];
+
+            if (word == -1L) {
+                if (run == 0) {
+                    runStart = w << WORD_SHIFT;
+                }
+                run += BITS_PER_WORD;
+                if (run >= count) {
+                    return runStart;
+                }
+                continue;
+            }
+
+            int bit = 0;
+            while (bit < BITS_PER_WORD) {
+                long remaining = word >>> bit;
+                if (remaining == 0) {
+                    run = 0;
+                    break;
+                }
+
+                int usedFrames = Long.numberOfTrailingZeros(remaining);
+                if (usedFrames > 0) {
+                    run = 0;
+                    bit += usedFrames;
+                    remaining >>>= usedFrames;
+                }
+
+                // the bits above the word were shifted in as zeros,
+                // so this never counts past the end of the word
+                int freeFrames = Long.numberOfTrailingZeros(~remaining);
+                if (run == 0) {
+                    runStart = (w << WORD_SHIFT) + bit;
+                }
+                run += freeFrames;
+                if (run >= count) {
+                    return runStart;
+                }
+                bit += freeFrames;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * This method reserves the lowest numbered free frames.
+     * Either all of them are reserved or none is.
+     *
+     * @param count how many frames are wanted
+     * @param frameNumbers where the reserved frame numbers are written
+     *
+     * @return true if the frames were reserved
+     *
+     */
+    @Override
+    public boolean allocate(int count, int[] frameNumbers) {
+        if (count > freeCount) {
+            return false;
+        }
+
+        int found = 0;
+        for (int w = lowestFreeWord; found < count; w++) {
+            long word = words[w];
+            while (word != 0 && found < count) {
+                frameNumbers[found++] = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+            words[w] = word;
+            lowestFreeWord = word == 0 ? w + 1 : w;
+        }
+        freeCount -= count;
+        return true;
+    }
+
+    /**
+     *
+     * This method reserves the lowest run of contiguous free frames.
+     *
+     * @param count how many contiguous frames are wanted
+     *
+     * @return the first frame number of the run, or -1 if no such run exists
+     *
+     */
+    public int allocateContiguous(int count) {
+        int start = findContiguousFreeFrames(count);
+        if (start != -1) {
+            markUsed(start, count);
+        }
+        return start;
+    }
+
+    /**
+     *
+     * This method marks a range of frames as used.
+     * Frames in the range that were already used stay used.
+     *
+     * @param start the first frame of the range
+     * @param count how many frames the range has
+     *
+     */
+    public void markUsed(int start, int count) {
+        int end = start + count;
+        for (int frame = start; frame < end; ) {
+            int w = frame >>> WORD_SHIFT;
+            int bitsInWord = Math.min(end - frame, BITS_PER_WORD - (frame & (BITS_PER_WORD - 1)));
+            long mask = rangeMask(frame, bitsInWord);
+            freeCount -= Long.bitCount(words[w] & mask);
+            words[w] &= ~mask;
+            frame += bitsInWord;
+        }
+        while (lowestFreeWord < words.length && words[lowestFreeWord] == 0) {
+            lowestFreeWord++;
+        }
+    }
+
+    @Override
+    public void free(int[] frameNumbers, int count) {
+        for (int i = 0; i < count; i++) {
+            free(frameNumbers[i]);
+        }
+    }
+
+    @Override
+    public boolean claim(int[] frameNumbers, int count) {
+        for (int i = 0; i < count; i++) {
+            int frameNumber = frameNumbers[i];
+            if (frameNumber < 0 || frameNumber >= numberOfFrames || !isFree(frameNumber)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            markUsed(frameNumbers[i], 1);
+        }
+        return true;
+    }
+
+    @Override
+    public int largestFreeBlock() {
+        int largest = 0;
+        int run = 0;
+        for (long word : words) {
+            if (word == -1L) {
+                run += BITS_PER_WORD;
+                continue;
+            }
+            for (int bit = 0; bit < BITS_PER_WORD; bit++) {
+                if ((word & (1L << bit)) != 0) {
+                    run++;
+                } else {
+                    largest = Math.max(largest, run);
+                    run = 0;
+                }
+            }
+        }
+        return Math.max(largest, run);
+    }
+
+    @Override
+    public long wastedFrames() {
+        return 0;
+    }
+
+    public void free(int frameNumber) {
+        int w = frameNumber >>> WORD_SHIFT;
+        long bit = 1L << frameNumber;
+        if ((words[w] & bit) == 0) {
+            words[w] |= bit;
+            freeCount++;
+            if (w < lowestFreeWord) {
+                lowestFreeWord = w;
+            }
+        }
+    }
+
+    private static long rangeMask(int firstFrame, int bits) {
+        long mask = bits == BITS_PER_WORD ? -1L : (1L << bits) - 1;
+        return mask << firstFrame;
+    }
+}
@@ -1,40 +1,274 @@
 package data.memory;
 
+import java.util.Arrays;
+
 public class Page  {
 
+    public static final int NO_SWAP_SLOT = -1;
+
+    /**
+     * The index of this page inside its process's address space.
+     * While the page is shared it may be mapped at other virtual
+     * pages too, and this is one of them.
+     */
+    private int virtualPageNumber;
+
+    /**
+     * How many slots of this page the process uses. Only the
+     * last page of a process can use less than a whole page.
+     */
+    private final int usedSlots;
+
     /**
      * Field containing the frame that was "paired"
-     * with this page.
+     * with this page, or null while the page is not resident.
      */
     private Frame frame;
 
     /**
-     * Field containing the id of the process
-     * that currently occupies this page's memory
+     * Where this page starts inside its frame. It is 0 unless the
+     * page lives in a slab, sharing the frame with other pages.
+     */
+    private int frameOffset;
+    private boolean sharesFrame;
+
+    /**
+     * The swap slot holding this page's contents while it is
+     * paged out, or NO_SWAP_SLOT.
      */
-    private int processId;
+    private int swapSlot;
+
+    /**
+     * The block the frame of this page was allocated in, when the
+     * frames of its process were allocated together, or null.
+     */
+    private FrameBlock block;
+
+    /**
+     * The mappings of this page, each a process and the virtual page
+     * it maps the page at, when there is more than one; null while a
+     * single one does. A process may map the page more than once, once
+     * merged pages of its own have the same contents. Their number is
+     * the reference count of the page's frame, and it is kept here, with
+     * the page, so it survives the page being swapped out.
+     */
+    private int[] sharers;
+    private int[] sharerPages;
+    private int numberOfSharers;
+
+    /**
+     * Set while this page is shared, by a fork or by merging, so that
+     * the first process to write to it gets a private copy instead.
+     */
+    private boolean copyOnWrite;
+
+    public Page(int virtualPageNumber, int usedSlots) {
+        this.virtualPageNumber = virtualPageNumber;
+        this.usedSlots = usedSlots;
+        this.swapSlot = NO_SWAP_SLOT;
+    }
 
-    public Page(int size, byte[] memoryPointers) {
-        this.processId = -1;
-        frame = new Frame(size, memoryPointers);
+    /**
+     *
+     * This method pairs this page with a frame and records
+     * the process as the owner of the frame.
+     *
+     * @param frame the frame that will hold this page
+     * @param processId the id of the process that owns this page
+     *
+     */
+    public void occupyFrame(Frame frame, int processId) {
+        this.frame = frame;
+        frame.occupyMemorySlotsWithProcessId(usedSlots, processId);
     }
 
-    public void occupyMemorySlotsWithProcessId(int slots, int processId) {
-        this.processId = processId;
-        frame.occupyMemorySlotsWithProcessId(slots, processId);
+    /**
+     *
+     * This method pairs this page with an object of a slab frame.
+     * The frame's ownership stays with the slab allocator.
+     *
+     * @param frame the slab frame holding the object
+     * @param frameOffset where the object starts inside the frame
+     *
+     */
+    public void occupySlabObject(Frame frame, int frameOffset) {
+        this.frame = frame;
+        this.frameOffset = frameOffset;
+        this.sharesFrame = true;
     }
 
+    /**
+     *
+     * This method releases the frame paired with this page,
+     * leaving the page not resident. A slab frame is left to
+     * the slab allocator, which frees the object itself.
+     *
+     */
     public void cleanMemorySlots() {
-        this.processId = -1;
-        frame.cleanMemorySlots();
+        if (frame != null) {
+            if (!sharesFrame) {
+                frame.cleanMemorySlots();
+            }
+            frame = null;
+            frameOffset = 0;
+            sharesFrame = false;
+        }
     }
 
+    /**
+     * @return the id of the process that currently
+     * occupies this page's memory, or -1
+     */
     public int getProcessId() {
-        return processId;
+        return frame == null ? FrameTable.NO_OWNER : frame.getOwnerId();
+    }
+
+    public boolean isResident() {
+        return frame != null;
     }
 
     public Frame getFrame() {
         return frame;
     }
 
+    public int getFrameOffset() {
+        return frameOffset;
+    }
+
+    /**
+     * @return true if this page lives in a slab frame
+     */
+    public boolean sharesFrame() {
+        return sharesFrame;
+    }
+
+    /**
+     * @return the physical address this page starts at
+     */
+    public long getPhysicalAddress() {
+        return frame.getOffset() + frameOffset;
+    }
+
+    public int getVirtualPageNumber() {
+        return virtualPageNumber;
+    }
+
+    public int getUsedSlots() {
+        return usedSlots;
+    }
+
+    public int getSwapSlot() {
+        return swapSlot;
+    }
+
+    public void setSwapSlot(int swapSlot) {
+        this.swapSlot = swapSlot;
+    }
+
+    public boolean isSwappedOut() {
+        return swapSlot != NO_SWAP_SLOT;
+    }
+
+    public FrameBlock getBlock() {
+        return block;
+    }
+
+    public void setBlock(FrameBlock block) {
+        this.block = block;
+    }
+
+    /**
+     *
+     * This method records that this page is mapped once more.
+     *
+     * @param processId the process that maps this page already, at its
+     * own virtual page, if it isn't shared yet
+     * @param sharerId the process that maps it from now on too
+     * @param sharerPage the virtual page that process maps it at
+     *
+     */
+    public void share(int processId, int sharerId, int sharerPage) {
+        if (sharers == null) {
+            sharers = new int[] {processId, sharerId};
+            sharerPages = new int[] {virtualPageNumber, sharerPage};
+            numberOfSharers = 2;
+            return;
+        }
+        if (numberOfSharers == sharers.length) {
+            sharers = Arrays.copyOf(sharers, numberOfSharers * 2);
+            sharerPages = Arrays.copyOf(sharerPages, numberOfSharers * 2);
+        }
+        sharers[numberOfSharers] = sharerId;
+        sharerPages[numberOfSharers++] = sharerPage;
+    }
+
+    /**
+     *
+     * This method records that a process doesn't map this page at a
+     * virtual page anymore. Once a single mapping is left, the page is
+     * its own again, at the virtual page of that mapping, and it may be
+     * written to without being copied.
+     *
+     * @param processId the process that stopped mapping this page
+     * @param page the virtual page it mapped it at
+     *
+     */
+    public void unshare(int processId, int page) {
+        if (sharers == null) {
+            return;
+        }
+        for (int i = 0; i < numberOfSharers; i++) {
+            if (sharers[i] == processId && sharerPages[i] == page) {
+                sharers[i] = sharers[--numberOfSharers];
+                sharerPages[i] = sharerPages[numberOfSharers];
+                break;
+            }
+        }
+        virtualPageNumber = sharerPages[0];
+        if (numberOfSharers == 1) {
+            sharers = null;
+            sharerPages = null;
+            numberOfSharers = 0;
+            copyOnWrite = false;
+        }
+    }
+
+    /**
+     * @return true if this page is mapped more than once
+     */
+    public boolean isShared() {
+        return sharers != null;
+    }
+
+    /**
+     * @return how many times this page is mapped
+     */
+    public int numberOfSharers() {
+        return sharers == null ? 1 : numberOfSharers;
+    }
+
+    /**
+     * @return the process of one of the mappings of this page,
+     * only meaningful while it is shared
+     */
+    public int sharerAt(int index) {
+        return sharers[index];
+    }
+
+    /**
+     * @return the virtual page of one of the mappings of this
+     * page, only meaningful while it is shared
+     */
+    public int sharerPageAt(int index) {
+        return sharerPages[index];
+    }
+
+    public boolean isCopyOnWrite() {
+        return copyOnWrite;
+    }
+
+    public void setCopyOnWrite(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+    }
+
 }
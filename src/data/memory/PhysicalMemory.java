@@ -0,0 +1,408 @@
+package data.memory;
+
+import misc.Configuration;
+import misc.MemoryBacking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class PhysicalMemory implements Closeable {
+
+    /**
+     * A single ByteBuffer can't address more than 2GB,
+     * so bigger memories are split into chunks of at most
+     * this size. Frames never straddle two chunks.
+     */
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Heap and direct memories are allocated a chunk at a time, the
+     * first time one of its frames is written, so their chunks are
+     * kept small: touching one frame only costs this much memory.
+     */
+    private static final int LAZY_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * The primes of xxHash64, which contentHash mixes frames with.
+     */
+    private static final long HASH_PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long HASH_PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long HASH_PRIME_3 = 0x165667B19E3779F9L;
+    private static final long HASH_PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long HASH_PRIME_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * A chunk that was never written is null here, and reads as zeros.
+     * Mapped chunks are all set up front, since the file is only read
+     * in as it is touched anyway.
+     */
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+    private final MemoryBacking backing;
+    private final int pageSize;
+    private final int numberOfFrames;
+    private final int framesPerChunk;
+    private final RandomAccessFile backingFile;
+
+    /**
+     * A page of zeros, which every read of a frame that was
+     * never written copies from.
+     */
+    private final ByteBuffer zeroPage;
+
+    private PhysicalMemory(AtomicReferenceArray<ByteBuffer> chunks, MemoryBacking backing, int pageSize,
+                           int numberOfFrames, int framesPerChunk, RandomAccessFile backingFile) {
+        this.chunks = chunks;
+        this.backing = backing;
+        this.pageSize = pageSize;
+        this.numberOfFrames = numberOfFrames;
+        this.framesPerChunk = framesPerChunk;
+        this.backingFile = backingFile;
+        zeroPage = ByteBuffer.allocate(pageSize).asReadOnlyBuffer();
+    }
+
+    /**
+     *
+     * This method creates the single backing store for the
+     * whole physical memory, according to the backing chosen
+     * on the configuration. Every frame is a view into it, so
+     * no per-frame copies are ever made.
+     *
+     * Nothing is allocated for the frames yet: heap and direct chunks
+     * are allocated when they are first written, and a mapped file is
+     * only sized, so even a huge memory is set up in no time.
+     *
+     * @param configuration the object containing configuration fields
+     *
+     */
+    public static PhysicalMemory allocate(Configuration configuration) throws IOException {
+        int pageSize = configuration.pageSize();
+        int numberOfFrames = configuration.numberOfFrames();
+        MemoryBacking backing = configuration.memoryBacking();
+        int chunkSize = backing == MemoryBacking.MAPPED ? MAX_CHUNK_SIZE : LAZY_CHUNK_SIZE;
+        int framesPerChunk = Math.max(1, Math.min(numberOfFrames, chunkSize / pageSize));
+        int numberOfChunks = (numberOfFrames + framesPerChunk - 1) / framesPerChunk;
+
+        AtomicReferenceArray<ByteBuffer> chunks = new AtomicReferenceArray<>(numberOfChunks);
+        RandomAccessFile file = null;
+
+        if (backing == MemoryBacking.MAPPED) {
+            file = new RandomAccessFile(configuration.backingFilePath(), "rw");
+            file.setLength((long) numberOfFrames * pageSize);
+            for (int i = 0; i < numberOfChunks; i++) {
+                long position = (long) i * framesPerChunk * pageSize;
+                int chunkLength = chunkLength(i, framesPerChunk, numberOfFrames, pageSize);
+                chunks.set(i, file.getChannel().map(FileChannel.MapMode.READ_WRITE, position, chunkLength));
+            }
+        }
+
+        return new PhysicalMemory(chunks, backing, pageSize, numberOfFrames, framesPerChunk, file);
+    }
+
+    /**
+     *
+     * This method maps a memory image saved in a file, privately: the
+     * frames read the file's bytes, but writes into them stay in this
+     * process and never reach the file. Pages of the image are only
+     * read in when they are touched, so mapping a big image is cheap.
+     *
+     * @param channel the file holding the image
+     * @param position where the image starts in the file
+     * @param pageSize the size of each frame
+     * @param numberOfFrames how many frames the image has
+     *
+     */
+    public static PhysicalMemory map(FileChannel channel, long position,
+                                     int pageSize, int numberOfFrames) throws IOException {
+        int framesPerChunk = Math.max(1, Math.min(numberOfFrames, MAX_CHUNK_SIZE / pageSize));
+        int numberOfChunks = (numberOfFrames + framesPerChunk - 1) / framesPerChunk;
+
+        AtomicReferenceArray<ByteBuffer> chunks = new AtomicReferenceArray<>(numberOfChunks);
+        for (int i = 0; i < numberOfChunks; i++) {
+            long chunkPosition = position + (long) i * framesPerChunk * pageSize;
+            chunks.set(i, channel.map(
+                    FileChannel.MapMode.PRIVATE, chunkPosition, chunkLength(i, framesPerChunk, numberOfFrames, pageSize)
+            ));
+        }
+
+        return new PhysicalMemory(chunks, MemoryBacking.MAPPED, pageSize, numberOfFrames, framesPerChunk, null);
+    }
+
+    private static int chunkLength(int chunkIndex, int framesPerChunk, int numberOfFrames, int pageSize) {
+        return Math.min(framesPerChunk, numberOfFrames - chunkIndex * framesPerChunk) * pageSize;
+    }
+
+    /**
+     * @return independent views over the whole memory, in address
+     * order, each positioned at its start, ready for a gathering write.
+     * The chunks never written are all views of the same zeros, so
+     * none of them gets allocated.
+     */
+    public ByteBuffer[] chunkViews() {
+        ByteBuffer[] views = new ByteBuffer[chunks.length()];
+        ByteBuffer zeros = null;
+        for (int i = 0; i < views.length; i++) {
+            ByteBuffer chunk = chunks.get(i);
+            if (chunk == null) {
+                if (zeros == null) {
+                    zeros = ByteBuffer.allocate(framesPerChunk * pageSize).asReadOnlyBuffer();
+                }
+                chunk = zeros;
+            }
+            views[i] = chunk.duplicate();
+            views[i].clear().limit(chunkLength(i, framesPerChunk, numberOfFrames, pageSize));
+        }
+        return views;
+    }
+
+    /**
+     * @return whether the frame's chunk was ever written. The frames
+     * of a chunk that wasn't take no memory and read as zeros.
+     */
+    public boolean isMaterialized(int frameNumber) {
+        return chunks.get(frameNumber / framesPerChunk) != null;
+    }
+
+    /**
+     *
+     * This method returns an independent view over the bytes
+     * of a frame. Its position is 0 and its limit is the page size,
+     * and writes into it go straight to the physical memory.
+     *
+     * @param frameNumber the index of the frame
+     *
+     */
+    public ByteBuffer frameView(int frameNumber) {
+        ByteBuffer view = materializedChunk(frameNumber / framesPerChunk).duplicate();
+        int offset = offsetInChunk(frameNumber);
+        view.limit(offset + pageSize).position(offset);
+        return view.slice();
+    }
+
+    public byte getByte(int frameNumber, int slotIndex) {
+        ByteBuffer chunk = chunks.get(frameNumber / framesPerChunk);
+        return chunk == null ? 0 : chunk.get(offsetInChunk(frameNumber) + slotIndex);
+    }
+
+    /**
+     * @param physicalAddress an address as returned by a manager's translate
+     */
+    public byte getByte(long physicalAddress) {
+        return getByte((int) (physicalAddress / pageSize), (int) (physicalAddress % pageSize));
+    }
+
+    public void putByte(int frameNumber, int slotIndex, byte value) {
+        materializedChunk(frameNumber / framesPerChunk).put(offsetInChunk(frameNumber) + slotIndex, value);
+    }
+
+    /**
+     * @param physicalAddress an address as returned by a manager's translate
+     */
+    public void putByte(long physicalAddress, byte value) {
+        putByte((int) (physicalAddress / pageSize), (int) (physicalAddress % pageSize), value);
+    }
+
+    /**
+     *
+     * This method copies bytes from one place of the memory to
+     * another in a single bulk copy. Neither range may cross the
+     * end of a frame.
+     *
+     * @param source the physical address of the first byte copied
+     * @param target the physical address it is copied to
+     * @param length how many bytes are copied
+     *
+     */
+    public void copy(long source, long target, int length) {
+        ByteBuffer from = frameView((int) (source / pageSize));
+        int fromOffset = (int) (source % pageSize);
+        from.limit(fromOffset + length).position(fromOffset);
+        ByteBuffer to = frameView((int) (target / pageSize));
+        to.position((int) (target % pageSize));
+        to.put(from);
+    }
+
+    /**
+     *
+     * This method copies bytes of a frame into a buffer in a single
+     * bulk copy, advancing the buffer's position. A frame that was
+     * never written reads as zeros, without being allocated. The range
+     * may not cross the end of a frame.
+     *
+     * @param physicalAddress the physical address of the first byte read
+     * @param destination the buffer the bytes are copied into
+     * @param length how many bytes are read
+     *
+     */
+    public void read(long physicalAddress, ByteBuffer destination, int length) {
+        int frameNumber = (int) (physicalAddress / pageSize);
+        ByteBuffer chunk = chunks.get(frameNumber / framesPerChunk);
+        if (chunk == null) {
+            ByteBuffer zeros = zeroPage.duplicate();
+            zeros.limit(length);
+            destination.put(zeros);
+            return;
+        }
+        ByteBuffer view = chunk.duplicate();
+        int offset = offsetInChunk(frameNumber) + (int) (physicalAddress % pageSize);
+        view.limit(offset + length).position(offset);
+        destination.put(view);
+    }
+
+    /**
+     *
+     * This method copies bytes of a buffer into a frame in a single
+     * bulk copy, advancing the buffer's position. The range may not
+     * cross the end of a frame.
+     *
+     * @param physicalAddress the physical address of the first byte written
+     * @param source the buffer the bytes are copied from
+     * @param length how many bytes are written
+     *
+     */
+    public void write(long physicalAddress, ByteBuffer source, int length) {
+        int frameNumber = (int) (physicalAddress / pageSize);
+        ByteBuffer view = materializedChunk(frameNumber / framesPerChunk).duplicate();
+        view.position(offsetInChunk(frameNumber) + (int) (physicalAddress % pageSize));
+        int limit = source.limit();
+        source.limit(source.position() + length);
+        try {
+            view.put(source);
+        } finally {
+            source.limit(limit);
+        }
+    }
+
+    /**
+     *
+     * This method sets every slot of a frame to zero, which is
+     * what a page that was never written must read as.
+     *
+     * @param frameNumber the index of the frame
+     *
+     */
+    public void clear(int frameNumber) {
+        if (!isMaterialized(frameNumber)) {
+            return;
+        }
+        ByteBuffer view = frameView(frameNumber);
+        while (view.remaining() >= Long.BYTES) {
+            view.putLong(0L);
+        }
+        while (view.hasRemaining()) {
+            view.put((byte) 0);
+        }
+    }
+
+    /**
+     *
+     * This method hashes the first bytes of a frame, eight at a time,
+     * with the rounds xxHash64 uses for short inputs. It is fast and
+     * spreads well, but it is not cryptographic: equal hashes only
+     * mean the contents are worth comparing. A frame that was never
+     * written hashes as zeros, without being allocated.
+     *
+     * @param frameNumber the index of the frame
+     * @param length how many bytes, from the start of the frame, are hashed
+     *
+     */
+    public long contentHash(int frameNumber, int length) {
+        ByteBuffer chunk = chunks.get(frameNumber / framesPerChunk);
+        ByteBuffer bytes = chunk == null ? zeroPage : chunk;
+        int offset = chunk == null ? 0 : offsetInChunk(frameNumber);
+        int end = offset + length;
+
+        long hash = HASH_PRIME_5 + length;
+        for (; offset + Long.BYTES <= end; offset += Long.BYTES) {
+            hash ^= Long.rotateLeft(bytes.getLong(offset) * HASH_PRIME_2, 31) * HASH_PRIME_1;
+            hash = Long.rotateLeft(hash, 27) * HASH_PRIME_1 + HASH_PRIME_4;
+        }
+        for (; offset < end; offset++) {
+            hash ^= (bytes.get(offset) & 0xFF) * HASH_PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * HASH_PRIME_1;
+        }
+        hash ^= hash >>> 33;
+        hash *= HASH_PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= HASH_PRIME_3;
+        return hash ^ hash >>> 32;
+    }
+
+    /**
+     *
+     * This method compares the first bytes of two frames.
+     *
+     * @param frameNumber the index of a frame
+     * @param otherFrameNumber the index of the frame it is compared to
+     * @param length how many bytes, from the start of the frames, are compared
+     *
+     * @return true if the bytes of both frames are the same
+     *
+     */
+    public boolean contentEquals(int frameNumber, int otherFrameNumber, int length) {
+        ByteBuffer chunk = chunks.get(frameNumber / framesPerChunk);
+        ByteBuffer otherChunk = chunks.get(otherFrameNumber / framesPerChunk);
+        ByteBuffer bytes = chunk == null ? zeroPage : chunk;
+        ByteBuffer otherBytes = otherChunk == null ? zeroPage : otherChunk;
+        int offset = chunk == null ? 0 : offsetInChunk(frameNumber);
+        int otherOffset = otherChunk == null ? 0 : offsetInChunk(otherFrameNumber);
+
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            if (bytes.getLong(offset + i) != otherBytes.getLong(otherOffset + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (bytes.get(offset + i) != otherBytes.get(otherOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int numberOfFrames() {
+        return numberOfFrames;
+    }
+
+    public long size() {
+        return (long) numberOfFrames * pageSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (backingFile != null) {
+            backingFile.close();
+        }
+    }
+
+    /**
+     *
+     * This method returns a chunk, allocating it if it was never
+     * written. Two threads may race to allocate the same chunk, in
+     * which case only one of the buffers is kept.
+     *
+     * @param chunkIndex the index of the chunk
+     *
+     */
+    private ByteBuffer materializedChunk(int chunkIndex) {
+        ByteBuffer chunk = chunks.get(chunkIndex);
+        if (chunk != null) {
+            return chunk;
+        }
+        int length = chunkLength(chunkIndex, framesPerChunk, numberOfFrames, pageSize);
+        chunk = backing == MemoryBacking.DIRECT ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        return chunks.compareAndSet(chunkIndex, null, chunk) ? chunk : chunks.get(chunkIndex);
+    }
+
+    private int offsetInChunk(int frameNumber) {
+        return (frameNumber % framesPerChunk) * pageSize;
+    }
+}
@@ -0,0 +1,96 @@
+package data.memory;
+
+import java.util.Arrays;
+
+/**
+ * What the same-page merging pass knows about the frames it scanned:
+ * the hash each frame had when it was last scanned, and, for every
+ * hash seen since the scan last started over, a frame that had it.
+ *
+ * The frames are found by hash in an open-addressing table with
+ * linear probing, of primitive arrays only, so scanning allocates
+ * nothing. It holds at most one frame per hash, and a frame's entry
+ * is never updated when the frame changes, so every frame found must
+ * still be checked against the frame it is merged with. The table is
+ * emptied when the scan starts over, which drops the stale entries.
+ */
+public class SamePageIndex {
+
+    private static final int NO_FRAME = -1;
+
+    private final long[] lastHashes;
+    private final long[] keys;
+    private final int[] frames;
+    private final int mask;
+
+    /**
+     * @param numberOfFrames how many frames the memory has
+     */
+    public SamePageIndex(int numberOfFrames) {
+        lastHashes = new long[numberOfFrames];
+        int capacity = Integer.highestOneBit(Math.max(1, numberOfFrames) * 2 - 1) << 1;
+        keys = new long[capacity];
+        frames = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(frames, NO_FRAME);
+    }
+
+    /**
+     *
+     * This method records the hash a frame has now.
+     *
+     * @param frameNumber the index of the frame
+     * @param hash the hash of its contents
+     *
+     * @return true if the frame had the same hash when it was last
+     * scanned, so it probably didn't change in between
+     *
+     */
+    public boolean recordHash(int frameNumber, long hash) {
+        boolean unchanged = lastHashes[frameNumber] == hash;
+        lastHashes[frameNumber] = hash;
+        return unchanged;
+    }
+
+    /**
+     * @return a frame that had this hash, or -1 if none was added
+     */
+    public int find(long hash) {
+        for (int slot = slotOf(hash); frames[slot] != NO_FRAME; slot = (slot + 1) & mask) {
+            if (keys[slot] == hash) {
+                return frames[slot];
+            }
+        }
+        return NO_FRAME;
+    }
+
+    /**
+     *
+     * This method records a frame as the one with a hash, replacing
+     * the frame that had it before, if any.
+     *
+     * @param hash the hash of the frame's contents
+     * @param frameNumber the index of the frame
+     *
+     */
+    public void put(long hash, int frameNumber) {
+        int slot = slotOf(hash);
+        while (frames[slot] != NO_FRAME && keys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = hash;
+        frames[slot] = frameNumber;
+    }
+
+    /**
+     * This method forgets every frame added, but not the hashes
+     * the frames had when they were last scanned.
+     */
+    public void clear() {
+        Arrays.fill(frames, NO_FRAME);
+    }
+
+    private int slotOf(long hash) {
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,323 @@
+package data.memory;
+
+/**
+ * A size-class allocator for processes smaller than half a page.
+ *
+ * Without it, such a process takes a whole frame and leaves most of it
+ * unused. Here it gets an object of the smallest power-of-two size class
+ * that fits it, and the objects of a class are packed into slabs, frames
+ * holding nothing but objects of that class. Slabs come from the frame
+ * allocator one frame at a time and go back to it once they are empty.
+ *
+ * Slabs with free objects are kept in one intrusive list per class, and
+ * each slab tracks its free objects in a bitmap, so allocating and
+ * freeing take constant time apart from the bitmap scan. Slab frames are
+ * marked with {@link FrameTable#FLAG_SLAB}; their owners are kept per
+ * object, here, instead of in the frame table.
+ */
+public class SlabAllocator {
+
+    public static final int MIN_OBJECT_SIZE = 16;
+
+    private final FrameAllocator frameAllocator;
+    private final FrameTable frameTable;
+    private final int pageSize;
+    private final int[] objectSizes;
+    private final Slab[] partialSlabs;
+    private final Slab[] slabOfFrame;
+    private final int[] frameScratch = new int[1];
+
+    private long requestedBytes;
+    private int slabFrames;
+
+    private static final class Slab {
+        final int frameNumber;
+        final int sizeClass;
+        final long[] freeObjects;
+        final int[] owners;
+        final int[] usedBytes;
+        int freeCount;
+        Slab previous;
+        Slab next;
+        boolean listed;
+
+        Slab(int frameNumber, int sizeClass, int objects) {
+            this.frameNumber = frameNumber;
+            this.sizeClass = sizeClass;
+            freeObjects = new long[(objects + 63) >>> 6];
+            owners = new int[objects];
+            usedBytes = new int[objects];
+            freeCount = objects;
+            for (int i = 0; i < objects; i++) {
+                freeObjects[i >>> 6] |= 1L << i;
+                owners[i] = FrameTable.NO_OWNER;
+            }
+        }
+    }
+
+    public SlabAllocator(FrameAllocator frameAllocator, FrameTable frameTable, int pageSize) {
+        this.frameAllocator = frameAllocator;
+        this.frameTable = frameTable;
+        this.pageSize = pageSize;
+
+        int classes = 0;
+        for (int size = MIN_OBJECT_SIZE; size <= pageSize / 2; size <<= 1) {
+            classes++;
+        }
+        objectSizes = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            objectSizes[i] = MIN_OBJECT_SIZE << i;
+        }
+        partialSlabs = new Slab[classes];
+        slabOfFrame = new Slab[frameAllocator.numberOfFrames()];
+    }
+
+    /**
+     * @return true if processes of this size are placed in slabs
+     */
+    public boolean handles(int size) {
+        return objectSizes.length > 0 && size <= objectSizes[objectSizes.length - 1];
+    }
+
+    /**
+     * @return true if an object of this size can be allocated right now
+     */
+    public boolean canAllocate(int size) {
+        return partialSlabs[sizeClassFor(size)] != null || frameAllocator.freeCount() > 0;
+    }
+
+    /**
+     *
+     * This method allocates an object for a small process.
+     *
+     * @param size the size of the process, in bytes
+     * @param processId the id of the process that owns the object
+     *
+     * @return the physical address of the object, or -1 if
+     * there is no room for it
+     *
+     */
+    public long allocate(int size, int processId) {
+        int sizeClass = sizeClassFor(size);
+        Slab slab = partialSlabs[sizeClass];
+        if (slab == null) {
+            slab = newSlab(sizeClass);
+            if (slab == null) {
+                return -1;
+            }
+        }
+
+        int object = takeFreeObject(slab);
+        slab.owners[object] = processId;
+        slab.usedBytes[object] = size;
+        if (slab.freeCount == 0) {
+            unlist(slab);
+        }
+
+        requestedBytes += size;
+        frameTable.markChanged(slab.frameNumber);
+        return (long) slab.frameNumber * pageSize + (long) object * objectSizes[sizeClass];
+    }
+
+    /**
+     *
+     * This method reserves the very object an earlier call to allocate
+     * returned, taking its frame as a new slab first if needed, which is
+     * how the slabs are rebuilt from a snapshot.
+     *
+     * @param address the physical address returned by allocate
+     * @param size the size of the process, in bytes
+     * @param processId the id of the process that owns the object
+     *
+     * @return false if the object is not free, or its frame
+     * holds objects of another size class
+     *
+     */
+    public boolean claim(long address, int size, int processId) {
+        int sizeClass = sizeClassFor(size);
+        int objectSize = objectSizes[sizeClass];
+        int frameNumber = (int) (address / pageSize);
+        int offset = (int) (address % pageSize);
+        if (offset % objectSize != 0) {
+            return false;
+        }
+
+        Slab slab = slabOfFrame[frameNumber];
+        if (slab == null) {
+            frameScratch[0] = frameNumber;
+            if (!frameAllocator.claim(frameScratch, 1)) {
+                return false;
+            }
+            slab = startSlab(frameNumber, sizeClass);
+        } else if (slab.sizeClass != sizeClass) {
+            return false;
+        }
+
+        int object = offset / objectSize;
+        long bit = 1L << object;
+        if ((slab.freeObjects[object >>> 6] & bit) == 0) {
+            return false;
+        }
+        slab.freeObjects[object >>> 6] &= ~bit;
+        slab.freeCount--;
+        slab.owners[object] = processId;
+        slab.usedBytes[object] = size;
+        if (slab.freeCount == 0) {
+            unlist(slab);
+        }
+
+        requestedBytes += size;
+        frameTable.markChanged(frameNumber);
+        return true;
+    }
+
+    /**
+     *
+     * This method records another process as the owner of an object,
+     * for when the one it was allocated for leaves it to processes
+     * that share it.
+     *
+     * @param address the physical address returned by allocate
+     * @param processId the id of the process that owns the object from now on
+     *
+     */
+    public void changeOwner(long address, int processId) {
+        Slab slab = slabOfFrame[(int) (address / pageSize)];
+        slab.owners[(int) (address % pageSize) / objectSizes[slab.sizeClass]] = processId;
+        frameTable.markChanged(slab.frameNumber);
+    }
+
+    /**
+     *
+     * This method frees an object, giving its slab's
+     * frame back once the slab is empty.
+     *
+     * @param address the physical address returned by allocate
+     *
+     */
+    public void free(long address) {
+        Slab slab = slabOfFrame[(int) (address / pageSize)];
+        int objectSize = objectSizes[slab.sizeClass];
+        int object = (int) (address % pageSize) / objectSize;
+
+        requestedBytes -= slab.usedBytes[object];
+        slab.owners[object] = FrameTable.NO_OWNER;
+        slab.usedBytes[object] = 0;
+        slab.freeObjects[object >>> 6] |= 1L << object;
+        slab.freeCount++;
+        frameTable.markChanged(slab.frameNumber);
+
+        if (slab.freeCount == slab.owners.length) {
+            if (slab.listed) {
+                unlist(slab);
+            }
+            releaseSlab(slab);
+        } else if (!slab.listed) {
+            list(slab);
+        }
+    }
+
+    /**
+     * @return the owner of a slot of a slab frame, or -1 if the
+     * slot is outside of every object in use
+     */
+    public int ownerOfSlot(int frameNumber, int slotIndex) {
+        Slab slab = slabOfFrame[frameNumber];
+        if (slab == null) {
+            return FrameTable.NO_OWNER;
+        }
+        int objectSize = objectSizes[slab.sizeClass];
+        int object = slotIndex / objectSize;
+        if (object >= slab.owners.length) {
+            return FrameTable.NO_OWNER;
+        }
+        return slotIndex % objectSize < slab.usedBytes[object] ? slab.owners[object] : FrameTable.NO_OWNER;
+    }
+
+    /**
+     * @return the bytes of the slab frames that hold no process's data,
+     * whether they round an object up to its class or belong to free objects
+     */
+    public long wastedBytes() {
+        return (long) slabFrames * pageSize - requestedBytes;
+    }
+
+    public int slabFrames() {
+        return slabFrames;
+    }
+
+    public int objectSizeFor(int size) {
+        return objectSizes[sizeClassFor(size)];
+    }
+
+    private int sizeClassFor(int size) {
+        int sizeClass = 0;
+        while (objectSizes[sizeClass] < size) {
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+
+    private Slab newSlab(int sizeClass) {
+        if (!frameAllocator.allocate(1, frameScratch)) {
+            return null;
+        }
+        return startSlab(frameScratch[0], sizeClass);
+    }
+
+    private Slab startSlab(int frameNumber, int sizeClass) {
+        Slab slab = new Slab(frameNumber, sizeClass, pageSize / objectSizes[sizeClass]);
+        slabOfFrame[frameNumber] = slab;
+        frameTable.assign(frameNumber, FrameTable.NO_OWNER, pageSize);
+        frameTable.setFlag(frameNumber, FrameTable.FLAG_SLAB);
+        slabFrames++;
+        list(slab);
+        return slab;
+    }
+
+    private void releaseSlab(Slab slab) {
+        slabOfFrame[slab.frameNumber] = null;
+        frameTable.release(slab.frameNumber);
+        frameScratch[0] = slab.frameNumber;
+        frameAllocator.free(frameScratch, 1);
+        slabFrames--;
+    }
+
+    private static int takeFreeObject(Slab slab) {
+        for (int w = 0; w < slab.freeObjects.length; w++) {
+            long word = slab.freeObjects[w];
+            if (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                slab.freeObjects[w] = word & (word - 1);
+                slab.freeCount--;
+                return (w << 6) + bit;
+            }
+        }
+        throw new IllegalStateException("A listed slab has no free objects.");
+    }
+
+    private void list(Slab slab) {
+        Slab head = partialSlabs[slab.sizeClass];
+        slab.previous = null;
+        slab.next = head;
+        if (head != null) {
+            head.previous = slab;
+        }
+        partialSlabs[slab.sizeClass] = slab;
+        slab.listed = true;
+    }
+
+    private void unlist(Slab slab) {
+        if (slab.previous == null) {
+            partialSlabs[slab.sizeClass] = slab.next;
+        } else {
+            slab.previous.next = slab.next;
+        }
+        if (slab.next != null) {
+            slab.next.previous = slab.previous;
+        }
+        slab.previous = null;
+        slab.next = null;
+        slab.listed = false;
+    }
+}
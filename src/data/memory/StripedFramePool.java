@@ -0,0 +1,227 @@
+package data.memory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe pool of free frames.
+ *
+ * The frames are split into stripes, each a FreeFrameBitmap over a
+ * contiguous range of frames with its own lock. In front of the stripes
+ * sit small per-core caches, so most allocations and frees only touch the
+ * cache of the calling thread. Multi-page requests are reserved up front
+ * against a single atomic free count, so a process either gets all of its
+ * frames or none of them.
+ */
+public class StripedFramePool {
+
+    private static final int CACHE_CAPACITY = 64;
+    private static final int REFILL_BATCH = CACHE_CAPACITY / 2;
+
+    private final Stripe[] stripes;
+    private final FrameCache[] caches;
+    private final int framesPerStripe;
+    private final AtomicInteger freeCount;
+
+    public StripedFramePool(int numberOfFrames, int numberOfStripes, int numberOfCaches) {
+        int stripeCount = Math.max(1, Math.min(numberOfStripes, numberOfFrames));
+        framesPerStripe = (numberOfFrames + stripeCount - 1) / stripeCount;
+        stripeCount = (numberOfFrames + framesPerStripe - 1) / framesPerStripe;
+
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            int firstFrame = i * framesPerStripe;
+            stripes[i] = new Stripe(firstFrame, Math.min(framesPerStripe, numberOfFrames - firstFrame));
+        }
+
+        caches = new FrameCache[Math.max(1, numberOfCaches)];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = new FrameCache();
+        }
+        freeCount = new AtomicInteger(numberOfFrames);
+    }
+
+    public int freeCount() {
+        return freeCount.get();
+    }
+
+    /**
+     *
+     * This method atomically reserves a number of frames, leaving the
+     * pool untouched if there aren't enough of them. A successful
+     * reservation must be followed by {@link #take(int, int[])}.
+     *
+     * @param count how many frames are wanted
+     *
+     * @return true if the frames were reserved
+     *
+     */
+    public boolean reserve(int count) {
+        while (true) {
+            int free = freeCount.get();
+            if (free < count) {
+                return false;
+            }
+            if (freeCount.compareAndSet(free, free - count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     *
+     * This method hands out frames that were previously reserved. It
+     * looks in the calling thread's cache first, then in the stripes and
+     * finally in the other caches, retrying until the reservation is met.
+     *
+     * @param count how many frames were reserved
+     * @param frameNumbers where the frame numbers are written
+     *
+     */
+    public void take(int count, int[] frameNumbers) {
+        int taken = 0;
+        int homeCache = cacheIndexForCurrentThread();
+        int homeStripe = homeCache % stripes.length;
+
+        while (taken < count) {
+            taken += caches[homeCache].take(frameNumbers, taken, count - taken);
+
+            for (int i = 0; i < stripes.length && taken < count; i++) {
+                Stripe stripe = stripes[(homeStripe + i) % stripes.length];
+                if (count - taken < REFILL_BATCH) {
+                    taken += refillAndTake(caches[homeCache], stripe, frameNumbers, taken, count - taken);
+                } else {
+                    taken += stripe.take(frameNumbers, taken, count - taken);
+                }
+            }
+
+            for (int i = 1; i < caches.length && taken < count; i++) {
+                taken += caches[(homeCache + i) % caches.length].take(frameNumbers, taken, count - taken);
+            }
+        }
+    }
+
+    /**
+     *
+     * This method gives frames back to the pool through the calling
+     * thread's cache, spilling the cache into the stripes when it fills.
+     *
+     * @param frameNumbers the frames being released
+     * @param count how many entries of frameNumbers are released
+     *
+     */
+    public void release(int[] frameNumbers, int count) {
+        FrameCache cache = caches[cacheIndexForCurrentThread()];
+        for (int i = 0; i < count; i++) {
+            int spilled = cache.put(frameNumbers[i]);
+            if (spilled != -1) {
+                stripes[spilled / framesPerStripe].free(spilled);
+            }
+        }
+        freeCount.addAndGet(count);
+    }
+
+    private int refillAndTake(FrameCache cache, Stripe stripe, int[] frameNumbers, int offset, int wanted) {
+        int[] batch = new int[REFILL_BATCH];
+        int found = stripe.take(batch, 0, REFILL_BATCH);
+        int taken = Math.min(found, wanted);
+        System.arraycopy(batch, 0, frameNumbers, offset, taken);
+
+        for (int i = taken; i < found; i++) {
+            int spilled = cache.put(batch[i]);
+            if (spilled != -1) {
+                stripes[spilled / framesPerStripe].free(spilled);
+            }
+        }
+        return taken;
+    }
+
+    private int cacheIndexForCurrentThread() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) % caches.length;
+    }
+
+    /**
+     * A contiguous range of frames guarded by its own lock.
+     */
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FreeFrameBitmap bitmap;
+        private final int firstFrame;
+
+        Stripe(int firstFrame, int numberOfFrames) {
+            this.firstFrame = firstFrame;
+            this.bitmap = new FreeFrameBitmap(numberOfFrames);
+        }
+
+        int take(int[] frameNumbers, int offset, int wanted) {
+            lock.lock();
+            try {
+                int count = Math.min(wanted, bitmap.freeCount());
+                if (count == 0) {
+                    return 0;
+                }
+                int[] found = new int[count];
+                bitmap.allocate(count, found);
+                for (int i = 0; i < count; i++) {
+                    frameNumbers[offset + i] = firstFrame + found[i];
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void free(int frameNumber) {
+            lock.lock();
+            try {
+                bitmap.free(frameNumber - firstFrame);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A small stack of free frames meant to be used
+     * mostly by the threads of a single core.
+     */
+    private static class FrameCache {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] frames = new int[CACHE_CAPACITY];
+        private int size;
+
+        int take(int[] frameNumbers, int offset, int wanted) {
+            lock.lock();
+            try {
+                int count = Math.min(wanted, size);
+                for (int i = 0; i < count; i++) {
+                    frameNumbers[offset + i] = frames[--size];
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return -1 if the frame was cached, or the frame that
+         * no longer fits and has to go back to its stripe
+         */
+        int put(int frameNumber) {
+            lock.lock();
+            try {
+                if (size == CACHE_CAPACITY) {
+                    return frameNumber;
+                }
+                frames[size++] = frameNumber;
+                return -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package data.process;
+
+/**
+ * A shared segment mapped into the address space of a process,
+ * starting at one of its virtual pages.
+ */
+public class Attachment {
+
+    private final int processId;
+    private final SharedSegment segment;
+    private final int firstPage;
+
+    public Attachment(int processId, SharedSegment segment, int firstPage) {
+        this.processId = processId;
+        this.segment = segment;
+        this.firstPage = firstPage;
+    }
+
+    public int getProcessId() {
+        return processId;
+    }
+
+    public SharedSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return the virtual page of the process the segment starts at
+     */
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    /**
+     * @return the virtual page after the last one of the segment
+     */
+    public int getEndPage() {
+        return firstPage + segment.getPageTable().numberOfPages();
+    }
+}
@@ -0,0 +1,55 @@
+package data.process;
+
+import data.memory.Page;
+
+import java.util.Arrays;
+
+/**
+ * A page table that is a single array with one entry per virtual page.
+ *
+ * Lookups are a plain array index, but the array is as big as the
+ * whole address space, however few of its pages are mapped.
+ */
+public class DensePageTable implements PageTable {
+
+    private final Page[] pages;
+
+    public DensePageTable(int numberOfPages) {
+        pages = new Page[numberOfPages];
+    }
+
+    @Override
+    public Page get(int virtualPageNumber) {
+        return pages[virtualPageNumber];
+    }
+
+    @Override
+    public void put(int virtualPageNumber, Page page) {
+        pages[virtualPageNumber] = page;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(pages, null);
+    }
+
+    @Override
+    public int numberOfPages() {
+        return pages.length;
+    }
+
+    @Override
+    public int nextMapped(int fromVirtualPageNumber) {
+        for (int i = fromVirtualPageNumber; i < pages.length; i++) {
+            if (pages[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long overheadBytes() {
+        return OBJECT_HEADER_BYTES + REFERENCE_BYTES + PageTable.arrayBytes(pages.length, REFERENCE_BYTES);
+    }
+}
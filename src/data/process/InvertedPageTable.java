@@ -0,0 +1,210 @@
+package data.process;
+
+import data.memory.Page;
+
+/**
+ * A hashed inverted page table, shared by every process.
+ *
+ * Instead of one table per address space, there is a single hash
+ * table keyed by (processId, virtualPageNumber) with room for every
+ * page the memory can hold: one entry per frame, plus one per swap slot
+ * when demand paging is enabled. Its size therefore follows the memory
+ * and not the address spaces, however large or sparse they are.
+ *
+ * Keys and pages live in parallel arrays probed linearly, and removals
+ * shift entries back instead of leaving tombstones, as in
+ * {@link ProcessTable}. Each process sees the table through the view
+ * returned by {@link #forProcess}.
+ */
+public class InvertedPageTable {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final long[] keys;
+    private final Page[] pages;
+    private final int mask;
+    private final int shift;
+    private final int maximumEntries;
+    private int size;
+    private long probes;
+    private long lookups;
+
+    /**
+     * @param maximumEntries how many pages can be mapped at once
+     */
+    public InvertedPageTable(int maximumEntries) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < (long) maximumEntries * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        pages = new Page[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.maximumEntries = maximumEntries;
+    }
+
+    public Page get(int processId, int virtualPageNumber) {
+        long key = keyOf(processId, virtualPageNumber);
+        int index = indexFor(key);
+        lookups++;
+        while (pages[index] != null) {
+            probes++;
+            if (keys[index] == key) {
+                return pages[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     *
+     * This method maps a page of a process, replacing the page
+     * that was mapped at the same virtual page number, if any.
+     *
+     * @param processId the process the page belongs to
+     * @param virtualPageNumber where the page is mapped
+     * @param page the page to be mapped
+     *
+     */
+    public void put(int processId, int virtualPageNumber, Page page) {
+        long key = keyOf(processId, virtualPageNumber);
+        int index = indexFor(key);
+        while (pages[index] != null) {
+            if (keys[index] == key) {
+                pages[index] = page;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (size == maximumEntries) {
+            throw new IllegalStateException("The inverted page table is full.");
+        }
+        keys[index] = key;
+        pages[index] = page;
+        size++;
+    }
+
+    public Page remove(int processId, int virtualPageNumber) {
+        long key = keyOf(processId, virtualPageNumber);
+        int index = indexFor(key);
+        while (pages[index] != null) {
+            if (keys[index] == key) {
+                Page removed = pages[index];
+                shiftEntriesBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return a page table over the pages of one process
+     */
+    public PageTable forProcess(int processId, int numberOfPages) {
+        return new ProcessView(processId, numberOfPages);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many entries an average lookup has compared
+     */
+    public double averageProbes() {
+        return lookups == 0 ? 0 : (double) probes / lookups;
+    }
+
+    public long overheadBytes() {
+        return PageTable.OBJECT_HEADER_BYTES + 2 * PageTable.REFERENCE_BYTES + 4 * Integer.BYTES + 2 * Long.BYTES
+                + PageTable.arrayBytes(keys.length, Long.BYTES)
+                + PageTable.arrayBytes(pages.length, PageTable.REFERENCE_BYTES);
+    }
+
+    private void shiftEntriesBack(int hole) {
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (pages[index] == null) {
+                break;
+            }
+
+            int home = indexFor(keys[index]);
+            boolean homeIsOutsideGap = hole <= index
+                    ? (home <= hole || home > index)
+                    : (home <= hole && home > index);
+            if (homeIsOutsideGap) {
+                keys[hole] = keys[index];
+                pages[hole] = pages[index];
+                hole = index;
+            }
+        }
+        pages[hole] = null;
+    }
+
+    private static long keyOf(int processId, int virtualPageNumber) {
+        return ((long) processId << 32) | (virtualPageNumber & 0xFFFFFFFFL);
+    }
+
+    private int indexFor(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * The pages of a single process inside the shared table. The view
+     * itself holds nothing, so its overhead is only the view object;
+     * the entries are accounted for by the shared table.
+     */
+    private class ProcessView implements PageTable {
+
+        private final int processId;
+        private final int numberOfPages;
+
+        ProcessView(int processId, int numberOfPages) {
+            this.processId = processId;
+            this.numberOfPages = numberOfPages;
+        }
+
+        @Override
+        public Page get(int virtualPageNumber) {
+            return InvertedPageTable.this.get(processId, virtualPageNumber);
+        }
+
+        @Override
+        public void put(int virtualPageNumber, Page page) {
+            InvertedPageTable.this.put(processId, virtualPageNumber, page);
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < numberOfPages; i++) {
+                remove(processId, i);
+            }
+        }
+
+        @Override
+        public int numberOfPages() {
+            return numberOfPages;
+        }
+
+        @Override
+        public int nextMapped(int fromVirtualPageNumber) {
+            for (int i = fromVirtualPageNumber; i < numberOfPages; i++) {
+                if (get(i) != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public long overheadBytes() {
+            return OBJECT_HEADER_BYTES + REFERENCE_BYTES + 2 * Integer.BYTES;
+        }
+    }
+}
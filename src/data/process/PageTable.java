@@ -0,0 +1,71 @@
+package data.process;
+
+import data.memory.Page;
+
+/**
+ * Maps the virtual page numbers of one process to its pages.
+ *
+ * A page table only holds the pages that exist: with demand paging a
+ * page is created on its first access, so a sparse address space
+ * never has most of its pages mapped.
+ *
+ * @see PageTableType
+ */
+public interface PageTable {
+
+    /**
+     * Rough sizes of the JVM structures the tables are made of,
+     * assuming compressed references, used to estimate overhead.
+     */
+    int REFERENCE_BYTES = 4;
+    int ARRAY_HEADER_BYTES = 16;
+    int OBJECT_HEADER_BYTES = 12;
+
+    /**
+     * @return the page mapped at this virtual page number, or null
+     */
+    Page get(int virtualPageNumber);
+
+    /**
+     *
+     * This method maps a page at a virtual page number, replacing
+     * the page that was mapped there, if any. It is normally the
+     * page's own, but a shared page may be mapped at another one.
+     *
+     * @param virtualPageNumber where the page is mapped
+     * @param page the page to be mapped
+     *
+     */
+    void put(int virtualPageNumber, Page page);
+
+    /**
+     *
+     * This method unmaps every page of the table.
+     * It must be called when the process terminates.
+     *
+     */
+    void clear();
+
+    /**
+     * @return how many pages the address space of the process
+     * spans, mapped or not
+     */
+    int numberOfPages();
+
+    /**
+     * @return the lowest virtual page number, starting at the
+     * given one, that has a page mapped, or -1 if there is none
+     */
+    int nextMapped(int fromVirtualPageNumber);
+
+    /**
+     * @return an estimate of the memory, in bytes, taken by the
+     * structure of the table itself, not counting the pages
+     */
+    long overheadBytes();
+
+    static long arrayBytes(int length, int elementBytes) {
+        long bytes = ARRAY_HEADER_BYTES + (long) length * elementBytes;
+        return (bytes + 7) & ~7L;
+    }
+}
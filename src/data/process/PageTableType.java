@@ -0,0 +1,15 @@
+package data.process;
+
+/**
+ * The page table structures that can be picked on a configuration.
+ *
+ * @see DensePageTable
+ * @see RadixPageTable
+ * @see InvertedPageTable
+ */
+public enum PageTableType {
+    DENSE,
+    TWO_LEVEL,
+    THREE_LEVEL,
+    INVERTED
+}
@@ -1,24 +1,32 @@
 package data.process;
 
-import data.memory.Page;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class Process {
 
     private int id;
-    private Page[] pageTable;
+    private PageTable pageTable;
     private int size;
 
-    public Process(int id, int size, Page[] allocatedPages) {
+    /**
+     * The shared segments mapped after the pages of the process,
+     * or null while there are none.
+     */
+    private List<Attachment> attachments;
+
+    public Process(int id, int size, PageTable pageTable) {
         this.id = id;
         this.size = size;
-        pageTable = allocatedPages;
+        this.pageTable = pageTable;
     }
 
     public int getId() {
         return id;
     }
 
-    public Page[] getPageTable() {
+    public PageTable getPageTable() {
         return pageTable;
     }
 
@@ -26,4 +34,63 @@ public class Process {
         return size;
     }
 
+    public void attach(Attachment attachment) {
+        if (attachments == null) {
+            attachments = new ArrayList<>();
+        }
+        attachments.add(attachment);
+    }
+
+    public void detach(Attachment attachment) {
+        attachments.remove(attachment);
+    }
+
+    public List<Attachment> getAttachments() {
+        return attachments == null ? Collections.emptyList() : attachments;
+    }
+
+    /**
+     * @return the attachment mapping this virtual page, or null
+     */
+    public Attachment attachmentAt(int virtualPageNumber) {
+        if (attachments == null) {
+            return null;
+        }
+        for (Attachment attachment : attachments) {
+            if (virtualPageNumber >= attachment.getFirstPage() && virtualPageNumber < attachment.getEndPage()) {
+                return attachment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the attachment of the segment with this name, or null
+     */
+    public Attachment attachmentOf(String segmentName) {
+        if (attachments == null) {
+            return null;
+        }
+        for (Attachment attachment : attachments) {
+            if (attachment.getSegment().getName().equals(segmentName)) {
+                return attachment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the first virtual page after the pages of the process
+     * and every segment attached to it, where the next one goes
+     */
+    public int nextFreePage() {
+        int page = pageTable.numberOfPages();
+        if (attachments != null) {
+            for (Attachment attachment : attachments) {
+                page = Math.max(page, attachment.getEndPage());
+            }
+        }
+        return page;
+    }
+
 }
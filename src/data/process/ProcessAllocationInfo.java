@@ -10,6 +10,30 @@ public class ProcessAllocationInfo {
         this.unfilledPageSlotsSize = filledSlotsOnLastPage;
     }
 
+    /**
+     *
+     * This method calculates how many pages will be needed
+     * for allocating a process based on that process's size
+     *
+     * @param processSize the size of the process, in bytes
+     * @param pageSize the size of each page, in bytes
+     *
+     */
+    public static ProcessAllocationInfo calculate(int processSize, int pageSize) {
+        int numberOfPagesForProcess;
+        int unfilledPageSlotsSize;
+
+        unfilledPageSlotsSize = processSize % pageSize;
+
+        if (unfilledPageSlotsSize == 0) {
+            numberOfPagesForProcess = processSize / pageSize;
+        } else {
+            numberOfPagesForProcess = (processSize / pageSize) + 1;
+        }
+
+        return new ProcessAllocationInfo(numberOfPagesForProcess, unfilledPageSlotsSize);
+    }
+
     public int getNumberOfPagesForProcess() {
         return numberOfPagesForProcess;
     }
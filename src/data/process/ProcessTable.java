@@ -0,0 +1,178 @@
+package data.process;
+
+import java.util.function.Consumer;
+
+/**
+ * An open-addressing hash map from process id to process.
+ *
+ * Keys live in a plain int[], so lookups never box the id, and
+ * removals shift the following entries back instead of leaving
+ * tombstones, which keeps probe sequences short no matter how many
+ * processes are created and terminated.
+ */
+public class ProcessTable {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] keys;
+    private Process[] values;
+    private int size;
+    private int mask;
+
+    public ProcessTable() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public ProcessTable(int expectedProcesses) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < expectedProcesses * 2) {
+            capacity <<= 1;
+        }
+        initialize(capacity);
+    }
+
+    public Process get(int processId) {
+        int index = indexFor(processId);
+        while (values[index] != null) {
+            if (keys[index] == processId) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean contains(int processId) {
+        return get(processId) != null;
+    }
+
+    /**
+     *
+     * This method stores a process under its id,
+     * replacing any process that had the same id.
+     *
+     * @param process the process to be stored
+     *
+     * @return the process that was replaced, or null
+     *
+     */
+    public Process put(Process process) {
+        int processId = process.getId();
+        int index = indexFor(processId);
+        while (values[index] != null) {
+            if (keys[index] == processId) {
+                Process previous = values[index];
+                values[index] = process;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = processId;
+        values[index] = process;
+        if (++size * 2 > values.length) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     *
+     * This method removes the process stored under the given id.
+     *
+     * @param processId the id of the process
+     *
+     * @return the removed process, or null if there was none
+     *
+     */
+    public Process remove(int processId) {
+        int index = indexFor(processId);
+        while (values[index] != null) {
+            if (keys[index] == processId) {
+                Process removed = values[index];
+                shiftEntriesBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * This method runs an action on every process of the table,
+     * in no particular order. The table must not be changed
+     * while it is being iterated.
+     *
+     */
+    public void forEach(Consumer<Process> action) {
+        for (Process process : values) {
+            if (process != null) {
+                action.accept(process);
+            }
+        }
+    }
+
+    /**
+     *
+     * This method fills the hole left by a removal by moving back
+     * every following entry of the same cluster that would otherwise
+     * become unreachable from its home slot.
+     *
+     * @param hole the index of the removed entry
+     *
+     */
+    private void shiftEntriesBack(int hole) {
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) {
+                break;
+            }
+
+            int home = indexFor(keys[index]);
+            boolean homeIsOutsideGap = hole <= index
+                    ? (home <= hole || home > index)
+                    : (home <= hole && home > index);
+            if (homeIsOutsideGap) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Process[] oldValues = values;
+        initialize(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexFor(oldKeys[i]);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void initialize(int capacity) {
+        keys = new int[capacity];
+        values = new Process[capacity];
+        mask = capacity - 1;
+    }
+
+    private int indexFor(int processId) {
+        int hash = processId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
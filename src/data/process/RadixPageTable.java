@@ -0,0 +1,137 @@
+package data.process;
+
+import data.memory.Page;
+
+/**
+ * A multi-level page table, shaped like the ones walked by x86 or ARM
+ * MMUs. The bits of a virtual page number are split into one index per
+ * level; the root is allocated up front and every other node only
+ * when a page below it is mapped, so the table grows with the pages in
+ * use instead of with the size of the address space.
+ *
+ * Interior nodes hold their children and leaves hold the pages, both
+ * in plain Object arrays.
+ */
+public class RadixPageTable implements PageTable {
+
+    private final int numberOfPages;
+    private final int levels;
+    private final int[] shifts;
+    private final int[] masks;
+
+    private Object[] root;
+    private long nodeBytes;
+
+    /**
+     * @param numberOfPages how many pages the address space spans
+     * @param levels how many levels the table has; address spaces with
+     * fewer bits than levels get one level per bit
+     */
+    public RadixPageTable(int numberOfPages, int levels) {
+        this.numberOfPages = numberOfPages;
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, numberOfPages - 1)));
+        this.levels = Math.max(1, Math.min(levels, bits));
+
+        shifts = new int[this.levels];
+        masks = new int[this.levels];
+        int shift = 0;
+        for (int level = this.levels - 1; level >= 0; level--) {
+            int remainingLevels = level + 1;
+            int levelBits = (bits - shift + remainingLevels - 1) / remainingLevels;
+            shifts[level] = shift;
+            masks[level] = (1 << levelBits) - 1;
+            shift += levelBits;
+        }
+
+        root = newNode(0);
+    }
+
+    @Override
+    public Page get(int virtualPageNumber) {
+        Object[] node = root;
+        int leaf = levels - 1;
+        for (int level = 0; level < leaf; level++) {
+            node = (Object[]) node[(virtualPageNumber >>> shifts[level]) & masks[level]];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Page) node[virtualPageNumber & masks[leaf]];
+    }
+
+    @Override
+    public void put(int virtualPageNumber, Page page) {
+        Object[] node = root;
+        int leaf = levels - 1;
+        for (int level = 0; level < leaf; level++) {
+            int index = (virtualPageNumber >>> shifts[level]) & masks[level];
+            Object[] child = (Object[]) node[index];
+            if (child == null) {
+                child = newNode(level + 1);
+                node[index] = child;
+            }
+            node = child;
+        }
+        node[virtualPageNumber & masks[leaf]] = page;
+    }
+
+    @Override
+    public void clear() {
+        nodeBytes = 0;
+        root = newNode(0);
+    }
+
+    @Override
+    public int numberOfPages() {
+        return numberOfPages;
+    }
+
+    /**
+     * Subtrees that were never allocated are skipped whole,
+     * so scanning a sparse table doesn't visit every page.
+     */
+    @Override
+    public int nextMapped(int fromVirtualPageNumber) {
+        long virtualPageNumber = fromVirtualPageNumber;
+        int leaf = levels - 1;
+
+        while (virtualPageNumber < numberOfPages) {
+            int vpn = (int) virtualPageNumber;
+            Object[] node = root;
+            int level = 0;
+            while (level < leaf) {
+                Object child = node[(vpn >>> shifts[level]) & masks[level]];
+                if (child == null) {
+                    break;
+                }
+                node = (Object[]) child;
+                level++;
+            }
+
+            if (level < leaf) {
+                virtualPageNumber = ((virtualPageNumber >>> shifts[level]) + 1) << shifts[level];
+            } else if (node[vpn & masks[leaf]] != null) {
+                return vpn;
+            } else {
+                virtualPageNumber++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long overheadBytes() {
+        return OBJECT_HEADER_BYTES + 4 * REFERENCE_BYTES + 2 * Integer.BYTES + Long.BYTES
+                + PageTable.arrayBytes(levels, Integer.BYTES) * 2 + nodeBytes;
+    }
+
+    public int levels() {
+        return levels;
+    }
+
+    private Object[] newNode(int level) {
+        int length = masks[level] + 1;
+        nodeBytes += PageTable.arrayBytes(length, REFERENCE_BYTES);
+        return new Object[length];
+    }
+}
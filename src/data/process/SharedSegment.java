@@ -0,0 +1,84 @@
+package data.process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named piece of memory that several processes can map at once.
+ *
+ * Its pages are kept in a page table of their own, numbered from the
+ * start of the segment, and are mapped by every process it is attached
+ * to, each at its own virtual pages. The segment's frames are recorded
+ * as belonging to the segment, not to any of the processes, so they are
+ * counted once however many processes use them.
+ *
+ * A destroyed segment can't be attached anymore and its name can be
+ * used again, but its memory stays until the last process detaches.
+ */
+public class SharedSegment {
+
+    private final int id;
+    private final String name;
+    private final int size;
+    private final PageTable pageTable;
+    private final List<Attachment> attachments;
+    private boolean destroyed;
+
+    /**
+     * @param id the owner recorded for the frames of the segment
+     * @param name the name processes attach to it by
+     * @param size the size of the segment, in bytes
+     * @param numberOfPages how many pages the size spans
+     */
+    public SharedSegment(int id, String name, int size, int numberOfPages) {
+        this.id = id;
+        this.name = name;
+        this.size = size;
+        this.pageTable = new DensePageTable(numberOfPages);
+        this.attachments = new ArrayList<>();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public PageTable getPageTable() {
+        return pageTable;
+    }
+
+    public void attach(Attachment attachment) {
+        attachments.add(attachment);
+    }
+
+    public void detach(Attachment attachment) {
+        attachments.remove(attachment);
+    }
+
+    /**
+     * @return every attachment of the segment, which
+     * must not be changed while it is iterated
+     */
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+
+    public boolean isAttached() {
+        return !attachments.isEmpty();
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    public void markDestroyed() {
+        destroyed = true;
+    }
+}
@@ -0,0 +1,7 @@
+package error;
+
+public class InvalidAddressException extends Exception {
+    public InvalidAddressException() {
+        super("The address is outside of the process's memory.");
+    }
+}
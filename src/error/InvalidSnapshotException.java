@@ -0,0 +1,7 @@
+package error;
+
+public class InvalidSnapshotException extends Exception {
+    public InvalidSnapshotException(String reason) {
+        super("Invalid snapshot: " + reason);
+    }
+}
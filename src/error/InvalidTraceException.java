@@ -0,0 +1,11 @@
+package error;
+
+public class InvalidTraceException extends Exception {
+    public InvalidTraceException(long lineNumber, String reason) {
+        super("Invalid trace at line " + lineNumber + ": " + reason);
+    }
+
+    public InvalidTraceException(String reason) {
+        super("Invalid trace: " + reason);
+    }
+}
@@ -0,0 +1,7 @@
+package error;
+
+public class ProcessNotFoundException extends Exception {
+    public ProcessNotFoundException(int processId) {
+        super("Oops! Apparently, there are no processes with id: " + processId);
+    }
+}
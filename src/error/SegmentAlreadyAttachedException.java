@@ -0,0 +1,7 @@
+package error;
+
+public class SegmentAlreadyAttachedException extends Exception {
+    public SegmentAlreadyAttachedException(String name, int processId) {
+        super("The shared segment " + name + " is attached to process " + processId + " already.");
+    }
+}
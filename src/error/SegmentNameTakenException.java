@@ -0,0 +1,7 @@
+package error;
+
+public class SegmentNameTakenException extends Exception {
+    public SegmentNameTakenException(String name) {
+        super("There is a shared segment named " + name + " already. Please pick another name.");
+    }
+}
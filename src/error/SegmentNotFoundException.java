@@ -0,0 +1,7 @@
+package error;
+
+public class SegmentNotFoundException extends Exception {
+    public SegmentNotFoundException(String name) {
+        super("Oops! Apparently, there are no shared segments named: " + name);
+    }
+}
@@ -0,0 +1,115 @@
+package manager;
+
+import java.util.Arrays;
+
+/**
+ * Many process creation requests, handed to a manager at once, and
+ * what became of each of them.
+ *
+ * The requests and their outcomes are kept in parallel arrays, so a
+ * batch allocates nothing per request and can be cleared and filled
+ * again for the next round. Each request is served as createProcess
+ * would serve it, in the order they were added, but a failure is only
+ * recorded as its status instead of being thrown.
+ */
+public class AllocationBatch {
+
+    public static final int NO_PROCESS = -1;
+
+    private static final AllocationStatus[] STATUSES = AllocationStatus.values();
+    private static final byte NOT_SERVED = -1;
+
+    private int[] requestedIds;
+    private int[] sizes;
+    private int[] processIds;
+    private byte[] statuses;
+    private int size;
+
+    /**
+     * @param capacity how many requests the batch holds before it grows
+     */
+    public AllocationBatch(int capacity) {
+        requestedIds = new int[Math.max(1, capacity)];
+        sizes = new int[requestedIds.length];
+        processIds = new int[requestedIds.length];
+        statuses = new byte[requestedIds.length];
+    }
+
+    /**
+     *
+     * This method adds a request for a new process.
+     *
+     * @param processId the id asked for, or -1 to let the manager pick one
+     * @param processSize the size of the process, in bytes
+     *
+     * @return the index of the request in this batch
+     *
+     */
+    public int add(int processId, int processSize) {
+        if (size == requestedIds.length) {
+            int capacity = size * 2;
+            requestedIds = Arrays.copyOf(requestedIds, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            processIds = Arrays.copyOf(processIds, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        requestedIds[size] = processId;
+        sizes[size] = processSize;
+        processIds[size] = NO_PROCESS;
+        statuses[size] = NOT_SERVED;
+        return size++;
+    }
+
+    /**
+     * This method removes every request, keeping the arrays for the next ones.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int requestedIdOf(int index) {
+        return requestedIds[index];
+    }
+
+    public int sizeOf(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @return what became of the request, or null if
+     * the batch was not handed to a manager yet
+     */
+    public AllocationStatus statusOf(int index) {
+        return statuses[index] == NOT_SERVED ? null : STATUSES[statuses[index]];
+    }
+
+    /**
+     * @return the id of the process created for the request, which is
+     * the handle it is known by from then on, or NO_PROCESS
+     */
+    public int processIdOf(int index) {
+        return processIds[index];
+    }
+
+    /**
+     * @return how many of the requests got their process
+     */
+    public int createdCount() {
+        int created = 0;
+        for (int i = 0; i < size; i++) {
+            if (statuses[i] == AllocationStatus.CREATED.ordinal()) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    void complete(int index, AllocationStatus status, int processId) {
+        statuses[index] = (byte) status.ordinal();
+        processIds[index] = processId;
+    }
+}
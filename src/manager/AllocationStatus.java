@@ -0,0 +1,37 @@
+package manager;
+
+import error.InsufficientMemoryException;
+import error.ProcessTooLargeException;
+import error.UnavailableProcessSpaceException;
+import error.UnsupportedIdException;
+
+/**
+ * The outcome of one request of an {@link AllocationBatch}. Every
+ * failure matches the exception createProcess throws for it, but
+ * nothing is thrown, so a rejected request costs no stack trace.
+ */
+public enum AllocationStatus {
+    CREATED,
+    TOO_LARGE,
+    INSUFFICIENT_MEMORY,
+    NO_PROCESS_SLOT,
+    UNSUPPORTED_ID;
+
+    /**
+     * @return the exception createProcess throws for this failure
+     */
+    Exception toException() {
+        switch (this) {
+            case TOO_LARGE:
+                return new ProcessTooLargeException();
+            case INSUFFICIENT_MEMORY:
+                return new InsufficientMemoryException();
+            case NO_PROCESS_SLOT:
+                return new UnavailableProcessSpaceException();
+            case UNSUPPORTED_ID:
+                return new UnsupportedIdException();
+            default:
+                throw new IllegalStateException("The process was created.");
+        }
+    }
+}
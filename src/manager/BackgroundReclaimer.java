@@ -0,0 +1,88 @@
+package manager;
+
+/**
+ * The thread that pages out in the background for a memory manager,
+ * like Linux's kswapd.
+ *
+ * It sleeps until the manager wakes it, once a fault leaves fewer free
+ * frames than the low watermark, and then evicts pages a batch at a
+ * time until the high watermark is reached. It holds the manager only
+ * while it evicts a batch, so the thread using the manager gets in
+ * between two batches.
+ *
+ * A reclaimer is never restarted: the manager stops it when it is
+ * configured again or closed, and makes a new one if it needs one.
+ * Stopping doesn't wait for the thread, which may be waiting for the
+ * manager the one stopping it holds; it finds out it was stopped the
+ * next time it gets the manager, and ends.
+ */
+final class BackgroundReclaimer implements Runnable {
+
+    private final MemoryManager manager;
+    private final Thread thread;
+
+    /*
+     * Guarded by this reclaimer. woken is also read without the lock,
+     * so waking a reclaimer that is already busy costs nothing.
+     */
+    private volatile boolean woken;
+    private boolean stopped;
+
+    BackgroundReclaimer(MemoryManager manager) {
+        this.manager = manager;
+        thread = new Thread(this, "memory-reclaimer");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * This method wakes the reclaimer, unless it is already at work.
+     */
+    void wake() {
+        if (woken) {
+            return;
+        }
+        synchronized (this) {
+            woken = true;
+            notifyAll();
+        }
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        while (awaitWork()) {
+            boolean more;
+            do {
+                more = manager.reclaimInBackground(this);
+            } while (more && !isStopped());
+        }
+    }
+
+    /**
+     * @return false once the reclaimer was stopped
+     */
+    private synchronized boolean awaitWork() {
+        while (!woken && !stopped) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                stopped = true;
+            }
+        }
+        // anything that wakes it from now on is for another round
+        woken = false;
+        return !stopped;
+    }
+
+    private synchronized boolean isStopped() {
+        return stopped;
+    }
+}
@@ -0,0 +1,464 @@
+package manager;
+
+import data.memory.Frame;
+import data.memory.FrameTable;
+import data.memory.Page;
+import data.memory.PhysicalMemory;
+import data.memory.StripedFramePool;
+import data.process.DensePageTable;
+import data.process.PageTable;
+import data.process.Process;
+import data.process.ProcessAllocationInfo;
+import error.InvalidAddressException;
+import error.ProcessNotFoundException;
+import error.UnsupportedIdException;
+import misc.Configuration;
+import misc.OutputSink;
+import misc.SinkWriter;
+import misc.ViewOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A memory manager that can be driven by many threads at once.
+ *
+ * Frames come from a {@link StripedFramePool}, which reserves all the
+ * pages of a process atomically, and running processes are kept in a
+ * ConcurrentHashMap, so creating, terminating and viewing processes
+ * never takes a global lock.
+ *
+ * Demand paging is not supported here: every page of a process gets
+ * its frame when the process is created, and any swap settings on the
+ * configuration are ignored. Page tables are always dense, since
+ * every page exists from the start, and frames always come from the
+ * striped pool, whatever allocation strategy is configured. The TLB
+ * is not used either, since its entries would need the same locking
+ * the page tables avoid, so every translation walks the page table.
+ * For the same reason pages are never shared: a fork copies the
+ * memory of the parent right away, and it has no shared segments,
+ * which is why it doesn't implement {@link ISharedSegmentManager}.
+ * Nor are the frames that change tracked, so the memory view always
+ * shows every frame, even when asked for the changes only.
+ */
+public class ConcurrentMemoryManager implements IMemoryManager, Closeable {
+
+    private static final String CHANGED_FRAMES_UNTRACKED =
+            "Changed frames are not tracked by the concurrent manager, showing every frame\n";
+
+    private final OutputSink controller;
+    private Configuration configuration;
+
+    private PhysicalMemory physicalMemory;
+    private FrameTable frameTable;
+    private StripedFramePool framePool;
+    private ConcurrentHashMap<Integer, Process> runningProcesses;
+    private int maxNumberOfProcesses;
+    private final AtomicInteger numberOfProcesses;
+    private final AtomicInteger lastProcessId;
+
+    public ConcurrentMemoryManager(OutputSink controller) {
+        this.controller = controller;
+        numberOfProcesses = new AtomicInteger();
+        lastProcessId = new AtomicInteger();
+    }
+
+    @Override
+    public void showMemory() {
+        showMemory(ViewOptions.full());
+    }
+
+    @Override
+    public void showMemory(ViewOptions options) {
+        try (Writer out = new SinkWriter(controller)) {
+            writeMemory(out, options);
+        } catch (IOException ex) {
+            controller.print(ex.getMessage());
+        }
+    }
+
+    /**
+     *
+     * This method streams the memory view into a writer. A view of the
+     * changes since an epoch shows every frame, the way the sequential
+     * manager does for an epoch it no longer keeps, after a line saying so.
+     *
+     */
+    @Override
+    public void writeMemory(Writer out, ViewOptions options) throws IOException {
+        if (options.showsOnlyChanges()) {
+            out.write(CHANGED_FRAMES_UNTRACKED);
+        }
+        new ViewRenderer(out, options, configuration.pageSize()).renderMemory(frameTable, null);
+    }
+
+    @Override
+    public void createProcess(int processId, int processSize) throws Exception {
+        allocateProcess(processId, processSize);
+    }
+
+    /**
+     *
+     * This method serves every request of a batch, in order, recording
+     * what became of each one instead of throwing. Other threads may
+     * create and terminate processes in between two requests.
+     *
+     * @param batch the requests, whose statuses and ids are filled in
+     *
+     */
+    @Override
+    public void createProcesses(AllocationBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            int processId = batch.requestedIdOf(i);
+            int processSize = batch.sizeOf(i);
+            ProcessAllocationInfo allocationInfo = ProcessAllocationInfo.calculate(
+                    processSize, configuration.pageSize()
+            );
+            AllocationStatus status = reserve(processId, processSize, allocationInfo);
+            Process process = null;
+            if (status == AllocationStatus.CREATED) {
+                process = place(processId, processSize, allocationInfo);
+                if (process == null) {
+                    status = AllocationStatus.UNSUPPORTED_ID;
+                }
+            }
+            batch.complete(i, status, process == null ? AllocationBatch.NO_PROCESS : process.getId());
+        }
+    }
+
+    /**
+     * @return the process, with the id it was given
+     */
+    private Process allocateProcess(int processId, int processSize) throws Exception {
+        ProcessAllocationInfo allocationInfo = ProcessAllocationInfo.calculate(processSize, configuration.pageSize());
+        AllocationStatus status = reserve(processId, processSize, allocationInfo);
+        if (status != AllocationStatus.CREATED) {
+            throw status.toException();
+        }
+        Process process = place(processId, processSize, allocationInfo);
+        if (process == null) {
+            throw new UnsupportedIdException();
+        }
+        return process;
+    }
+
+    /**
+     *
+     * This method takes a process slot and reserves the frames a new
+     * process needs, unless one of the checks createProcess makes fails.
+     *
+     * @return CREATED if both were reserved, or why they weren't
+     *
+     */
+    private AllocationStatus reserve(int processId, int processSize, ProcessAllocationInfo allocationInfo) {
+        if (processSize > configuration.maxProcessSize()) {
+            return AllocationStatus.TOO_LARGE;
+        }
+        if (processId < -1) {
+            return AllocationStatus.UNSUPPORTED_ID;
+        }
+        if (!reserveProcessSlot()) {
+            return AllocationStatus.NO_PROCESS_SLOT;
+        }
+        if (!framePool.reserve(allocationInfo.getNumberOfPagesForProcess())) {
+            numberOfProcesses.decrementAndGet();
+            return AllocationStatus.INSUFFICIENT_MEMORY;
+        }
+        return AllocationStatus.CREATED;
+    }
+
+    /**
+     *
+     * This method takes the frames reserved for a new process and
+     * publishes the process, giving the slot and the frames back if
+     * the id asked for is taken by then.
+     *
+     * @return the process, or null if the id asked for is taken
+     *
+     */
+    private Process place(int processId, int processSize, ProcessAllocationInfo allocationInfo) {
+        int numberOfPages = allocationInfo.getNumberOfPagesForProcess();
+        int[] frames = new int[numberOfPages];
+        framePool.take(numberOfPages, frames);
+
+        int pid = processId == -1 ? lastProcessId.incrementAndGet() : processId;
+        PageTable pageTable = occupyFrames(frames, allocationInfo, pid);
+        Process process = new Process(pid, processSize, pageTable);
+
+        if (processId == -1) {
+            while (runningProcesses.putIfAbsent(pid, process) != null) {
+                pid = lastProcessId.incrementAndGet();
+                pageTable = occupyFrames(frames, allocationInfo, pid);
+                process = new Process(pid, processSize, pageTable);
+            }
+        } else if (runningProcesses.putIfAbsent(pid, process) != null) {
+            releaseFrames(frames);
+            numberOfProcesses.decrementAndGet();
+            return null;
+        } else {
+            lastProcessId.accumulateAndGet(pid, Math::max);
+        }
+        return process;
+    }
+
+    /**
+     *
+     * This method takes one of the process slots,
+     * unless all of them are already in use.
+     *
+     */
+    private boolean reserveProcessSlot() {
+        while (true) {
+            int running = numberOfProcesses.get();
+            if (running >= maxNumberOfProcesses) {
+                return false;
+            }
+            if (numberOfProcesses.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     *
+     * This method records the process as the owner of the
+     * given frames and returns its page table.
+     *
+     * @param frameNumbers the frames reserved for the process
+     * @param allocationInfo how the process spreads over the frames
+     * @param processId the id of the process
+     *
+     */
+    private PageTable occupyFrames(int[] frameNumbers, ProcessAllocationInfo allocationInfo, int processId) {
+        int numberOfPages = frameNumbers.length;
+        int unfilledPageSlotsSize = allocationInfo.getUnfilledPageSlotsSize();
+        PageTable pageTable = new DensePageTable(numberOfPages);
+
+        for (int i = 0; i < numberOfPages; i++) {
+            int slotsToFill;
+            if (i == numberOfPages - 1 && unfilledPageSlotsSize != 0) {
+                slotsToFill = unfilledPageSlotsSize;
+            } else {
+                slotsToFill = configuration.pageSize();
+            }
+
+            Page page = new Page(i, slotsToFill);
+            page.occupyFrame(new Frame(physicalMemory, frameTable, frameNumbers[i]), processId);
+            pageTable.put(i, page);
+        }
+        return pageTable;
+    }
+
+    @Override
+    public void terminateProcess(int processId) throws ProcessNotFoundException {
+        Process process = runningProcesses.remove(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+
+        PageTable pageTable = process.getPageTable();
+        int[] frames = new int[pageTable.numberOfPages()];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = pageTable.get(i).getFrame().getFrameNumber();
+        }
+        releaseFrames(frames);
+        numberOfProcesses.decrementAndGet();
+    }
+
+    private void releaseFrames(int[] frames) {
+        for (int frame : frames) {
+            frameTable.release(frame);
+        }
+        framePool.release(frames, frames.length);
+    }
+
+    @Override
+    public byte accessMemory(int processId, int virtualAddress) throws Exception {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        if (virtualAddress < 0 || virtualAddress >= process.getSize()) {
+            throw new InvalidAddressException();
+        }
+
+        Page page = process.getPageTable().get(virtualAddress / configuration.pageSize());
+        return page.getFrame().getByteAt(virtualAddress % configuration.pageSize());
+    }
+
+    @Override
+    public void writeByte(int processId, int virtualAddress, byte value) throws Exception {
+        physicalMemory.putByte(translate(processId, virtualAddress), value);
+    }
+
+    /**
+     *
+     * This method reads the bytes of a process from an address on, as
+     * many as the buffer has room for, with one bulk copy per page.
+     * Like accessMemory, it may race with the termination of the process.
+     *
+     */
+    @Override
+    public void read(int processId, int virtualAddress, ByteBuffer destination) throws Exception {
+        if (destination.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        transfer(processId, virtualAddress, destination, false);
+    }
+
+    /**
+     *
+     * This method writes the remaining bytes of a buffer into a process
+     * from an address on, with one bulk copy per page.
+     *
+     */
+    @Override
+    public void write(int processId, int virtualAddress, ByteBuffer source) throws Exception {
+        transfer(processId, virtualAddress, source, true);
+    }
+
+    private void transfer(int processId, int virtualAddress, ByteBuffer buffer, boolean write) throws Exception {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        int length = buffer.remaining();
+        if (virtualAddress < 0 || (long) virtualAddress + length > process.getSize()) {
+            throw new InvalidAddressException();
+        }
+
+        int pageSize = configuration.pageSize();
+        int address = virtualAddress;
+        while (length > 0) {
+            int segment = Math.min(length, pageSize - address % pageSize);
+            Frame frame = process.getPageTable().get(address / pageSize).getFrame();
+            long physicalAddress = (long) frame.getFrameNumber() * pageSize + address % pageSize;
+            if (write) {
+                physicalMemory.write(physicalAddress, buffer, segment);
+            } else {
+                physicalMemory.read(physicalAddress, buffer, segment);
+            }
+            address += segment;
+            length -= segment;
+        }
+    }
+
+    /**
+     *
+     * This method creates a child of a running process with a copy of
+     * its memory, page by page. The copy is of the parent as it is while
+     * it is being made, so writes the parent makes meanwhile may or may
+     * not reach the child.
+     *
+     * @param processId the process that is forked
+     *
+     * @return the id given to the child
+     *
+     */
+    @Override
+    public int forkProcess(int processId) throws Exception {
+        Process parent = runningProcesses.get(processId);
+        if (parent == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        Process child = allocateProcess(-1, parent.getSize());
+        PageTable parentTable = parent.getPageTable();
+        PageTable childTable = child.getPageTable();
+        for (int i = 0; i < parentTable.numberOfPages(); i++) {
+            Page page = parentTable.get(i);
+            physicalMemory.copy(page.getPhysicalAddress(), childTable.get(i).getPhysicalAddress(), page.getUsedSlots());
+        }
+        return child.getId();
+    }
+
+    @Override
+    public long translate(int processId, int virtualAddress) throws Exception {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        if (virtualAddress < 0 || virtualAddress >= process.getSize()) {
+            throw new InvalidAddressException();
+        }
+
+        int pageSize = configuration.pageSize();
+        Frame frame = process.getPageTable().get(virtualAddress / pageSize).getFrame();
+        return (long) frame.getFrameNumber() * pageSize + virtualAddress % pageSize;
+    }
+
+    /**
+     * @return how many frames are neither held by a process nor reserved for one being created
+     */
+    @Override
+    public int getFreeFrameCount() {
+        return framePool.freeCount();
+    }
+
+    @Override
+    public void showPageTableForProcess(int processId) {
+        showPageTableForProcess(processId, ViewOptions.full());
+    }
+
+    @Override
+    public void showPageTableForProcess(int processId, ViewOptions options) {
+        try (Writer out = new SinkWriter(controller)) {
+            writePageTableForProcess(processId, out, options);
+        } catch (IOException | ProcessNotFoundException ex) {
+            controller.print(ex.getMessage());
+        }
+    }
+
+    @Override
+    public void writePageTableForProcess(int processId, Writer out, ViewOptions options)
+            throws IOException, ProcessNotFoundException {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        new ViewRenderer(out, options, configuration.pageSize()).renderPageTable(process);
+    }
+
+    /**
+     *
+     * This method stores the configurations for this runtime and
+     * initializes the memory, the frame pool and the process table,
+     * closing the memory it replaces. It must be called before the
+     * manager is shared between threads.
+     *
+     * @param configuration the object containing configuration fields
+     *
+     */
+    public void storeConfiguration(Configuration configuration) throws IOException {
+        if (physicalMemory != null) {
+            physicalMemory.close();
+        }
+        this.configuration = configuration;
+        physicalMemory = PhysicalMemory.allocate(configuration);
+
+        int numberOfFrames = physicalMemory.numberOfFrames();
+        int cores = Runtime.getRuntime().availableProcessors();
+        frameTable = new FrameTable(numberOfFrames);
+        framePool = new StripedFramePool(numberOfFrames, cores * 4, cores);
+
+        maxNumberOfProcesses = (int) Math.min(
+                Integer.MAX_VALUE, configuration.memorySize() / configuration.maxProcessSize()
+        );
+        runningProcesses = new ConcurrentHashMap<>(16, 0.75f, cores);
+    }
+
+    /**
+     * This method closes the file backing the memory, if any. No thread
+     * may use the manager afterwards, until a new configuration is stored.
+     */
+    @Override
+    public void close() throws IOException {
+        if (physicalMemory != null) {
+            physicalMemory.close();
+        }
+    }
+}
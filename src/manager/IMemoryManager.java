@@ -1,7 +1,28 @@
 package manager;
 
+import error.ProcessNotFoundException;
+import misc.ViewOptions;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
 public interface IMemoryManager {
     void showMemory();
+    void showMemory(ViewOptions options);
+    void writeMemory(Writer out, ViewOptions options) throws IOException;
     void createProcess(int processId, int size) throws Exception;
+    void createProcesses(AllocationBatch batch);
     void showPageTableForProcess(int processId);
+    void showPageTableForProcess(int processId, ViewOptions options);
+    void writePageTableForProcess(int processId, Writer out, ViewOptions options)
+            throws IOException, ProcessNotFoundException;
+    void terminateProcess(int processId) throws Exception;
+    byte accessMemory(int processId, int virtualAddress) throws Exception;
+    void writeByte(int processId, int virtualAddress, byte value) throws Exception;
+    void read(int processId, int virtualAddress, ByteBuffer destination) throws Exception;
+    void write(int processId, int virtualAddress, ByteBuffer source) throws Exception;
+    int forkProcess(int processId) throws Exception;
+    long translate(int processId, int virtualAddress) throws Exception;
+    int getFreeFrameCount();
 }
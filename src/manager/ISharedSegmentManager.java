@@ -0,0 +1,14 @@
+package manager;
+
+/**
+ * The named shared segments of a memory manager, which processes
+ * attach to and detach from. Only the sequential manager has them.
+ *
+ * @see MemoryManager
+ */
+public interface ISharedSegmentManager {
+    void createSharedSegment(String name, int size) throws Exception;
+    int attachSharedSegment(int processId, String name) throws Exception;
+    void detachSharedSegment(int processId, String name) throws Exception;
+    void destroySharedSegment(String name) throws Exception;
+}
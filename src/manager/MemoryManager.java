@@ -1,85 +1,351 @@
 package manager;
 
+import data.memory.AllocationStrategy;
+import data.memory.DirtyFrameMap;
+import data.memory.Frame;
+import data.memory.FrameTable;
+import data.memory.FrameAllocator;
+import data.memory.FrameBlock;
+import data.memory.FreeFrameBitmap;
 import data.memory.Page;
+import data.memory.PhysicalMemory;
+import data.memory.SamePageIndex;
+import data.memory.SlabAllocator;
+import data.process.Attachment;
+import data.process.DensePageTable;
+import data.process.InvertedPageTable;
+import data.process.PageTable;
+import data.process.PageTableType;
 import data.process.Process;
+import data.process.ProcessTable;
+import data.process.RadixPageTable;
+import data.process.SharedSegment;
 import error.InsufficientMemoryException;
-import error.ProcessTooLargeException;
+import error.InvalidSnapshotException;
+import error.InvalidAddressException;
+import error.ProcessNotFoundException;
+import error.SegmentAlreadyAttachedException;
+import error.SegmentNameTakenException;
+import error.SegmentNotFoundException;
 import error.UnavailableProcessSpaceException;
 import error.UnsupportedIdException;
-import misc.ActionController;
+import metrics.AllocationEvent;
+import metrics.AllocationFailureEvent;
+import metrics.EvictionEvent;
+import metrics.LatencyHistogram;
+import metrics.MemoryMetrics;
 import misc.Configuration;
+import misc.OutputSink;
+import misc.SinkWriter;
+import misc.ViewOptions;
 import data.process.ProcessAllocationInfo;
+import paging.CompressedSwapArea;
+import paging.FileSwapArea;
+import paging.ReplacementPolicy;
+import paging.SwapArea;
+import paging.TranslationLookasideBuffer;
 
-import java.util.LinkedList;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
-public class MemoryManager implements IMemoryManager {
+public class MemoryManager implements IMemoryManager, ISharedSegmentManager, Closeable {
 
-    private ActionController controller;
+    private static final int NO_FRAME = -1;
+
+    private OutputSink controller;
     private Configuration configuration;
     private StringBuilder builder;
 
-    private byte[] rawMemory;
-    private Page[] logicalMemory;
-    private LinkedList<Page> availablePages;
-    private Process[] runningProcesses;
+    private PhysicalMemory physicalMemory;
+    private FrameTable frameTable;
+
+    /**
+     * The frames that changed in each of the last epochs,
+     * which the memory views end.
+     */
+    private DirtyFrameMap changedFrames;
+    private FrameAllocator freeFrames;
+
+    /**
+     * Where processes smaller than half a page are placed when
+     * the allocation strategy is SLAB, and null otherwise.
+     */
+    private SlabAllocator slabAllocator;
+    private ProcessTable runningProcesses;
+    private int maxNumberOfProcesses;
     private int lastProcessId;
 
-    public MemoryManager(ActionController controller) {
+    /**
+     * The page each frame currently holds, indexed by frame
+     * number, so a frame picked for eviction can be traced
+     * back to the page that has to be paged out.
+     */
+    private Page[] residentPages;
+
+    private SwapArea swapArea;
+    private ReplacementPolicy replacementPolicy;
+    private TranslationLookasideBuffer tlb;
+
+    /**
+     * The table shared by every process when page tables
+     * are inverted, and null otherwise.
+     */
+    private InvertedPageTable invertedPageTable;
+
+    /**
+     * The shared segments that can be attached, by name, and every
+     * segment that still has memory, destroyed or not, by id.
+     */
+    private Map<String, SharedSegment> sharedSegments;
+    private Map<Integer, SharedSegment> segmentsById;
+    private int lastSegmentId;
+
+    /**
+     * How many pages the running processes have in total, resident
+     * or not. With demand paging it can't go over the number of
+     * frames plus the number of swap slots.
+     */
+    private long committedPages;
+    private long pageFaults;
+    private long evictions;
+    private long forks;
+    private long copyOnWriteFaults;
+
+    /**
+     * What the same-page merging passes know about the frames, or null
+     * when merging is not enabled, the frame the next pass starts at, and
+     * how many references are left until it runs.
+     */
+    private SamePageIndex samePageIndex;
+    private int mergeCursor;
+    private int referencesUntilMerge;
+    private long mergePasses;
+    private long mergeScannedFrames;
+    private long mergedPages;
+    private long mergeReclaimedFrames;
+    private final int[] frameScratch = new int[1];
+
+    /**
+     * The thread paging out in the background, or null when background
+     * reclaim is not enabled. It works on this manager while holding
+     * its monitor, like every public method does, so the manager may be
+     * used from one thread, or from many, while it runs.
+     */
+    private BackgroundReclaimer reclaimer;
+    private long fastPathAllocations;
+    private long directReclaimAllocations;
+    private long backgroundReclaimBatches;
+    private long backgroundReclaimedFrames;
+
+    /**
+     * The batch every call to createProcess is served as.
+     */
+    private final AllocationBatch singleRequest = new AllocationBatch(1);
+    private final MemoryMetrics metrics = new MemoryMetrics();
+
+    public MemoryManager(OutputSink controller) {
         this.controller = controller;
-        availablePages = new LinkedList<>();
         builder = new StringBuilder();
     }
 
     @Override
     public void showMemory() {
-        int lastPageNumber = 0;
-        for (int i = 0; i < rawMemory.length; i++) {
-            byte currentMemorySlot = rawMemory[i];
-            int pageNumber = calculatePageNumberForMemoryIndex(i);
+        showMemory(ViewOptions.full());
+    }
 
-            if (lastPageNumber != pageNumber) {
-                lastPageNumber = pageNumber;
-                builder.append("\n");
-            }
+    @Override
+    public synchronized void showMemory(ViewOptions options) {
+        try (Writer out = new SinkWriter(controller)) {
+            writeMemory(out, options);
+        } catch (IOException | IllegalArgumentException ex) {
+            controller.print(ex.getMessage());
+        }
+    }
 
-            builder.append("\t\t\t----\n");
-            builder.append("Page " + pageNumber +": \t|");
-            builder.append(currentMemorySlot);
-            builder.append("|\n");
+    /**
+     *
+     * This method streams the memory view into a writer, which
+     * should be buffered, as it is written a few characters at a time.
+     *
+     * Every memory view ends the current epoch of changes. A view of the
+     * changes since an epoch that is no longer kept shows every frame.
+     *
+     * @param out where the view is written
+     * @param options whether the view is compact and which part of it is shown
+     *
+     * @throws IllegalArgumentException if the view is of the changes
+     * since an epoch that hasn't begun yet
+     *
+     */
+    @Override
+    public synchronized void writeMemory(Writer out, ViewOptions options) throws IOException {
+        ViewRenderer renderer = new ViewRenderer(out, options, configuration.pageSize());
+        if (!options.showsOnlyChanges()) {
+            renderer.renderMemory(frameTable, slabAllocator);
+            changedFrames.advance();
+            return;
+        }
 
-            if (i == configuration.memorySize() - 1) {
-                builder.append("\t\t\t----");
-            }
+        long since = options.changesSince() == ViewOptions.LAST_VIEW
+                ? changedFrames.epoch()
+                : options.changesSince();
+        int[] frames = changedFrames.changedSince(since);
+        long next = changedFrames.advance();
+        if (frames == null) {
+            out.write("Epoch " + since + " is no longer kept, showing every frame, next epoch " + next + "\n");
+            renderer.renderMemory(frameTable, slabAllocator);
+        } else {
+            renderer.renderMemoryChanges(frameTable, slabAllocator, frames, since, next);
         }
+    }
 
-        controller.print(builder.toString());
-        clearStringBuilder();
+    /**
+     * @return the epoch the changes made to the memory now belong to,
+     * which ends with the next memory view
+     */
+    public synchronized long getMemoryEpoch() {
+        return changedFrames.epoch();
     }
 
-    @Override
-    public void createProcess(int processId, int processSize) throws Exception {
-        checkProcessFitsIntoMemory(processSize);
-        checkHasMemoryForAllocatingProcess(processSize);
-        int pid = checkProcessId(processId);
+    /**
+     *
+     * This method tells which frames were allocated, freed or written
+     * since an epoch began, without rendering them or ending the
+     * current epoch.
+     *
+     * @param epoch the first epoch whose changes are wanted
+     *
+     * @return the numbers of the frames, in ascending order, or null
+     * if the changes of that epoch are no longer kept
+     *
+     */
+    public synchronized int[] getFramesChangedSince(long epoch) {
+        return changedFrames.changedSince(epoch);
+    }
 
-        allocateMemoryForProcess(pid, processSize);
+    /**
+     *
+     * Every call is timed into the metrics and reported to Flight
+     * Recorder. The events are only filled in when they are enabled, so
+     * when nothing is recording they cost a couple of checks.
+     *
+     * The request is served as a batch of one, and its failure, if
+     * any, is turned into the matching exception.
+     *
+     */
+    @Override
+    public synchronized void createProcess(int processId, int processSize) throws Exception {
+        singleRequest.clear();
+        singleRequest.add(processId, processSize);
+        createProcesses(singleRequest);
+        AllocationStatus status = singleRequest.statusOf(0);
+        if (status != AllocationStatus.CREATED) {
+            throw status.toException();
+        }
     }
 
     /**
      *
-     * This method checks if this process's size exceeds
-     * the maximum size a process can be by comparing
-     * if the size is lesser than or equal to the
-     * current configurations's #maxProcessSize.
+     * This method serves every request of a batch, in order, as
+     * createProcess would, recording what became of each one instead
+     * of throwing. The frames of the requests are taken one after the
+     * other from where the frame allocator left off, so with first fit
+     * the whole batch is reserved in a single sweep of the bitmap.
+     *
+     * Each request is timed into the metrics and reported to Flight
+     * Recorder just like a call to createProcess.
+     *
+     * @param batch the requests, whose statuses and ids are filled in
+     *
+     */
+    @Override
+    public synchronized void createProcesses(AllocationBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            AllocationEvent event = new AllocationEvent();
+            event.begin();
+            long start = System.nanoTime();
+            int processSize = batch.sizeOf(i);
+            allocateProcess(batch, i);
+            int pid = batch.processIdOf(i);
+            if (pid == AllocationBatch.NO_PROCESS) {
+                metrics.recordAllocationFailure();
+                reportAllocationFailure(batch.requestedIdOf(i), processSize, batch.statusOf(i));
+                continue;
+            }
+            metrics.recordAllocation(System.nanoTime() - start);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.processId = pid;
+                event.processSize = processSize;
+                event.pages = runningProcesses.get(pid).getPageTable().numberOfPages();
+                event.internalFragmentation = (int) getInternalFragmentationBytes(pid);
+                event.commit();
+            }
+        }
+    }
+
+    private void reportAllocationFailure(int processId, int processSize, AllocationStatus status) {
+        AllocationFailureEvent event = new AllocationFailureEvent();
+        if (event.isEnabled()) {
+            event.processId = processId;
+            event.processSize = processSize;
+            event.reason = status.name();
+            event.freeFrames = freeFrames.freeCount();
+            event.commit();
+        }
+    }
+
+    /**
      *
-     * @param size the size in pages
+     * This method creates the process a request of a batch asks for,
+     * if it can, and records what became of it. The checks come in
+     * the order createProcess has always made them, and the pages the
+     * process needs are only counted once.
      *
-     * @see Configuration#maxProcessSize
+     * @param batch the requests
+     * @param index the index of the request served
      *
      */
-    private void checkProcessFitsIntoMemory(int size) throws ProcessTooLargeException {
-        if (size > configuration.maxProcessSize()) {
-            throw new ProcessTooLargeException();
+    private void allocateProcess(AllocationBatch batch, int index) {
+        int processId = batch.requestedIdOf(index);
+        int processSize = batch.sizeOf(index);
+        ProcessAllocationInfo allocationInfo = calculateProcessAllocationInfo(processSize);
+
+        AllocationStatus status = AllocationStatus.CREATED;
+        if (processSize > configuration.maxProcessSize()) {
+            status = AllocationStatus.TOO_LARGE;
+        } else if (!hasMemoryForProcess(processSize, allocationInfo.getNumberOfPagesForProcess())) {
+            status = AllocationStatus.INSUFFICIENT_MEMORY;
+        } else if (runningProcesses.size() >= maxNumberOfProcesses) {
+            status = AllocationStatus.NO_PROCESS_SLOT;
+        } else if (processId != -1 && (processId < 0 || runningProcesses.contains(processId))) {
+            status = AllocationStatus.UNSUPPORTED_ID;
+        }
+        if (status != AllocationStatus.CREATED) {
+            batch.complete(index, status, AllocationBatch.NO_PROCESS);
+            return;
+        }
+
+        int pid = nextProcessId(processId);
+        if (allocateMemoryForProcess(pid, processSize, allocationInfo)) {
+            batch.complete(index, AllocationStatus.CREATED, pid);
+        } else {
+            batch.complete(index, AllocationStatus.INSUFFICIENT_MEMORY, AllocationBatch.NO_PROCESS);
         }
     }
 
@@ -89,13 +355,28 @@ public class MemoryManager implements IMemoryManager {
      * that satisfy amount of pages that will be needed for
      * allocating this process.
      *
-     * @param size the size in pages
+     * @param size the size in bytes
+     * @param numberOfPagesForProcess how many pages the process spans
      *
      */
-    private void checkHasMemoryForAllocatingProcess(int size) throws InsufficientMemoryException {
-        int numberOfPagesForProcess = calculateProcessAllocationInfo(size).getNumberOfPagesForProcess();
-        if (availablePages.size() < numberOfPagesForProcess) {
-            throw new InsufficientMemoryException();
+    private boolean hasMemoryForProcess(int size, int numberOfPagesForProcess) {
+        if (slabAllocator != null && slabAllocator.handles(size)) {
+            return slabAllocator.canAllocate(size);
+        } else if (configuration.isDemandPagingEnabled()) {
+            return committedPages + numberOfPagesForProcess <= pagingCapacity();
+        }
+        return freeFrames.freeCount() >= numberOfPagesForProcess;
+    }
+
+    /**
+     *
+     * This method checks if the limit of processes
+     * running at the same time has been reached.
+     *
+     */
+    private void checkHasSpaceForNewProcess() throws UnavailableProcessSpaceException {
+        if (runningProcesses.size() >= maxNumberOfProcesses) {
+            throw new UnavailableProcessSpaceException();
         }
     }
 
@@ -107,213 +388,2124 @@ public class MemoryManager implements IMemoryManager {
      * @param processId the id of the process
      *
      */
-    private int checkProcessId(int processId) throws UnsupportedIdException{
+    private int checkProcessId(int processId) throws UnsupportedIdException {
+        if (processId != -1 && (processId < 0 || runningProcesses.contains(processId))) {
+            throw new UnsupportedIdException();
+        }
+        return nextProcessId(processId);
+    }
+
+    /**
+     *
+     * This method picks the id of a new process, which is the one
+     * asked for if it was already checked to be free.
+     *
+     * @param processId the id asked for, or -1 to pick the next free one
+     *
+     */
+    private int nextProcessId(int processId) {
         if (processId == -1) {
-            return ++lastProcessId;
-        } else {
-            if (processId < lastProcessId) {
-                throw new UnsupportedIdException();
-            }
-            return processId;
+            do {
+                ++lastProcessId;
+            } while (runningProcesses.contains(lastProcessId));
+            return lastProcessId;
         }
+        lastProcessId = Math.max(lastProcessId, processId);
+        return processId;
     }
 
     /**
      *
-     * This method writes the processId into each "cell" of a page,
-     * making it "own" the memory slot.
+     * This method creates the page table of a process. Without demand
+     * paging every page is created and gets a frame right away, recording
+     * the process as its owner, or an object of a slab when the process
+     * is small enough; with it, the table starts empty and pages are only
+     * created, and given a frame, on their first access.
+     *
+     * The frames are allocated together, as a single block, unless
+     * same-page merging is enabled: then each of them is a block of its
+     * own, so that it can be freed once the page it holds is merged.
+     *
+     * The frame allocator may still fail even though enough frames are
+     * free, when they are too scattered for the buddy allocator to find
+     * a block big enough.
      *
      * @param processId the id of the process that is being allocated onto memory
      * @param processSize the size of the process, in bytes
+     * @param allocationInfo how many pages the process spans
+     *
+     * @return false if there was no room for the process after all
      *
      */
-    private void allocateMemoryForProcess(int processId, int processSize) throws UnavailableProcessSpaceException {
-        ProcessAllocationInfo allocationInfo = calculateProcessAllocationInfo(processSize);
+    private boolean allocateMemoryForProcess(int processId, int processSize, ProcessAllocationInfo allocationInfo) {
         int numberOfPages = allocationInfo.getNumberOfPagesForProcess();
-        int unfilledPageSlotsSize = allocationInfo.getUnfilledPageSlotsSize();
-        Page[] allocatedPagesForProcess = new Page[numberOfPages];
 
-        for (int i = 0; i < numberOfPages; i++) {
-            Page currentPage = availablePages.getFirst();
-
-            int slotsToFill;
-            if (i == numberOfPages - 1) {
-                slotsToFill = unfilledPageSlotsSize;
-            } else {
-                slotsToFill = configuration.pageSize();
+        long slabObject = -1;
+        int[] allocatedFrames = null;
+        if (slabAllocator != null && slabAllocator.handles(processSize)) {
+            slabObject = slabAllocator.allocate(processSize, processId);
+            if (slabObject == -1) {
+                return false;
             }
+        } else if (!configuration.isDemandPagingEnabled()) {
+            allocatedFrames = new int[numberOfPages];
+            boolean allocated = samePageIndex == null
+                    ? freeFrames.allocate(numberOfPages, allocatedFrames)
+                    : allocateFramesOneByOne(numberOfPages, allocatedFrames);
+            if (!allocated) {
+                return false;
+            }
+        }
 
-            currentPage.occupyMemorySlotsWithProcessId(slotsToFill, processId);
-            allocatedPagesForProcess[i] = availablePages.removeFirst();
+        PageTable pageTable = createPageTable(processId, numberOfPages);
+        Process newProcess = new Process(processId, processSize, pageTable);
+        if (slabObject != -1) {
+            int pageSize = configuration.pageSize();
+            createPage(newProcess, 0).occupySlabObject(
+                    frameAt((int) (slabObject / pageSize)), (int) (slabObject % pageSize)
+            );
+        } else if (allocatedFrames != null) {
+            FrameBlock block = samePageIndex == null ? new FrameBlock(allocatedFrames, numberOfPages) : null;
+            for (int i = 0; i < numberOfPages; i++) {
+                Page page = createPage(newProcess, i);
+                placePageInFrame(page, allocatedFrames[i], processId);
+                page.setBlock(block != null ? block : new FrameBlock(new int[] {allocatedFrames[i]}, 1));
+            }
         }
+        committedPages += numberOfPages;
 
-        Process newProcess = new Process(processId, processSize, allocatedPagesForProcess);
-        int newProcessIndex = calculateAvailableProcessIndex();
-        runningProcesses[newProcessIndex] = newProcess;
+        runningProcesses.put(newProcess);
+        return true;
     }
 
-    @Override
-    public void showPageTableForProcess(int processId) {
-        for (int i = 0; i < runningProcesses.length; i++) {
-            Process currentProcess = runningProcesses[i];
-            try {
-                if (currentProcess.getId() == processId) {
-                    displayPageTableForProcess(currentProcess.getPageTable());
-                    return;
+    /**
+     *
+     * This method allocates frames with one call to the allocator for
+     * each, giving back the ones it got if it runs out of them.
+     *
+     * @param count how many frames are wanted
+     * @param frameNumbers where the frame numbers are written
+     *
+     * @return true if every frame was allocated
+     *
+     */
+    private boolean allocateFramesOneByOne(int count, int[] frameNumbers) {
+        for (int i = 0; i < count; i++) {
+            if (!freeFrames.allocate(1, frameScratch)) {
+                for (int j = 0; j < i; j++) {
+                    frameScratch[0] = frameNumbers[j];
+                    freeFrames.free(frameScratch, 1);
                 }
-            } catch (NullPointerException ex) {
-                controller.print("Oops! Apparently, there are no processes with id: " + processId);
+                return false;
             }
+            frameNumbers[i] = frameScratch[0];
+        }
+        return true;
+    }
+
+    private PageTable createPageTable(int processId, int numberOfPages) {
+        switch (configuration.pageTableType()) {
+            case TWO_LEVEL:
+                return new RadixPageTable(numberOfPages, 2);
+            case THREE_LEVEL:
+                return new RadixPageTable(numberOfPages, 3);
+            case INVERTED:
+                return invertedPageTable.forProcess(processId, numberOfPages);
+            default:
+                return new DensePageTable(numberOfPages);
         }
     }
 
     /**
      *
-     * This method displays the array of pages that were
-     * allocated for this process.
+     * This method creates a page of a process and maps it on the
+     * process's page table. Every page uses all of its slots but
+     * the last one, which only uses what is left of the process.
+     *
+     * @param process the process the page belongs to
+     * @param virtualPageNumber the index of the page in the process
+     *
+     */
+    private Page createPage(Process process, int virtualPageNumber) {
+        return createPage(process.getPageTable(), process.getSize(), virtualPageNumber);
+    }
+
+    private Page createPage(PageTable pageTable, int size, int virtualPageNumber) {
+        int pageSize = configuration.pageSize();
+        int usedSlots = Math.min(pageSize, size - virtualPageNumber * pageSize);
+        Page page = new Page(virtualPageNumber, usedSlots);
+        pageTable.put(virtualPageNumber, page);
+        return page;
+    }
+
+    private void placePageInFrame(Page page, int frameNumber, int processId) {
+        page.occupyFrame(frameAt(frameNumber), processId);
+        residentPages[frameNumber] = page;
+    }
+
+    /**
+     *
+     * This method creates a child of a running process that shares all
+     * of its pages, copy-on-write, so forking costs a walk of the page
+     * table and not a copy of the memory. Whichever of the two writes to
+     * a shared page first gets a private copy of it.
+     *
+     * Without demand paging the copies need free frames, which are not
+     * reserved here, so a write may fail later for lack of memory; with
+     * it, the child is committed all of its pages, like a new process.
      *
-     * @param pageTable the array of pages to be shown
+     * @param processId the process that is forked
+     *
+     * @return the id given to the child
      *
      */
-    private void displayPageTableForProcess(Page[] pageTable) {
-        for (int i = 0; i < pageTable.length; i++) {
-            Page currentPage = pageTable[i];
-            byte[] pageSlots = currentPage.getFrame().getSlots();
+    @Override
+    public synchronized int forkProcess(int processId) throws Exception {
+        Process parent = runningProcesses.get(processId);
+        if (parent == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        PageTable parentTable = parent.getPageTable();
+        int numberOfPages = parentTable.numberOfPages();
+        if (configuration.isDemandPagingEnabled()
+                && committedPages + numberOfPages > pagingCapacity()) {
+            throw new InsufficientMemoryException();
+        }
+        checkHasSpaceForNewProcess();
+        int childId = checkProcessId(-1);
+
+        Process child = new Process(childId, parent.getSize(), createPageTable(childId, numberOfPages));
+        for (int i = parentTable.nextMapped(0); i != -1; i = parentTable.nextMapped(i + 1)) {
+            Page page = parentTable.get(i);
+            page.share(processId, childId, i);
+            page.setCopyOnWrite(true);
+            child.getPageTable().put(i, page);
+        }
+        for (Attachment attachment : parent.getAttachments()) {
+            Attachment inherited = new Attachment(childId, attachment.getSegment(), attachment.getFirstPage());
+            child.attach(inherited);
+            attachment.getSegment().attach(inherited);
+        }
+        committedPages += numberOfPages;
+        runningProcesses.put(child);
+        if (tlb != null) {
+            // the parent's cached translations are still writable
+            tlb.invalidateProcess(processId);
+        }
+        forks++;
+        return childId;
+    }
 
-            for (int slotIndex = 0; slotIndex < pageSlots.length; slotIndex++) {
-                int indexToDisplay = slotIndex + (i * configuration.pageSize());
+    /**
+     *
+     * This method gives a process its own copy of a page it shares
+     * copy-on-write, and takes it off the shared page.
+     *
+     * @param process the process that writes to the page
+     * @param page the shared page
+     * @param virtualPageNumber where the process maps the page
+     *
+     * @return the private copy, already mapped on the process's page table
+     *
+     */
+    private Page copySharedPage(Process process, Page page, int virtualPageNumber)
+            throws IOException, InsufficientMemoryException {
+        copyOnWriteFaults++;
+        int processId = process.getId();
+        Page copy = new Page(virtualPageNumber, page.getUsedSlots());
 
-                builder
-                        .append("\t\t\t\t\t-----\n")
-                        .append("Slot number: " + indexToDisplay + "\t\t| ")
-                        .append(currentPage.getFrame().getByteAt(slotIndex))
-                        .append(" |\n");
+        if (page.sharesFrame()) {
+            long address = slabAllocator.allocate(process.getSize(), processId);
+            if (address == -1) {
+                throw new InsufficientMemoryException();
+            }
+            physicalMemory.copy(page.getPhysicalAddress(), address, page.getUsedSlots());
+            int pageSize = configuration.pageSize();
+            copy.occupySlabObject(frameAt((int) (address / pageSize)), (int) (address % pageSize));
+        } else {
+            int frameNumber;
+            if (configuration.isDemandPagingEnabled()) {
+                frameNumber = allocatePagingFrame();
+            } else if (freeFrames.allocate(1, frameScratch)) {
+                frameNumber = frameScratch[0];
+            } else {
+                throw new InsufficientMemoryException();
+            }
+            if (page.isResident()) {
+                physicalMemory.copy(page.getPhysicalAddress(), (long) frameNumber * configuration.pageSize(),
+                        configuration.pageSize());
+            }
+            // otherwise the shared page was just evicted from this very frame, which still holds its bytes
+            placePageInFrame(copy, frameNumber, processId);
+            if (configuration.isDemandPagingEnabled()) {
+                replacementPolicy.pageLoaded(frameNumber);
+            } else {
+                copy.setBlock(new FrameBlock(new int[] {frameNumber}, 1));
             }
         }
-        builder.append("\t\t\t\t\t-----");
 
-        controller.print(builder.toString());
-        clearStringBuilder();
+        process.getPageTable().put(virtualPageNumber, copy);
+        leaveSharedPage(page, processId, virtualPageNumber);
+        return copy;
     }
 
     /**
      *
-     * This method stores the configurations for this runtime,
-     * initializes memory slots and creates the array of processes
-     * that can be created this runtime.
+     * This method takes a mapping off a page it shares. When its frame,
+     * or its slab object, was recorded as belonging to the process of
+     * that mapping, it is recorded as belonging to the process of one of
+     * the mappings left, which may be the same one.
      *
-     * @param configuration the object containing configuration fields
+     * @param page the shared page
+     * @param processId the process that doesn't map the page there anymore
+     * @param virtualPageNumber where the process mapped the page
      *
      */
-    public void storeConfiguration(Configuration configuration) {
-        this.configuration = configuration;
-        initializeMemories();
-        runningProcesses = new Process[configuration.memorySize() / configuration.maxProcessSize()];
+    private void leaveSharedPage(Page page, int processId, int virtualPageNumber) {
+        int heir = page.sharerAt(0) == processId && page.sharerPageAt(0) == virtualPageNumber
+                ? page.sharerAt(1)
+                : page.sharerAt(0);
+        page.unshare(processId, virtualPageNumber);
+        if (page.sharesFrame()) {
+            Frame frame = page.getFrame();
+            if (slabAllocator.ownerOfSlot(frame.getFrameNumber(), page.getFrameOffset()) == processId) {
+                slabAllocator.changeOwner(page.getPhysicalAddress(), heir);
+            }
+        } else if (page.isResident() && page.getProcessId() == processId) {
+            page.getFrame().occupyMemorySlotsWithProcessId(page.getUsedSlots(), heir);
+        }
     }
 
     /**
      *
-     * This method creates the array that emulates the physical memory
-     * and initializes the memory pages pages.
+     * This method drops the cached translations of a page, which is
+     * cached once for each of its mappings while it is shared, and a
+     * page of a shared segment once for each process it is attached to.
      *
      */
-    private void initializeMemories() {
-        rawMemory = new byte[configuration.memorySize()];
-        for (int i = 0; i < rawMemory.length; i++) {
-            rawMemory[i] = -1;
+    private void invalidateTranslations(Page page) {
+        int frameNumber = page.getFrame().getFrameNumber();
+        if (frameTable.hasFlag(frameNumber, FrameTable.FLAG_SHARED)) {
+            SharedSegment segment = segmentsById.get(frameTable.ownerOf(frameNumber));
+            for (Attachment attachment : segment.getAttachments()) {
+                tlb.invalidate(attachment.getProcessId(), attachment.getFirstPage() + page.getVirtualPageNumber());
+            }
+            return;
+        }
+        if (!page.isShared()) {
+            tlb.invalidate(page.getProcessId(), page.getVirtualPageNumber());
+            return;
+        }
+        for (int i = 0; i < page.numberOfSharers(); i++) {
+            tlb.invalidate(page.sharerAt(i), page.sharerPageAt(i));
         }
-
-        int numberOfPages = configuration.memorySize() / configuration.pageSize();
-        byte[][] pageToMemoryPointers = getMemoryMatrix();
-        initializePages(numberOfPages, pageToMemoryPointers);
     }
 
     /**
      *
-     * This method creates the logical memory array
-     * and by doing so makes all frames have -1 as value
+     * This method runs a pass of same-page merging, as Linux's KSM does:
+     * it scans the next frames, in order, wrapping around the memory,
+     * and merges each page it finds with an earlier one that has the
+     * same contents. The one left is shared copy-on-write, mapped where
+     * both were, whatever their processes and virtual pages, and the
+     * other is released like the page of a terminated process. Its frame
+     * is freed once the last of its mappings is gone.
+     *
+     * A page is only merged once its frame hashed the same on two scans
+     * in a row, so pages that are written all the time are left alone,
+     * and pages of slabs or shared segments never are. Without demand
+     * paging, frames are freed by block, so while merging is enabled the
+     * frames of a process are allocated one by one, each a block of its
+     * own, instead of all together.
      *
-     * @param numberOfPages the number of pages that exist during this runtime
-     * @param pageToMemoryPointers
+     * It runs on its own every so many references when merging is
+     * enabled on the configuration, which also sets how many frames a
+     * pass scans and how long it may take.
+     *
+     * @return how many frames the pass gave back to the free pool
      *
      */
-    private void initializePages(int numberOfPages, byte[][] pageToMemoryPointers) {
-        logicalMemory = new Page[numberOfPages];
-        for (int i = 0; i < logicalMemory.length; i++) {
-            logicalMemory[i] = new Page(configuration.pageSize(), pageToMemoryPointers[i]);
-            availablePages.addLast(logicalMemory[i]);
+    public synchronized int mergeSamePages() {
+        if (samePageIndex == null) {
+            return 0;
+        }
+        int numberOfFrames = residentPages.length;
+        int framesPerPass = Math.min(configuration.mergeFramesPerPass(), numberOfFrames);
+        long budgetNanos = configuration.mergePassBudgetNanos();
+        int freeFramesBefore = freeFrames.freeCount();
+        long start = System.nanoTime();
+
+        for (int scanned = 0; scanned < framesPerPass; scanned++) {
+            if (budgetNanos > 0 && scanned > 0 && System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+            int frameNumber = mergeCursor;
+            if (++mergeCursor == numberOfFrames) {
+                // frames found on the scan before may hold anything by now
+                mergeCursor = 0;
+                samePageIndex.clear();
+            }
+            mergeScannedFrames++;
+            mergeFrame(frameNumber);
         }
+
+        int reclaimed = freeFrames.freeCount() - freeFramesBefore;
+        mergePasses++;
+        mergeReclaimedFrames += reclaimed;
+        return reclaimed;
     }
 
     /**
      *
-     * This method calculates how many pages will be needed
-     * for allocating a process based on that process's size
-     *
-     * @param processSize the size of the process, in bytes
+     * This method merges the page of a frame with an earlier page of
+     * the same contents, if the index knows of one, and adds the frame
+     * to the index unless its page was the one dropped.
      *
      */
-    private ProcessAllocationInfo calculateProcessAllocationInfo(int processSize) {
-        int numberOfPagesForProcess;
-        int unfilledPageSlotsSize;
+    private void mergeFrame(int frameNumber) {
+        Page page = residentPages[frameNumber];
+        if (page == null || page.sharesFrame() || frameTable.hasFlag(frameNumber, FrameTable.FLAG_SHARED)) {
+            return;
+        }
+        int length = page.getUsedSlots();
+        long hash = physicalMemory.contentHash(frameNumber, length);
+        if (!samePageIndex.recordHash(frameNumber, hash)) {
+            return;
+        }
 
-        unfilledPageSlotsSize = processSize % configuration.pageSize();
+        int otherFrameNumber = samePageIndex.find(hash);
+        Page other = otherFrameNumber == NO_FRAME ? null : residentPages[otherFrameNumber];
+        if (other != null && other != page && !other.sharesFrame()
+                && !frameTable.hasFlag(otherFrameNumber, FrameTable.FLAG_SHARED)
+                && other.getUsedSlots() == length
+                && physicalMemory.contentEquals(frameNumber, otherFrameNumber, length)) {
+            if (isMergeable(page)) {
+                mergePage(page, other);
+                return;
+            }
+            if (isMergeable(other)) {
+                mergePage(other, page);
+            }
+        }
+        samePageIndex.put(hash, frameNumber);
+    }
 
-        if (unfilledPageSlotsSize == 0) {
-            numberOfPagesForProcess = processSize / configuration.pageSize();
-        } else {
-            numberOfPagesForProcess = (processSize / configuration.pageSize()) + 1;
+    /**
+     * @return true if a page can be dropped for another one: it is
+     * mapped once, and its frame goes back to the free pool when it is
+     * released, instead of staying with a block still in use
+     */
+    private boolean isMergeable(Page page) {
+        FrameBlock block = page.getBlock();
+        return !page.isShared() && (block == null || block.getFramesInUse() == 1);
+    }
+
+    /**
+     *
+     * This method maps a page in place of another one with the same
+     * contents, shared copy-on-write, and releases the other one.
+     *
+     * @param page the page that is dropped, which is mapped once
+     * @param kept the page mapped in its place from now on
+     *
+     */
+    private void mergePage(Page page, Page kept) {
+        int processId = page.getProcessId();
+        int virtualPageNumber = page.getVirtualPageNumber();
+        if (tlb != null) {
+            // the cached translations of both are writable
+            invalidateTranslations(page);
+            invalidateTranslations(kept);
         }
+        kept.share(kept.getProcessId(), processId, virtualPageNumber);
+        kept.setCopyOnWrite(true);
+        releasePage(page);
+        runningProcesses.get(processId).getPageTable().put(virtualPageNumber, kept);
+        mergedPages++;
+    }
 
-        return new ProcessAllocationInfo(numberOfPagesForProcess, unfilledPageSlotsSize);
+    @Override
+    public synchronized void terminateProcess(int processId) throws ProcessNotFoundException {
+        long start = System.nanoTime();
+        Process process = runningProcesses.remove(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        releaseMemoryOfProcess(process);
+        metrics.recordFree(System.nanoTime() - start);
     }
 
     /**
      *
-     * This method checks for the first available
-     * index of the running process array.
+     * This method cleans every page of a process and
+     * gives its frames back to the free pool.
+     *
+     * Without demand paging, frames were allocated in blocks, all the
+     * frames of a process at once, or one by one when same-page merging
+     * is enabled, and one for each copy-on-write copy, and a block is
+     * freed once none of its frames holds a page anymore; with it, each
+     * frame was allocated on its own fault and is freed on its own.
+     * Pages the process shares are left to their other mappings, and the
+     * shared segments attached to it to the other processes.
+     *
+     * @param process the process whose memory is released
      *
      */
-    private int calculateAvailableProcessIndex() throws UnavailableProcessSpaceException{
-        for (int i = 0; i < runningProcesses.length; i++) {
-            if (runningProcesses[i] == null) {
-                return i;
+    private void releaseMemoryOfProcess(Process process) {
+        PageTable pageTable = process.getPageTable();
+
+        for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+            Page page = pageTable.get(i);
+            if (page.isShared()) {
+                leaveSharedPage(page, process.getId(), i);
+            } else {
+                releasePage(page);
             }
         }
-        throw new UnavailableProcessSpaceException();
+        for (Attachment attachment : new ArrayList<>(process.getAttachments())) {
+            detach(process, attachment);
+        }
+        committedPages -= pageTable.numberOfPages();
+        pageTable.clear();
+        if (tlb != null) {
+            tlb.invalidateProcess(process.getId());
+        }
     }
 
     /**
      *
-     * This method clears all buffer from
-     * the StringBuilder object used to compose
-     * memory displays and etc.
+     * This method gives back the frame, the slab object or the
+     * swap slot of a page no process maps anymore.
      *
      */
-    private void clearStringBuilder() {
-        builder.setLength(0);
+    private void releasePage(Page page) {
+        if (page.sharesFrame()) {
+            slabAllocator.free(page.getPhysicalAddress());
+            page.cleanMemorySlots();
+        } else if (page.isResident()) {
+            int frameNumber = page.getFrame().getFrameNumber();
+            if (replacementPolicy != null) {
+                replacementPolicy.pageRemoved(frameNumber);
+            }
+            residentPages[frameNumber] = null;
+            page.cleanMemorySlots();
+            FrameBlock block = page.getBlock();
+            if (block == null) {
+                frameScratch[0] = frameNumber;
+                freeFrames.free(frameScratch, 1);
+            } else if (block.releaseFrame()) {
+                freeFrames.free(block.getFrameNumbers(), block.getCount());
+            }
+        }
+        if (page.isSwappedOut()) {
+            swapArea.freeSlot(page.getSwapSlot());
+            page.setSwapSlot(Page.NO_SWAP_SLOT);
+        }
     }
 
-    private int calculatePageNumberForMemoryIndex(int index) {
-        return index / configuration.pageSize();
+    /**
+     *
+     * This method creates a named segment of memory that processes can
+     * attach to. Without demand paging all of its frames are taken right
+     * away; with it, its pages are faulted in on their first access, from
+     * any of the processes, like the pages of a process.
+     *
+     * @param name the name processes attach to the segment by
+     * @param size the size of the segment, in bytes
+     *
+     */
+    @Override
+    public synchronized void createSharedSegment(String name, int size)
+            throws SegmentNameTakenException, InsufficientMemoryException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("A shared segment must have a positive size.");
+        }
+        if (sharedSegments.containsKey(name)) {
+            throw new SegmentNameTakenException(name);
+        }
+        int numberOfPages = calculateProcessAllocationInfo(size).getNumberOfPagesForProcess();
+        int[] allocatedFrames = null;
+        if (configuration.isDemandPagingEnabled()) {
+            if (committedPages + numberOfPages > pagingCapacity()) {
+                throw new InsufficientMemoryException();
+            }
+        } else {
+            allocatedFrames = new int[numberOfPages];
+            if (!freeFrames.allocate(numberOfPages, allocatedFrames)) {
+                throw new InsufficientMemoryException();
+            }
+        }
+
+        SharedSegment segment = new SharedSegment(++lastSegmentId, name, size, numberOfPages);
+        if (allocatedFrames != null) {
+            FrameBlock block = new FrameBlock(allocatedFrames, numberOfPages);
+            for (int i = 0; i < numberOfPages; i++) {
+                Page page = createPage(segment.getPageTable(), size, i);
+                placeSegmentPageInFrame(page, allocatedFrames[i], segment);
+                page.setBlock(block);
+            }
+        }
+        committedPages += numberOfPages;
+        sharedSegments.put(name, segment);
+        segmentsById.put(segment.getId(), segment);
     }
 
-    private int calculatePageIndexForMemoryIndex(int index) {
-        return index % configuration.pageSize();
+    private void placeSegmentPageInFrame(Page page, int frameNumber, SharedSegment segment) {
+        placePageInFrame(page, frameNumber, segment.getId());
+        frameTable.setFlag(frameNumber, FrameTable.FLAG_SHARED);
     }
 
-    private byte[][] getMemoryMatrix() {
-        int pageSize = configuration.pageSize();
-        int numberOfPages = configuration.memorySize() / pageSize;
-        byte[][] memoryMatrix = new byte[numberOfPages][pageSize];
+    /**
+     *
+     * This method maps a shared segment into the address space of a
+     * process, right after its own pages and the segments attached
+     * before, so the process reads and writes the same bytes as every
+     * other process the segment is attached to.
+     *
+     * @param processId the process the segment is attached to
+     * @param name the name of the segment
+     *
+     * @return the virtual address the segment starts at
+     *
+     */
+    @Override
+    public synchronized int attachSharedSegment(int processId, String name) throws ProcessNotFoundException,
+            SegmentNotFoundException, SegmentAlreadyAttachedException, InvalidAddressException {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        SharedSegment segment = sharedSegments.get(name);
+        if (segment == null) {
+            throw new SegmentNotFoundException(name);
+        }
+        if (process.attachmentOf(name) != null) {
+            throw new SegmentAlreadyAttachedException(name, processId);
+        }
+        int firstPage = process.nextFreePage();
+        if ((long) (firstPage + segment.getPageTable().numberOfPages()) * configuration.pageSize()
+                > Integer.MAX_VALUE) {
+            throw new InvalidAddressException();
+        }
 
-        for (int i = 0; i < rawMemory.length; i++) {
-            int pageIndex = calculatePageNumberForMemoryIndex(i);
-            int displacement = calculatePageIndexForMemoryIndex(i);
-            memoryMatrix[pageIndex][displacement] = rawMemory[i];
+        Attachment attachment = new Attachment(processId, segment, firstPage);
+        process.attach(attachment);
+        segment.attach(attachment);
+        return firstPage * configuration.pageSize();
+    }
+
+    /**
+     *
+     * This method unmaps a shared segment from a process. The memory of
+     * the segment is only given back once it was destroyed and this was
+     * the last process it was attached to.
+     *
+     * @param processId the process the segment is detached from
+     * @param name the name of the segment
+     *
+     */
+    @Override
+    public synchronized void detachSharedSegment(int processId, String name)
+            throws ProcessNotFoundException, SegmentNotFoundException {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
         }
+        Attachment attachment = process.attachmentOf(name);
+        if (attachment == null) {
+            throw new SegmentNotFoundException(name);
+        }
+        detach(process, attachment);
+    }
 
-        return memoryMatrix;
+    private void detach(Process process, Attachment attachment) {
+        SharedSegment segment = attachment.getSegment();
+        process.detach(attachment);
+        segment.detach(attachment);
+        if (tlb != null) {
+            for (int page = attachment.getFirstPage(); page < attachment.getEndPage(); page++) {
+                tlb.invalidate(process.getId(), page);
+            }
+        }
+        if (segment.isDestroyed() && !segment.isAttached()) {
+            releaseSegment(segment);
+        }
+    }
+
+    /**
+     *
+     * This method removes the name of a shared segment, so it can't be
+     * attached anymore, and gives its memory back unless some process
+     * still has it attached, in which case that happens on the last detach.
+     *
+     * @param name the name of the segment
+     *
+     */
+    @Override
+    public synchronized void destroySharedSegment(String name) throws SegmentNotFoundException {
+        SharedSegment segment = sharedSegments.remove(name);
+        if (segment == null) {
+            throw new SegmentNotFoundException(name);
+        }
+        segment.markDestroyed();
+        if (!segment.isAttached()) {
+            releaseSegment(segment);
+        }
+    }
+
+    private void releaseSegment(SharedSegment segment) {
+        PageTable pageTable = segment.getPageTable();
+        for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+            releasePage(pageTable.get(i));
+        }
+        committedPages -= pageTable.numberOfPages();
+        pageTable.clear();
+        segmentsById.remove(segment.getId());
+    }
+
+    @Override
+    public synchronized byte accessMemory(int processId, int virtualAddress) throws Exception {
+        return physicalMemory.getByte(translate(processId, virtualAddress, false));
+    }
+
+    /**
+     *
+     * This method writes a byte to an address of a process, copying
+     * the page first if it is shared copy-on-write.
+     *
+     */
+    @Override
+    public synchronized void writeByte(int processId, int virtualAddress, byte value) throws Exception {
+        long physicalAddress = translate(processId, virtualAddress, true);
+        physicalMemory.putByte(physicalAddress, value);
+        frameTable.markChanged((int) (physicalAddress / configuration.pageSize()));
+    }
+
+    /**
+     *
+     * This method reads the bytes of a process from an address on, as
+     * many as the buffer has room for. Each page the range spans is
+     * translated once, faulting it in when needed, and copied with a
+     * single bulk copy.
+     *
+     * The whole range is checked before anything is copied, so an
+     * invalid one leaves the buffer untouched.
+     *
+     * @param processId the process the bytes belong to
+     * @param virtualAddress the address of the first byte read
+     * @param destination the buffer the bytes are read into
+     *
+     */
+    @Override
+    public synchronized void read(int processId, int virtualAddress, ByteBuffer destination) throws Exception {
+        if (destination.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        transfer(processId, virtualAddress, destination, false);
+    }
+
+    /**
+     *
+     * This method writes the remaining bytes of a buffer into a process
+     * from an address on. Each page the range spans is translated once,
+     * faulting it in or copying it when it is shared copy-on-write, and
+     * written with a single bulk copy.
+     *
+     * The whole range is checked before anything is written, so an
+     * invalid one leaves the process untouched.
+     *
+     * @param processId the process the bytes are written to
+     * @param virtualAddress the address of the first byte written
+     * @param source the buffer whose remaining bytes are written
+     *
+     */
+    @Override
+    public synchronized void write(int processId, int virtualAddress, ByteBuffer source) throws Exception {
+        transfer(processId, virtualAddress, source, true);
+    }
+
+    private void transfer(int processId, int virtualAddress, ByteBuffer buffer, boolean write) throws Exception {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        int length = buffer.remaining();
+        checkRange(process, virtualAddress, length);
+
+        int pageSize = configuration.pageSize();
+        int address = virtualAddress;
+        while (length > 0) {
+            int segment = Math.min(length, pageSize - address % pageSize);
+            long physicalAddress = translate(processId, address, write);
+            if (write) {
+                physicalMemory.write(physicalAddress, buffer, segment);
+                frameTable.markChanged((int) (physicalAddress / pageSize));
+            } else {
+                physicalMemory.read(physicalAddress, buffer, segment);
+            }
+            address += segment;
+            length -= segment;
+        }
+    }
+
+    /**
+     *
+     * This method checks that every byte of a range is mapped, either
+     * in the pages of the process or in a shared segment attached to it.
+     * Past the pages of the process, both ends of the range's part in
+     * each page are checked, since a page is all in one segment.
+     *
+     */
+    private void checkRange(Process process, int virtualAddress, int length) throws InvalidAddressException {
+        long end = (long) virtualAddress + length;
+        if (virtualAddress < 0 || end > Integer.MAX_VALUE) {
+            throw new InvalidAddressException();
+        }
+        int pageSize = configuration.pageSize();
+        long address = Math.max(virtualAddress, process.getSize());
+        while (address < end) {
+            long pageEnd = Math.min(end, (address / pageSize + 1) * pageSize);
+            if (!isInSegment(process, (int) address) || !isInSegment(process, (int) (pageEnd - 1))) {
+                throw new InvalidAddressException();
+            }
+            address = pageEnd;
+        }
+    }
+
+    private boolean isInSegment(Process process, int virtualAddress) {
+        int pageSize = configuration.pageSize();
+        Attachment attachment = process.attachmentAt(virtualAddress / pageSize);
+        return attachment != null
+                && virtualAddress - attachment.getFirstPage() * pageSize < attachment.getSegment().getSize();
+    }
+
+    /**
+     *
+     * This method translates a virtual address of a process into a
+     * physical one. The TLB, when there is one, is looked up first; on a
+     * miss the page table is walked, faulting the page in if it is not
+     * resident, and the translation is cached. Either way the access is
+     * reported to the replacement policy.
+     *
+     * @param processId the process the address belongs to
+     * @param virtualAddress the address, relative to the start of the process
+     *
+     * @return the address in the physical memory
+     *
+     */
+    @Override
+    public synchronized long translate(int processId, int virtualAddress) throws Exception {
+        return translate(processId, virtualAddress, false);
+    }
+
+    /**
+     *
+     * This method translates an address that is about to be written
+     * to, or read from. A write to a page shared copy-on-write misses
+     * the TLB, whose entry for it is read-only, and gives the process
+     * its own copy of the page before it is translated.
+     *
+     */
+    private long translate(int processId, int virtualAddress, boolean write) throws Exception {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        if (virtualAddress < 0) {
+            throw new InvalidAddressException();
+        }
+        if (samePageIndex != null && --referencesUntilMerge == 0) {
+            referencesUntilMerge = configuration.mergePassInterval();
+            mergeSamePages();
+        }
+
+        int pageSize = configuration.pageSize();
+        int virtualPageNumber = virtualAddress / pageSize;
+        if (virtualAddress >= process.getSize()) {
+            Attachment attachment = process.attachmentAt(virtualPageNumber);
+            if (attachment == null
+                    || virtualAddress - attachment.getFirstPage() * pageSize >= attachment.getSegment().getSize()) {
+                throw new InvalidAddressException();
+            }
+            return translateInSegment(attachment, virtualAddress, write);
+        }
+        long pageAddress = tlb == null ? -1 : tlb.lookup(processId, virtualPageNumber, write);
+
+        if (pageAddress != -1) {
+            if (replacementPolicy != null) {
+                replacementPolicy.pageAccessed((int) (pageAddress / pageSize));
+            }
+        } else {
+            Page page = process.getPageTable().get(virtualPageNumber);
+            if (page == null) {
+                page = createPage(process, virtualPageNumber);
+            }
+            if (!page.isResident()) {
+                handlePageFault(page, processId);
+            } else if (replacementPolicy != null) {
+                replacementPolicy.pageAccessed(page.getFrame().getFrameNumber());
+            }
+            if (write && page.isCopyOnWrite()) {
+                page = copySharedPage(process, page, virtualPageNumber);
+            }
+            pageAddress = page.getPhysicalAddress();
+            if (tlb != null) {
+                tlb.insert(processId, virtualPageNumber, pageAddress, !page.isCopyOnWrite());
+            }
+        }
+        return pageAddress + virtualAddress % pageSize;
+    }
+
+    /**
+     *
+     * This method translates an address of a shared segment attached to
+     * a process. Its pages are never copied on write, so their cached
+     * translations are always writable.
+     *
+     */
+    private long translateInSegment(Attachment attachment, int virtualAddress, boolean write) throws Exception {
+        int pageSize = configuration.pageSize();
+        int processId = attachment.getProcessId();
+        int virtualPageNumber = virtualAddress / pageSize;
+        long pageAddress = tlb == null ? -1 : tlb.lookup(processId, virtualPageNumber, write);
+
+        if (pageAddress != -1) {
+            if (replacementPolicy != null) {
+                replacementPolicy.pageAccessed((int) (pageAddress / pageSize));
+            }
+        } else {
+            SharedSegment segment = attachment.getSegment();
+            int segmentPage = virtualPageNumber - attachment.getFirstPage();
+            Page page = segment.getPageTable().get(segmentPage);
+            if (page == null) {
+                page = createPage(segment.getPageTable(), segment.getSize(), segmentPage);
+            }
+            if (!page.isResident()) {
+                handlePageFault(page, segment.getId());
+                frameTable.setFlag(page.getFrame().getFrameNumber(), FrameTable.FLAG_SHARED);
+            } else if (replacementPolicy != null) {
+                replacementPolicy.pageAccessed(page.getFrame().getFrameNumber());
+            }
+            pageAddress = page.getPhysicalAddress();
+            if (tlb != null) {
+                tlb.insert(processId, virtualPageNumber, pageAddress);
+            }
+        }
+        return pageAddress + virtualAddress % pageSize;
+    }
+
+    /**
+     *
+     * This method brings a page that is not resident into a frame,
+     * evicting another page when no frame is free. The page is read
+     * back from swap if it was paged out before, and zero-filled if
+     * this is its first access.
+     *
+     * @param page the page that was referenced
+     * @param ownerId the process, or the shared segment, the page belongs to
+     *
+     */
+    private void handlePageFault(Page page, int ownerId) throws IOException, InsufficientMemoryException {
+        long start = System.nanoTime();
+        pageFaults++;
+
+        int frameNumber = allocatePagingFrame();
+        if (page.isSwappedOut()) {
+            swapArea.read(page.getSwapSlot(), physicalMemory.frameView(frameNumber));
+            swapArea.freeSlot(page.getSwapSlot());
+            page.setSwapSlot(Page.NO_SWAP_SLOT);
+        } else {
+            physicalMemory.clear(frameNumber);
+        }
+
+        placePageInFrame(page, frameNumber, ownerId);
+        replacementPolicy.pageLoaded(frameNumber);
+        metrics.recordPageFault(System.nanoTime() - start);
+    }
+
+    /**
+     *
+     * This method takes a frame for a page with demand paging: a free
+     * one on the fast path or, when none is left, the frame of a page it
+     * evicts right away, on the slow path of direct reclaim. The
+     * background reclaimer is woken once the frames left free fall under
+     * the low watermark, so that later faults stay on the fast path.
+     *
+     * @return the frame, marked as used
+     *
+     */
+    private int allocatePagingFrame() throws IOException, InsufficientMemoryException {
+        int frameNumber;
+        if (freeFrames.allocate(1, frameScratch)) {
+            frameNumber = frameScratch[0];
+            fastPathAllocations++;
+        } else {
+            frameNumber = evictPage();
+            directReclaimAllocations++;
+        }
+        if (reclaimer != null && freeFrames.freeCount() < configuration.reclaimLowWatermark()) {
+            reclaimer.wake();
+        }
+        return frameNumber;
+    }
+
+    /**
+     *
+     * This method evicts one batch of pages for the background
+     * reclaimer, giving their frames back to the free pool, unless as
+     * many frames as the high watermark are already free.
+     *
+     * @param caller the reclaimer asking, which may have been stopped
+     * and replaced while it waited for this manager
+     *
+     * @return true if more pages have to be evicted
+     *
+     */
+    synchronized boolean reclaimInBackground(BackgroundReclaimer caller) {
+        if (caller != reclaimer) {
+            return false;
+        }
+        int highWatermark = configuration.reclaimHighWatermark();
+        int batchSize = configuration.reclaimBatchSize();
+        int evicted = 0;
+        try {
+            while (evicted < batchSize && freeFrames.freeCount() < highWatermark) {
+                frameScratch[0] = evictPage();
+                freeFrames.free(frameScratch, 1);
+                evicted++;
+            }
+        } catch (IOException | InsufficientMemoryException ex) {
+            // nothing left to evict, or no room left in swap; faults will reclaim directly, and fail
+            return false;
+        } finally {
+            if (evicted > 0) {
+                backgroundReclaimBatches++;
+                backgroundReclaimedFrames += evicted;
+            }
+        }
+        return freeFrames.freeCount() < highWatermark;
+    }
+
+    /**
+     *
+     * This method pages out the victim chosen by the replacement
+     * policy, writing it to a swap slot.
+     *
+     * @return the frame that was freed, which is still marked as used
+     * so it can be handed straight to the faulting page
+     *
+     */
+    private int evictPage() throws IOException, InsufficientMemoryException {
+        int victim = replacementPolicy.selectVictim();
+        if (victim == -1) {
+            throw new InsufficientMemoryException();
+        }
+
+        Page victimPage = residentPages[victim];
+        if (tlb != null) {
+            invalidateTranslations(victimPage);
+        }
+        int swapSlot = swapArea.allocateSlot();
+        if (!swapArea.write(swapSlot, physicalMemory.frameView(victim))) {
+            // a compressed swap area with no room left, and no file to fall back on
+            swapArea.freeSlot(swapSlot);
+            replacementPolicy.pageLoaded(victim);
+            throw new InsufficientMemoryException();
+        }
+        victimPage.setSwapSlot(swapSlot);
+
+        EvictionEvent event = new EvictionEvent();
+        if (event.isEnabled()) {
+            event.processId = victimPage.getProcessId();
+            event.virtualPageNumber = victimPage.getVirtualPageNumber();
+            event.frameNumber = victim;
+            event.swapSlot = swapSlot;
+            event.commit();
+        }
+
+        victimPage.cleanMemorySlots();
+        residentPages[victim] = null;
+
+        evictions++;
+        return victim;
+    }
+
+    /**
+     * This method stops the background reclaimer, if any, and closes
+     * the swap file and the file backing the memory, if any. Nothing that
+     * may page in or out can be done afterwards, until a new configuration
+     * or snapshot is stored.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        stopReclaimer();
+        if (swapArea != null) {
+            swapArea.close();
+        }
+        closePhysicalMemory();
+    }
+
+    /**
+     *
+     * This method replaces the policy used to pick eviction victims.
+     * It must be called before any page is loaded, since the new policy
+     * knows nothing about the frames tracked by the old one.
+     *
+     * @param replacementPolicy the policy to be used from now on
+     *
+     */
+    public synchronized void setReplacementPolicy(ReplacementPolicy replacementPolicy) {
+        this.replacementPolicy = replacementPolicy;
+    }
+
+    public synchronized long getPageFaults() {
+        return pageFaults;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getForks() {
+        return forks;
+    }
+
+    /**
+     * @return how many writes had to copy a page shared by a fork,
+     * or by same-page merging, first
+     */
+    public synchronized long getCopyOnWriteFaults() {
+        return copyOnWriteFaults;
+    }
+
+    public synchronized long getMergePasses() {
+        return mergePasses;
+    }
+
+    /**
+     * @return how many frames the same-page merging passes looked at
+     */
+    public synchronized long getMergeScannedFrames() {
+        return mergeScannedFrames;
+    }
+
+    /**
+     * @return how many pages were dropped for one with the same contents
+     */
+    public synchronized long getMergedPages() {
+        return mergedPages;
+    }
+
+    /**
+     * @return how many frames the same-page merging passes gave back
+     */
+    public synchronized long getMergeReclaimedFrames() {
+        return mergeReclaimedFrames;
+    }
+
+    /**
+     * @return how many frames pages were given with demand paging,
+     * copies made on write included, that were already free
+     */
+    public synchronized long getFastPathAllocations() {
+        return fastPathAllocations;
+    }
+
+    /**
+     * @return how many frames pages were given with demand paging
+     * that first had a page evicted from them, on the spot
+     */
+    public synchronized long getDirectReclaimAllocations() {
+        return directReclaimAllocations;
+    }
+
+    /**
+     * @return how many batches of pages the background reclaimer evicted
+     */
+    public synchronized long getBackgroundReclaimBatches() {
+        return backgroundReclaimBatches;
+    }
+
+    /**
+     * @return how many frames the background reclaimer freed
+     */
+    public synchronized long getBackgroundReclaimedFrames() {
+        return backgroundReclaimedFrames;
+    }
+
+    /**
+     * @return the bytes of the frames in use that hold no process's data:
+     * the unused end of each process's last page, the frames a buddy
+     * block holds on top of the ones asked for, and the unused parts of
+     * the slabs
+     */
+    public synchronized long getInternalFragmentationBytes() {
+        int pageSize = configuration.pageSize();
+        long wasted = freeFrames.wastedFrames() * pageSize;
+        for (int frame = 0; frame < physicalMemory.numberOfFrames(); frame++) {
+            if (frameTable.isInUse(frame) && !frameTable.hasFlag(frame, FrameTable.FLAG_SLAB)) {
+                wasted += pageSize - frameTable.usedBytesOf(frame);
+            }
+        }
+        if (slabAllocator != null) {
+            wasted += slabAllocator.wastedBytes();
+        }
+        return wasted;
+    }
+
+    /**
+     * @return the bytes a single process is given but doesn't use: the
+     * unused end of its last page, the frames its buddy block holds on
+     * top of its pages, or the rounding of its slab object; -1 if the
+     * process is not running
+     */
+    public synchronized long getInternalFragmentationBytes(int processId) {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            return -1;
+        }
+        int size = process.getSize();
+        if (slabAllocator != null && slabAllocator.handles(size)) {
+            return slabAllocator.objectSizeFor(size) - size;
+        }
+
+        int pageSize = configuration.pageSize();
+        ProcessAllocationInfo allocationInfo = calculateProcessAllocationInfo(size);
+        int filledSlotsOnLastPage = allocationInfo.getUnfilledPageSlotsSize();
+        long wasted = filledSlotsOnLastPage == 0 ? 0 : pageSize - filledSlotsOnLastPage;
+        if (configuration.allocationStrategy() == AllocationStrategy.BUDDY
+                && !configuration.isDemandPagingEnabled()) {
+            int pages = allocationInfo.getNumberOfPagesForProcess();
+            int blockFrames = pages <= 1 ? pages : Integer.highestOneBit(pages - 1) << 1;
+            wasted += (long) (blockFrames - pages) * pageSize;
+        }
+        return wasted;
+    }
+
+    /**
+     * @return 1 minus the ratio between the largest block of free frames
+     * a single allocation can get and all the free frames: 0 when the free
+     * memory is in one piece, close to 1 when it is scattered
+     */
+    public synchronized double getExternalFragmentationIndex() {
+        int free = freeFrames.freeCount();
+        return free == 0 ? 0 : 1 - (double) freeFrames.largestFreeBlock() / free;
+    }
+
+    /**
+     * @return how many frames are not allocated
+     */
+    @Override
+    public synchronized int getFreeFrameCount() {
+        return freeFrames.freeCount();
+    }
+
+    /**
+     * @return how many frames are allocated, whether they hold
+     * pages, slabs or the rounding of a buddy block
+     */
+    public synchronized int getUsedFrameCount() {
+        return freeFrames.numberOfFrames() - freeFrames.freeCount();
+    }
+
+    /**
+     * @return how many frames hold a page mapped more than once, for
+     * being part of a shared segment, being shared by a fork or being
+     * merged; each of them is counted once, however many times it is mapped
+     */
+    public synchronized int getSharedFrameCount() {
+        int shared = 0;
+        for (int frame = 0; frame < residentPages.length; frame++) {
+            Page page = residentPages[frame];
+            if (page != null && (page.isShared() || frameTable.hasFlag(frame, FrameTable.FLAG_SHARED))) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return how many frames hold pages only this process maps,
+     * or -1 if the process is not running
+     */
+    public synchronized int getPrivateFrameCount(int processId) {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            return -1;
+        }
+        PageTable pageTable = process.getPageTable();
+        int frameCount = 0;
+        for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+            Page page = pageTable.get(i);
+            if (page.isResident() && !page.sharesFrame() && !page.isShared()) {
+                frameCount++;
+            }
+        }
+        return frameCount;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public MemoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return an estimate of the memory, in bytes, taken by the page
+     * tables of every running process, including the shared inverted
+     * table when there is one
+     */
+    public synchronized long getPageTableOverheadBytes() {
+        long[] overhead = {invertedPageTable == null ? 0 : invertedPageTable.overheadBytes()};
+        runningProcesses.forEach(process -> overhead[0] += process.getPageTable().overheadBytes());
+        return overhead[0];
+    }
+
+    /**
+     * @return the TLB in front of address translation,
+     * or null if the configuration has none
+     */
+    public TranslationLookasideBuffer getTlb() {
+        return tlb;
+    }
+
+    /**
+     * @return the swap area kept compressed in memory, or null
+     * if the configuration has none
+     */
+    public CompressedSwapArea getCompressedSwapArea() {
+        return swapArea instanceof CompressedSwapArea ? (CompressedSwapArea) swapArea : null;
+    }
+
+    /**
+     *
+     * This method displays the metrics of this runtime: allocation
+     * and free latencies, frame usage, fragmentation and, when they
+     * are enabled, paging and TLB counters.
+     *
+     */
+    public synchronized void showMetrics() {
+        appendLatencies("Allocations", metrics.allocationLatencies());
+        builder.append(" (").append(metrics.allocationFailures()).append(" failed)\n");
+        appendLatencies("Frees", metrics.freeLatencies());
+        builder.append("\n");
+
+        builder.append("Frames used: ").append(getUsedFrameCount())
+                .append(", free: ").append(getFreeFrameCount()).append("\n");
+        int sharedFrames = getSharedFrameCount();
+        if (sharedFrames > 0 || !segmentsById.isEmpty()) {
+            builder.append("Frames shared: ").append(sharedFrames)
+                    .append(", shared segments: ").append(segmentsById.size()).append("\n");
+        }
+        builder.append("Internal fragmentation: ").append(getInternalFragmentationBytes()).append(" bytes\n");
+        builder.append(String.format("External fragmentation index: %.4f%n", getExternalFragmentationIndex()));
+        if (configuration.isDemandPagingEnabled()) {
+            builder.append("Page faults: ").append(pageFaults)
+                    .append(", evictions: ").append(evictions).append("\n");
+            appendLatencies("Page fault latencies", metrics.pageFaultLatencies());
+            builder.append("\n");
+            builder.append("Frames taken free: ").append(fastPathAllocations)
+                    .append(", by direct reclaim: ").append(directReclaimAllocations).append("\n");
+        }
+        if (configuration.isBackgroundReclaimEnabled()) {
+            builder.append("Background reclaim batches: ").append(backgroundReclaimBatches)
+                    .append(", frames reclaimed: ").append(backgroundReclaimedFrames).append("\n");
+        }
+        CompressedSwapArea compressedSwap = getCompressedSwapArea();
+        if (compressedSwap != null) {
+            builder.append(String.format("Compressed swap: %d pages in %d bytes, ratio %.2f, %d in the fallback file%n",
+                    compressedSwap.storedPages(), compressedSwap.arena().usedBytes(),
+                    compressedSwap.compressionRatio(), compressedSwap.fallbackPages()));
+            appendLatencies("Compressions", compressedSwap.compressionLatencies());
+            builder.append("\n");
+            appendLatencies("Decompressions", compressedSwap.decompressionLatencies());
+            builder.append("\n");
+        }
+        if (forks > 0) {
+            builder.append("Forks: ").append(forks)
+                    .append(", copy-on-write faults: ").append(copyOnWriteFaults).append("\n");
+        }
+        if (samePageIndex != null) {
+            builder.append("Merge passes: ").append(mergePasses)
+                    .append(", frames scanned: ").append(mergeScannedFrames)
+                    .append(", pages merged: ").append(mergedPages)
+                    .append(", frames reclaimed: ").append(mergeReclaimedFrames).append("\n");
+        }
+        if (tlb != null) {
+            builder.append(String.format("TLB hits: %d, misses: %d, hit ratio: %.4f, flushes: %d%n",
+                    tlb.hits(), tlb.misses(), tlb.hitRatio(), tlb.flushes()));
+        }
+
+        runningProcesses.forEach(process -> builder
+                .append("Process ").append(process.getId())
+                .append(": ").append(process.getSize()).append(" bytes, ")
+                .append(getInternalFragmentationBytes(process.getId())).append(" bytes unused, ")
+                .append(getPrivateFrameCount(process.getId())).append(" private frames\n"));
+        builder.setLength(builder.length() - 1);
+
+        controller.print(builder.toString());
+        clearStringBuilder();
+    }
+
+    private void appendLatencies(String label, LatencyHistogram latencies) {
+        builder.append(label).append(": ").append(latencies.count());
+        if (latencies.count() > 0) {
+            builder.append(String.format(", mean %.0f ns, p50 %d ns, p99 %d ns, max %d ns",
+                    latencies.mean(), latencies.valueAtPercentile(50),
+                    latencies.valueAtPercentile(99), latencies.max()));
+        }
+    }
+
+    @Override
+    public void showPageTableForProcess(int processId) {
+        showPageTableForProcess(processId, ViewOptions.full());
+    }
+
+    @Override
+    public synchronized void showPageTableForProcess(int processId, ViewOptions options) {
+        try (Writer out = new SinkWriter(controller)) {
+            writePageTableForProcess(processId, out, options);
+        } catch (IOException | ProcessNotFoundException ex) {
+            controller.print(ex.getMessage());
+        }
+    }
+
+    /**
+     *
+     * This method streams the pages of a process into a writer,
+     * which should be buffered, like the one of writeMemory.
+     *
+     * @param processId the process whose pages are shown
+     * @param out where the view is written
+     * @param options whether the view is compact and which part of it is shown
+     *
+     */
+    @Override
+    public synchronized void writePageTableForProcess(int processId, Writer out, ViewOptions options)
+            throws IOException, ProcessNotFoundException {
+        Process process = runningProcesses.get(processId);
+        if (process == null) {
+            throw new ProcessNotFoundException(processId);
+        }
+        new ViewRenderer(out, options, configuration.pageSize()).renderPageTable(process);
+    }
+
+    /**
+     *
+     * This method stores the configurations for this runtime,
+     * initializes memory slots and creates the array of processes
+     * that can be created this runtime. The memory and the swap
+     * area it replaces are closed.
+     *
+     * @param configuration the object containing configuration fields
+     *
+     */
+    public synchronized void storeConfiguration(Configuration configuration) throws IOException {
+        stopReclaimer();
+        closeSwapArea();
+        closePhysicalMemory();
+        this.configuration = configuration;
+        initializeMemories(PhysicalMemory.allocate(configuration));
+        initializeProcessTable();
+        if (configuration.isDemandPagingEnabled()) {
+            swapArea = createSwapArea();
+        }
+        startReclaimer();
+    }
+
+    private void initializeProcessTable() {
+        maxNumberOfProcesses = (int) Math.min(
+                Integer.MAX_VALUE,
+                (configuration.memorySize() + configuration.swapSize()) / configuration.maxProcessSize()
+        );
+        runningProcesses = new ProcessTable();
+        lastProcessId = 0;
+        committedPages = 0;
+        pageFaults = 0;
+        evictions = 0;
+        forks = 0;
+        copyOnWriteFaults = 0;
+        mergePasses = 0;
+        mergeScannedFrames = 0;
+        mergedPages = 0;
+        mergeReclaimedFrames = 0;
+        fastPathAllocations = 0;
+        directReclaimAllocations = 0;
+        backgroundReclaimBatches = 0;
+        backgroundReclaimedFrames = 0;
+    }
+
+    /**
+     *
+     * This method sets up the frames viewing the single buffer that
+     * emulates the physical memory and, when they are enabled, the
+     * replacement policy, the TLB and the inverted page table. The swap
+     * area and the background reclaimer, which reach outside of the
+     * manager, are left to the caller.
+     *
+     * @param physicalMemory the buffer, freshly allocated or mapped from a snapshot
+     *
+     */
+    private void initializeMemories(PhysicalMemory physicalMemory) {
+        this.physicalMemory = physicalMemory;
+        int numberOfFrames = physicalMemory.numberOfFrames();
+        changedFrames = new DirtyFrameMap(numberOfFrames);
+        frameTable = new FrameTable(numberOfFrames, changedFrames);
+        freeFrames = configuration.allocationStrategy().create(numberOfFrames);
+        slabAllocator = null;
+        if (configuration.allocationStrategy() == AllocationStrategy.SLAB
+                && !configuration.isDemandPagingEnabled()) {
+            slabAllocator = new SlabAllocator(freeFrames, frameTable, configuration.pageSize());
+        }
+        residentPages = new Page[numberOfFrames];
+
+        replacementPolicy = null;
+        if (configuration.isDemandPagingEnabled()) {
+            replacementPolicy = configuration.replacementPolicy().create(numberOfFrames);
+        }
+        sharedSegments = new HashMap<>();
+        segmentsById = new HashMap<>();
+        lastSegmentId = 0;
+        invertedPageTable = null;
+        if (configuration.pageTableType() == PageTableType.INVERTED) {
+            long maximumPages = (long) numberOfFrames + numberOfSwapSlots();
+            invertedPageTable = new InvertedPageTable((int) Math.min(Integer.MAX_VALUE / 2, maximumPages));
+        }
+        samePageIndex = null;
+        if (configuration.isSamePageMergingEnabled()) {
+            samePageIndex = new SamePageIndex(numberOfFrames);
+            mergeCursor = 0;
+            referencesUntilMerge = configuration.mergePassInterval();
+        }
+        tlb = null;
+        if (configuration.isTlbEnabled()) {
+            tlb = new TranslationLookasideBuffer(
+                    configuration.tlbEntries(),
+                    configuration.tlbAssociativity(),
+                    configuration.isTlbFlushedOnContextSwitch()
+            );
+        }
+    }
+
+    /**
+     * @return how many slots the swap area of the configuration
+     * has, or 0 if there is no demand paging
+     */
+    private int numberOfSwapSlots() {
+        return configuration.isDemandPagingEnabled() ? configuration.numberOfSwapSlots() : 0;
+    }
+
+    private void startReclaimer() {
+        if (configuration.isBackgroundReclaimEnabled()) {
+            reclaimer = new BackgroundReclaimer(this);
+            reclaimer.start();
+        }
+    }
+
+    private void stopReclaimer() {
+        if (reclaimer != null) {
+            reclaimer.stop();
+            reclaimer = null;
+        }
+    }
+
+    private void closeSwapArea() throws IOException {
+        if (swapArea != null) {
+            swapArea.close();
+            swapArea = null;
+        }
+    }
+
+    private void closePhysicalMemory() throws IOException {
+        if (physicalMemory != null) {
+            physicalMemory.close();
+        }
+    }
+
+    /**
+     * This method creates the swap area of the configuration: in a file,
+     * or compressed in memory, in front of a file if one is given.
+     */
+    private SwapArea createSwapArea() throws IOException {
+        int numberOfSlots = configuration.numberOfSwapSlots();
+        int pageSize = configuration.pageSize();
+        if (!configuration.isSwapCompressed()) {
+            return new FileSwapArea(configuration.swapFilePath(), numberOfSlots, pageSize);
+        }
+        SwapArea fallback = configuration.swapFilePath() == null
+                ? null
+                : new FileSwapArea(configuration.swapFilePath(), numberOfSlots, pageSize);
+        return new CompressedSwapArea(numberOfSlots, pageSize, configuration.compressedSwapArenaSize(), fallback);
+    }
+
+    /**
+     *
+     * This method saves the whole state of this manager into a file:
+     * the configuration, the counters, every process with its pages, the
+     * shared segments with theirs, the physical memory and the swap slots
+     * in use. The metadata and the
+     * physical memory go out in a single gathering write, and the swap
+     * slots are copied file to file.
+     *
+     * The TLB, the metrics, the same-page merging and background
+     * reclaim settings and the order the replacement policy keeps
+     * frames in are not saved;
+     * pages that were merged are saved shared, like those of a fork.
+     *
+     * @param file where the snapshot is written, replacing what it held
+     *
+     * @see SnapshotFormat
+     *
+     */
+    public synchronized void checkpoint(Path file) throws IOException {
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(metadataBytes);
+        SnapshotFormat.writeConfiguration(metadata, configuration);
+        metadata.writeInt(lastProcessId);
+        metadata.writeLong(pageFaults);
+        metadata.writeLong(evictions);
+
+        List<Process> processes = new ArrayList<>(runningProcesses.size());
+        runningProcesses.forEach(processes::add);
+        List<SharedSegment> segments = new ArrayList<>(segmentsById.values());
+        List<PageTable> pageTables = new ArrayList<>(processes.size() + segments.size());
+        processes.forEach(process -> pageTables.add(process.getPageTable()));
+        segments.forEach(segment -> pageTables.add(segment.getPageTable()));
+
+        Map<FrameBlock, Integer> blocks = writeBlocks(metadata, pageTables);
+        Map<Page, Integer> writtenPages = new IdentityHashMap<>();
+        List<Integer> swapSlots = new ArrayList<>();
+        metadata.writeInt(processes.size());
+        for (Process process : processes) {
+            metadata.writeInt(process.getId());
+            metadata.writeInt(process.getSize());
+            writePages(metadata, process.getPageTable(), process.getId(), blocks, writtenPages, swapSlots);
+        }
+        metadata.writeInt(lastSegmentId);
+        metadata.writeInt(segments.size());
+        for (SharedSegment segment : segments) {
+            writeSegment(metadata, segment, blocks, writtenPages, swapSlots);
+        }
+        metadata.writeInt(swapSlots.size());
+        for (int slot : swapSlots) {
+            metadata.writeInt(slot);
+        }
+        metadata.flush();
+
+        int pageSize = configuration.pageSize();
+        SnapshotFormat.Preamble preamble = SnapshotFormat.Preamble.layOut(
+                metadataBytes.size(), physicalMemory.size(), (long) swapSlots.size() * pageSize
+        );
+        ByteBuffer[] memoryChunks = physicalMemory.chunkViews();
+        ByteBuffer[] buffers = new ByteBuffer[3 + memoryChunks.length];
+        buffers[0] = preamble.encode();
+        buffers[1] = ByteBuffer.wrap(metadataBytes.toByteArray());
+        buffers[2] = ByteBuffer.allocate((int) (preamble.memoryOffset - SnapshotFormat.PREAMBLE_BYTES
+                - preamble.metadataLength));
+        System.arraycopy(memoryChunks, 0, buffers, 3, memoryChunks.length);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long remaining = preamble.swapOffset;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            for (int slot : swapSlots) {
+                swapArea.transferTo(slot, channel);
+            }
+        }
+    }
+
+    /**
+     *
+     * This method writes every block of frames the pages of the
+     * processes and segments were allocated in, each one once.
+     *
+     * @return the index each block was written at
+     *
+     */
+    private Map<FrameBlock, Integer> writeBlocks(DataOutputStream out, List<PageTable> pageTables) throws IOException {
+        Map<FrameBlock, Integer> blocks = new IdentityHashMap<>();
+        List<FrameBlock> inOrder = new ArrayList<>();
+        for (PageTable pageTable : pageTables) {
+            for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+                FrameBlock block = pageTable.get(i).getBlock();
+                if (block != null && blocks.putIfAbsent(block, inOrder.size()) == null) {
+                    inOrder.add(block);
+                }
+            }
+        }
+
+        out.writeInt(inOrder.size());
+        for (FrameBlock block : inOrder) {
+            out.writeInt(block.getCount());
+            out.writeInt(block.getFramesInUse());
+            for (int i = 0; i < block.getCount(); i++) {
+                out.writeInt(block.getFrameNumbers()[i]);
+            }
+        }
+        return blocks;
+    }
+
+    private void writeSegment(DataOutputStream out, SharedSegment segment, Map<FrameBlock, Integer> blocks,
+                              Map<Page, Integer> writtenPages, List<Integer> swapSlots) throws IOException {
+        out.writeInt(segment.getId());
+        SnapshotFormat.writeString(out, segment.getName());
+        out.writeInt(segment.getSize());
+        out.writeBoolean(segment.isDestroyed());
+        out.writeInt(segment.getAttachments().size());
+        for (Attachment attachment : segment.getAttachments()) {
+            out.writeInt(attachment.getProcessId());
+            out.writeInt(attachment.getFirstPage());
+        }
+        writePages(out, segment.getPageTable(), segment.getId(), blocks, writtenPages, swapSlots);
+    }
+
+    /**
+     *
+     * This method writes the mapped pages of a page table. A page met
+     * before, on another table or at another virtual page, is written as
+     * the index of its record.
+     *
+     * @param ownerId the process or segment the table belongs to
+     *
+     */
+    private void writePages(DataOutputStream out, PageTable pageTable, int ownerId, Map<FrameBlock, Integer> blocks,
+                            Map<Page, Integer> writtenPages, List<Integer> swapSlots) throws IOException {
+        int mappedPages = 0;
+        for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+            mappedPages++;
+        }
+
+        out.writeInt(mappedPages);
+        for (int i = pageTable.nextMapped(0); i != -1; i = pageTable.nextMapped(i + 1)) {
+            Page page = pageTable.get(i);
+            out.writeInt(i);
+            Integer written = writtenPages.get(page);
+            if (written != null) {
+                out.writeInt(written);
+                continue;
+            }
+            writtenPages.put(page, writtenPages.size());
+            out.writeInt(SnapshotFormat.NEW_PAGE);
+
+            int owner = ownerId;
+            if (page.sharesFrame()) {
+                owner = slabAllocator.ownerOfSlot(page.getFrame().getFrameNumber(), page.getFrameOffset());
+            } else if (page.isResident()) {
+                owner = page.getProcessId();
+            }
+            out.writeInt(page.isResident() ? page.getFrame().getFrameNumber() : NO_FRAME);
+            out.writeInt(page.getFrameOffset());
+            out.writeBoolean(page.sharesFrame());
+            out.writeInt(page.getSwapSlot());
+            out.writeBoolean(page.isCopyOnWrite());
+            out.writeInt(owner);
+            out.writeInt(page.getBlock() == null ? SnapshotFormat.NO_BLOCK : blocks.get(page.getBlock()));
+            if (page.isSwappedOut()) {
+                swapSlots.add(page.getSwapSlot());
+            }
+        }
+    }
+
+    /**
+     *
+     * This method replaces the whole state of this manager with the one
+     * saved in a snapshot. The physical memory is mapped straight from
+     * the file, privately, so restoring costs one mapping however big the
+     * memory is, and the snapshot is never changed by what happens after.
+     * The processes are put back into the same frames, which are claimed
+     * from the allocator, and the swapped out pages into the same slots
+     * of a new swap area.
+     *
+     * The snapshot is restored into a manager of its own first, which
+     * checks all of it, so this one is left as it was when the snapshot
+     * is not valid. Only the pages of a swap area with a file are written
+     * once this one was replaced, since the file may be the one in use
+     * until then.
+     *
+     * @param file a snapshot written by checkpoint
+     *
+     */
+    public synchronized void restore(Path file) throws IOException, InvalidSnapshotException {
+        // a private mapping needs a channel that could write, even though nothing ever reaches the file
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer preambleBytes = ByteBuffer.allocate(SnapshotFormat.PREAMBLE_BYTES);
+            while (preambleBytes.hasRemaining() && channel.read(preambleBytes) >= 0) {
+                // keep reading until the preamble is complete or the file ends
+            }
+            preambleBytes.flip();
+            SnapshotFormat.Preamble preamble = SnapshotFormat.Preamble.decode(preambleBytes, channel.size());
+            ByteBuffer metadata = channel.map(
+                    FileChannel.MapMode.READ_ONLY, SnapshotFormat.PREAMBLE_BYTES, preamble.metadataLength
+            );
+
+            Configuration restored = SnapshotFormat.readConfiguration(metadata);
+            if (restored.numberOfFrames() * (long) restored.pageSize() != preamble.memoryLength) {
+                throw new InvalidSnapshotException("the memory image doesn't match the configuration");
+            }
+            MemoryManager staged = new MemoryManager(controller);
+            staged.configuration = restored;
+            staged.initializeMemories(PhysicalMemory.map(
+                    channel, preamble.memoryOffset, restored.pageSize(), restored.numberOfFrames()
+            ));
+            staged.initializeProcessTable();
+
+            int[] swapSlots;
+            boolean valid = false;
+            try {
+                try {
+                    staged.restoreProcesses(metadata);
+                    swapSlots = staged.readSwapSlots(metadata, preamble);
+                } catch (BufferUnderflowException ex) {
+                    throw new InvalidSnapshotException("the metadata is truncated");
+                }
+                if (restored.isDemandPagingEnabled()) {
+                    staged.swapArea = staged.createSwapArea();
+                    if (restored.swapFilePath() == null) {
+                        // it may have no room for all of the pages, which is only known once they are compressed
+                        staged.loadSwapSlots(channel, preamble, swapSlots);
+                    }
+                }
+                valid = true;
+            } finally {
+                if (!valid) {
+                    staged.closeSwapArea();
+                    staged.closePhysicalMemory();
+                }
+            }
+
+            stopReclaimer();
+            closeSwapArea();
+            closePhysicalMemory();
+            adoptState(staged);
+            if (configuration.isDemandPagingEnabled() && configuration.swapFilePath() != null) {
+                loadSwapSlots(channel, preamble, swapSlots);
+            }
+            startReclaimer();
+        }
+    }
+
+    /**
+     *
+     * This method takes over the state a snapshot was restored into by
+     * another manager, which is dropped afterwards. Neither of them has
+     * a reclaimer running, and the metrics of this one are kept.
+     *
+     */
+    private void adoptState(MemoryManager staged) {
+        configuration = staged.configuration;
+        physicalMemory = staged.physicalMemory;
+        frameTable = staged.frameTable;
+        changedFrames = staged.changedFrames;
+        freeFrames = staged.freeFrames;
+        slabAllocator = staged.slabAllocator;
+        runningProcesses = staged.runningProcesses;
+        maxNumberOfProcesses = staged.maxNumberOfProcesses;
+        lastProcessId = staged.lastProcessId;
+        residentPages = staged.residentPages;
+        swapArea = staged.swapArea;
+        replacementPolicy = staged.replacementPolicy;
+        tlb = staged.tlb;
+        invertedPageTable = staged.invertedPageTable;
+        sharedSegments = staged.sharedSegments;
+        segmentsById = staged.segmentsById;
+        lastSegmentId = staged.lastSegmentId;
+        committedPages = staged.committedPages;
+        pageFaults = staged.pageFaults;
+        evictions = staged.evictions;
+        forks = staged.forks;
+        copyOnWriteFaults = staged.copyOnWriteFaults;
+        samePageIndex = staged.samePageIndex;
+        mergeCursor = staged.mergeCursor;
+        referencesUntilMerge = staged.referencesUntilMerge;
+        mergePasses = staged.mergePasses;
+        mergeScannedFrames = staged.mergeScannedFrames;
+        mergedPages = staged.mergedPages;
+        mergeReclaimedFrames = staged.mergeReclaimedFrames;
+        fastPathAllocations = staged.fastPathAllocations;
+        directReclaimAllocations = staged.directReclaimAllocations;
+        backgroundReclaimBatches = staged.backgroundReclaimBatches;
+        backgroundReclaimedFrames = staged.backgroundReclaimedFrames;
+    }
+
+    private void restoreProcesses(ByteBuffer in) throws InvalidSnapshotException {
+        lastProcessId = in.getInt();
+        pageFaults = in.getLong();
+        evictions = in.getLong();
+        FrameBlock[] blocks = restoreBlocks(in);
+        List<Page> restoredPages = new ArrayList<>();
+        List<Integer> firstMappers = new ArrayList<>();
+
+        int numberOfProcesses = in.getInt();
+        for (int p = 0; p < numberOfProcesses; p++) {
+            int processId = in.getInt();
+            int processSize = in.getInt();
+            if (processId < 0 || processSize <= 0 || runningProcesses.contains(processId)) {
+                throw new InvalidSnapshotException("process " + processId + " is not valid");
+            }
+
+            int numberOfPages = calculateProcessAllocationInfo(processSize).getNumberOfPagesForProcess();
+            Process process = new Process(processId, processSize, createPageTable(processId, numberOfPages));
+            restorePages(in, process.getPageTable(), processSize, processId, false,
+                    blocks, restoredPages, firstMappers);
+            committedPages += numberOfPages;
+            runningProcesses.put(process);
+        }
+
+        lastSegmentId = in.getInt();
+        int numberOfSegments = in.getInt();
+        for (int s = 0; s < numberOfSegments; s++) {
+            restoreSegment(in, blocks, restoredPages, firstMappers);
+        }
+
+        if (replacementPolicy != null) {
+            for (int frame = 0; frame < residentPages.length; frame++) {
+                if (residentPages[frame] != null) {
+                    replacementPolicy.pageLoaded(frame);
+                }
+            }
+        }
+    }
+
+    private void restoreSegment(ByteBuffer in, FrameBlock[] blocks, List<Page> restoredPages,
+                                List<Integer> firstMappers) throws InvalidSnapshotException {
+        int segmentId = in.getInt();
+        String name = SnapshotFormat.readString(in);
+        int size = in.getInt();
+        boolean destroyed = in.get() != 0;
+        if (name == null || size <= 0 || segmentId <= 0 || segmentId > lastSegmentId
+                || segmentsById.containsKey(segmentId) || (!destroyed && sharedSegments.containsKey(name))) {
+            throw new InvalidSnapshotException("shared segment " + name + " is not valid");
+        }
+
+        int numberOfPages = calculateProcessAllocationInfo(size).getNumberOfPagesForProcess();
+        SharedSegment segment = new SharedSegment(segmentId, name, size, numberOfPages);
+        int numberOfAttachments = in.getInt();
+        for (int a = 0; a < numberOfAttachments; a++) {
+            Process process = runningProcesses.get(in.getInt());
+            int firstPage = in.getInt();
+            if (process == null || process.attachmentOf(name) != null || firstPage < process.getPageTable().numberOfPages()) {
+                throw new InvalidSnapshotException("an attachment of shared segment " + name + " is not valid");
+            }
+            Attachment attachment = new Attachment(process.getId(), segment, firstPage);
+            process.attach(attachment);
+            segment.attach(attachment);
+        }
+        if (destroyed) {
+            segment.markDestroyed();
+        }
+
+        restorePages(in, segment.getPageTable(), size, segmentId, true, blocks, restoredPages, firstMappers);
+        committedPages += numberOfPages;
+        segmentsById.put(segmentId, segment);
+        if (!destroyed) {
+            sharedSegments.put(name, segment);
+        }
+    }
+
+    /**
+     *
+     * This method puts the pages of a process, or of a shared segment,
+     * back into their frames, slab objects and swap slots.
+     *
+     * @param pageTable where the pages are mapped
+     * @param size the size of the process or segment, in bytes
+     * @param mapperId the process or segment the table belongs to
+     * @param segment whether the table is a shared segment's
+     *
+     */
+    private void restorePages(ByteBuffer in, PageTable pageTable, int size, int mapperId, boolean segment,
+                              FrameBlock[] blocks, List<Page> restoredPages, List<Integer> firstMappers)
+            throws InvalidSnapshotException {
+        int pageSize = configuration.pageSize();
+        boolean demandPaging = configuration.isDemandPagingEnabled();
+        int mappedPages = in.getInt();
+        for (int i = 0; i < mappedPages; i++) {
+            int virtualPageNumber = in.getInt();
+            int written = in.getInt();
+            if (virtualPageNumber < 0 || virtualPageNumber >= pageTable.numberOfPages()
+                    || written < SnapshotFormat.NEW_PAGE || written >= restoredPages.size()
+                    || (segment && written != SnapshotFormat.NEW_PAGE)) {
+                throw new InvalidSnapshotException("a page of " + mapperId + " is not valid");
+            }
+            if (written != SnapshotFormat.NEW_PAGE) {
+                Page page = restoredPages.get(written);
+                if (page.getUsedSlots() != Math.min(pageSize, size - virtualPageNumber * pageSize)) {
+                    throw new InvalidSnapshotException("a shared page of process " + mapperId + " is not valid");
+                }
+                page.share(firstMappers.get(written), mapperId, virtualPageNumber);
+                pageTable.put(virtualPageNumber, page);
+                continue;
+            }
+
+            int frameNumber = in.getInt();
+            int frameOffset = in.getInt();
+            boolean sharesFrame = in.get() != 0;
+            int swapSlot = in.getInt();
+            boolean copyOnWrite = in.get() != 0;
+            int owner = in.getInt();
+            int blockIndex = in.getInt();
+            if (frameNumber < NO_FRAME || frameNumber >= physicalMemory.numberOfFrames()
+                    || swapSlot < Page.NO_SWAP_SLOT
+                    || swapSlot >= numberOfSwapSlots()
+                    || blockIndex < SnapshotFormat.NO_BLOCK || blockIndex >= blocks.length
+                    || (!demandPaging && !sharesFrame && frameNumber != NO_FRAME
+                        && blockIndex == SnapshotFormat.NO_BLOCK)
+                    || (segment && sharesFrame)) {
+                throw new InvalidSnapshotException("a page of " + mapperId + " is not valid");
+            }
+
+            Page page = createPage(pageTable, size, virtualPageNumber);
+            if (sharesFrame) {
+                long address = (long) frameNumber * pageSize + frameOffset;
+                if (slabAllocator == null || !slabAllocator.claim(address, size, owner)) {
+                    throw new InvalidSnapshotException("the slab object of process " + mapperId + " is taken");
+                }
+                page.occupySlabObject(frameAt(frameNumber), frameOffset);
+            } else if (frameNumber != NO_FRAME) {
+                if (demandPaging) {
+                    frameScratch[0] = frameNumber;
+                    if (!freeFrames.claim(frameScratch, 1)) {
+                        throw new InvalidSnapshotException("frame " + frameNumber + " is used twice");
+                    }
+                }
+                placePageInFrame(page, frameNumber, owner);
+                if (segment) {
+                    frameTable.setFlag(frameNumber, FrameTable.FLAG_SHARED);
+                }
+            }
+            if (blockIndex != SnapshotFormat.NO_BLOCK) {
+                page.setBlock(blocks[blockIndex]);
+            }
+            page.setSwapSlot(swapSlot);
+            page.setCopyOnWrite(copyOnWrite);
+            restoredPages.add(page);
+            firstMappers.add(mapperId);
+        }
+    }
+
+    /**
+     *
+     * This method claims the blocks of frames that were allocated
+     * together, in the order they were written.
+     *
+     */
+    private FrameBlock[] restoreBlocks(ByteBuffer in) throws InvalidSnapshotException {
+        int numberOfBlocks = in.getInt();
+        if (numberOfBlocks < 0 || numberOfBlocks > physicalMemory.numberOfFrames()
+                || (numberOfBlocks > 0 && configuration.isDemandPagingEnabled())) {
+            throw new InvalidSnapshotException("the blocks of frames are not valid");
+        }
+        FrameBlock[] blocks = new FrameBlock[numberOfBlocks];
+        for (int b = 0; b < numberOfBlocks; b++) {
+            int count = in.getInt();
+            int framesInUse = in.getInt();
+            if (count <= 0 || count > physicalMemory.numberOfFrames() || framesInUse <= 0 || framesInUse > count) {
+                throw new InvalidSnapshotException("block " + b + " of frames is not valid");
+            }
+            int[] frameNumbers = new int[count];
+            for (int i = 0; i < count; i++) {
+                frameNumbers[i] = in.getInt();
+                if (frameNumbers[i] < 0 || frameNumbers[i] >= physicalMemory.numberOfFrames()) {
+                    throw new InvalidSnapshotException("block " + b + " of frames is not valid");
+                }
+            }
+            if (!freeFrames.claim(frameNumbers, count)) {
+                throw new InvalidSnapshotException("the frames of block " + b + " are taken");
+            }
+            blocks[b] = new FrameBlock(frameNumbers, count, framesInUse);
+        }
+        return blocks;
+    }
+
+    /**
+     *
+     * This method reads which slots the swapped out pages are in,
+     * checking that each of them is a slot of the swap area, taken once.
+     *
+     * @return the slots, in the order their contents follow the memory image
+     *
+     */
+    private int[] readSwapSlots(ByteBuffer in, SnapshotFormat.Preamble preamble) throws InvalidSnapshotException {
+        int numberOfSlots = in.getInt();
+        if ((long) numberOfSlots * configuration.pageSize() != preamble.swapLength) {
+            throw new InvalidSnapshotException("the swap image doesn't match its slots");
+        }
+
+        FreeFrameBitmap takenSlots = new FreeFrameBitmap(numberOfSwapSlots());
+        int[] slots = new int[numberOfSlots];
+        for (int i = 0; i < numberOfSlots; i++) {
+            slots[i] = in.getInt();
+            frameScratch[0] = slots[i];
+            if (!takenSlots.claim(frameScratch, 1)) {
+                throw new InvalidSnapshotException("swap slot " + slots[i] + " is not valid");
+            }
+        }
+        return slots;
+    }
+
+    /**
+     *
+     * This method copies the swapped out pages of a snapshot into
+     * the slots of the swap area they were read to be in.
+     *
+     */
+    private void loadSwapSlots(FileChannel channel, SnapshotFormat.Preamble preamble, int[] slots)
+            throws IOException, InvalidSnapshotException {
+        int pageSize = configuration.pageSize();
+        ByteBuffer slotContents = ByteBuffer.allocateDirect(pageSize);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            swapArea.claimSlot(slot);
+            slotContents.clear();
+            long position = preamble.swapOffset + (long) i * pageSize;
+            while (slotContents.hasRemaining()) {
+                int read = channel.read(slotContents, position);
+                if (read < 0) {
+                    throw new InvalidSnapshotException("the swap image is truncated");
+                }
+                position += read;
+            }
+            slotContents.flip();
+            if (!swapArea.write(slot, slotContents)) {
+                throw new InvalidSnapshotException("the swap area has no room for slot " + slot);
+            }
+        }
+    }
+
+    /**
+     * @return how many pages can be committed with demand paging:
+     * one for every frame and one for every swap slot
+     */
+    private long pagingCapacity() {
+        return (long) physicalMemory.numberOfFrames() + swapArea.numberOfSlots();
+    }
+
+    /**
+     * A Frame keeps nothing of its own, so one is created whenever a
+     * page is placed instead of one for every frame up front, which
+     * keeps setting up a huge memory cheap.
+     */
+    private Frame frameAt(int frameNumber) {
+        return new Frame(physicalMemory, frameTable, frameNumber);
+    }
+
+    private ProcessAllocationInfo calculateProcessAllocationInfo(int processSize) {
+        return ProcessAllocationInfo.calculate(processSize, configuration.pageSize());
+    }
+
+    /**
+     *
+     * This method clears all buffer from
+     * the StringBuilder object used to compose
+     * memory displays and etc.
+     *
+     */
+    private void clearStringBuilder() {
+        builder.setLength(0);
     }
 
     @Deprecated()
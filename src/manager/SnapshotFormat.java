@@ -0,0 +1,196 @@
+package manager;
+
+import data.memory.AllocationStrategy;
+import data.process.PageTableType;
+import error.InvalidSnapshotException;
+import misc.Configuration;
+import misc.MemoryBacking;
+import paging.ReplacementPolicyType;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The layout of the snapshot files written by {@link MemoryManager#checkpoint}.
+ *
+ * <pre>
+ * preamble   magic, version, and the length or offset of every other section
+ * metadata   the configuration, the counters, the blocks of frames allocated
+ *            together, every process and its pages, every shared segment with
+ *            its attachments and pages, and the swap slots in use
+ * padding    up to a multiple of IMAGE_ALIGNMENT
+ * memory     the physical memory, byte for byte
+ * swap       the contents of the swap slots in use, in metadata order
+ * </pre>
+ *
+ * Everything but the two images is big-endian, as written by a
+ * DataOutputStream. The memory image is aligned so it can be mapped
+ * on its own, straight into a restored manager.
+ *
+ * A page shared by several processes is written in full the first time
+ * it is met, and as the index of that first record every other time.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4F534D4D;
+    static final int VERSION = 4;
+    static final int PREAMBLE_BYTES = 2 * Integer.BYTES + 5 * Long.BYTES;
+    static final int IMAGE_ALIGNMENT = 4096;
+
+    /**
+     * What is written instead of the index of an earlier page record
+     * when a page is met for the first time.
+     */
+    static final int NEW_PAGE = -1;
+    static final int NO_BLOCK = -1;
+
+    private static final int NO_STRING = -1;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * The sections of a snapshot, as the preamble describes them.
+     */
+    static final class Preamble {
+        final long metadataLength;
+        final long memoryOffset;
+        final long memoryLength;
+        final long swapOffset;
+        final long swapLength;
+
+        Preamble(long metadataLength, long memoryOffset, long memoryLength, long swapOffset, long swapLength) {
+            this.metadataLength = metadataLength;
+            this.memoryOffset = memoryOffset;
+            this.memoryLength = memoryLength;
+            this.swapOffset = swapOffset;
+            this.swapLength = swapLength;
+        }
+
+        /**
+         * This method lays the sections out after metadata of the given length.
+         */
+        static Preamble layOut(long metadataLength, long memoryLength, long swapLength) {
+            long memoryOffset = alignUp(PREAMBLE_BYTES + metadataLength);
+            return new Preamble(metadataLength, memoryOffset, memoryLength, memoryOffset + memoryLength, swapLength);
+        }
+
+        ByteBuffer encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(PREAMBLE_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putLong(metadataLength).putLong(memoryOffset).putLong(memoryLength)
+                    .putLong(swapOffset).putLong(swapLength);
+            buffer.flip();
+            return buffer;
+        }
+
+        static Preamble decode(ByteBuffer buffer, long fileSize) throws InvalidSnapshotException {
+            if (buffer.remaining() < PREAMBLE_BYTES || buffer.getInt() != MAGIC) {
+                throw new InvalidSnapshotException("not a memory snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new InvalidSnapshotException("version " + version + " is not supported");
+            }
+            Preamble preamble = new Preamble(
+                    buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong()
+            );
+            if (preamble.metadataLength < 0 || preamble.metadataLength > Integer.MAX_VALUE
+                    || preamble.memoryOffset < PREAMBLE_BYTES + preamble.metadataLength
+                    || preamble.memoryLength < 0 || preamble.swapLength < 0
+                    || preamble.swapOffset != preamble.memoryOffset + preamble.memoryLength
+                    || preamble.swapOffset + preamble.swapLength != fileSize) {
+                throw new InvalidSnapshotException("the sections don't match the size of the file");
+            }
+            return preamble;
+        }
+    }
+
+    static long alignUp(long position) {
+        return (position + IMAGE_ALIGNMENT - 1) / IMAGE_ALIGNMENT * IMAGE_ALIGNMENT;
+    }
+
+    static void writeConfiguration(DataOutputStream out, Configuration configuration) throws IOException {
+        out.writeLong(configuration.memorySize());
+        out.writeInt(configuration.pageSize());
+        out.writeInt(configuration.maxProcessSize());
+        out.writeByte(configuration.memoryBacking().ordinal());
+        writeString(out, configuration.backingFilePath());
+        out.writeLong(configuration.swapSize());
+        writeString(out, configuration.swapFilePath());
+        out.writeLong(configuration.compressedSwapArenaSize());
+        out.writeByte(configuration.replacementPolicy().ordinal());
+        out.writeInt(configuration.tlbEntries());
+        out.writeInt(configuration.tlbAssociativity());
+        out.writeBoolean(configuration.isTlbFlushedOnContextSwitch());
+        out.writeByte(configuration.pageTableType().ordinal());
+        out.writeByte(configuration.allocationStrategy().ordinal());
+    }
+
+    static Configuration readConfiguration(ByteBuffer in) throws InvalidSnapshotException {
+        try {
+            long memorySize = in.getLong();
+            int pageSize = in.getInt();
+            int maxProcessSize = in.getInt();
+            MemoryBacking backing = MemoryBacking.values()[in.get()];
+            String backingFilePath = readString(in);
+            long swapSize = in.getLong();
+            String swapFilePath = readString(in);
+            long compressedSwapArenaSize = in.getLong();
+            ReplacementPolicyType policy = ReplacementPolicyType.values()[in.get()];
+            int tlbEntries = in.getInt();
+            int tlbAssociativity = in.getInt();
+            boolean tlbFlushed = in.get() != 0;
+            PageTableType pageTableType = PageTableType.values()[in.get()];
+            AllocationStrategy allocationStrategy = AllocationStrategy.values()[in.get()];
+
+            if (pageSize <= 0 || memorySize <= 0 || maxProcessSize <= 0) {
+                throw new InvalidSnapshotException("the memory sizes are not valid");
+            }
+            Configuration configuration = new Configuration(
+                    memorySize, pageSize, maxProcessSize, backing, backingFilePath
+            ).withPageTable(pageTableType).withAllocationStrategy(allocationStrategy);
+            if (compressedSwapArenaSize > 0) {
+                configuration = configuration.withCompressedSwap(
+                        swapSize, compressedSwapArenaSize, swapFilePath, policy
+                );
+            } else if (swapFilePath != null) {
+                configuration = configuration.withSwap(swapSize, swapFilePath, policy);
+            }
+            if (tlbEntries > 0) {
+                configuration = configuration.withTlb(tlbEntries, tlbAssociativity, tlbFlushed);
+            }
+            return configuration;
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            throw new InvalidSnapshotException("unknown configuration option");
+        } catch (BufferUnderflowException ex) {
+            throw new InvalidSnapshotException("the configuration is truncated");
+        }
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) throws InvalidSnapshotException {
+        int length = in.getInt();
+        if (length == NO_STRING) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new InvalidSnapshotException("a name or path is truncated");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,435 @@
+package manager;
+
+import data.memory.FrameTable;
+import data.memory.Page;
+import data.memory.SlabAllocator;
+import data.process.Attachment;
+import data.process.PageTable;
+import data.process.Process;
+import misc.ViewOptions;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Renders the memory and page table views straight into a Writer,
+ * line by line, so nothing bigger than a line is ever built in memory.
+ *
+ * Lines are counted as they are rendered, whether or not they are
+ * written, so the page of the output asked for by the options can be
+ * cut out of them. Rendering stops as soon as that page is complete,
+ * and frames or pages that fall wholly before it are counted without
+ * being rendered.
+ *
+ * The frames of shared segments are shown as owned by "s" and the id
+ * of the segment, so they can't be mistaken for a process's.
+ *
+ * A memory view may show only some frames, the ones that changed
+ * since an epoch, in which case it starts with a line telling which
+ * epochs they changed in, which is not counted.
+ */
+final class ViewRenderer {
+
+    private static final String MEMORY_SEPARATOR = "\t\t\t----";
+    private static final String PAGE_TABLE_SEPARATOR = "\t\t\t\t\t-----";
+
+    private static final int NOT_LOADED = 0;
+    private static final int RESIDENT = 1;
+    private static final int SWAPPED_OUT = 2;
+    private static final int IN_SLAB = 3;
+
+    private final Writer out;
+    private final ViewOptions options;
+    private final int pageSize;
+    private long lines;
+
+    /*
+     * The run of the compact views that is being extended: the
+     * addresses, frames or pages it covers, and what they have
+     * in common.
+     */
+    private long runFirst;
+    private long runEnd;
+    private int runKind;
+    private long runFirstValue;
+    private long runNextValue;
+    private boolean runPending;
+
+    ViewRenderer(Writer out, ViewOptions options, int pageSize) {
+        this.out = out;
+        this.options = options;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     *
+     * This method renders the owner of every slot of the memory, or
+     * the runs of slots with the same owner in the compact view.
+     *
+     * @param frameTable who owns each frame
+     * @param slabAllocator who owns each object of the slab frames,
+     * or null if there are none
+     *
+     */
+    void renderMemory(FrameTable frameTable, SlabAllocator slabAllocator) throws IOException {
+        renderFrames(frameTable, slabAllocator, null);
+    }
+
+    /**
+     *
+     * This method renders only the frames that changed since an epoch,
+     * the same way renderMemory renders every frame.
+     *
+     * @param frames the frames that changed, in ascending order
+     * @param since the first epoch whose changes are shown
+     * @param next the epoch to ask for to see what changes after this view
+     *
+     */
+    void renderMemoryChanges(FrameTable frameTable, SlabAllocator slabAllocator,
+                             int[] frames, long since, long next) throws IOException {
+        out.write("Frames changed since epoch ");
+        out.write(Long.toString(since));
+        out.write(": ");
+        out.write(Integer.toString(frames.length));
+        out.write(", next epoch ");
+        out.write(Long.toString(next));
+        out.write('\n');
+        renderFrames(frameTable, slabAllocator, frames);
+    }
+
+    /**
+     * @param frames the frames shown, in ascending order,
+     * or null to show every frame in the range
+     */
+    private void renderFrames(FrameTable frameTable, SlabAllocator slabAllocator, int[] frames) throws IOException {
+        long end = options.to(frameTable.numberOfFrames());
+        int first = (int) options.from();
+        int last = (int) end;
+        if (frames != null) {
+            first = indexOfFirstFrameFrom(frames, first);
+            last = indexOfFirstFrameFrom(frames, last);
+        }
+        if (options.isCompact()) {
+            renderCompactMemory(frameTable, slabAllocator, frames, first, last);
+        } else {
+            renderFullMemory(frameTable, slabAllocator, frames, first, last);
+        }
+        out.write(MEMORY_SEPARATOR);
+    }
+
+    private static int indexOfFirstFrameFrom(int[] frames, int frame) {
+        int index = Arrays.binarySearch(frames, frame);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    private void renderFullMemory(FrameTable frameTable, SlabAllocator slabAllocator,
+                                  int[] frames, int first, int last) throws IOException {
+        boolean wroteFrame = false;
+        for (int i = first; i < last && !isComplete(); i++) {
+            int frame = frames == null ? i : frames[i];
+            if (lines + pageSize <= options.skippedLines()) {
+                lines += pageSize;
+                continue;
+            }
+
+            boolean wroteSlot = false;
+            for (int slotIndex = 0; slotIndex < pageSize && !isComplete(); slotIndex++) {
+                if (!nextLine()) {
+                    continue;
+                }
+                if (wroteFrame && !wroteSlot) {
+                    out.write('\n');
+                }
+                wroteSlot = true;
+                out.write(MEMORY_SEPARATOR);
+                out.write("\nPage ");
+                out.write(Integer.toString(frame));
+                out.write(": \t|");
+                writeOwner(frameTable, frame, ownerOfSlot(frameTable, slabAllocator, frame, slotIndex));
+                out.write("|\n");
+            }
+            wroteFrame |= wroteSlot;
+        }
+    }
+
+    private void renderCompactMemory(FrameTable frameTable, SlabAllocator slabAllocator,
+                                     int[] frames, int first, int last) throws IOException {
+        for (int i = first; i < last && !isComplete(); i++) {
+            int frame = frames == null ? i : frames[i];
+            long base = (long) frame * pageSize;
+            if (frameTable.hasFlag(frame, FrameTable.FLAG_SLAB)) {
+                for (int slotIndex = 0; slotIndex < pageSize; slotIndex++) {
+                    extendOwnerRun(base + slotIndex, base + slotIndex + 1,
+                            slabAllocator.ownerOfSlot(frame, slotIndex));
+                }
+            } else if (!frameTable.isInUse(frame)) {
+                extendOwnerRun(base, base + pageSize, FrameTable.NO_OWNER);
+            } else {
+                int usedBytes = frameTable.usedBytesOf(frame);
+                int owner = frameTable.ownerOf(frame);
+                // segment ids are kept apart from process ids below NO_OWNER
+                extendOwnerRun(base, base + usedBytes, frameTable.hasFlag(frame, FrameTable.FLAG_SHARED)
+                        ? FrameTable.NO_OWNER - 1 - owner : owner);
+                if (usedBytes < pageSize) {
+                    extendOwnerRun(base + usedBytes, base + pageSize, FrameTable.NO_OWNER);
+                }
+            }
+        }
+        if (runPending && !isComplete()) {
+            writeOwnerRun();
+        }
+    }
+
+    private void extendOwnerRun(long first, long end, int owner) throws IOException {
+        if (first == end) {
+            return;
+        }
+        if (runPending && runKind == owner && runEnd == first) {
+            runEnd = end;
+            return;
+        }
+        if (runPending && !isComplete()) {
+            writeOwnerRun();
+        }
+        runFirst = first;
+        runEnd = end;
+        runKind = owner;
+        runPending = true;
+    }
+
+    private void writeOwnerRun() throws IOException {
+        runPending = false;
+        if (!nextLine()) {
+            return;
+        }
+        long firstFrame = runFirst / pageSize;
+        long lastFrame = (runEnd - 1) / pageSize;
+
+        out.write(MEMORY_SEPARATOR);
+        out.write("\nAddresses ");
+        out.write(Long.toString(runFirst));
+        out.write('-');
+        out.write(Long.toString(runEnd - 1));
+        out.write(firstFrame == lastFrame ? " (frame " : " (frames ");
+        out.write(Long.toString(firstFrame));
+        if (firstFrame != lastFrame) {
+            out.write('-');
+            out.write(Long.toString(lastFrame));
+        }
+        out.write(") \t|");
+        if (runKind < FrameTable.NO_OWNER) {
+            out.write('s');
+            out.write(Integer.toString(FrameTable.NO_OWNER - 1 - runKind));
+        } else {
+            out.write(Integer.toString(runKind));
+        }
+        out.write("| ");
+        out.write(Long.toString(runEnd - runFirst));
+        out.write(" bytes\n");
+    }
+
+    private void writeOwner(FrameTable frameTable, int frame, int owner) throws IOException {
+        if (owner != FrameTable.NO_OWNER && frameTable.hasFlag(frame, FrameTable.FLAG_SHARED)) {
+            out.write('s');
+        }
+        out.write(Integer.toString(owner));
+    }
+
+    private static int ownerOfSlot(FrameTable frameTable, SlabAllocator slabAllocator, int frame, int slotIndex) {
+        if (frameTable.hasFlag(frame, FrameTable.FLAG_SLAB)) {
+            return slabAllocator.ownerOfSlot(frame, slotIndex);
+        }
+        return frameTable.ownerOfSlot(frame, slotIndex);
+    }
+
+    /**
+     *
+     * This method renders the owner of every slot of a process's
+     * pages, or the runs of pages in the same state in the compact
+     * view: resident in consecutive frames, swapped out to consecutive
+     * slots, or not loaded yet. The shared segments attached to the
+     * process follow its own pages, one line each.
+     *
+     * @param process the process whose pages are shown
+     *
+     */
+    void renderPageTable(Process process) throws IOException {
+        PageTable pageTable = process.getPageTable();
+        long end = options.to(pageTable.numberOfPages());
+        if (options.isCompact()) {
+            renderCompactPageTable(pageTable, (int) end);
+        } else {
+            renderFullPageTable(process, pageTable, (int) end);
+        }
+        if (end == pageTable.numberOfPages()) {
+            renderAttachments(process);
+        }
+        out.write(PAGE_TABLE_SEPARATOR);
+    }
+
+    private void renderFullPageTable(Process process, PageTable pageTable, int end) throws IOException {
+        for (int i = (int) options.from(); i < end && !isComplete(); i++) {
+            Page currentPage = pageTable.get(i);
+            int firstSlot = i * pageSize;
+
+            if (currentPage == null || !currentPage.isResident()) {
+                if (!nextLine()) {
+                    continue;
+                }
+                out.write(PAGE_TABLE_SEPARATOR);
+                out.write("\nSlot numbers: ");
+                out.write(firstSlot + "-" + (firstSlot + pageSize - 1));
+                out.write("\t| ");
+                out.write(currentPage != null && currentPage.isSwappedOut()
+                        ? "swapped out to slot " + currentPage.getSwapSlot()
+                        : "not loaded yet");
+                out.write(" |\n");
+                continue;
+            }
+
+            if (lines + pageSize <= options.skippedLines()) {
+                lines += pageSize;
+                continue;
+            }
+            for (int slotIndex = 0; slotIndex < pageSize && !isComplete(); slotIndex++) {
+                if (!nextLine()) {
+                    continue;
+                }
+                out.write(PAGE_TABLE_SEPARATOR);
+                out.write("\nSlot number: ");
+                out.write(Integer.toString(firstSlot + slotIndex));
+                out.write("\t\t| ");
+                out.write(Integer.toString(currentPage.sharesFrame()
+                        ? (slotIndex < currentPage.getUsedSlots() ? process.getId() : FrameTable.NO_OWNER)
+                        : currentPage.getFrame().getOwnerOfSlot(slotIndex)));
+                out.write(" |\n");
+            }
+        }
+    }
+
+    private void renderCompactPageTable(PageTable pageTable, int end) throws IOException {
+        int i = (int) options.from();
+        while (i < end && !isComplete()) {
+            int mapped = pageTable.nextMapped(i);
+            int gapEnd = mapped == -1 ? end : Math.min(mapped, end);
+            if (gapEnd > i) {
+                extendPageRun(i, gapEnd, NOT_LOADED, 0);
+                i = gapEnd;
+                continue;
+            }
+
+            Page page = pageTable.get(i);
+            if (page.sharesFrame()) {
+                extendPageRun(i, i + 1, IN_SLAB, page.getPhysicalAddress());
+            } else if (page.isResident()) {
+                extendPageRun(i, i + 1, RESIDENT, page.getFrame().getFrameNumber());
+            } else if (page.isSwappedOut()) {
+                extendPageRun(i, i + 1, SWAPPED_OUT, page.getSwapSlot());
+            } else {
+                extendPageRun(i, i + 1, NOT_LOADED, 0);
+            }
+            i++;
+        }
+        if (runPending && !isComplete()) {
+            writePageRun();
+        }
+    }
+
+    private void renderAttachments(Process process) throws IOException {
+        for (Attachment attachment : process.getAttachments()) {
+            if (isComplete()) {
+                return;
+            }
+            if (!nextLine()) {
+                continue;
+            }
+            long firstSlot = (long) attachment.getFirstPage() * pageSize;
+            out.write(PAGE_TABLE_SEPARATOR);
+            out.write("\nSlot numbers: ");
+            out.write(firstSlot + "-" + (firstSlot + attachment.getSegment().getSize() - 1));
+            out.write("\t| shared segment ");
+            out.write(attachment.getSegment().getName());
+            out.write(" |\n");
+        }
+    }
+
+    private void extendPageRun(long first, long end, int kind, long value) throws IOException {
+        if (runPending && runKind == kind && runEnd == first
+                && (kind == NOT_LOADED || (kind != IN_SLAB && runNextValue == value))) {
+            runEnd = end;
+            runNextValue = value + 1;
+            return;
+        }
+        if (runPending && !isComplete()) {
+            writePageRun();
+        }
+        runFirst = first;
+        runEnd = end;
+        runKind = kind;
+        runFirstValue = value;
+        runNextValue = value + 1;
+        runPending = true;
+    }
+
+    private void writePageRun() throws IOException {
+        runPending = false;
+        if (!nextLine()) {
+            return;
+        }
+        out.write(PAGE_TABLE_SEPARATOR);
+        out.write(runEnd - runFirst == 1 ? "\nPage " : "\nPages ");
+        out.write(Long.toString(runFirst));
+        if (runEnd - runFirst > 1) {
+            out.write('-');
+            out.write(Long.toString(runEnd - 1));
+        }
+        out.write(" (slots ");
+        out.write(Long.toString(runFirst * pageSize));
+        out.write('-');
+        out.write(Long.toString(runEnd * pageSize - 1));
+        out.write(")\t| ");
+        switch (runKind) {
+            case RESIDENT:
+                out.write(runEnd - runFirst == 1 ? "frame " : "frames ");
+                writeValueRange();
+                break;
+            case SWAPPED_OUT:
+                out.write(runEnd - runFirst == 1 ? "swapped out to slot " : "swapped out to slots ");
+                writeValueRange();
+                break;
+            case IN_SLAB:
+                out.write("slab object at address ");
+                out.write(Long.toString(runFirstValue));
+                break;
+            default:
+                out.write("not loaded yet");
+                break;
+        }
+        out.write(" |\n");
+    }
+
+    private void writeValueRange() throws IOException {
+        out.write(Long.toString(runFirstValue));
+        if (runNextValue - runFirstValue > 1) {
+            out.write('-');
+            out.write(Long.toString(runNextValue - 1));
+        }
+    }
+
+    /**
+     * @return true if the line about to be rendered is on the page
+     * of the output that is shown; the line is counted either way
+     */
+    private boolean nextLine() {
+        return lines++ >= options.skippedLines();
+    }
+
+    /**
+     * @return true if every line of the page shown was written
+     */
+    private boolean isComplete() {
+        return options.maximumLines() != ViewOptions.UNLIMITED
+                && lines >= options.skippedLines() + options.maximumLines();
+    }
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a process that was given its memory.
+ * Its duration covers the whole of createProcess.
+ */
+@Name("manager.Allocation")
+@Label("Process Allocation")
+@Category({"Memory Manager", "Allocation"})
+@Description("A process was created and its pages were allocated")
+public class AllocationEvent extends jdk.jfr.Event {
+
+    @Label("Process Id")
+    public int processId;
+
+    @Label("Process Size")
+    @DataAmount
+    public int processSize;
+
+    @Label("Pages")
+    public int pages;
+
+    @Label("Internal Fragmentation")
+    @DataAmount
+    public int internalFragmentation;
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a process that could not be created.
+ */
+@Name("manager.AllocationFailure")
+@Label("Process Allocation Failure")
+@Category({"Memory Manager", "Allocation"})
+@Description("A process could not be created")
+public class AllocationFailureEvent extends jdk.jfr.Event {
+
+    @Label("Requested Process Id")
+    @Description("The id asked for, or -1 when the system was to pick one")
+    public int processId;
+
+    @Label("Process Size")
+    @DataAmount
+    public int processSize;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Free Frames")
+    public int freeFrames;
+}
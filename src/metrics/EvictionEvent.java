@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a page written out to swap
+ * to make room for a faulting one.
+ */
+@Name("manager.Eviction")
+@Label("Page Eviction")
+@Category({"Memory Manager", "Paging"})
+@Description("A page was evicted to swap")
+public class EvictionEvent extends jdk.jfr.Event {
+
+    @Label("Process Id")
+    public int processId;
+
+    @Label("Virtual Page Number")
+    public int virtualPageNumber;
+
+    @Label("Frame")
+    public int frameNumber;
+
+    @Label("Swap Slot")
+    public int swapSlot;
+}
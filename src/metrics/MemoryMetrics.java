@@ -0,0 +1,72 @@
+package metrics;
+
+/**
+ * Counters and latency histograms of a memory manager's allocations,
+ * frees and page faults. The manager records into it as it works; the gauges that
+ * describe the memory at a given moment, like the free frames or the
+ * fragmentation, are computed by the manager when asked for.
+ */
+public class MemoryMetrics {
+
+    private final LatencyHistogram allocationLatencies = new LatencyHistogram();
+    private final LatencyHistogram freeLatencies = new LatencyHistogram();
+    private final LatencyHistogram pageFaultLatencies = new LatencyHistogram();
+    private long allocationFailures;
+
+    public void recordAllocation(long nanos) {
+        allocationLatencies.record(nanos);
+    }
+
+    public void recordAllocationFailure() {
+        allocationFailures++;
+    }
+
+    public void recordFree(long nanos) {
+        freeLatencies.record(nanos);
+    }
+
+    public void recordPageFault(long nanos) {
+        pageFaultLatencies.record(nanos);
+    }
+
+    /**
+     * @return the latencies of the processes that were created
+     */
+    public LatencyHistogram allocationLatencies() {
+        return allocationLatencies;
+    }
+
+    /**
+     * @return the latencies of the processes that were terminated
+     */
+    public LatencyHistogram freeLatencies() {
+        return freeLatencies;
+    }
+
+    /**
+     * @return the latencies of the page faults, from the reference that
+     * faulted until its page was in a frame, evicting another if needed
+     */
+    public LatencyHistogram pageFaultLatencies() {
+        return pageFaultLatencies;
+    }
+
+    public long allocations() {
+        return allocationLatencies.count();
+    }
+
+    public long allocationFailures() {
+        return allocationFailures;
+    }
+
+    public long frees() {
+        return freeLatencies.count();
+    }
+
+    public void reset() {
+        allocationLatencies.reset();
+        freeLatencies.reset();
+        pageFaultLatencies.reset();
+        allocationFailures = 0;
+    }
+}
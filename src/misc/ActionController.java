@@ -1,9 +1,13 @@
 package misc;
 
 import data.process.ProcessCreationInfo;
+import error.InvalidSnapshotException;
 import manager.MemoryManager;
 
-public class ActionController {
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class ActionController implements OutputSink {
 
     private InterfaceManager interfaceManager;
     private MemoryManager memoryManager;
@@ -16,8 +20,9 @@ public class ActionController {
     public void handleUserEvent(UserEvent event) {
         switch (event) {
             case VIEW_MEMORY:
+                ViewOptions memoryViewOptions = interfaceManager.getMemoryViewOptions();
                 interfaceManager.print("Viewing physical memory...");
-                memoryManager.showMemory();
+                memoryManager.showMemory(memoryViewOptions);
                 break;
             case CREATE_PROCESS:
                 ProcessCreationInfo processInfo = interfaceManager.getInfoForProcessCreation();
@@ -32,15 +37,113 @@ public class ActionController {
                 break;
             case VIEW_PROCESS_MEMORY:
                 int processId = interfaceManager.getInfoForViewingProcessMemory();
-                memoryManager.showPageTableForProcess(processId);
+                ViewOptions pageTableViewOptions = interfaceManager.getViewOptions("page");
+                memoryManager.showPageTableForProcess(processId, pageTableViewOptions);
+                break;
+            case TERMINATE_PROCESS:
+                int processToTerminate = interfaceManager.getInfoForTerminatingProcess();
+
+                interfaceManager.print("Terminating process...");
+                try {
+                    memoryManager.terminateProcess(processToTerminate);
+                } catch (Exception ex) {
+                    interfaceManager.print(ex.getMessage());
+                }
+
+                break;
+            case ACCESS_MEMORY:
+                int[] accessInfo = interfaceManager.getInfoForAccessingMemory();
+                try {
+                    byte value = memoryManager.accessMemory(accessInfo[0], accessInfo[1]);
+                    interfaceManager.print("The byte at that address is " + value);
+                } catch (Exception ex) {
+                    interfaceManager.print(ex.getMessage());
+                }
+
+                break;
+            case WRITE_MEMORY:
+                int[] writeInfo = interfaceManager.getInfoForWritingMemory();
+                try {
+                    memoryManager.writeByte(writeInfo[0], writeInfo[1], (byte) writeInfo[2]);
+                    interfaceManager.print("Written!");
+                } catch (Exception ex) {
+                    interfaceManager.print(ex.getMessage());
+                }
+
+                break;
+            case FORK_PROCESS:
+                int processToFork = interfaceManager.getInfoForForkingProcess();
+
+                interfaceManager.print("Forking process...");
+                try {
+                    int childId = memoryManager.forkProcess(processToFork);
+                    interfaceManager.print("The child got id " + childId);
+                } catch (Exception ex) {
+                    interfaceManager.print(ex.getMessage());
+                }
+
+                break;
+            case MANAGE_SHARED_SEGMENT:
+                manageSharedSegment(interfaceManager.getSharedSegmentAction());
+                break;
+            case VIEW_METRICS:
+                memoryManager.showMetrics();
+                break;
+            case SAVE_SNAPSHOT:
+                String snapshotFile = interfaceManager.getInfoForSavingSnapshot();
+                try {
+                    memoryManager.checkpoint(Paths.get(snapshotFile));
+                    interfaceManager.print("Saved!");
+                } catch (IOException ex) {
+                    interfaceManager.print(ex.getMessage());
+                }
+
                 break;
         }
     }
 
-    public void storeConfiguration(Configuration configuration) {
+    private void manageSharedSegment(char action) {
+        try {
+            switch (action) {
+                case 'c':
+                    String name = interfaceManager.getSharedSegmentName();
+                    memoryManager.createSharedSegment(name, interfaceManager.getSharedSegmentSize());
+                    interfaceManager.print("Created!");
+                    break;
+                case 'a':
+                    int processToAttach = interfaceManager.getProcessForSharedSegment();
+                    int address = memoryManager.attachSharedSegment(
+                            processToAttach, interfaceManager.getSharedSegmentName()
+                    );
+                    interfaceManager.print("The segment starts at address " + address + " of the process");
+                    break;
+                case 'd':
+                    int processToDetach = interfaceManager.getProcessForSharedSegment();
+                    memoryManager.detachSharedSegment(processToDetach, interfaceManager.getSharedSegmentName());
+                    interfaceManager.print("Detached!");
+                    break;
+                case 'y':
+                    memoryManager.destroySharedSegment(interfaceManager.getSharedSegmentName());
+                    interfaceManager.print("Destroyed!");
+                    break;
+                default:
+                    interfaceManager.print("That's not one of the choices.");
+                    break;
+            }
+        } catch (Exception ex) {
+            interfaceManager.print(ex.getMessage());
+        }
+    }
+
+    public void storeConfiguration(Configuration configuration) throws IOException {
         memoryManager.storeConfiguration(configuration);
     }
 
+    public void restore(String snapshotFile) throws IOException, InvalidSnapshotException {
+        memoryManager.restore(Paths.get(snapshotFile));
+    }
+
+    @Override
     public void print(String something) {
         interfaceManager.print(something);
     }
@@ -1,17 +1,215 @@
 package misc;
 
+import data.memory.AllocationStrategy;
+import data.process.PageTableType;
+import paging.ReplacementPolicyType;
+
 public class Configuration {
-    private final int memorySize;
+    private final long memorySize;
     private final int pageSize;
     private final int maxProcessSize;
+    private final MemoryBacking memoryBacking;
+    private final String backingFilePath;
+
+    /*
+     * Optional features. They are only set on the copies
+     * made by the with* methods, so a configuration never
+     * changes once it has been handed out.
+     */
+    private long swapSize;
+    private String swapFilePath;
+    private long compressedSwapArenaSize;
+    private ReplacementPolicyType replacementPolicy;
+    private int tlbEntries;
+    private int tlbAssociativity;
+    private boolean tlbFlushedOnContextSwitch;
+    private PageTableType pageTableType;
+    private AllocationStrategy allocationStrategy;
+    private int mergeFramesPerPass;
+    private long mergePassBudgetNanos;
+    private int mergePassInterval;
+    private int reclaimLowWatermark;
+    private int reclaimHighWatermark;
+    private int reclaimBatchSize;
 
-    public Configuration(int memorySize, int pageSize, int maxProcessSize) {
+    public Configuration(long memorySize, int pageSize, int maxProcessSize) {
+        this(memorySize, pageSize, maxProcessSize, MemoryBacking.HEAP, null);
+    }
+
+    public Configuration(long memorySize, int pageSize, int maxProcessSize,
+                         MemoryBacking memoryBacking, String backingFilePath) {
         this.memorySize = memorySize;
         this.pageSize = pageSize;
         this.maxProcessSize = maxProcessSize;
+        this.memoryBacking = memoryBacking;
+        this.backingFilePath = backingFilePath;
+        this.replacementPolicy = ReplacementPolicyType.LRU;
+        this.pageTableType = PageTableType.DENSE;
+        this.allocationStrategy = AllocationStrategy.FIRST_FIT;
+    }
+
+    private Configuration copy() {
+        Configuration copy = new Configuration(memorySize, pageSize, maxProcessSize, memoryBacking, backingFilePath);
+        copy.swapSize = swapSize;
+        copy.swapFilePath = swapFilePath;
+        copy.compressedSwapArenaSize = compressedSwapArenaSize;
+        copy.replacementPolicy = replacementPolicy;
+        copy.tlbEntries = tlbEntries;
+        copy.tlbAssociativity = tlbAssociativity;
+        copy.tlbFlushedOnContextSwitch = tlbFlushedOnContextSwitch;
+        copy.pageTableType = pageTableType;
+        copy.allocationStrategy = allocationStrategy;
+        copy.mergeFramesPerPass = mergeFramesPerPass;
+        copy.mergePassBudgetNanos = mergePassBudgetNanos;
+        copy.mergePassInterval = mergePassInterval;
+        copy.reclaimLowWatermark = reclaimLowWatermark;
+        copy.reclaimHighWatermark = reclaimHighWatermark;
+        copy.reclaimBatchSize = reclaimBatchSize;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that
+     * enables demand paging over a file-backed swap area.
+     *
+     * @param swapSize the size of the swap area, in bytes
+     * @param swapFilePath the file holding the swap area
+     * @param replacementPolicy how victims are picked when memory is full
+     *
+     */
+    public Configuration withSwap(long swapSize, String swapFilePath, ReplacementPolicyType replacementPolicy) {
+        Configuration copy = copy();
+        copy.swapSize = swapSize;
+        copy.swapFilePath = swapFilePath;
+        copy.replacementPolicy = replacementPolicy;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that enables
+     * demand paging over a swap area kept in memory, compressed, and
+     * falling back on a file once its memory is full.
+     *
+     * @param swapSize the size of the swap area, in bytes of pages before
+     * they are compressed
+     * @param arenaSize how much memory the compressed pages may take, in bytes,
+     * at least a page
+     * @param fallbackFilePath the file holding the pages the memory has no
+     * room for, or null to fail the evictions that would need it
+     * @param replacementPolicy how victims are picked when memory is full
+     *
+     */
+    public Configuration withCompressedSwap(long swapSize, long arenaSize, String fallbackFilePath,
+                                            ReplacementPolicyType replacementPolicy) {
+        if (arenaSize < pageSize) {
+            throw new IllegalArgumentException("The compressed swap area must hold at least one page.");
+        }
+        Configuration copy = withSwap(swapSize, fallbackFilePath, replacementPolicy);
+        copy.compressedSwapArenaSize = arenaSize;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that puts
+     * a set-associative TLB in front of address translation.
+     *
+     * @param entries how many translations the TLB holds
+     * @param associativity how many entries each set has
+     * @param flushedOnContextSwitch whether the TLB is emptied every time
+     * a different process is translated, as on hardware without ASIDs
+     *
+     */
+    public Configuration withTlb(int entries, int associativity, boolean flushedOnContextSwitch) {
+        Configuration copy = copy();
+        copy.tlbEntries = entries;
+        copy.tlbAssociativity = associativity;
+        copy.tlbFlushedOnContextSwitch = flushedOnContextSwitch;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that
+     * stores the page tables of the processes in another structure.
+     *
+     * @param pageTableType the structure of the page tables
+     *
+     */
+    public Configuration withPageTable(PageTableType pageTableType) {
+        Configuration copy = copy();
+        copy.pageTableType = pageTableType;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that
+     * hands frames out with another allocation strategy.
+     *
+     * @param allocationStrategy how frames are handed out
+     *
+     */
+    public Configuration withAllocationStrategy(AllocationStrategy allocationStrategy) {
+        Configuration copy = copy();
+        copy.allocationStrategy = allocationStrategy;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that, every so
+     * many references, scans some frames for pages with the same
+     * contents and merges them into a single copy-on-write frame.
+     *
+     * @param framesPerPass how many frames each pass scans, at most
+     * @param passBudgetNanos how long each pass may take, after which it
+     * stops even if it scanned fewer frames, or 0 for no limit
+     * @param passInterval how many references are translated between passes
+     *
+     */
+    public Configuration withSamePageMerging(int framesPerPass, long passBudgetNanos, int passInterval) {
+        if (framesPerPass <= 0 || passBudgetNanos < 0 || passInterval <= 0) {
+            throw new IllegalArgumentException("The same-page merging rates must be positive.");
+        }
+        Configuration copy = copy();
+        copy.mergeFramesPerPass = framesPerPass;
+        copy.mergePassBudgetNanos = passBudgetNanos;
+        copy.mergePassInterval = passInterval;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of this configuration that, with
+     * demand paging, pages out in the background: a thread of its own
+     * wakes once fewer frames than the low watermark are free, and
+     * evicts pages until as many as the high watermark are, so faults
+     * rarely have to evict a page before they get a frame.
+     *
+     * @param lowWatermark how many frames must stay free not to wake the reclaimer
+     * @param highWatermark how many frames the reclaimer frees once woken,
+     * more than the low watermark
+     * @param batchSize how many pages it evicts each time it holds the
+     * manager, before letting the faulting thread back in
+     *
+     */
+    public Configuration withBackgroundReclaim(int lowWatermark, int highWatermark, int batchSize) {
+        if (lowWatermark <= 0 || highWatermark <= lowWatermark || batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The watermarks must be positive, the high one above the low one, and so must the batch size."
+            );
+        }
+        Configuration copy = copy();
+        copy.reclaimLowWatermark = lowWatermark;
+        copy.reclaimHighWatermark = highWatermark;
+        copy.reclaimBatchSize = batchSize;
+        return copy;
     }
 
-    public int memorySize() {
+    public long memorySize() {
         return memorySize;
     }
 
@@ -22,4 +220,120 @@ public class Configuration {
     public int maxProcessSize() {
         return maxProcessSize;
     }
+
+    public int numberOfFrames() {
+        return (int) (memorySize / pageSize);
+    }
+
+    public MemoryBacking memoryBacking() {
+        return memoryBacking;
+    }
+
+    /**
+     * @return the file backing the memory when it is {@link MemoryBacking#MAPPED},
+     * or null for the other backings
+     */
+    public String backingFilePath() {
+        return backingFilePath;
+    }
+
+    public long swapSize() {
+        return swapSize;
+    }
+
+    public int numberOfSwapSlots() {
+        return (int) (swapSize / pageSize);
+    }
+
+    /**
+     * @return the file holding the swap area, or, when the swap area is
+     * compressed, the pages it has no room for; null if there is none
+     */
+    public String swapFilePath() {
+        return swapFilePath;
+    }
+
+    /**
+     * @return how much memory compressed pages may take, in bytes,
+     * or 0 if the swap area is not compressed
+     */
+    public long compressedSwapArenaSize() {
+        return compressedSwapArenaSize;
+    }
+
+    public boolean isSwapCompressed() {
+        return compressedSwapArenaSize > 0;
+    }
+
+    public ReplacementPolicyType replacementPolicy() {
+        return replacementPolicy;
+    }
+
+    /**
+     * @return true if processes may have more pages than
+     * there are frames, paging the rest out to swap
+     */
+    public boolean isDemandPagingEnabled() {
+        return (swapFilePath != null || isSwapCompressed()) && numberOfSwapSlots() > 0;
+    }
+
+    public int tlbEntries() {
+        return tlbEntries;
+    }
+
+    public int tlbAssociativity() {
+        return tlbAssociativity;
+    }
+
+    public boolean isTlbFlushedOnContextSwitch() {
+        return tlbFlushedOnContextSwitch;
+    }
+
+    public boolean isTlbEnabled() {
+        return tlbEntries > 0;
+    }
+
+    public PageTableType pageTableType() {
+        return pageTableType;
+    }
+
+    public AllocationStrategy allocationStrategy() {
+        return allocationStrategy;
+    }
+
+    public int mergeFramesPerPass() {
+        return mergeFramesPerPass;
+    }
+
+    public long mergePassBudgetNanos() {
+        return mergePassBudgetNanos;
+    }
+
+    public int mergePassInterval() {
+        return mergePassInterval;
+    }
+
+    public boolean isSamePageMergingEnabled() {
+        return mergeFramesPerPass > 0;
+    }
+
+    public int reclaimLowWatermark() {
+        return reclaimLowWatermark;
+    }
+
+    public int reclaimHighWatermark() {
+        return reclaimHighWatermark;
+    }
+
+    public int reclaimBatchSize() {
+        return reclaimBatchSize;
+    }
+
+    /**
+     * @return true if pages are reclaimed in the background, which
+     * takes demand paging
+     */
+    public boolean isBackgroundReclaimEnabled() {
+        return reclaimBatchSize > 0 && isDemandPagingEnabled();
+    }
 }
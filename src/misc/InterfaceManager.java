@@ -1,8 +1,12 @@
 package misc;
 
+import data.memory.AllocationStrategy;
+import data.process.PageTableType;
 import data.process.ProcessCreationInfo;
 import error.InvalidCommandException;
+import paging.ReplacementPolicyType;
 
+import java.io.IOException;
 import java.util.Scanner;
 
 public class InterfaceManager {
@@ -21,8 +25,9 @@ public class InterfaceManager {
 
     private void run() {
         showWelcome();
-        createConfigurationSettings();
-        interactWithUser();
+        if (createConfigurationSettings()) {
+            interactWithUser();
+        }
     }
 
     private void interactWithUser() {
@@ -47,19 +52,73 @@ public class InterfaceManager {
         }
     }
 
-    private void createConfigurationSettings() {
-        print("Howdy! First, i'd like to know what are your desired specs for this run!");
+    private boolean createConfigurationSettings() {
+        print("Howdy! Would you like to pick up where a saved snapshot left off? (y/n)");
+        if (s.next().charAt(0) == 'y') {
+            print("Which file holds the snapshot?");
+            try {
+                controller.restore(s.next());
+            } catch (Exception ex) {
+                print("Could not restore the snapshot: " + ex.getMessage());
+                return false;
+            }
+            print("Welcome back! Everything is where you left it.");
+            return true;
+        }
+
+        print("Alright! First, i'd like to know what are your desired specs for this run!");
         print("First, tell me, what's the memory size for this execution?");
         print("(please, input a number that's a power of 2, ex.: 1024)");
-        int memorySize = s.nextInt();
+        long memorySize = s.nextLong();
         print("Great!");
         print("Now, what's the size of each page?");
         int pageSize = s.nextInt();
         print("I see... and now, what's the maximum size a process can be?");
         int maxProcessSize = s.nextInt();
+        print("Where should the memory live? (h)eap, (d)irect buffer or (m)apped file");
+        MemoryBacking memoryBacking = mapChoiceToMemoryBacking(s.next().charAt(0));
+        String backingFilePath = null;
+        if (memoryBacking == MemoryBacking.MAPPED) {
+            print("Which file should be mapped?");
+            backingFilePath = s.next();
+        }
+
+        Configuration configuration = new Configuration(
+                memorySize, pageSize, maxProcessSize, memoryBacking, backingFilePath
+        );
+
+        print("How big should the swap area be? (0 for no swap)");
+        long swapSize = s.nextLong();
+        if (swapSize > 0) {
+            print("Which file should hold the swap area?");
+            String swapFilePath = s.next();
+            print("And which pages should leave memory first? (f)ifo, (l)ru or (c)lock");
+            ReplacementPolicyType policy = mapChoiceToReplacementPolicy(s.next().charAt(0));
+            configuration = configuration.withSwap(swapSize, swapFilePath, policy);
+        }
+
+        print("How should frames be handed out? (f)irst fit, (b)uddy or (s)lab for small processes");
+        configuration = configuration.withAllocationStrategy(mapChoiceToAllocationStrategy(s.next().charAt(0)));
 
-        Configuration configuration = new Configuration(memorySize, pageSize, maxProcessSize);
-        controller.storeConfiguration(configuration);
+        print("How should page tables be kept? (d)ense, (t)wo-level, t(h)ree-level or (i)nverted");
+        configuration = configuration.withPageTable(mapChoiceToPageTableType(s.next().charAt(0)));
+
+        print("How many entries should the TLB have? (0 for no TLB)");
+        int tlbEntries = s.nextInt();
+        if (tlbEntries > 0) {
+            print("How many entries per set? (the number of sets must be a power of 2)");
+            int tlbAssociativity = s.nextInt();
+            print("Should it be flushed every time another process is accessed? (y/n)");
+            boolean flushedOnContextSwitch = s.next().charAt(0) == 'y';
+            configuration = configuration.withTlb(tlbEntries, tlbAssociativity, flushedOnContextSwitch);
+        }
+
+        try {
+            controller.storeConfiguration(configuration);
+        } catch (IOException | IllegalArgumentException ex) {
+            print("Could not set up the memory: " + ex.getMessage());
+            return false;
+        }
 
         print("Thank you! Now, enjoy the ride.");
 
@@ -69,6 +128,7 @@ public class InterfaceManager {
             print(ex.getMessage());
         }
         clean();
+        return true;
     }
 
     private void showActionsBoard() {
@@ -76,7 +136,14 @@ public class InterfaceManager {
         print("a) See all memory slots");
         print("b) Create a new process");
         print("c) See a page table for a process");
-        print("d) Quit");
+        print("d) Terminate a process");
+        print("e) Access a memory address");
+        print("f) Write to a memory address");
+        print("g) Fork a process");
+        print("h) Create, attach, detach or destroy a shared segment");
+        print("i) See memory metrics");
+        print("j) Save a snapshot of the memory");
+        print("k) Quit");
     }
 
     private void showWelcome() {
@@ -97,7 +164,14 @@ public class InterfaceManager {
         if (choice != 'a' &&
             choice != 'b' &&
             choice != 'c' &&
-            choice != 'd') {
+            choice != 'd' &&
+            choice != 'e' &&
+            choice != 'f' &&
+            choice != 'g' &&
+            choice != 'h' &&
+            choice != 'i' &&
+            choice != 'j' &&
+            choice != 'k') {
             throw new InvalidCommandException();
         }
 
@@ -117,12 +191,79 @@ public class InterfaceManager {
                 event = UserEvent.VIEW_PROCESS_MEMORY;
                 break;
             case 'd':
+                event = UserEvent.TERMINATE_PROCESS;
+                break;
+            case 'e':
+                event = UserEvent.ACCESS_MEMORY;
+                break;
+            case 'f':
+                event = UserEvent.WRITE_MEMORY;
+                break;
+            case 'g':
+                event = UserEvent.FORK_PROCESS;
+                break;
+            case 'h':
+                event = UserEvent.MANAGE_SHARED_SEGMENT;
+                break;
+            case 'i':
+                event = UserEvent.VIEW_METRICS;
+                break;
+            case 'j':
+                event = UserEvent.SAVE_SNAPSHOT;
+                break;
+            case 'k':
                 event = UserEvent.QUIT;
                 break;
         }
         return event;
     }
 
+    private MemoryBacking mapChoiceToMemoryBacking(char choice) {
+        switch (choice) {
+            case 'd':
+                return MemoryBacking.DIRECT;
+            case 'm':
+                return MemoryBacking.MAPPED;
+            default:
+                return MemoryBacking.HEAP;
+        }
+    }
+
+    private ReplacementPolicyType mapChoiceToReplacementPolicy(char choice) {
+        switch (choice) {
+            case 'f':
+                return ReplacementPolicyType.FIFO;
+            case 'c':
+                return ReplacementPolicyType.CLOCK;
+            default:
+                return ReplacementPolicyType.LRU;
+        }
+    }
+
+    private AllocationStrategy mapChoiceToAllocationStrategy(char choice) {
+        switch (choice) {
+            case 'b':
+                return AllocationStrategy.BUDDY;
+            case 's':
+                return AllocationStrategy.SLAB;
+            default:
+                return AllocationStrategy.FIRST_FIT;
+        }
+    }
+
+    private PageTableType mapChoiceToPageTableType(char choice) {
+        switch (choice) {
+            case 't':
+                return PageTableType.TWO_LEVEL;
+            case 'h':
+                return PageTableType.THREE_LEVEL;
+            case 'i':
+                return PageTableType.INVERTED;
+            default:
+                return PageTableType.DENSE;
+        }
+    }
+
     public ProcessCreationInfo getInfoForProcessCreation() {
         int processId = -1;
         int processSize;
@@ -151,6 +292,87 @@ public class InterfaceManager {
         return s.nextInt();
     }
 
+    public ViewOptions getMemoryViewOptions() {
+        ViewOptions options = getViewOptions("frame");
+        print("Only the frames that changed since the last view? (y/n)");
+        return s.next().charAt(0) == 'y' ? options.withChangesSinceLastView() : options;
+    }
+
+    public ViewOptions getViewOptions(String unit) {
+        print("Should runs of the same owner be collapsed into one line? (y/n)");
+        ViewOptions options = s.next().charAt(0) == 'y' ? ViewOptions.compact() : ViewOptions.full();
+        print("From which " + unit + " on? (0 for the first one)");
+        long from = s.nextLong();
+        print("Up to which " + unit + ", not included? (-1 for the last one)");
+        long to = s.nextLong();
+        try {
+            return options.withRange(from, to);
+        } catch (IllegalArgumentException ex) {
+            print(ex.getMessage() + " Showing all of them instead.");
+            return options;
+        }
+    }
+
+    public String getInfoForSavingSnapshot() {
+        print("Which file should the snapshot be saved to?");
+        return s.next();
+    }
+
+    public Integer getInfoForTerminatingProcess() {
+        print("Alright, let's bring a process down");
+        print("What's the id of the process?");
+        return s.nextInt();
+    }
+
+    public int[] getInfoForAccessingMemory() {
+        print("Let's touch some memory");
+        print("What's the id of the process?");
+        int processId = s.nextInt();
+        print("And which address of it?");
+        int virtualAddress = s.nextInt();
+        return new int[] {processId, virtualAddress};
+    }
+
+    public int[] getInfoForWritingMemory() {
+        print("Let's change some memory");
+        print("What's the id of the process?");
+        int processId = s.nextInt();
+        print("And which address of it?");
+        int virtualAddress = s.nextInt();
+        print("What should be written there? (a number from -128 to 255)");
+        int value = s.nextInt();
+        return new int[] {processId, virtualAddress, value};
+    }
+
+    /**
+     * @return what should be done: (c)reate, (a)ttach, (d)etach or destro(y)
+     */
+    public char getSharedSegmentAction() {
+        print("What should be done? (c)reate, (a)ttach, (d)etach or destro(y) a shared segment");
+        return s.next().charAt(0);
+    }
+
+    public Integer getProcessForSharedSegment() {
+        print("What's the id of the process?");
+        return s.nextInt();
+    }
+
+    public String getSharedSegmentName() {
+        print("What's the name of the segment?");
+        return s.next();
+    }
+
+    public int getSharedSegmentSize() {
+        print("And how big should it be?");
+        return s.nextInt();
+    }
+
+    public Integer getInfoForForkingProcess() {
+        print("Alright, let's split a process in two");
+        print("What's the id of the process?");
+        return s.nextInt();
+    }
+
     public void print(String message) {
         System.out.println(message);
     }
@@ -0,0 +1,22 @@
+package misc;
+
+/**
+ * Where the bytes of the simulated physical memory live.
+ */
+public enum MemoryBacking {
+    /**
+     * A regular heap ByteBuffer.
+     */
+    HEAP,
+
+    /**
+     * A direct (off-heap) ByteBuffer, invisible to the garbage collector.
+     */
+    DIRECT,
+
+    /**
+     * A memory-mapped scratch file, so the simulated memory
+     * can be larger than the JVM heap.
+     */
+    MAPPED
+}
@@ -0,0 +1,8 @@
+package misc;
+
+/**
+ * Where the memory managers write what they have to show.
+ */
+public interface OutputSink {
+    void print(String something);
+}
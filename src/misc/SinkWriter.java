@@ -0,0 +1,89 @@
+package misc;
+
+import java.io.Writer;
+
+/**
+ * A Writer that hands what is written to an {@link OutputSink} in
+ * chunks of whole lines, so a long view reaches the sink while it is
+ * being rendered instead of being built into one string first.
+ *
+ * Every sink prints a line break after each message, so a chunk is
+ * always cut at a line break, which is then left out of it. Printing
+ * the chunks one after the other shows exactly the same text as
+ * printing all of it at once.
+ */
+public class SinkWriter extends Writer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final OutputSink sink;
+    private final int chunkSize;
+    private final StringBuilder buffer;
+
+    public SinkWriter(OutputSink sink) {
+        this(sink, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param sink where the chunks are printed
+     * @param chunkSize how many characters are gathered before
+     * the lines written so far are printed
+     */
+    public SinkWriter(OutputSink sink, int chunkSize) {
+        this.sink = sink;
+        this.chunkSize = chunkSize;
+        buffer = new StringBuilder(chunkSize + 256);
+    }
+
+    @Override
+    public void write(char[] characters, int offset, int length) {
+        buffer.append(characters, offset, length);
+        printCompleteLines();
+    }
+
+    @Override
+    public void write(String string) {
+        buffer.append(string);
+        printCompleteLines();
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+        buffer.append(string, offset, offset + length);
+        printCompleteLines();
+    }
+
+    @Override
+    public void write(int character) {
+        buffer.append((char) character);
+        printCompleteLines();
+    }
+
+    private void printCompleteLines() {
+        if (buffer.length() < chunkSize) {
+            return;
+        }
+        // a line break that ends the buffer is kept, in case nothing else is written
+        int lineBreak = buffer.lastIndexOf("\n", buffer.length() - 2);
+        if (lineBreak != -1) {
+            sink.print(buffer.substring(0, lineBreak));
+            buffer.delete(0, lineBreak + 1);
+        }
+    }
+
+    /**
+     * Nothing is printed until a whole chunk is gathered,
+     * so the last lines only reach the sink on close.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (buffer.length() > 0) {
+            sink.print(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+}
@@ -4,6 +4,13 @@ public enum UserEvent {
     VIEW_MEMORY,
     CREATE_PROCESS,
     VIEW_PROCESS_MEMORY,
+    TERMINATE_PROCESS,
+    ACCESS_MEMORY,
+    WRITE_MEMORY,
+    FORK_PROCESS,
+    MANAGE_SHARED_SEGMENT,
+    VIEW_METRICS,
+    SAVE_SNAPSHOT,
 
     UNINITIALIZED_EVENT,
     QUIT
@@ -0,0 +1,168 @@
+package misc;
+
+/**
+ * How the memory and page table views are rendered.
+ *
+ * The full view writes one line per slot, which is what the managers
+ * have always shown. The compact view collapses every run of slots with
+ * the same owner, or of pages in the same state, into a single line, so
+ * its size depends on how scattered the memory is rather than on how
+ * big it is.
+ *
+ * A range keeps only some frames, or some pages of a process, and a
+ * page of the output keeps only some of the lines, counted after the
+ * range is applied.
+ *
+ * The memory view can also keep only the frames that changed since an
+ * epoch: every memory view ends an epoch, so the changes since the last
+ * view are the ones made during the current epoch. Page table views
+ * don't look at this filter.
+ */
+public class ViewOptions {
+
+    public static final long TO_END = -1;
+    public static final long UNLIMITED = -1;
+    public static final long EVERY_FRAME = -1;
+    public static final long LAST_VIEW = -2;
+
+    private static final ViewOptions FULL = new ViewOptions(false);
+
+    private final boolean compact;
+
+    /*
+     * Filters. Like the optional features of a Configuration, they
+     * are only set on the copies made by the with* methods.
+     */
+    private long from;
+    private long to;
+    private long skippedLines;
+    private long maximumLines;
+    private long changesSince;
+
+    private ViewOptions(boolean compact) {
+        this.compact = compact;
+        this.to = TO_END;
+        this.maximumLines = UNLIMITED;
+        this.changesSince = EVERY_FRAME;
+    }
+
+    /**
+     * @return options for the full, unfiltered view
+     */
+    public static ViewOptions full() {
+        return FULL;
+    }
+
+    /**
+     * @return options for the compact, unfiltered view
+     */
+    public static ViewOptions compact() {
+        return new ViewOptions(true);
+    }
+
+    private ViewOptions copy() {
+        ViewOptions copy = new ViewOptions(compact);
+        copy.from = from;
+        copy.to = to;
+        copy.skippedLines = skippedLines;
+        copy.maximumLines = maximumLines;
+        copy.changesSince = changesSince;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of these options that only
+     * shows some frames of the memory, or some pages of a process.
+     *
+     * @param from the first frame or page shown
+     * @param to the frame or page after the last one shown, or TO_END
+     *
+     */
+    public ViewOptions withRange(long from, long to) {
+        if (from < 0 || (to != TO_END && to < from)) {
+            throw new IllegalArgumentException("The range " + from + "-" + to + " is not valid.");
+        }
+        ViewOptions copy = copy();
+        copy.from = from;
+        copy.to = to;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of these options that splits
+     * the view in pages of lines and only shows one of them.
+     *
+     * @param pageNumber which page is shown, starting at 0
+     * @param linesPerPage how many lines each page has
+     *
+     */
+    public ViewOptions withPage(long pageNumber, long linesPerPage) {
+        if (pageNumber < 0 || linesPerPage <= 0) {
+            throw new IllegalArgumentException("Page " + pageNumber + " of " + linesPerPage + " lines is not valid.");
+        }
+        ViewOptions copy = copy();
+        copy.skippedLines = pageNumber * linesPerPage;
+        copy.maximumLines = linesPerPage;
+        return copy;
+    }
+
+    /**
+     *
+     * This method creates a copy of these options whose memory view only
+     * shows the frames allocated, freed or written since an epoch began.
+     *
+     * @param epoch the first epoch whose changes are shown, or LAST_VIEW
+     * for the changes made since the last memory view
+     *
+     */
+    public ViewOptions withChangesSince(long epoch) {
+        if (epoch < 0 && epoch != LAST_VIEW) {
+            throw new IllegalArgumentException("Epoch " + epoch + " is not valid.");
+        }
+        ViewOptions copy = copy();
+        copy.changesSince = epoch;
+        return copy;
+    }
+
+    public ViewOptions withChangesSinceLastView() {
+        return withChangesSince(LAST_VIEW);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public long from() {
+        return from;
+    }
+
+    /**
+     * @return the frame or page after the last one shown, but
+     * never more than the number of them there are
+     */
+    public long to(long count) {
+        return to == TO_END ? count : Math.min(to, count);
+    }
+
+    public long skippedLines() {
+        return skippedLines;
+    }
+
+    public long maximumLines() {
+        return maximumLines;
+    }
+
+    public boolean showsOnlyChanges() {
+        return changesSince != EVERY_FRAME;
+    }
+
+    /**
+     * @return the first epoch whose changes are shown, LAST_VIEW,
+     * or EVERY_FRAME if the memory view is not filtered by changes
+     */
+    public long changesSince() {
+        return changesSince;
+    }
+}
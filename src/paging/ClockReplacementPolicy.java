@@ -0,0 +1,76 @@
+package paging;
+
+/**
+ * The second-chance (clock) approximation of LRU.
+ *
+ * A reference only sets the frame's bit, which is O(1). When a victim
+ * is needed the hand sweeps the frames, clearing set bits and stopping
+ * at the first tracked frame whose bit was already clear.
+ */
+public class ClockReplacementPolicy implements ReplacementPolicy {
+
+    private final long[] tracked;
+    private final long[] referenced;
+    private final int numberOfFrames;
+    private int trackedFrames;
+    private int hand;
+
+    public ClockReplacementPolicy(int numberOfFrames) {
+        this.numberOfFrames = numberOfFrames;
+        tracked = new long[(numberOfFrames + 63) >>> 6];
+        referenced = new long[tracked.length];
+    }
+
+    @Override
+    public void pageLoaded(int frameNumber) {
+        int word = frameNumber >>> 6;
+        long bit = 1L << frameNumber;
+        if ((tracked[word] & bit) == 0) {
+            tracked[word] |= bit;
+            trackedFrames++;
+        }
+        referenced[word] |= bit;
+    }
+
+    @Override
+    public void pageAccessed(int frameNumber) {
+        referenced[frameNumber >>> 6] |= 1L << frameNumber;
+    }
+
+    @Override
+    public void pageRemoved(int frameNumber) {
+        int word = frameNumber >>> 6;
+        long bit = 1L << frameNumber;
+        if ((tracked[word] & bit) != 0) {
+            tracked[word] &= ~bit;
+            trackedFrames--;
+        }
+        referenced[word] &= ~bit;
+    }
+
+    @Override
+    public int selectVictim() {
+        if (trackedFrames == 0) {
+            return -1;
+        }
+
+        while (true) {
+            int frame = hand;
+            hand = hand + 1 == numberOfFrames ? 0 : hand + 1;
+
+            int word = frame >>> 6;
+            long bit = 1L << frame;
+            if ((tracked[word] & bit) == 0) {
+                continue;
+            }
+            if ((referenced[word] & bit) != 0) {
+                referenced[word] &= ~bit;
+                continue;
+            }
+
+            tracked[word] &= ~bit;
+            trackedFrames--;
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package paging;
+
+import data.memory.FreeFrameBitmap;
+import metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A swap area kept in memory, compressed, like Linux's zram: evicted
+ * pages are deflated into a {@link CompressionArena} and inflated back
+ * on the fault that brings them in, with no disk involved.
+ *
+ * Its slots are only numbers; a slot takes as much of the arena as
+ * its page compresses to, so the area can have more slots than the
+ * arena has room for whole pages, and overcommit memory by as much as
+ * the pages compress. A page that doesn't get smaller is kept as it is.
+ * Once the arena is full, pages go to the file swap area it falls back
+ * on, into the slot with the same number, or are turned away when it
+ * has none.
+ *
+ * Pages are deflated at the fastest level, without the zlib header,
+ * straight from the frame view to a direct buffer and then into the
+ * arena, so nothing is copied through the heap.
+ */
+public class CompressedSwapArea implements SwapArea {
+
+    private static final long EMPTY = -1;
+    private static final long IN_FALLBACK = -2;
+
+    private final FreeFrameBitmap freeSlots;
+    private final int pageSize;
+    private final int[] slotScratch = new int[1];
+    private final CompressionArena arena;
+    private final SwapArea fallback;
+
+    /**
+     * Where the page of each slot is: its offset in the arena, EMPTY or
+     * IN_FALLBACK, and how many bytes it takes there, which is the page
+     * size for a page kept as it is.
+     */
+    private final long[] locations;
+    private final int[] storedLengths;
+
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private final ByteBuffer compressed;
+    private final ByteBuffer transferScratch;
+
+    private final LatencyHistogram compressionLatencies = new LatencyHistogram();
+    private final LatencyHistogram decompressionLatencies = new LatencyHistogram();
+    private long compressedBytes;
+    private int uncompressedPages;
+    private int fallbackPages;
+    private long rejectedPages;
+
+    /**
+     * @param numberOfSlots how many pages the area holds, compressed or not
+     * @param pageSize the size of every page
+     * @param arenaSize how much memory the compressed pages may take, in bytes
+     * @param fallback where pages go once the arena is full, with at least
+     * as many slots, or null to turn them away
+     */
+    public CompressedSwapArea(int numberOfSlots, int pageSize, long arenaSize, SwapArea fallback) {
+        this.pageSize = pageSize;
+        this.fallback = fallback;
+        freeSlots = new FreeFrameBitmap(numberOfSlots);
+        arena = new CompressionArena(arenaSize, pageSize);
+        locations = new long[numberOfSlots];
+        storedLengths = new int[numberOfSlots];
+        Arrays.fill(locations, EMPTY);
+
+        deflater = new Deflater(Deflater.BEST_SPEED, true);
+        inflater = new Inflater(true);
+        compressed = ByteBuffer.allocateDirect(pageSize);
+        transferScratch = ByteBuffer.allocateDirect(pageSize);
+    }
+
+    @Override
+    public int allocateSlot() {
+        return freeSlots.allocate(1, slotScratch) ? slotScratch[0] : -1;
+    }
+
+    @Override
+    public void freeSlot(int slot) {
+        long location = locations[slot];
+        if (location == IN_FALLBACK) {
+            fallback.freeSlot(slot);
+            fallbackPages--;
+        } else if (location != EMPTY) {
+            arena.free(location);
+            compressedBytes -= storedLengths[slot];
+            if (storedLengths[slot] == pageSize) {
+                uncompressedPages--;
+            }
+        }
+        locations[slot] = EMPTY;
+        freeSlots.free(slot);
+    }
+
+    @Override
+    public boolean claimSlot(int slot) {
+        slotScratch[0] = slot;
+        return freeSlots.claim(slotScratch, 1);
+    }
+
+    /**
+     * The page is deflated, and kept as it is if that doesn't make it
+     * any smaller. When the arena has no room for it, it is written to
+     * the fallback area, or turned away if there is none.
+     */
+    @Override
+    public boolean write(int slot, ByteBuffer page) throws IOException {
+        long start = System.nanoTime();
+        int position = page.position();
+        int length = page.remaining();
+
+        deflater.reset();
+        deflater.setInput(page);
+        deflater.finish();
+        compressed.clear().limit(length - 1);
+        deflater.deflate(compressed);
+        boolean smaller = deflater.finished();
+        page.position(position);
+
+        int storedLength = smaller ? compressed.position() : length;
+        long location = arena.allocate(storedLength);
+        if (location == -1) {
+            if (fallback == null || !fallback.claimSlot(slot) || !fallback.write(slot, page)) {
+                rejectedPages++;
+                return false;
+            }
+            locations[slot] = IN_FALLBACK;
+            fallbackPages++;
+            return true;
+        }
+
+        if (smaller) {
+            compressed.flip();
+            arena.put(location, compressed);
+            page.position(position + length);
+        } else {
+            arena.put(location, page);
+            uncompressedPages++;
+        }
+        locations[slot] = location;
+        storedLengths[slot] = storedLength;
+        compressedBytes += storedLength;
+        compressionLatencies.record(System.nanoTime() - start);
+        return true;
+    }
+
+    @Override
+    public void read(int slot, ByteBuffer page) throws IOException {
+        long location = locations[slot];
+        if (location == IN_FALLBACK) {
+            fallback.read(slot, page);
+            return;
+        }
+        if (location == EMPTY) {
+            throw new IOException("Swap slot " + slot + " holds no page.");
+        }
+
+        long start = System.nanoTime();
+        int storedLength = storedLengths[slot];
+        ByteBuffer stored = arena.view(location, storedLength);
+        if (storedLength == pageSize) {
+            page.put(stored);
+        } else {
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                inflater.inflate(page);
+            } catch (DataFormatException ex) {
+                throw new IOException("Swap slot " + slot + " could not be decompressed.", ex);
+            }
+            if (!inflater.finished() || page.hasRemaining()) {
+                throw new IOException("Swap slot " + slot + " could not be decompressed.");
+            }
+        }
+        decompressionLatencies.record(System.nanoTime() - start);
+    }
+
+    /**
+     * The page is inflated first, so the target always gets it whole.
+     */
+    @Override
+    public void transferTo(int slot, WritableByteChannel target) throws IOException {
+        if (locations[slot] == IN_FALLBACK) {
+            fallback.transferTo(slot, target);
+            return;
+        }
+        transferScratch.clear();
+        read(slot, transferScratch);
+        transferScratch.flip();
+        while (transferScratch.hasRemaining()) {
+            target.write(transferScratch);
+        }
+    }
+
+    @Override
+    public int freeSlotCount() {
+        return freeSlots.freeCount();
+    }
+
+    @Override
+    public int numberOfSlots() {
+        return freeSlots.numberOfFrames();
+    }
+
+    /**
+     * @return how many pages are kept in the arena
+     */
+    public long storedPages() {
+        return arena.numberOfObjects();
+    }
+
+    /**
+     * @return how many bytes the pages in the arena would take uncompressed
+     * over how many they take compressed, or 0 if it holds none
+     */
+    public double compressionRatio() {
+        return compressedBytes == 0 ? 0 : (double) arena.numberOfObjects() * pageSize / compressedBytes;
+    }
+
+    /**
+     * @return how many bytes the pages in the arena take, compressed
+     */
+    public long compressedBytes() {
+        return compressedBytes;
+    }
+
+    public CompressionArena arena() {
+        return arena;
+    }
+
+    /**
+     * @return how many pages in the arena are kept as they
+     * are, because deflating didn't make them any smaller
+     */
+    public int uncompressedPages() {
+        return uncompressedPages;
+    }
+
+    /**
+     * @return how many pages are in the fallback area
+     */
+    public int fallbackPages() {
+        return fallbackPages;
+    }
+
+    /**
+     * @return how many pages were turned away, the arena being full and
+     * there being no fallback area
+     */
+    public long rejectedPages() {
+        return rejectedPages;
+    }
+
+    public LatencyHistogram compressionLatencies() {
+        return compressionLatencies;
+    }
+
+    public LatencyHistogram decompressionLatencies() {
+        return decompressionLatencies;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        inflater.end();
+        if (fallback != null) {
+            fallback.close();
+        }
+    }
+}
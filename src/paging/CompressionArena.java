@@ -0,0 +1,272 @@
+package paging;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An off-heap pool of variable-sized objects, where the compressed
+ * swap area keeps its pages.
+ *
+ * The arena is split into runs of a few pages, and every run holds
+ * objects of a single size class; the classes are evenly spaced up to
+ * a whole page, so a compressed page wastes less than one spacing.
+ * Runs take fewer pages, down to one, when the arena is too small to
+ * have a run for every class otherwise. Runs are handed to a class when
+ * it has no room left, and back to the pool once their last object is
+ * freed, so the arena is shared by all the classes as the sizes of what
+ * is stored shift.
+ *
+ * As in the slab allocator, runs with free objects are kept in one
+ * intrusive list per class, and each run tracks its free objects in a
+ * bitmap, all of them in primitive arrays. The memory itself is made of
+ * direct chunks, each allocated the first time one of its runs is, so
+ * a big arena only takes memory as it fills.
+ *
+ * An object is known by its offset in the arena. Like the manager it
+ * serves, the arena is not thread-safe.
+ */
+public class CompressionArena {
+
+    private static final int MAX_PAGES_PER_RUN = 4;
+    private static final int CHUNK_SIZE = 1 << 22;
+    private static final int NUMBER_OF_CLASSES = 32;
+    private static final int MIN_OBJECT_SIZE = 16;
+    private static final int NO_RUN = -1;
+
+    private final int runSize;
+    private final int runsPerChunk;
+    private final int numberOfRuns;
+    private final int[] objectSizes;
+    private final ByteBuffer[] chunks;
+
+    /*
+     * Per run: its class, or -1 while it is in the pool, how many of
+     * its objects are free, its neighbours on the list of its class, and
+     * a bitmap of its free objects, wordsPerRun words from run * wordsPerRun.
+     */
+    private final int[] classOfRun;
+    private final int[] freeObjects;
+    private final int[] nextRun;
+    private final int[] previousRun;
+    private final long[] freeMaps;
+    private final int wordsPerRun;
+
+    private final int[] partialRuns;
+    private final int[] pooledRuns;
+    private int numberOfPooledRuns;
+    private long usedBytes;
+    private long numberOfObjects;
+
+    /**
+     * @param size how many bytes the arena may take, at most, no less than a page
+     * @param pageSize the size of the largest object
+     */
+    public CompressionArena(long size, int pageSize) {
+        if (size < pageSize) {
+            throw new IllegalArgumentException("The arena must hold at least one page.");
+        }
+        int spacing = Math.max(MIN_OBJECT_SIZE, (pageSize + NUMBER_OF_CLASSES - 1) / NUMBER_OF_CLASSES);
+        int classes = (pageSize + spacing - 1) / spacing;
+        objectSizes = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            objectSizes[i] = Math.min(pageSize, (i + 1) * spacing);
+        }
+
+        long pagesPerRun = Math.max(1, Math.min(MAX_PAGES_PER_RUN, size / ((long) classes * pageSize)));
+        runSize = (int) pagesPerRun * pageSize;
+        runsPerChunk = Math.max(1, CHUNK_SIZE / runSize);
+
+        wordsPerRun = (runSize / objectSizes[0] + 63) >>> 6;
+        numberOfRuns = (int) Math.min(Integer.MAX_VALUE / wordsPerRun, size / runSize);
+        chunks = new ByteBuffer[(numberOfRuns + runsPerChunk - 1) / runsPerChunk];
+        classOfRun = new int[numberOfRuns];
+        freeObjects = new int[numberOfRuns];
+        nextRun = new int[numberOfRuns];
+        previousRun = new int[numberOfRuns];
+        freeMaps = new long[numberOfRuns * wordsPerRun];
+        partialRuns = new int[classes];
+        Arrays.fill(partialRuns, NO_RUN);
+        pooledRuns = new int[numberOfRuns];
+        for (int i = 0; i < numberOfRuns; i++) {
+            pooledRuns[i] = numberOfRuns - 1 - i;
+            classOfRun[i] = NO_RUN;
+        }
+        numberOfPooledRuns = numberOfRuns;
+    }
+
+    /**
+     *
+     * This method reserves an object of the smallest class that fits
+     * a number of bytes.
+     *
+     * @param length how many bytes the object must hold
+     *
+     * @return the offset of the object, or -1 if the arena is full
+     *
+     */
+    public long allocate(int length) {
+        int sizeClass = sizeClassFor(length);
+        int run = partialRuns[sizeClass];
+        if (run == NO_RUN) {
+            if (numberOfPooledRuns == 0) {
+                return -1;
+            }
+            run = pooledRuns[--numberOfPooledRuns];
+            startRun(run, sizeClass);
+        }
+
+        int base = run * wordsPerRun;
+        int word = base;
+        while (freeMaps[word] == 0) {
+            word++;
+        }
+        int object = (word - base) << 6 | Long.numberOfTrailingZeros(freeMaps[word]);
+        freeMaps[word] &= freeMaps[word] - 1;
+        if (--freeObjects[run] == 0) {
+            unlist(run);
+        }
+
+        usedBytes += objectSizes[sizeClass];
+        numberOfObjects++;
+        return (long) run * runSize + (long) object * objectSizes[sizeClass];
+    }
+
+    /**
+     *
+     * This method gives back an object, and its run to the pool
+     * if it was the last object of the run in use.
+     *
+     * @param offset the offset returned by allocate
+     *
+     */
+    public void free(long offset) {
+        int run = (int) (offset / runSize);
+        int sizeClass = classOfRun[run];
+        int object = (int) (offset % runSize) / objectSizes[sizeClass];
+        freeMaps[run * wordsPerRun + (object >>> 6)] |= 1L << object;
+        usedBytes -= objectSizes[sizeClass];
+        numberOfObjects--;
+
+        if (freeObjects[run]++ == 0) {
+            list(run);
+        }
+        if (freeObjects[run] == runSize / objectSizes[sizeClass]) {
+            unlist(run);
+            classOfRun[run] = NO_RUN;
+            pooledRuns[numberOfPooledRuns++] = run;
+        }
+    }
+
+    /**
+     *
+     * This method copies the remaining bytes of a buffer into an
+     * object, advancing the buffer's position.
+     *
+     * @param offset the offset of the object
+     * @param source the bytes, no more than the object holds
+     *
+     */
+    public void put(long offset, ByteBuffer source) {
+        ByteBuffer chunk = chunkOf(offset).duplicate();
+        chunk.position(offsetInChunk(offset));
+        chunk.put(source);
+    }
+
+    /**
+     * @return a buffer over the first bytes of an object, from
+     * its position to its limit
+     */
+    public ByteBuffer view(long offset, int length) {
+        ByteBuffer chunk = chunkOf(offset).duplicate();
+        int position = offsetInChunk(offset);
+        chunk.limit(position + length).position(position);
+        return chunk;
+    }
+
+    /**
+     * @return how many bytes the objects in use take, rounded up to their classes
+     */
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    public long numberOfObjects() {
+        return numberOfObjects;
+    }
+
+    /**
+     * @return how many bytes the runs handed to a class take
+     */
+    public long reservedBytes() {
+        return (long) (numberOfRuns - numberOfPooledRuns) * runSize;
+    }
+
+    /**
+     * @return how many bytes the arena may take, at most
+     */
+    public long capacity() {
+        return (long) numberOfRuns * runSize;
+    }
+
+    private int sizeClassFor(int length) {
+        int sizeClass = (length - 1) / objectSizes[0];
+        if (sizeClass < 0 || sizeClass >= objectSizes.length) {
+            throw new IllegalArgumentException("Objects of " + length + " bytes are not supported.");
+        }
+        return sizeClass;
+    }
+
+    private void startRun(int run, int sizeClass) {
+        int objects = runSize / objectSizes[sizeClass];
+        int base = run * wordsPerRun;
+        Arrays.fill(freeMaps, base, base + wordsPerRun, 0L);
+        for (int word = 0; word < objects >>> 6; word++) {
+            freeMaps[base + word] = -1L;
+        }
+        if ((objects & 63) != 0) {
+            freeMaps[base + (objects >>> 6)] = (1L << objects) - 1;
+        }
+        classOfRun[run] = sizeClass;
+        freeObjects[run] = objects;
+        list(run);
+    }
+
+    private void list(int run) {
+        int sizeClass = classOfRun[run];
+        int head = partialRuns[sizeClass];
+        previousRun[run] = NO_RUN;
+        nextRun[run] = head;
+        if (head != NO_RUN) {
+            previousRun[head] = run;
+        }
+        partialRuns[sizeClass] = run;
+    }
+
+    private void unlist(int run) {
+        int previous = previousRun[run];
+        int next = nextRun[run];
+        if (previous == NO_RUN) {
+            partialRuns[classOfRun[run]] = next;
+        } else {
+            nextRun[previous] = next;
+        }
+        if (next != NO_RUN) {
+            previousRun[next] = previous;
+        }
+    }
+
+    private ByteBuffer chunkOf(long offset) {
+        int chunkIndex = (int) (offset / runSize) / runsPerChunk;
+        ByteBuffer chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            int runs = Math.min(runsPerChunk, numberOfRuns - chunkIndex * runsPerChunk);
+            chunk = ByteBuffer.allocateDirect(runs * runSize);
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    private int offsetInChunk(long offset) {
+        return (int) (offset % ((long) runsPerChunk * runSize));
+    }
+}
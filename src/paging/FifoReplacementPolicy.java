@@ -0,0 +1,37 @@
+package paging;
+
+/**
+ * Evicts the page that has been resident the longest,
+ * no matter how often it is used.
+ */
+public class FifoReplacementPolicy implements ReplacementPolicy {
+
+    private final FrameQueue queue;
+
+    public FifoReplacementPolicy(int numberOfFrames) {
+        queue = new FrameQueue(numberOfFrames);
+    }
+
+    @Override
+    public void pageLoaded(int frameNumber) {
+        if (!queue.contains(frameNumber)) {
+            queue.addLast(frameNumber);
+        }
+    }
+
+    @Override
+    public void pageAccessed(int frameNumber) {
+    }
+
+    @Override
+    public void pageRemoved(int frameNumber) {
+        if (queue.contains(frameNumber)) {
+            queue.remove(frameNumber);
+        }
+    }
+
+    @Override
+    public int selectVictim() {
+        return queue.pollFirst();
+    }
+}
@@ -0,0 +1,105 @@
+package paging;
+
+import data.memory.FreeFrameBitmap;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A swap area stored in a local file, split into page-sized slots.
+ *
+ * Pages are moved with positional FileChannel reads and writes straight
+ * from and into the frame views of the physical memory, so swapping
+ * never goes through an intermediate array and never moves the
+ * channel's own position.
+ */
+public class FileSwapArea implements SwapArea {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final FreeFrameBitmap freeSlots;
+    private final int pageSize;
+    private final int[] slotScratch = new int[1];
+
+    public FileSwapArea(String filePath, int numberOfSlots, int pageSize) throws IOException {
+        this.pageSize = pageSize;
+        file = new RandomAccessFile(filePath, "rw");
+        // only ever grown, as the file may still be the swap area of the manager being replaced
+        long length = (long) numberOfSlots * pageSize;
+        if (file.length() < length) {
+            file.setLength(length);
+        }
+        channel = file.getChannel();
+        freeSlots = new FreeFrameBitmap(numberOfSlots);
+    }
+
+    @Override
+    public int allocateSlot() {
+        return freeSlots.allocate(1, slotScratch) ? slotScratch[0] : -1;
+    }
+
+    @Override
+    public void freeSlot(int slot) {
+        freeSlots.free(slot);
+    }
+
+    @Override
+    public boolean claimSlot(int slot) {
+        slotScratch[0] = slot;
+        return freeSlots.claim(slotScratch, 1);
+    }
+
+    /**
+     * The file has a place for every slot, so a page always fits.
+     */
+    @Override
+    public boolean write(int slot, ByteBuffer page) throws IOException {
+        long position = (long) slot * pageSize;
+        while (page.hasRemaining()) {
+            position += channel.write(page, position);
+        }
+        return true;
+    }
+
+    @Override
+    public void read(int slot, ByteBuffer page) throws IOException {
+        long position = (long) slot * pageSize;
+        while (page.hasRemaining()) {
+            int read = channel.read(page, position);
+            if (read < 0) {
+                throw new IOException("Swap slot " + slot + " is beyond the end of the swap file.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * The file system moves the bytes, without them reaching the heap.
+     */
+    @Override
+    public void transferTo(int slot, WritableByteChannel target) throws IOException {
+        long position = (long) slot * pageSize;
+        long end = position + pageSize;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+    }
+
+    @Override
+    public int freeSlotCount() {
+        return freeSlots.freeCount();
+    }
+
+    @Override
+    public int numberOfSlots() {
+        return freeSlots.numberOfFrames();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
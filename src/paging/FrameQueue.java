@@ -0,0 +1,68 @@
+package paging;
+
+/**
+ * A doubly linked queue of frame numbers stored in two int[],
+ * with one sentinel node past the last frame.
+ *
+ * Appending, removing and moving a frame to the back are all O(1)
+ * and allocate nothing, which is what the FIFO and LRU policies need.
+ */
+class FrameQueue {
+
+    private static final int NOT_QUEUED = -1;
+
+    private final int[] previous;
+    private final int[] next;
+    private final int sentinel;
+
+    FrameQueue(int numberOfFrames) {
+        sentinel = numberOfFrames;
+        previous = new int[numberOfFrames + 1];
+        next = new int[numberOfFrames + 1];
+        for (int i = 0; i < numberOfFrames; i++) {
+            previous[i] = NOT_QUEUED;
+            next[i] = NOT_QUEUED;
+        }
+        previous[sentinel] = sentinel;
+        next[sentinel] = sentinel;
+    }
+
+    boolean contains(int frameNumber) {
+        return next[frameNumber] != NOT_QUEUED;
+    }
+
+    void addLast(int frameNumber) {
+        int last = previous[sentinel];
+        previous[frameNumber] = last;
+        next[frameNumber] = sentinel;
+        next[last] = frameNumber;
+        previous[sentinel] = frameNumber;
+    }
+
+    void remove(int frameNumber) {
+        next[previous[frameNumber]] = next[frameNumber];
+        previous[next[frameNumber]] = previous[frameNumber];
+        previous[frameNumber] = NOT_QUEUED;
+        next[frameNumber] = NOT_QUEUED;
+    }
+
+    void moveToLast(int frameNumber) {
+        if (previous[sentinel] != frameNumber) {
+            remove(frameNumber);
+            addLast(frameNumber);
+        }
+    }
+
+    /**
+     * @return the frame at the front of the queue, removed,
+     * or -1 if the queue is empty
+     */
+    int pollFirst() {
+        int first = next[sentinel];
+        if (first == sentinel) {
+            return -1;
+        }
+        remove(first);
+        return first;
+    }
+}
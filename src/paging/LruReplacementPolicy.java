@@ -0,0 +1,45 @@
+package paging;
+
+/**
+ * Evicts the page that was referenced the longest time ago.
+ *
+ * Frames are kept in recency order in a linked queue, so each
+ * reference just moves its frame to the back in O(1) and the
+ * victim is always at the front; no frame is ever scanned.
+ */
+public class LruReplacementPolicy implements ReplacementPolicy {
+
+    private final FrameQueue queue;
+
+    public LruReplacementPolicy(int numberOfFrames) {
+        queue = new FrameQueue(numberOfFrames);
+    }
+
+    @Override
+    public void pageLoaded(int frameNumber) {
+        if (queue.contains(frameNumber)) {
+            queue.moveToLast(frameNumber);
+        } else {
+            queue.addLast(frameNumber);
+        }
+    }
+
+    @Override
+    public void pageAccessed(int frameNumber) {
+        if (queue.contains(frameNumber)) {
+            queue.moveToLast(frameNumber);
+        }
+    }
+
+    @Override
+    public void pageRemoved(int frameNumber) {
+        if (queue.contains(frameNumber)) {
+            queue.remove(frameNumber);
+        }
+    }
+
+    @Override
+    public int selectVictim() {
+        return queue.pollFirst();
+    }
+}
@@ -0,0 +1,148 @@
+package paging;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Belady's optimal policy: evicts the page whose next reference is
+ * the furthest in the future. It can't be implemented by a real system,
+ * but it gives the lowest possible number of faults for a reference
+ * string, which makes it the baseline the other policies are compared to.
+ *
+ * The policy is built from the exact sequence of references the manager
+ * will make, each one a (processId, virtualPageNumber) pair, and it
+ * advances through that sequence on every pageLoaded/pageAccessed call.
+ * Next-use positions are computed once up front; resident frames are
+ * kept in an indexed max-heap on their next use, so each reference
+ * costs O(log frames).
+ */
+public class OptimalReplacementPolicy implements ReplacementPolicy {
+
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    /**
+     * For each position of the reference string, the position
+     * of the next reference to the same page, or NEVER.
+     */
+    private final int[] nextUse;
+    private int cursor;
+
+    private final int[] heap;
+    private final int[] heapIndexOfFrame;
+    private final int[] nextUseOfFrame;
+    private int heapSize;
+
+    public OptimalReplacementPolicy(int numberOfFrames, int[] processIds, int[] virtualPageNumbers) {
+        nextUse = computeNextUses(processIds, virtualPageNumbers);
+        heap = new int[numberOfFrames];
+        heapIndexOfFrame = new int[numberOfFrames];
+        nextUseOfFrame = new int[numberOfFrames];
+        Arrays.fill(heapIndexOfFrame, -1);
+    }
+
+    public static long referenceKey(int processId, int virtualPageNumber) {
+        return ((long) processId << 32) | (virtualPageNumber & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void pageLoaded(int frameNumber) {
+        reference(frameNumber);
+    }
+
+    @Override
+    public void pageAccessed(int frameNumber) {
+        reference(frameNumber);
+    }
+
+    @Override
+    public void pageRemoved(int frameNumber) {
+        int index = heapIndexOfFrame[frameNumber];
+        if (index != -1) {
+            removeAt(index);
+        }
+    }
+
+    @Override
+    public int selectVictim() {
+        if (heapSize == 0) {
+            return -1;
+        }
+        int victim = heap[0];
+        removeAt(0);
+        return victim;
+    }
+
+    private void reference(int frameNumber) {
+        int next = cursor < nextUse.length ? nextUse[cursor] : NEVER;
+        cursor++;
+        nextUseOfFrame[frameNumber] = next;
+
+        int index = heapIndexOfFrame[frameNumber];
+        if (index == -1) {
+            index = heapSize++;
+            heap[index] = frameNumber;
+            heapIndexOfFrame[frameNumber] = index;
+        }
+        siftDown(siftUp(index));
+    }
+
+    private static int[] computeNextUses(int[] processIds, int[] virtualPageNumbers) {
+        int[] nextUse = new int[processIds.length];
+        Map<Long, Integer> lastSeen = new HashMap<>();
+        for (int i = processIds.length - 1; i >= 0; i--) {
+            Integer next = lastSeen.put(referenceKey(processIds[i], virtualPageNumbers[i]), i);
+            nextUse[i] = next == null ? NEVER : next;
+        }
+        return nextUse;
+    }
+
+    private void removeAt(int index) {
+        int frame = heap[index];
+        heapIndexOfFrame[frame] = -1;
+        heapSize--;
+        if (index != heapSize) {
+            heap[index] = heap[heapSize];
+            heapIndexOfFrame[heap[index]] = index;
+            siftDown(siftUp(index));
+        }
+    }
+
+    private int siftUp(int index) {
+        int frame = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (nextUseOfFrame[heap[parent]] >= nextUseOfFrame[frame]) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(frame, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        int frame = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && nextUseOfFrame[heap[child + 1]] > nextUseOfFrame[heap[child]]) {
+                child++;
+            }
+            if (nextUseOfFrame[heap[child]] <= nextUseOfFrame[frame]) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(frame, index);
+    }
+
+    private void place(int frame, int index) {
+        heap[index] = frame;
+        heapIndexOfFrame[frame] = index;
+    }
+}
@@ -0,0 +1,40 @@
+package paging;
+
+/**
+ * Decides which resident frame gives way when a page fault
+ * happens and every frame is taken.
+ *
+ * The manager reports every memory reference to the policy exactly
+ * once: through {@link #pageLoaded(int)} when the reference faulted
+ * and through {@link #pageAccessed(int)} when it hit. Policies only
+ * keep track of the frames they were told about, so frames that must
+ * not be evicted are simply never reported or are removed first.
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * A page was just brought into the frame and can later be evicted.
+     */
+    void pageLoaded(int frameNumber);
+
+    /**
+     * The page held by the frame was referenced while resident.
+     */
+    void pageAccessed(int frameNumber);
+
+    /**
+     * The frame no longer holds an evictable page, e.g. because
+     * its process was terminated.
+     */
+    void pageRemoved(int frameNumber);
+
+    /**
+     *
+     * This method picks the frame to be evicted and stops
+     * tracking it.
+     *
+     * @return the victim frame, or -1 if no frame can be evicted
+     *
+     */
+    int selectVictim();
+}
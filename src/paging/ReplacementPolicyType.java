@@ -0,0 +1,25 @@
+package paging;
+
+/**
+ * The replacement policies that can be picked on a configuration.
+ *
+ * The optimal policy is not among them: it needs to know the future
+ * references, so it is built with {@link OptimalReplacementPolicy}
+ * and handed to the manager directly.
+ */
+public enum ReplacementPolicyType {
+    FIFO,
+    LRU,
+    CLOCK;
+
+    public ReplacementPolicy create(int numberOfFrames) {
+        switch (this) {
+            case FIFO:
+                return new FifoReplacementPolicy(numberOfFrames);
+            case CLOCK:
+                return new ClockReplacementPolicy(numberOfFrames);
+            default:
+                return new LruReplacementPolicy(numberOfFrames);
+        }
+    }
+}
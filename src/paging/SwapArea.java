@@ -0,0 +1,70 @@
+package paging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Where evicted pages are kept until they are faulted back in, split
+ * into numbered slots of one page each.
+ *
+ * A slot is reserved before a page is written into it and freed once
+ * the page is read back or released. Pages always go in and out whole,
+ * and the area may keep them in any form, as long as a slot reads back
+ * exactly what was written into it.
+ *
+ * @see FileSwapArea
+ * @see CompressedSwapArea
+ */
+public interface SwapArea extends Closeable {
+
+    /**
+     * @return a free slot, now reserved, or -1 if the area is full
+     */
+    int allocateSlot();
+
+    void freeSlot(int slot);
+
+    /**
+     * @return false if the slot was already reserved
+     */
+    boolean claimSlot(int slot);
+
+    /**
+     *
+     * This method writes a whole page into a reserved slot.
+     *
+     * @param slot the slot being written
+     * @param page a buffer whose remaining bytes are the page's contents
+     *
+     * @return false if the area had no room left for the page, which
+     * is then not stored; the slot stays reserved
+     *
+     */
+    boolean write(int slot, ByteBuffer page) throws IOException;
+
+    /**
+     *
+     * This method reads a whole page out of a slot.
+     *
+     * @param slot the slot being read
+     * @param page the buffer the page's contents are read into
+     *
+     */
+    void read(int slot, ByteBuffer page) throws IOException;
+
+    /**
+     *
+     * This method copies the page held by a slot into a channel.
+     *
+     * @param slot the slot being copied
+     * @param target where the page is written, at its current position
+     *
+     */
+    void transferTo(int slot, WritableByteChannel target) throws IOException;
+
+    int freeSlotCount();
+
+    int numberOfSlots();
+}
@@ -0,0 +1,260 @@
+package paging;
+
+import java.util.Arrays;
+
+/**
+ * A set-associative translation lookaside buffer caching
+ * (processId, virtualPageNumber) to physical page address translations.
+ *
+ * Entries live in parallel arrays laid out set after set, so a lookup
+ * scans the few ways of a single set and never allocates. The set is
+ * chosen by the low bits of the virtual page number, as in hardware;
+ * within a set the least recently used way is replaced.
+ *
+ * Entries are tagged with the process id, which plays the part of an
+ * ASID, and carry a writable bit, cleared for pages that are shared
+ * copy-on-write, so a write through them misses and the page can be
+ * copied first. When the TLB is flushed on context switch instead, every lookup
+ * for a different process than the previous one empties it first.
+ *
+ * The translation cost is modelled in cycles: a hit costs the lookup
+ * only, a miss adds the cost of walking the page table.
+ */
+public class TranslationLookasideBuffer {
+
+    public static final int DEFAULT_HIT_CYCLES = 1;
+    public static final int DEFAULT_WALK_CYCLES = 30;
+
+    private static final long INVALID = -1;
+    private static final int NO_PROCESS = -1;
+
+    private final int ways;
+    private final int setMask;
+    private final boolean flushedOnContextSwitch;
+    private final int hitCycles;
+    private final int walkCycles;
+
+    private final int[] processIds;
+    private final int[] pageNumbers;
+    private final long[] pageAddresses;
+    private final boolean[] writable;
+    private final long[] lastUsed;
+    private long useClock;
+    private int currentProcessId = NO_PROCESS;
+
+    private long hits;
+    private long misses;
+    private long flushes;
+
+    public TranslationLookasideBuffer(int entries, int associativity, boolean flushedOnContextSwitch) {
+        this(entries, associativity, flushedOnContextSwitch, DEFAULT_HIT_CYCLES, DEFAULT_WALK_CYCLES);
+    }
+
+    /**
+     * @param entries how many translations the TLB holds
+     * @param associativity how many entries each set has; entries / associativity
+     * must be a power of two
+     * @param flushedOnContextSwitch whether switching process empties the TLB
+     * @param hitCycles the cost of a lookup
+     * @param walkCycles the extra cost of walking the page table on a miss
+     */
+    public TranslationLookasideBuffer(int entries, int associativity, boolean flushedOnContextSwitch,
+                                      int hitCycles, int walkCycles) {
+        if (entries <= 0 || associativity <= 0 || entries % associativity != 0) {
+            throw new IllegalArgumentException(
+                    "The TLB size must be a positive multiple of its associativity.");
+        }
+        int sets = entries / associativity;
+        if (Integer.bitCount(sets) != 1) {
+            throw new IllegalArgumentException("The number of TLB sets must be a power of two.");
+        }
+        this.ways = associativity;
+        this.setMask = sets - 1;
+        this.flushedOnContextSwitch = flushedOnContextSwitch;
+        this.hitCycles = hitCycles;
+        this.walkCycles = walkCycles;
+
+        processIds = new int[entries];
+        pageNumbers = new int[entries];
+        pageAddresses = new long[entries];
+        writable = new boolean[entries];
+        lastUsed = new long[entries];
+        Arrays.fill(pageAddresses, INVALID);
+    }
+
+    /**
+     *
+     * This method looks a translation up, counting it as a hit or a miss.
+     *
+     * @param processId the process translating the address
+     * @param virtualPageNumber the page being translated
+     *
+     * @return the cached physical address of the page, or -1 on a miss
+     *
+     */
+    public long lookup(int processId, int virtualPageNumber) {
+        return lookup(processId, virtualPageNumber, false);
+    }
+
+    /**
+     *
+     * This method looks a translation up for a read or for a write. A
+     * write through an entry that is not writable is counted as a miss,
+     * as it has to go through the page table.
+     *
+     * @param processId the process translating the address
+     * @param virtualPageNumber the page being translated
+     * @param write whether the address is written to
+     *
+     * @return the cached physical address of the page, or -1 on a miss
+     *
+     */
+    public long lookup(int processId, int virtualPageNumber, boolean write) {
+        if (flushedOnContextSwitch && processId != currentProcessId) {
+            flush();
+        }
+        currentProcessId = processId;
+
+        int first = firstEntryOfSet(virtualPageNumber);
+        for (int entry = first; entry < first + ways; entry++) {
+            if (pageAddresses[entry] != INVALID
+                    && pageNumbers[entry] == virtualPageNumber
+                    && processIds[entry] == processId
+                    && (writable[entry] || !write)) {
+                lastUsed[entry] = ++useClock;
+                hits++;
+                return pageAddresses[entry];
+            }
+        }
+        misses++;
+        return INVALID;
+    }
+
+    /**
+     *
+     * This method caches a translation found by walking the page table,
+     * replacing an empty way of its set or the least recently used one.
+     *
+     */
+    public void insert(int processId, int virtualPageNumber, long pageAddress) {
+        insert(processId, virtualPageNumber, pageAddress, true);
+    }
+
+    /**
+     *
+     * This method caches a translation that may only be used for
+     * reading when it is not writable. An entry left for the same page
+     * is replaced, so a page never has two translations cached.
+     *
+     */
+    public void insert(int processId, int virtualPageNumber, long pageAddress, boolean writable) {
+        invalidate(processId, virtualPageNumber);
+        int first = firstEntryOfSet(virtualPageNumber);
+        int target = first;
+        for (int entry = first; entry < first + ways; entry++) {
+            if (pageAddresses[entry] == INVALID) {
+                target = entry;
+                break;
+            }
+            if (lastUsed[entry] < lastUsed[target]) {
+                target = entry;
+            }
+        }
+        processIds[target] = processId;
+        pageNumbers[target] = virtualPageNumber;
+        pageAddresses[target] = pageAddress;
+        this.writable[target] = writable;
+        lastUsed[target] = ++useClock;
+    }
+
+    /**
+     *
+     * This method drops the translation of one page, which
+     * must happen whenever that page leaves its frame.
+     *
+     */
+    public void invalidate(int processId, int virtualPageNumber) {
+        int first = firstEntryOfSet(virtualPageNumber);
+        for (int entry = first; entry < first + ways; entry++) {
+            if (pageNumbers[entry] == virtualPageNumber && processIds[entry] == processId) {
+                pageAddresses[entry] = INVALID;
+            }
+        }
+    }
+
+    /**
+     *
+     * This method drops every translation of a process,
+     * which must happen when the process terminates.
+     *
+     */
+    public void invalidateProcess(int processId) {
+        for (int entry = 0; entry < pageAddresses.length; entry++) {
+            if (processIds[entry] == processId) {
+                pageAddresses[entry] = INVALID;
+            }
+        }
+        if (currentProcessId == processId) {
+            currentProcessId = NO_PROCESS;
+        }
+    }
+
+    public void flush() {
+        Arrays.fill(pageAddresses, INVALID);
+        flushes++;
+    }
+
+    private int firstEntryOfSet(int virtualPageNumber) {
+        return (virtualPageNumber & setMask) * ways;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long flushes() {
+        return flushes;
+    }
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the modelled cost of every translation so far, in cycles
+     */
+    public long translationCycles() {
+        return (hits + misses) * hitCycles + misses * walkCycles;
+    }
+
+    /**
+     * @return the modelled cost of an average translation, in cycles
+     */
+    public double averageTranslationCycles() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) translationCycles() / lookups;
+    }
+
+    public int entries() {
+        return pageAddresses.length;
+    }
+
+    public int associativity() {
+        return ways;
+    }
+
+    public boolean isFlushedOnContextSwitch() {
+        return flushedOnContextSwitch;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        flushes = 0;
+    }
+}
@@ -0,0 +1,202 @@
+package replay;
+
+import error.InvalidTraceException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A binary page reference trace, mapped into memory.
+ *
+ * <pre>
+ * header      magic, version, page size, number of processes, number of references
+ * references  one 8-byte record per reference: the process id, then the virtual
+ *             page shifted left by one, with the low bit set for a write
+ * processes   one (process id, size in bytes) pair per process
+ * </pre>
+ *
+ * Everything is big-endian, as written by {@link ReferenceTraceWriter}.
+ * Pages are numbered in pages of the trace's own page size, so the
+ * same trace can be replayed on memories with other page sizes.
+ *
+ * The references are mapped in windows of at most 1GB and read with
+ * absolute gets only, so any number of threads can read the same trace
+ * at once, and the operating system reads every page of the file once
+ * however many replays walk over it.
+ */
+public class ReferenceTrace implements Closeable {
+
+    static final int MAGIC = 0x4F535254;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    static final int RECORD_BYTES = Long.BYTES;
+
+    private static final int WINDOW_SHIFT = 27;
+    private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final int pageSize;
+    private final long numberOfReferences;
+    private final int[] processIds;
+    private final int[] processSizes;
+    private final Map<Integer, Integer> sizesById;
+
+    private ReferenceTrace(FileChannel channel, int pageSize, long numberOfReferences,
+                           int[] processIds, int[] processSizes) throws IOException {
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.numberOfReferences = numberOfReferences;
+        this.processIds = processIds;
+        this.processSizes = processSizes;
+        sizesById = new HashMap<>();
+        for (int i = 0; i < processIds.length; i++) {
+            sizesById.put(processIds[i], processSizes[i]);
+        }
+
+        windows = new MappedByteBuffer[(int) ((numberOfReferences + WINDOW_MASK) >>> WINDOW_SHIFT)];
+        for (int i = 0; i < windows.length; i++) {
+            long first = (long) i << WINDOW_SHIFT;
+            long records = Math.min(WINDOW_MASK + 1, numberOfReferences - first);
+            windows[i] = channel.map(
+                    FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES
+            );
+        }
+    }
+
+    /**
+     *
+     * This method maps a trace written by {@link ReferenceTraceWriter}.
+     *
+     * @param tracePath the trace file
+     *
+     */
+    public static ReferenceTrace open(Path tracePath) throws IOException, InvalidTraceException {
+        FileChannel channel = FileChannel.open(tracePath, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new InvalidTraceException("not a reference trace");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new InvalidTraceException("version " + version + " is not supported");
+            }
+            int pageSize = header.getInt();
+            int numberOfProcesses = header.getInt();
+            long numberOfReferences = header.getLong();
+            if (numberOfReferences > fileSize / RECORD_BYTES) {
+                throw new InvalidTraceException("the sections don't match the size of the file");
+            }
+            long processesOffset = HEADER_BYTES + numberOfReferences * RECORD_BYTES;
+            if (pageSize <= 0 || numberOfProcesses < 0 || numberOfReferences < 0
+                    || processesOffset + 2L * Integer.BYTES * numberOfProcesses != fileSize) {
+                throw new InvalidTraceException("the sections don't match the size of the file");
+            }
+
+            ByteBuffer processes = ByteBuffer.allocate(2 * Integer.BYTES * numberOfProcesses);
+            readFully(channel, processes, processesOffset);
+            int[] processIds = new int[numberOfProcesses];
+            int[] processSizes = new int[numberOfProcesses];
+            for (int i = 0; i < numberOfProcesses; i++) {
+                processIds[i] = processes.getInt();
+                processSizes[i] = processes.getInt();
+                if (processIds[i] < 0 || processSizes[i] <= 0) {
+                    throw new InvalidTraceException("process " + processIds[i] + " is not valid");
+                }
+            }
+            return new ReferenceTrace(channel, pageSize, numberOfReferences, processIds, processSizes);
+        } catch (IOException | InvalidTraceException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @return the size of the pages the references are numbered in, in bytes
+     */
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public long numberOfReferences() {
+        return numberOfReferences;
+    }
+
+    public int numberOfProcesses() {
+        return processIds.length;
+    }
+
+    public int processIdAt(int index) {
+        return processIds[index];
+    }
+
+    public int processSizeAt(int index) {
+        return processSizes[index];
+    }
+
+    /**
+     * @return the size of a process, in bytes, or -1 if the trace has no such process
+     */
+    public int sizeOf(int processId) {
+        Integer size = sizesById.get(processId);
+        return size == null ? -1 : size;
+    }
+
+    public int maxProcessSize() {
+        int max = 0;
+        for (int size : processSizes) {
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    /**
+     * @return the record of a reference, read with
+     * {@link #processIdOf}, {@link #pageOf} and {@link #isWrite}
+     */
+    public long record(long index) {
+        return windows[(int) (index >>> WINDOW_SHIFT)].getLong((int) (index & WINDOW_MASK) * RECORD_BYTES);
+    }
+
+    public static int processIdOf(long record) {
+        return (int) (record >>> 32);
+    }
+
+    public static int pageOf(long record) {
+        return (int) record >>> 1;
+    }
+
+    public static boolean isWrite(long record) {
+        return (record & 1) != 0;
+    }
+
+    static long encode(int processId, int page, boolean write) {
+        return (long) processId << 32 | ((long) page << 1 | (write ? 1 : 0)) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,119 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a {@link ReferenceTrace}, streaming the references through
+ * a fixed direct buffer. The processes are written after them, when
+ * the trace is closed, so they can be added at any point, and the
+ * header is filled in last.
+ */
+public class ReferenceTraceWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int pageSize;
+    private final Map<Integer, Integer> processSizes;
+    private long numberOfReferences;
+    private long position;
+
+    /**
+     * @param tracePath the file the trace is written to, replaced if it exists
+     * @param pageSize the size of the pages the references are numbered in, in bytes
+     */
+    public ReferenceTraceWriter(Path tracePath, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive.");
+        }
+        channel = FileChannel.open(tracePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.pageSize = pageSize;
+        processSizes = new LinkedHashMap<>();
+        position = ReferenceTrace.HEADER_BYTES;
+    }
+
+    /**
+     *
+     * This method records a process of the trace. A process added more
+     * than once keeps the largest of its sizes.
+     *
+     * @param processId the id of the process
+     * @param size the size of the process, in bytes
+     *
+     */
+    public void addProcess(int processId, int size) {
+        if (processId < 0 || size <= 0) {
+            throw new IllegalArgumentException("Process " + processId + " of size " + size + " is not valid.");
+        }
+        processSizes.merge(processId, size, Math::max);
+    }
+
+    /**
+     *
+     * This method appends a reference to the trace.
+     *
+     * @param processId the process making the reference
+     * @param page the virtual page referenced, in pages of the trace's page size
+     * @param write whether the page is written instead of read
+     *
+     */
+    public void reference(int processId, int page, boolean write) throws IOException {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page " + page + " is not valid.");
+        }
+        if (buffer.remaining() < ReferenceTrace.RECORD_BYTES) {
+            flush();
+        }
+        buffer.putLong(ReferenceTrace.encode(processId, page, write));
+        numberOfReferences++;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public long numberOfReferences() {
+        return numberOfReferences;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * This method writes the processes and the header, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Map.Entry<Integer, Integer> process : processSizes.entrySet()) {
+                if (buffer.remaining() < 2 * Integer.BYTES) {
+                    flush();
+                }
+                buffer.putInt(process.getKey()).putInt(process.getValue());
+            }
+            flush();
+
+            buffer.putInt(ReferenceTrace.MAGIC).putInt(ReferenceTrace.VERSION)
+                    .putInt(pageSize).putInt(processSizes.size()).putLong(numberOfReferences);
+            position = 0;
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
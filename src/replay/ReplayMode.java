@@ -0,0 +1,208 @@
+package replay;
+
+import batch.TraceOperation;
+import batch.TraceReader;
+import paging.ReplacementPolicyType;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry points of the reference trace replay, which compares how
+ * memories of several sizes and policies would have coped with a
+ * trace, and of the conversion of workload traces into reference ones.
+ *
+ * Usage:
+ * <pre>
+ * --replay &lt;referenceTrace&gt; &lt;frames&gt;[,&lt;frames&gt;...]
+ *          [--page-sizes &lt;size&gt;[,&lt;size&gt;...]] [--policies fifo|lru|clock|optimal[,...]]
+ *          [--parallelism &lt;n&gt;]
+ * --record-trace &lt;workloadTrace&gt; &lt;referenceTrace&gt; &lt;pageSize&gt;
+ * </pre>
+ *
+ * Every combination of frame count, page size and policy is a variant
+ * of its own. The page size defaults to the trace's, the policy to LRU,
+ * and the parallelism to the number of processors. Each variant's
+ * fault rate is printed, then a miss-ratio curve per page size and
+ * policy: the fault rate at each frame count.
+ *
+ * Recording keeps the accesses and writes of a workload trace as
+ * references. Every process it creates, or forks, lives for the whole
+ * replay, with the largest size it was created with.
+ */
+public class ReplayMode {
+
+    private static final String USAGE = "Usage: --replay <referenceTrace> <frames>[,<frames>...]"
+            + " [--page-sizes <size>[,<size>...]] [--policies fifo|lru|clock|optimal[,...]] [--parallelism <n>]";
+
+    private static final String RECORD_USAGE = "Usage: --record-trace <workloadTrace> <referenceTrace> <pageSize>";
+
+    public static void run(String[] args) {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        String pageSizes = null;
+        String policies = "lru";
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println(USAGE);
+                return;
+            }
+            switch (args[i]) {
+                case "--page-sizes":
+                    pageSizes = args[++i];
+                    break;
+                case "--policies":
+                    policies = args[++i];
+                    try {
+                        for (String policy : policies.split(",")) {
+                            if (!policy.equals("optimal")) {
+                                ReplacementPolicyType.valueOf(policy.toUpperCase());
+                            }
+                        }
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--parallelism":
+                    try {
+                        parallelism = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    return;
+            }
+        }
+
+        try (ReferenceTrace trace = ReferenceTrace.open(Paths.get(args[0]))) {
+            List<ReplayVariant> variants = new ArrayList<>();
+            String[] sizes = pageSizes == null ? new String[]{String.valueOf(trace.pageSize())} : pageSizes.split(",");
+            for (String size : sizes) {
+                for (String policy : policies.split(",")) {
+                    for (String frames : args[1].split(",")) {
+                        int numberOfFrames = Integer.parseInt(frames);
+                        int pageSize = Integer.parseInt(size);
+                        if (policy.equals("optimal")) {
+                            variants.add(ReplayVariant.optimal(numberOfFrames, pageSize));
+                        } else {
+                            ReplacementPolicyType type = ReplacementPolicyType.valueOf(policy.toUpperCase());
+                            variants.add(ReplayVariant.of(numberOfFrames, pageSize, type));
+                        }
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            ReplayResult[] results = new TraceReplayer(trace).replay(variants, Math.max(1, parallelism));
+            long elapsed = System.nanoTime() - start;
+            printResults(System.out, trace, results, elapsed);
+        } catch (Exception ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    private static void printResults(PrintStream out, ReferenceTrace trace, ReplayResult[] results, long elapsed) {
+        double seconds = elapsed / 1e9;
+        out.printf(Locale.ROOT, "references: %d, processes: %d, variants: %d, elapsed: %.3f s%n",
+                trace.numberOfReferences(), trace.numberOfProcesses(), results.length, seconds);
+        out.printf("%10s %10s %8s %12s %12s %10s %12s %14s%n",
+                "page size", "frames", "policy", "faults", "evictions", "fault rate", "invalid", "references/s");
+        Map<String, Map<Integer, Double>> curves = new LinkedHashMap<>();
+        for (ReplayResult result : results) {
+            ReplayVariant variant = result.variant();
+            double variantSeconds = result.elapsedNanos() / 1e9;
+            out.printf(Locale.ROOT, "%10d %10d %8s %12d %12d %10.4f %12d %14.0f%n",
+                    variant.pageSize(), variant.numberOfFrames(), variant.policyName(), result.pageFaults(),
+                    result.evictions(), result.faultRate(), result.invalidReferences(),
+                    variantSeconds == 0 ? 0 : result.references() / variantSeconds);
+            curves.computeIfAbsent(String.format("%10d %8s", variant.pageSize(), variant.policyName()),
+                    key -> new TreeMap<>()).put(variant.numberOfFrames(), result.faultRate());
+        }
+
+        out.println("miss-ratio curves (frames:fault rate):");
+        for (Map.Entry<String, Map<Integer, Double>> curve : curves.entrySet()) {
+            StringBuilder line = new StringBuilder(curve.getKey());
+            for (Map.Entry<Integer, Double> point : curve.getValue().entrySet()) {
+                line.append(String.format(Locale.ROOT, " %d:%.4f", point.getKey(), point.getValue()));
+            }
+            out.println(line);
+        }
+    }
+
+    /**
+     *
+     * This method converts a workload trace, as replayed by the batch
+     * mode, into a reference trace.
+     *
+     * @param args the workload trace, the reference trace and its page size
+     *
+     */
+    public static void record(String[] args) {
+        if (args.length != 3) {
+            System.err.println(RECORD_USAGE);
+            return;
+        }
+
+        try (TraceReader reader = new TraceReader(Paths.get(args[0]));
+             ReferenceTraceWriter writer = new ReferenceTraceWriter(Paths.get(args[1]), Integer.parseInt(args[2]))) {
+            Map<Integer, Integer> running = new HashMap<>();
+            int lastProcessId = 0;
+            TraceOperation operation = new TraceOperation();
+            while (reader.next(operation)) {
+                int processId = operation.getProcessId();
+                switch (operation.getType()) {
+                    case CREATE:
+                    case FORK:
+                        boolean fork = operation.getType() == TraceOperation.Type.FORK;
+                        int size = fork ? running.getOrDefault(processId, 0) : operation.getArgument();
+                        if (size <= 0) {
+                            break;
+                        }
+                        int newProcessId = fork ? -1 : processId;
+                        if (newProcessId == -1) {
+                            do {
+                                ++lastProcessId;
+                            } while (running.containsKey(lastProcessId));
+                            newProcessId = lastProcessId;
+                        }
+                        lastProcessId = Math.max(lastProcessId, newProcessId);
+                        running.put(newProcessId, size);
+                        writer.addProcess(newProcessId, size);
+                        break;
+                    case TERMINATE:
+                        running.remove(processId);
+                        break;
+                    case ACCESS:
+                    case WRITE:
+                        if (operation.getArgument() < 0) {
+                            break;
+                        }
+                        writer.reference(processId, operation.getArgument() / writer.pageSize(),
+                                operation.getType() == TraceOperation.Type.WRITE);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            System.out.printf("references: %d%n", writer.numberOfReferences());
+        } catch (Exception ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package replay;
+
+/**
+ * What replaying a trace on one {@link ReplayVariant} gave.
+ */
+public class ReplayResult {
+
+    private final ReplayVariant variant;
+    private final long references;
+    private final long invalidReferences;
+    private final long pageFaults;
+    private final long evictions;
+    private final long elapsedNanos;
+
+    ReplayResult(ReplayVariant variant, long references, long invalidReferences,
+                 long pageFaults, long evictions, long elapsedNanos) {
+        this.variant = variant;
+        this.references = references;
+        this.invalidReferences = invalidReferences;
+        this.pageFaults = pageFaults;
+        this.evictions = evictions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public ReplayVariant variant() {
+        return variant;
+    }
+
+    /**
+     * @return how many references were replayed, the invalid ones included
+     */
+    public long references() {
+        return references;
+    }
+
+    /**
+     * @return how many references named a process the trace doesn't
+     * have, or a page past the end of their process
+     */
+    public long invalidReferences() {
+        return invalidReferences;
+    }
+
+    public long pageFaults() {
+        return pageFaults;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the share of the valid references that faulted
+     */
+    public double faultRate() {
+        long valid = references - invalidReferences;
+        return valid == 0 ? 0 : pageFaults / (double) valid;
+    }
+}
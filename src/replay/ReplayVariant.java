@@ -0,0 +1,69 @@
+package replay;
+
+import paging.ReplacementPolicyType;
+
+/**
+ * One memory a trace is replayed on: how many frames it has, how big
+ * they are, and the policy that picks which page to evict.
+ *
+ * Besides the policies of {@link ReplacementPolicyType}, a variant can
+ * use the optimal policy, which is built from the trace itself and
+ * gives the fewest faults any policy could get on that memory.
+ */
+public class ReplayVariant {
+
+    private final int numberOfFrames;
+    private final int pageSize;
+    private final ReplacementPolicyType policy;
+
+    /**
+     * @param numberOfFrames how many frames the memory has
+     * @param pageSize the size of each frame, in bytes
+     * @param policy the replacement policy, or null for the optimal one
+     */
+    private ReplayVariant(int numberOfFrames, int pageSize, ReplacementPolicyType policy) {
+        if (numberOfFrames <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("A variant needs at least one frame of a positive size.");
+        }
+        this.numberOfFrames = numberOfFrames;
+        this.pageSize = pageSize;
+        this.policy = policy;
+    }
+
+    public static ReplayVariant of(int numberOfFrames, int pageSize, ReplacementPolicyType policy) {
+        return new ReplayVariant(numberOfFrames, pageSize, policy);
+    }
+
+    public static ReplayVariant optimal(int numberOfFrames, int pageSize) {
+        return new ReplayVariant(numberOfFrames, pageSize, null);
+    }
+
+    public int numberOfFrames() {
+        return numberOfFrames;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public boolean isOptimal() {
+        return policy == null;
+    }
+
+    /**
+     * @return the replacement policy, or LRU for an optimal variant,
+     * whose policy is handed to the manager once it is configured
+     */
+    public ReplacementPolicyType policy() {
+        return policy == null ? ReplacementPolicyType.LRU : policy;
+    }
+
+    public String policyName() {
+        return policy == null ? "optimal" : policy.name().toLowerCase();
+    }
+
+    @Override
+    public String toString() {
+        return numberOfFrames + " frames of " + pageSize + " bytes, " + policyName();
+    }
+}
@@ -0,0 +1,219 @@
+package replay;
+
+import error.InvalidAddressException;
+import error.ProcessNotFoundException;
+import manager.AllocationBatch;
+import manager.AllocationStatus;
+import manager.MemoryManager;
+import misc.Configuration;
+import misc.OutputSink;
+import paging.OptimalReplacementPolicy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Replays a {@link ReferenceTrace} on memories of several shapes, to
+ * see which one would have faulted the least.
+ *
+ * Each variant gets its own {@link MemoryManager}, with demand paging
+ * over a temporary swap file, and every process of the trace created up
+ * front. The references then go straight into it, in one pass over the
+ * mapped trace, each a read or a write of the first byte of its page.
+ * The variants are split in halves, fork-join style, until each
+ * replays on a thread of its own, and all of them read the same
+ * mapping of the trace.
+ *
+ * The swap file is sized for every process at the largest size of the
+ * trace, so no process is turned away for lack of room; it is created
+ * sparse, so only the slots pages are evicted to take up disk space.
+ */
+public class TraceReplayer {
+
+    private static final OutputSink DISCARD = message -> { };
+
+    private final ReferenceTrace trace;
+
+    public TraceReplayer(ReferenceTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     *
+     * This method replays the trace on every variant, as many at a
+     * time as the parallelism allows.
+     *
+     * @param variants the memories the trace is replayed on
+     * @param parallelism how many variants are replayed at once
+     *
+     * @return the result of each variant, in the order of variants
+     *
+     */
+    public ReplayResult[] replay(List<ReplayVariant> variants, int parallelism) throws IOException {
+        ReplayResult[] results = new ReplayResult[variants.size()];
+        if (results.length == 0) {
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new VariantRange(variants, results, 0, results.length));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     *
+     * This method replays the whole trace on one variant.
+     *
+     * @param variant the memory the trace is replayed on
+     *
+     */
+    public ReplayResult replay(ReplayVariant variant) throws IOException {
+        int pageSize = variant.pageSize();
+        int maxProcessSize = (int) Math.max(pageSize, Math.min(
+                Integer.MAX_VALUE / pageSize * pageSize,
+                ((long) trace.maxProcessSize() + pageSize - 1) / pageSize * pageSize
+        ));
+        Path swapFile = Files.createTempFile("replay-", ".swap");
+        MemoryManager manager = new MemoryManager(DISCARD);
+        try {
+            manager.storeConfiguration(new Configuration(
+                    (long) variant.numberOfFrames() * pageSize, pageSize, maxProcessSize
+            ).withSwap((long) Math.max(1, trace.numberOfProcesses()) * maxProcessSize, swapFile.toString(),
+                    variant.policy()));
+
+            AllocationBatch batch = new AllocationBatch(trace.numberOfProcesses());
+            for (int i = 0; i < trace.numberOfProcesses(); i++) {
+                batch.add(trace.processIdAt(i), trace.processSizeAt(i));
+            }
+            manager.createProcesses(batch);
+            if (variant.isOptimal()) {
+                manager.setReplacementPolicy(optimalPolicy(variant, batch));
+            }
+
+            long start = System.nanoTime();
+            long invalid = replayReferences(manager);
+            long elapsed = System.nanoTime() - start;
+            return new ReplayResult(variant, trace.numberOfReferences(), invalid,
+                    manager.getPageFaults(), manager.getEvictions(), elapsed);
+        } finally {
+            manager.close();
+            Files.deleteIfExists(swapFile);
+        }
+    }
+
+    /**
+     * @return how many references were invalid
+     */
+    private long replayReferences(MemoryManager manager) throws IOException {
+        long tracePageSize = trace.pageSize();
+        long references = trace.numberOfReferences();
+        long invalid = 0;
+        for (long i = 0; i < references; i++) {
+            long record = trace.record(i);
+            long address = ReferenceTrace.pageOf(record) * tracePageSize;
+            if (address > Integer.MAX_VALUE) {
+                invalid++;
+                continue;
+            }
+            try {
+                if (ReferenceTrace.isWrite(record)) {
+                    manager.writeByte(ReferenceTrace.processIdOf(record), (int) address, (byte) 1);
+                } else {
+                    manager.accessMemory(ReferenceTrace.processIdOf(record), (int) address);
+                }
+            } catch (ProcessNotFoundException | InvalidAddressException ex) {
+                invalid++;
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException("Reference " + i + " could not be replayed: " + ex.getMessage(), ex);
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * This method builds the optimal policy from the references the
+     * manager will see, which leaves out the invalid ones, numbered in
+     * the pages of the variant.
+     */
+    private OptimalReplacementPolicy optimalPolicy(ReplayVariant variant, AllocationBatch batch) {
+        long references = trace.numberOfReferences();
+        if (references > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The trace is too long for the optimal policy.");
+        }
+        int[] created = new int[batch.createdCount()];
+        int count = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.statusOf(i) == AllocationStatus.CREATED) {
+                created[count++] = batch.processIdOf(i);
+            }
+        }
+        Arrays.sort(created);
+
+        int[] processIds = new int[(int) references];
+        int[] virtualPageNumbers = new int[(int) references];
+        int valid = 0;
+        for (long i = 0; i < references; i++) {
+            long record = trace.record(i);
+            int processId = ReferenceTrace.processIdOf(record);
+            long address = ReferenceTrace.pageOf(record) * (long) trace.pageSize();
+            if (Arrays.binarySearch(created, processId) < 0 || address >= trace.sizeOf(processId)) {
+                continue;
+            }
+            processIds[valid] = processId;
+            virtualPageNumbers[valid++] = (int) (address / variant.pageSize());
+        }
+        return new OptimalReplacementPolicy(
+                variant.numberOfFrames(),
+                Arrays.copyOf(processIds, valid),
+                Arrays.copyOf(virtualPageNumbers, valid)
+        );
+    }
+
+    /**
+     * Replays the variants from one index up to another, halving the
+     * range until a single variant is left.
+     */
+    private final class VariantRange extends RecursiveAction {
+        private final List<ReplayVariant> variants;
+        private final ReplayResult[] results;
+        private final int from;
+        private final int to;
+
+        VariantRange(List<ReplayVariant> variants, ReplayResult[] results, int from, int to) {
+            this.variants = variants;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new VariantRange(variants, results, from, middle),
+                        new VariantRange(variants, results, middle, to)
+                );
+                return;
+            }
+            try {
+                results[from] = replay(variants.get(from));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
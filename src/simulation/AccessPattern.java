@@ -0,0 +1,190 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Which page of a process a simulated access touches, written on the
+ * command line as sequential, uniform or zipf:&lt;exponent&gt;.
+ *
+ * A sequential process walks its pages in order, wrapping around at
+ * the end. A Zipfian one touches its k-th page with a probability
+ * proportional to 1 / k^exponent, so its first pages are the hot ones.
+ * Zipfian pages are drawn by rejection-inversion (Hormann and
+ * Derflinger), which takes constant time whatever the number of pages;
+ * its constants only depend on that number, so they are worked out
+ * once per process size and kept.
+ *
+ * A pattern keeps those constants, so it is not meant to be shared
+ * between simulations running at the same time.
+ */
+public final class AccessPattern {
+
+    private enum Shape {
+        SEQUENTIAL,
+        UNIFORM,
+        ZIPF
+    }
+
+    private final Shape shape;
+    private final double exponent;
+    private ZipfSampler[] samplers;
+
+    private AccessPattern(Shape shape, double exponent) {
+        this.shape = shape;
+        this.exponent = exponent;
+        samplers = new ZipfSampler[0];
+    }
+
+    public static AccessPattern sequential() {
+        return new AccessPattern(Shape.SEQUENTIAL, 0);
+    }
+
+    public static AccessPattern uniform() {
+        return new AccessPattern(Shape.UNIFORM, 0);
+    }
+
+    public static AccessPattern zipf(double exponent) {
+        if (!(exponent > 0)) {
+            throw new IllegalArgumentException("The exponent of a Zipfian pattern must be positive.");
+        }
+        return new AccessPattern(Shape.ZIPF, exponent);
+    }
+
+    /**
+     *
+     * This method reads a pattern written as on the command line.
+     *
+     * @param spec sequential, uniform or zipf:&lt;exponent&gt;
+     *
+     */
+    public static AccessPattern parse(String spec) {
+        if (spec.equals("sequential")) {
+            return sequential();
+        } else if (spec.equals("uniform")) {
+            return uniform();
+        } else if (spec.startsWith("zipf:")) {
+            try {
+                return zipf(Double.parseDouble(spec.substring("zipf:".length())));
+            } catch (NumberFormatException ex) {
+                // reported below, like any other malformed pattern
+            }
+        }
+        throw new IllegalArgumentException("Access pattern " + spec + " is not valid.");
+    }
+
+    /**
+     *
+     * This method picks the page the next access of a process touches.
+     *
+     * @param random where the randomness comes from
+     * @param pages how many pages the process has
+     * @param previous the page the process touched last, or -1 if none
+     *
+     * @return a page number, from 0 to pages - 1
+     *
+     */
+    public int nextPage(SplittableRandom random, int pages, int previous) {
+        switch (shape) {
+            case SEQUENTIAL:
+                return previous + 1 < pages ? previous + 1 : 0;
+            case UNIFORM:
+                return random.nextInt(pages);
+            default:
+                return samplerFor(pages).sample(random) - 1;
+        }
+    }
+
+    private ZipfSampler samplerFor(int pages) {
+        if (pages >= samplers.length) {
+            samplers = Arrays.copyOf(samplers, Math.max(pages + 1, samplers.length * 2));
+        }
+        ZipfSampler sampler = samplers[pages];
+        if (sampler == null) {
+            sampler = new ZipfSampler(pages, exponent);
+            samplers[pages] = sampler;
+        }
+        return sampler;
+    }
+
+    @Override
+    public String toString() {
+        return shape == Shape.ZIPF ? "zipf:" + exponent : shape.name().toLowerCase();
+    }
+
+    /**
+     * Draws ranks from 1 to numberOfElements of a Zipf distribution by
+     * rejection-inversion: a continuous hat function h(x) = x^-exponent
+     * is sampled by inverting its integral, and the few draws that fall
+     * outside the area of the discrete distribution are drawn again.
+     */
+    private static final class ZipfSampler {
+        private final int numberOfElements;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralNumberOfElements;
+        private final double threshold;
+
+        ZipfSampler(int numberOfElements, double exponent) {
+            this.numberOfElements = numberOfElements;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1.0;
+            hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+            threshold = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+
+        int sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralNumberOfElements
+                        + random.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > numberOfElements) {
+                    k = numberOfElements;
+                }
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1.0 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1.0 - exponent);
+            if (t < -1.0) {
+                t = -1.0;
+            }
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        /**
+         * @return log(1 + x) / x, which tends to 1 as x tends to 0
+         */
+        private static double log1pOverX(double x) {
+            if (Math.abs(x) > 1e-8) {
+                return Math.log1p(x) / x;
+            }
+            return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+
+        /**
+         * @return (e^x - 1) / x, which tends to 1 as x tends to 0
+         */
+        private static double expm1OverX(double x) {
+            if (Math.abs(x) > 1e-8) {
+                return Math.expm1(x) / x;
+            }
+            return 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * A distribution the sizes and lifetimes of simulated processes are
+ * drawn from, written on the command line as fixed:&lt;value&gt;,
+ * uniform:&lt;low&gt;:&lt;high&gt; or exp:&lt;mean&gt;.
+ */
+public final class Distribution {
+
+    private enum Shape {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL
+    }
+
+    private final Shape shape;
+    private final double first;
+    private final double second;
+
+    private Distribution(Shape shape, double first, double second) {
+        this.shape = shape;
+        this.first = first;
+        this.second = second;
+    }
+
+    public static Distribution fixed(double value) {
+        return new Distribution(Shape.FIXED, value, value);
+    }
+
+    public static Distribution uniform(double low, double high) {
+        if (!(low <= high)) {
+            throw new IllegalArgumentException("The low end of a uniform distribution can't be above its high end.");
+        }
+        return new Distribution(Shape.UNIFORM, low, high);
+    }
+
+    public static Distribution exponential(double mean) {
+        if (!(mean > 0)) {
+            throw new IllegalArgumentException("The mean of an exponential distribution must be positive.");
+        }
+        return new Distribution(Shape.EXPONENTIAL, mean, mean);
+    }
+
+    /**
+     *
+     * This method reads a distribution written as on the command line.
+     *
+     * @param spec fixed:&lt;value&gt;, uniform:&lt;low&gt;:&lt;high&gt; or exp:&lt;mean&gt;
+     *
+     */
+    public static Distribution parse(String spec) {
+        String[] fields = spec.split(":");
+        try {
+            if (fields[0].equals("fixed") && fields.length == 2) {
+                return fixed(Double.parseDouble(fields[1]));
+            } else if (fields[0].equals("uniform") && fields.length == 3) {
+                return uniform(Double.parseDouble(fields[1]), Double.parseDouble(fields[2]));
+            } else if (fields[0].equals("exp") && fields.length == 2) {
+                return exponential(Double.parseDouble(fields[1]));
+            }
+        } catch (NumberFormatException ex) {
+            // reported below, like any other malformed distribution
+        }
+        throw new IllegalArgumentException("Distribution " + spec + " is not valid.");
+    }
+
+    public double sample(SplittableRandom random) {
+        switch (shape) {
+            case UNIFORM:
+                return first + (second - first) * random.nextDouble();
+            case EXPONENTIAL:
+                return -first * Math.log(1.0 - random.nextDouble());
+            default:
+                return first;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (shape) {
+            case UNIFORM:
+                return "uniform:" + first + ":" + second;
+            case EXPONENTIAL:
+                return "exp:" + first;
+            default:
+                return "fixed:" + first;
+        }
+    }
+}
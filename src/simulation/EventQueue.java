@@ -0,0 +1,125 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * The pending events of a simulation, in a binary min-heap on their
+ * time. The heap is kept in parallel primitive arrays, so scheduling
+ * an event allocates nothing once the arrays have grown.
+ *
+ * An event is only a time and a long payload, whose meaning is up to
+ * the simulation. Events due at the same time come out in the order
+ * they were scheduled, so a run never depends on how ties happen to
+ * fall in the heap.
+ */
+final class EventQueue {
+
+    private double[] times;
+    private long[] sequences;
+    private long[] payloads;
+    private int size;
+    private long nextSequence;
+
+    private double time;
+    private long payload;
+
+    EventQueue(int capacity) {
+        times = new double[Math.max(1, capacity)];
+        sequences = new long[times.length];
+        payloads = new long[times.length];
+    }
+
+    void schedule(double eventTime, long eventPayload) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+        }
+        siftUp(size++, eventTime, nextSequence++, eventPayload);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the time of the next event, which must exist
+     */
+    double peekTime() {
+        return times[0];
+    }
+
+    /**
+     * This method removes the next event, whose time and payload
+     * are then read with {@link #time()} and {@link #payload()}.
+     */
+    void poll() {
+        time = times[0];
+        payload = payloads[0];
+        if (--size > 0) {
+            siftDown(0, times[size], sequences[size], payloads[size]);
+        }
+    }
+
+    /**
+     * @return the time of the event polled last
+     */
+    double time() {
+        return time;
+    }
+
+    /**
+     * @return the payload of the event polled last
+     */
+    long payload() {
+        return payload;
+    }
+
+    private void siftUp(int index, double eventTime, long sequence, long eventPayload) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!earlier(eventTime, sequence, times[parent], sequences[parent])) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        set(index, eventTime, sequence, eventPayload);
+    }
+
+    private void siftDown(int index, double eventTime, long sequence, long eventPayload) {
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && earlier(times[right], sequences[right], times[child], sequences[child])) {
+                child = right;
+            }
+            if (!earlier(times[child], sequences[child], eventTime, sequence)) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        set(index, eventTime, sequence, eventPayload);
+    }
+
+    private static boolean earlier(double time, long sequence, double otherTime, long otherSequence) {
+        return time < otherTime || (time == otherTime && sequence < otherSequence);
+    }
+
+    private void move(int from, int to) {
+        set(to, times[from], sequences[from], payloads[from]);
+    }
+
+    private void set(int index, double eventTime, long sequence, long eventPayload) {
+        times[index] = eventTime;
+        sequences[index] = sequence;
+        payloads[index] = eventPayload;
+    }
+}
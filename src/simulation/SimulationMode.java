@@ -0,0 +1,235 @@
+package simulation;
+
+import data.memory.AllocationStrategy;
+import data.process.PageTableType;
+import manager.ConcurrentMemoryManager;
+import manager.IMemoryManager;
+import manager.MemoryManager;
+import misc.Configuration;
+import misc.OutputSink;
+import paging.ReplacementPolicyType;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Entry point of the simulation mode, which runs a synthetic workload
+ * against a manager and prints how it copes over time.
+ *
+ * Usage:
+ * <pre>
+ * --simulate &lt;memorySize&gt; &lt;pageSize&gt; &lt;maxProcessSize&gt;
+ *            [--seed &lt;n&gt;] [--duration &lt;time&gt;] [--sample-interval &lt;time&gt;]
+ *            [--arrival-rate &lt;rate&gt;] [--size &lt;distribution&gt;] [--lifetime &lt;distribution&gt;]
+ *            [--access-rate &lt;rate&gt;] [--access sequential|uniform|zipf:&lt;exponent&gt;]
+ *            [--write-ratio &lt;ratio&gt;] [--swap &lt;file&gt; &lt;size&gt;]
+ *            [--compressed-swap &lt;size&gt; &lt;arenaSize&gt;[:&lt;file&gt;]] [--policy fifo|lru|clock]
+ *            [--page-table dense|two-level|three-level|inverted]
+ *            [--allocator first-fit|buddy|slab] [--reclaim &lt;low&gt;:&lt;high&gt;:&lt;batch&gt;] [--concurrent]
+ * </pre>
+ *
+ * A distribution is fixed:&lt;value&gt;, uniform:&lt;low&gt;:&lt;high&gt;
+ * or exp:&lt;mean&gt;. Sizes are uniform from 1 byte to maxProcessSize,
+ * and lifetimes exponential with mean 10, unless said otherwise. Each
+ * process makes 100 accesses per unit of time, on pages picked
+ * uniformly, unless --access-rate or --access say otherwise.
+ *
+ * The samples are printed as comma-separated lines, one per sample
+ * interval, followed by the totals of the run on lines starting with #.
+ * With --reclaim, pages are evicted in the background by a thread of
+ * their own, so a run is no longer the same every time for a seed.
+ */
+public class SimulationMode {
+
+    private static final String USAGE = "Usage: --simulate <memorySize> <pageSize> <maxProcessSize>"
+            + " [--seed <n>] [--duration <time>] [--sample-interval <time>] [--arrival-rate <rate>]"
+            + " [--size <distribution>] [--lifetime <distribution>] [--access-rate <rate>]"
+            + " [--access sequential|uniform|zipf:<exponent>] [--write-ratio <ratio>]"
+            + " [--swap <file> <size>] [--compressed-swap <size> <arenaSize>[:<file>]] [--policy fifo|lru|clock]"
+            + " [--page-table dense|two-level|three-level|inverted]"
+            + " [--allocator first-fit|buddy|slab] [--reclaim <low>:<high>:<batch>] [--concurrent]";
+
+    public static void run(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        String seed = "0";
+        String duration = "1000";
+        String sampleInterval = "10";
+        String arrivalRate = "10";
+        String size = null;
+        String lifetime = "exp:10";
+        String accessRate = "100";
+        String access = "uniform";
+        String writeRatio = "0";
+        String swapFile = null;
+        String swapSize = null;
+        String compressedSwapSize = null;
+        String compressedSwapArena = null;
+        String reclaim = null;
+        ReplacementPolicyType policy = ReplacementPolicyType.LRU;
+        PageTableType pageTable = PageTableType.DENSE;
+        AllocationStrategy allocator = AllocationStrategy.FIRST_FIT;
+        boolean concurrent = false;
+
+        for (int i = 3; i < args.length; i++) {
+            String option = args[i];
+            switch (option) {
+                case "--concurrent":
+                    concurrent = true;
+                    break;
+                case "--swap":
+                    if (i + 2 >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    swapFile = args[++i];
+                    swapSize = args[++i];
+                    break;
+                case "--compressed-swap":
+                    if (i + 2 >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    compressedSwapSize = args[++i];
+                    compressedSwapArena = args[++i];
+                    break;
+                case "--policy":
+                    try {
+                        policy = ReplacementPolicyType.valueOf(++i < args.length ? args[i].toUpperCase() : "");
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--page-table":
+                    try {
+                        pageTable = PageTableType.valueOf(
+                                ++i < args.length ? args[i].toUpperCase().replace('-', '_') : ""
+                        );
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                case "--allocator":
+                    try {
+                        allocator = AllocationStrategy.valueOf(
+                                ++i < args.length ? args[i].toUpperCase().replace('-', '_') : ""
+                        );
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+                default:
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    String value = args[i];
+                    if (option.equals("--seed")) {
+                        seed = value;
+                    } else if (option.equals("--duration")) {
+                        duration = value;
+                    } else if (option.equals("--sample-interval")) {
+                        sampleInterval = value;
+                    } else if (option.equals("--arrival-rate")) {
+                        arrivalRate = value;
+                    } else if (option.equals("--size")) {
+                        size = value;
+                    } else if (option.equals("--lifetime")) {
+                        lifetime = value;
+                    } else if (option.equals("--access-rate")) {
+                        accessRate = value;
+                    } else if (option.equals("--access")) {
+                        access = value;
+                    } else if (option.equals("--write-ratio")) {
+                        writeRatio = value;
+                    } else if (option.equals("--reclaim")) {
+                        reclaim = value;
+                    } else {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    break;
+            }
+        }
+
+        if (swapFile != null && compressedSwapSize != null) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+        try {
+            Configuration configuration = new Configuration(
+                    Long.parseLong(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2])
+            ).withPageTable(pageTable).withAllocationStrategy(allocator);
+            if (swapFile != null) {
+                configuration = configuration.withSwap(Long.parseLong(swapSize), swapFile, policy);
+            }
+            if (compressedSwapSize != null) {
+                int separator = compressedSwapArena.indexOf(':');
+                String arenaSize = separator == -1 ? compressedSwapArena : compressedSwapArena.substring(0, separator);
+                configuration = configuration.withCompressedSwap(
+                        Long.parseLong(compressedSwapSize), Long.parseLong(arenaSize),
+                        separator == -1 ? null : compressedSwapArena.substring(separator + 1), policy
+                );
+            }
+            if (reclaim != null) {
+                String[] fields = reclaim.split(":");
+                if (fields.length != 3) {
+                    System.err.println(USAGE);
+                    return;
+                }
+                configuration = configuration.withBackgroundReclaim(
+                        Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2])
+                );
+            }
+            Workload workload = new Workload(
+                    Double.parseDouble(arrivalRate),
+                    size != null ? Distribution.parse(size) : Distribution.uniform(1, configuration.maxProcessSize()),
+                    Distribution.parse(lifetime)
+            ).withAccesses(Double.parseDouble(accessRate), AccessPattern.parse(access),
+                    Double.parseDouble(writeRatio));
+
+            OutputSink sink = message -> { };
+            IMemoryManager manager;
+            MemoryManager memoryManager = null;
+            if (concurrent) {
+                ConcurrentMemoryManager concurrentManager = new ConcurrentMemoryManager(sink);
+                concurrentManager.storeConfiguration(configuration);
+                manager = concurrentManager;
+            } else {
+                memoryManager = new MemoryManager(sink);
+                memoryManager.storeConfiguration(configuration);
+                manager = memoryManager;
+            }
+
+            Simulator simulator = new Simulator(
+                    manager, configuration.numberOfFrames(), configuration.pageSize(), workload, Long.parseLong(seed)
+            );
+            simulator.run(Double.parseDouble(duration), Double.parseDouble(sampleInterval), out);
+            simulator.printSummary(out);
+            if (memoryManager != null && configuration.isDemandPagingEnabled()) {
+                out.printf("# page faults: %d, evictions: %d%n",
+                        memoryManager.getPageFaults(), memoryManager.getEvictions());
+                out.printf("# frames taken free: %d, by direct reclaim: %d%n",
+                        memoryManager.getFastPathAllocations(), memoryManager.getDirectReclaimAllocations());
+            }
+            if (memoryManager != null && configuration.isBackgroundReclaimEnabled()) {
+                out.printf("# background reclaim: %d batches, %d frames%n",
+                        memoryManager.getBackgroundReclaimBatches(), memoryManager.getBackgroundReclaimedFrames());
+            }
+            out.flush();
+        } catch (Exception ex) {
+            out.flush();
+            System.err.println(ex.getMessage());
+        }
+    }
+}
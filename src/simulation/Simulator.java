@@ -0,0 +1,329 @@
+package simulation;
+
+import manager.AllocationBatch;
+import manager.AllocationStatus;
+import manager.IMemoryManager;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Drives a memory manager with a synthetic {@link Workload}, as a
+ * discrete-event simulation: processes arrive, access their pages and
+ * are terminated at simulated times, taken in order from an
+ * {@link EventQueue}, and nothing ever waits for the clock.
+ *
+ * Every random draw comes from generators split off one seed, one for
+ * the arrivals, one for the sizes and lifetimes and one for the
+ * accesses, so the same seed, workload and configuration always give
+ * the same run, and changing how processes access their memory doesn't
+ * change when they arrive.
+ *
+ * The accesses of all the running processes together are a Poisson
+ * process whose rate is the rate of one process times how many run, so
+ * only one access is ever pending. When a process arrives or leaves,
+ * the pending access is dropped and drawn again at the new rate, which
+ * the exponential gaps between accesses allow without biasing them.
+ *
+ * Processes are created through {@link IMemoryManager#createProcesses},
+ * so a rejected arrival is only counted, never thrown.
+ */
+public class Simulator {
+
+    public static final String HEADER = "time,running,utilization,arrivals,rejections,failure_rate,"
+            + "accesses,access_failures";
+
+    private static final int ARRIVAL = 0;
+    private static final int DEPARTURE = 1;
+    private static final int ACCESS = 2;
+    private static final int SAMPLE = 3;
+    private static final int KIND_BITS = 2;
+    private static final long KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private static final AllocationStatus[] STATUSES = AllocationStatus.values();
+
+    private final IMemoryManager manager;
+    private final int numberOfFrames;
+    private final int pageSize;
+    private final Workload workload;
+    private final SplittableRandom arrivalRandom;
+    private final SplittableRandom processRandom;
+    private final SplittableRandom accessRandom;
+    private final EventQueue queue;
+    private final AllocationBatch batch;
+
+    /**
+     * The running processes live in slots, which are reused once a
+     * process leaves; running keeps the slots in use, packed at its
+     * start, so an access can pick one of them in constant time.
+     */
+    private int[] processIds;
+    private int[] pages;
+    private int[] lastPages;
+    private int[] positions;
+    private int[] running;
+    private int[] freeSlots;
+    private int runningCount;
+    private int freeSlotCount;
+
+    private long accessGeneration;
+    private boolean started;
+
+    private long events;
+    private long arrivals;
+    private long created;
+    private final long[] rejections;
+    private long accesses;
+    private long accessFailures;
+    private long elapsedNanos;
+
+    private long intervalArrivals;
+    private long intervalRejections;
+    private long intervalAccesses;
+    private long intervalAccessFailures;
+
+    /**
+     * @param manager the manager the workload runs against, already configured
+     * @param numberOfFrames how many frames the manager has
+     * @param pageSize the page size of the manager, in bytes
+     * @param workload what the simulated processes do
+     * @param seed where every random draw of the run comes from
+     */
+    public Simulator(IMemoryManager manager, int numberOfFrames, int pageSize, Workload workload, long seed) {
+        this.manager = manager;
+        this.numberOfFrames = numberOfFrames;
+        this.pageSize = pageSize;
+        this.workload = workload;
+        SplittableRandom random = new SplittableRandom(seed);
+        arrivalRandom = random.split();
+        processRandom = random.split();
+        accessRandom = random.split();
+        queue = new EventQueue(1024);
+        batch = new AllocationBatch(1);
+        rejections = new long[STATUSES.length];
+
+        int capacity = 64;
+        processIds = new int[capacity];
+        pages = new int[capacity];
+        lastPages = new int[capacity];
+        positions = new int[capacity];
+        running = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    /**
+     *
+     * This method runs the simulation from time 0, writing a line to
+     * out after every sample interval with what happened during it,
+     * after a first line naming the columns. A simulator runs once.
+     *
+     * @param duration when the simulation stops, in simulated time
+     * @param sampleInterval how much simulated time each line covers
+     * @param out where the lines are written
+     *
+     */
+    public void run(double duration, double sampleInterval, PrintStream out) {
+        if (started) {
+            throw new IllegalStateException("A simulator runs only once.");
+        }
+        if (!(sampleInterval > 0)) {
+            throw new IllegalArgumentException("The sample interval must be positive.");
+        }
+        started = true;
+        out.println(HEADER);
+
+        long samples = 0;
+        queue.schedule(exponentialGap(arrivalRandom, workload.arrivalRate()), ARRIVAL);
+        queue.schedule(sampleInterval, SAMPLE);
+
+        long start = System.nanoTime();
+        while (!queue.isEmpty() && queue.peekTime() <= duration) {
+            queue.poll();
+            double now = queue.time();
+            long payload = queue.payload();
+            switch ((int) (payload & KIND_MASK)) {
+                case ARRIVAL:
+                    arrive(now);
+                    break;
+                case DEPARTURE:
+                    depart(now, (int) (payload >>> KIND_BITS));
+                    break;
+                case ACCESS:
+                    if (payload >>> KIND_BITS != accessGeneration) {
+                        // drawn at a rate that no longer holds
+                        continue;
+                    }
+                    access(now);
+                    break;
+                default:
+                    writeSample(now, out);
+                    queue.schedule((++samples + 1) * sampleInterval, SAMPLE);
+                    break;
+            }
+            events++;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        out.flush();
+    }
+
+    private void arrive(double now) {
+        long drawnSize = Math.round(workload.size().sample(processRandom));
+        int size = (int) Math.max(1, Math.min(Integer.MAX_VALUE, drawnSize));
+        double lifetime = workload.lifetime().sample(processRandom);
+        queue.schedule(now + exponentialGap(arrivalRandom, workload.arrivalRate()), ARRIVAL);
+        arrivals++;
+        intervalArrivals++;
+
+        batch.clear();
+        int request = batch.add(AllocationBatch.NO_PROCESS, size);
+        manager.createProcesses(batch);
+        AllocationStatus status = batch.statusOf(request);
+        if (status != AllocationStatus.CREATED) {
+            rejections[status.ordinal()]++;
+            intervalRejections++;
+            return;
+        }
+        created++;
+
+        int slot = takeSlot();
+        processIds[slot] = batch.processIdOf(request);
+        pages[slot] = (size + pageSize - 1) / pageSize;
+        lastPages[slot] = -1;
+        positions[slot] = runningCount;
+        running[runningCount++] = slot;
+        queue.schedule(now + lifetime, (long) slot << KIND_BITS | DEPARTURE);
+        redrawAccess(now);
+    }
+
+    private void depart(double now, int slot) {
+        try {
+            manager.terminateProcess(processIds[slot]);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Process " + processIds[slot] + " could not be terminated.", ex);
+        }
+
+        int position = positions[slot];
+        int last = running[--runningCount];
+        running[position] = last;
+        positions[last] = position;
+        freeSlots[freeSlotCount++] = slot;
+        redrawAccess(now);
+    }
+
+    private void access(double now) {
+        int slot = running[accessRandom.nextInt(runningCount)];
+        int page = workload.accessPattern().nextPage(accessRandom, pages[slot], lastPages[slot]);
+        lastPages[slot] = page;
+        boolean write = accessRandom.nextDouble() < workload.writeRatio();
+        accesses++;
+        intervalAccesses++;
+        try {
+            if (write) {
+                manager.writeByte(processIds[slot], page * pageSize, (byte) accesses);
+            } else {
+                manager.accessMemory(processIds[slot], page * pageSize);
+            }
+        } catch (Exception ex) {
+            accessFailures++;
+            intervalAccessFailures++;
+        }
+        queue.schedule(now + exponentialGap(accessRandom, accessRate()), accessGeneration << KIND_BITS | ACCESS);
+    }
+
+    /**
+     * This method drops the pending access, if any, and draws the
+     * next one at the rate of the processes running now.
+     */
+    private void redrawAccess(double now) {
+        accessGeneration++;
+        if (runningCount > 0 && workload.accessRate() > 0) {
+            queue.schedule(now + exponentialGap(accessRandom, accessRate()),
+                    accessGeneration << KIND_BITS | ACCESS);
+        }
+    }
+
+    private double accessRate() {
+        return workload.accessRate() * runningCount;
+    }
+
+    private void writeSample(double now, PrintStream out) {
+        double utilization = (numberOfFrames - manager.getFreeFrameCount()) / (double) numberOfFrames;
+        double failureRate = intervalArrivals == 0 ? 0 : intervalRejections / (double) intervalArrivals;
+        out.printf(Locale.ROOT, "%.3f,%d,%.4f,%d,%d,%.4f,%d,%d%n", now, runningCount, utilization,
+                intervalArrivals, intervalRejections, failureRate, intervalAccesses, intervalAccessFailures);
+        intervalArrivals = 0;
+        intervalRejections = 0;
+        intervalAccesses = 0;
+        intervalAccessFailures = 0;
+    }
+
+    private int takeSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (runningCount == processIds.length) {
+            int capacity = runningCount * 2;
+            processIds = Arrays.copyOf(processIds, capacity);
+            pages = Arrays.copyOf(pages, capacity);
+            lastPages = Arrays.copyOf(lastPages, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            running = Arrays.copyOf(running, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return runningCount;
+    }
+
+    private static double exponentialGap(SplittableRandom random, double rate) {
+        return -Math.log(1.0 - random.nextDouble()) / rate;
+    }
+
+    /**
+     * This method writes the totals of the run, each line starting
+     * with # so they can follow the samples in the same output.
+     */
+    public void printSummary(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        long rejected = arrivals - created;
+        out.printf(Locale.ROOT, "# events: %d, elapsed: %.3f s, throughput: %.0f events/s%n",
+                events, seconds, seconds == 0 ? 0 : events / seconds);
+        out.printf(Locale.ROOT, "# arrivals: %d, created: %d, rejected: %d, failure rate: %.4f%n",
+                arrivals, created, rejected, arrivals == 0 ? 0 : rejected / (double) arrivals);
+        for (AllocationStatus status : STATUSES) {
+            if (rejections[status.ordinal()] > 0) {
+                out.printf("#   %s: %d%n", status.name().toLowerCase().replace('_', '-'),
+                        rejections[status.ordinal()]);
+            }
+        }
+        out.printf("# accesses: %d, failed: %d, still running: %d%n", accesses, accessFailures, runningCount);
+    }
+
+    public long events() {
+        return events;
+    }
+
+    public long arrivals() {
+        return arrivals;
+    }
+
+    public long created() {
+        return created;
+    }
+
+    public long rejections(AllocationStatus status) {
+        return rejections[status.ordinal()];
+    }
+
+    public long accesses() {
+        return accesses;
+    }
+
+    public long accessFailures() {
+        return accessFailures;
+    }
+
+    public int runningProcesses() {
+        return runningCount;
+    }
+}
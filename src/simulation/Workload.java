@@ -0,0 +1,82 @@
+package simulation;
+
+/**
+ * What a simulation throws at a manager: processes arriving as a
+ * Poisson process, with sizes and lifetimes drawn from distributions,
+ * each accessing its pages at a given rate while it runs.
+ *
+ * Rates are per unit of simulated time, which has no meaning of its
+ * own; lifetimes, durations and sample intervals use the same unit.
+ */
+public class Workload {
+
+    private final double arrivalRate;
+    private final Distribution size;
+    private final Distribution lifetime;
+    private final double accessRate;
+    private final AccessPattern accessPattern;
+    private final double writeRatio;
+
+    /**
+     * @param arrivalRate how many processes arrive per unit of time, on average
+     * @param size the size of each process, in bytes
+     * @param lifetime how long each process runs before it is terminated
+     */
+    public Workload(double arrivalRate, Distribution size, Distribution lifetime) {
+        this(arrivalRate, size, lifetime, 0, AccessPattern.uniform(), 0);
+    }
+
+    private Workload(double arrivalRate, Distribution size, Distribution lifetime,
+                     double accessRate, AccessPattern accessPattern, double writeRatio) {
+        if (!(arrivalRate > 0)) {
+            throw new IllegalArgumentException("The arrival rate must be positive.");
+        }
+        if (!(accessRate >= 0) || !(writeRatio >= 0 && writeRatio <= 1)) {
+            throw new IllegalArgumentException("The access rate can't be negative, nor the write ratio above 1.");
+        }
+        this.arrivalRate = arrivalRate;
+        this.size = size;
+        this.lifetime = lifetime;
+        this.accessRate = accessRate;
+        this.accessPattern = accessPattern;
+        this.writeRatio = writeRatio;
+    }
+
+    /**
+     *
+     * This method returns a copy of this workload whose processes
+     * access their memory while they run.
+     *
+     * @param rate how many accesses each running process makes per unit of time, on average
+     * @param pattern which pages the accesses touch
+     * @param writeRatio the share of the accesses that write a byte instead of reading one
+     *
+     */
+    public Workload withAccesses(double rate, AccessPattern pattern, double writeRatio) {
+        return new Workload(arrivalRate, size, lifetime, rate, pattern, writeRatio);
+    }
+
+    public double arrivalRate() {
+        return arrivalRate;
+    }
+
+    public Distribution size() {
+        return size;
+    }
+
+    public Distribution lifetime() {
+        return lifetime;
+    }
+
+    public double accessRate() {
+        return accessRate;
+    }
+
+    public AccessPattern accessPattern() {
+        return accessPattern;
+    }
+
+    public double writeRatio() {
+        return writeRatio;
+    }
+}